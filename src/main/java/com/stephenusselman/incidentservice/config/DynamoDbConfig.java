@@ -5,6 +5,7 @@ import java.net.URI;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
@@ -13,7 +14,8 @@ import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
 
 /**
- * Configuration for DynamoDB.
+ * Configuration for DynamoDB and the pools used for parallel scans and
+ * parallel index queries.
  * Automatically switches between DynamoDB Local (for development) and AWS DynamoDB (for production/EB).
  */
 @Configuration
@@ -29,6 +31,18 @@ public class DynamoDbConfig {
     @Value("${dynamodb.region}")
     private String region;
 
+    /** Number of threads that read parallel scan segments */
+    @Value("${dynamodb.scan.pool-size:8}")
+    private int scanPoolSize;
+
+    /** Number of threads that run the parallel queries of sharded and time-range reads */
+    @Value("${dynamodb.query.pool-size:16}")
+    private int queryPoolSize;
+
+    /** Maximum number of index queries waiting for a free thread */
+    @Value("${dynamodb.query.queue-capacity:256}")
+    private int queryQueueCapacity;
+
     /**
      * Low-level DynamoDB client.
      * Uses either local endpoint or AWS credentials depending on environment.
@@ -63,4 +77,37 @@ public class DynamoDbConfig {
                 .dynamoDbClient(dynamoDbClient)
                 .build();
     }
-}
\ No newline at end of file
+
+    /**
+     * Pool that reads the segments of parallel scans. Segments beyond the
+     * pool size wait for a free thread.
+     *
+     * @return the managed scan executor
+     */
+    @Bean(name = "dynamoDbScanExecutor")
+    public ThreadPoolTaskExecutor dynamoDbScanExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(scanPoolSize);
+        executor.setMaxPoolSize(scanPoolSize);
+        executor.setThreadNamePrefix("dynamodb-scan-");
+        return executor;
+    }
+
+    /**
+     * Pool that runs the per-shard and per-day index queries of request
+     * reads, kept apart from the scan pool so a long scan, purge or
+     * backfill cannot delay them. Queries beyond the queue capacity are
+     * rejected rather than piling up.
+     *
+     * @return the managed query executor
+     */
+    @Bean(name = "dynamoDbQueryExecutor")
+    public ThreadPoolTaskExecutor dynamoDbQueryExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(queryPoolSize);
+        executor.setMaxPoolSize(queryPoolSize);
+        executor.setQueueCapacity(queryQueueCapacity);
+        executor.setThreadNamePrefix("dynamodb-query-");
+        return executor;
+    }
+}
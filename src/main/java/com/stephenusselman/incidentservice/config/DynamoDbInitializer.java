@@ -2,16 +2,25 @@ package com.stephenusselman.incidentservice.config;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.context.annotation.Profile;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
 
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
+import software.amazon.awssdk.services.dynamodb.model.CreateGlobalSecondaryIndexAction;
 import software.amazon.awssdk.services.dynamodb.model.CreateTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteGlobalSecondaryIndexAction;
 import software.amazon.awssdk.services.dynamodb.model.GlobalSecondaryIndex;
+import software.amazon.awssdk.services.dynamodb.model.GlobalSecondaryIndexDescription;
+import software.amazon.awssdk.services.dynamodb.model.GlobalSecondaryIndexUpdate;
 import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
 import software.amazon.awssdk.services.dynamodb.model.KeyType;
 import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughput;
@@ -19,12 +28,22 @@ import software.amazon.awssdk.services.dynamodb.model.Projection;
 import software.amazon.awssdk.services.dynamodb.model.ProjectionType;
 import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
 import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
+import software.amazon.awssdk.services.dynamodb.model.TableDescription;
+import software.amazon.awssdk.services.dynamodb.model.TimeToLiveSpecification;
+import software.amazon.awssdk.services.dynamodb.model.UpdateTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateTimeToLiveRequest;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 
 
 /**
- * Initializes the DynamoDB table for Incidents at application startup.
- * Ensures the table exists with proper global secondary indexes.
+ * Initializes the DynamoDB tables for Incidents, the enrichment queue, the
+ * enrichment result cache and enrichment job checkpoints at application startup.
+ * Ensures the tables exist with proper global secondary indexes,
+ * adding any index that is missing from an existing table.
+ * The unsharded severity and category indexes are kept, so reads can be
+ * switched back to them, until both {@code dynamodb.sharded-indexes.enabled}
+ * and {@code dynamodb.sharded-indexes.drop-legacy} are set; then they are
+ * not created, and are dropped from an existing table.
  * Only runs for "local" or "seed" profiles.
  */
 @Configuration
@@ -34,30 +53,54 @@ public class DynamoDbInitializer {
     private final DynamoDbEnhancedClient enhancedClient;
     private final DynamoDbClient dynamoDbClient;
 
-    public DynamoDbInitializer(DynamoDbEnhancedClient enhancedClient, DynamoDbClient dynamoDbClient) {
+    /** Whether the unsharded severity and category indexes are kept */
+    private final boolean legacyIndexes;
+
+    public DynamoDbInitializer(
+            DynamoDbEnhancedClient enhancedClient,
+            DynamoDbClient dynamoDbClient,
+            @Value("${dynamodb.sharded-indexes.enabled:false}") boolean shardedIndexes,
+            @Value("${dynamodb.sharded-indexes.drop-legacy:false}") boolean dropLegacy) {
         this.enhancedClient = enhancedClient;
         this.dynamoDbClient = dynamoDbClient;
+        this.legacyIndexes = !(shardedIndexes && dropLegacy);
     }
 
+    /**
+     * Creates any missing tables. Runs before other startup listeners so
+     * that seeders and queue workers find their tables in place.
+     */
     @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
     public void initialize() {
-        String tableName = "Incidents";
+        createIncidentsTable();
+        createEnrichmentQueueTable();
+        createEnrichmentCacheTable();
+        createEnrichmentJobsTable();
+    }
 
-        // Check if table already exists
-        try {
-            dynamoDbClient.describeTable(DescribeTableRequest.builder().tableName(tableName).build());
-            System.out.println("DynamoDB table '" + tableName + "' already exists. Skipping creation.");
-            return;
-        } catch (ResourceNotFoundException e) {
-            System.out.println("DynamoDB table '" + tableName + "' not found. Creating...");
-        }
+    /**
+     * Creates the Incidents table with its severity, category, backlog,
+     * created-day and sharded severity and category indexes, or adds any of
+     * those indexes missing from an existing table. The unsharded severity
+     * and category indexes are left out, and dropped if present, once reads
+     * use the sharded ones and dropping them is enabled.
+     */
+    private void createIncidentsTable() {
+        String tableName = "Incidents";
 
         // Define attribute definitions
         List<AttributeDefinition> attributeDefinitions = new ArrayList<>();
         attributeDefinitions.add(AttributeDefinition.builder().attributeName("incidentId").attributeType("S").build());
-        attributeDefinitions.add(AttributeDefinition.builder().attributeName("severity").attributeType("S").build());
-        attributeDefinitions.add(AttributeDefinition.builder().attributeName("category").attributeType("S").build());
+        if (legacyIndexes) {
+            attributeDefinitions.add(AttributeDefinition.builder().attributeName("severity").attributeType("S").build());
+            attributeDefinitions.add(AttributeDefinition.builder().attributeName("category").attributeType("S").build());
+        }
         attributeDefinitions.add(AttributeDefinition.builder().attributeName("createdAt").attributeType("S").build());
+        attributeDefinitions.add(AttributeDefinition.builder().attributeName("aiBacklogStatus").attributeType("S").build());
+        attributeDefinitions.add(AttributeDefinition.builder().attributeName("createdDay").attributeType("S").build());
+        attributeDefinitions.add(AttributeDefinition.builder().attributeName("severityShard").attributeType("S").build());
+        attributeDefinitions.add(AttributeDefinition.builder().attributeName("categoryShard").attributeType("S").build());
 
         // Define key schema
         List<KeySchemaElement> keySchema = new ArrayList<>();
@@ -66,10 +109,58 @@ public class DynamoDbInitializer {
         // Define global secondary indexes
         List<GlobalSecondaryIndex> gsiList = new ArrayList<>();
 
+        // Unsharded severity and category: until reads moved off them for good
+        if (legacyIndexes) {
+            gsiList.add(GlobalSecondaryIndex.builder()
+                    .indexName("severity-index")
+                    .keySchema(
+                            KeySchemaElement.builder().attributeName("severity").keyType(KeyType.HASH).build(),
+                            KeySchemaElement.builder().attributeName("createdAt").keyType(KeyType.RANGE).build()
+                    )
+                    .projection(Projection.builder().projectionType(ProjectionType.ALL).build())
+                    .provisionedThroughput(ProvisionedThroughput.builder().readCapacityUnits(5L).writeCapacityUnits(5L).build())
+                    .build());
+
+            gsiList.add(GlobalSecondaryIndex.builder()
+                    .indexName("category-index")
+                    .keySchema(
+                            KeySchemaElement.builder().attributeName("category").keyType(KeyType.HASH).build(),
+                            KeySchemaElement.builder().attributeName("createdAt").keyType(KeyType.RANGE).build()
+                    )
+                    .projection(Projection.builder().projectionType(ProjectionType.ALL).build())
+                    .provisionedThroughput(ProvisionedThroughput.builder().readCapacityUnits(5L).writeCapacityUnits(5L).build())
+                    .build());
+        }
+
+        // Sparse: only PENDING and FAILED incidents carry aiBacklogStatus
+        gsiList.add(GlobalSecondaryIndex.builder()
+                .indexName("ai-backlog-index")
+                .keySchema(
+                        KeySchemaElement.builder().attributeName("aiBacklogStatus").keyType(KeyType.HASH).build(),
+                        KeySchemaElement.builder().attributeName("createdAt").keyType(KeyType.RANGE).build()
+                )
+                .projection(Projection.builder().projectionType(ProjectionType.ALL).build())
+                .provisionedThroughput(ProvisionedThroughput.builder().readCapacityUnits(5L).writeCapacityUnits(5L).build())
+                .build());
+
+        // Time buckets: one partition per day and shard, so a date range is a
+        // few queries instead of a full-table scan
+        gsiList.add(GlobalSecondaryIndex.builder()
+                .indexName("created-day-index")
+                .keySchema(
+                        KeySchemaElement.builder().attributeName("createdDay").keyType(KeyType.HASH).build(),
+                        KeySchemaElement.builder().attributeName("createdAt").keyType(KeyType.RANGE).build()
+                )
+                .projection(Projection.builder().projectionType(ProjectionType.ALL).build())
+                .provisionedThroughput(ProvisionedThroughput.builder().readCapacityUnits(5L).writeCapacityUnits(5L).build())
+                .build());
+
+        // Write-sharded severity and category: each value spread over several
+        // partitions so ingest of one severity or category has no hot key
         gsiList.add(GlobalSecondaryIndex.builder()
-                .indexName("severity-index")
+                .indexName("severity-shard-index")
                 .keySchema(
-                        KeySchemaElement.builder().attributeName("severity").keyType(KeyType.HASH).build(),
+                        KeySchemaElement.builder().attributeName("severityShard").keyType(KeyType.HASH).build(),
                         KeySchemaElement.builder().attributeName("createdAt").keyType(KeyType.RANGE).build()
                 )
                 .projection(Projection.builder().projectionType(ProjectionType.ALL).build())
@@ -77,33 +168,236 @@ public class DynamoDbInitializer {
                 .build());
 
         gsiList.add(GlobalSecondaryIndex.builder()
-                .indexName("category-index")
+                .indexName("category-shard-index")
                 .keySchema(
-                        KeySchemaElement.builder().attributeName("category").keyType(KeyType.HASH).build(),
+                        KeySchemaElement.builder().attributeName("categoryShard").keyType(KeyType.HASH).build(),
                         KeySchemaElement.builder().attributeName("createdAt").keyType(KeyType.RANGE).build()
                 )
                 .projection(Projection.builder().projectionType(ProjectionType.ALL).build())
                 .provisionedThroughput(ProvisionedThroughput.builder().readCapacityUnits(5L).writeCapacityUnits(5L).build())
                 .build());
 
+        if (tableExists(tableName)) {
+            addMissingIndexes(tableName, attributeDefinitions, gsiList);
+            if (!legacyIndexes) {
+                dropIndexes(tableName, List.of("severity-index", "category-index"));
+            }
+            return;
+        }
+
+        createTable(tableName, attributeDefinitions, keySchema, gsiList);
+    }
+
+    /**
+     * Creates the EnrichmentQueue table. The visibility index lets workers
+     * find claimable tasks with a query instead of a scan.
+     */
+    private void createEnrichmentQueueTable() {
+        String tableName = "EnrichmentQueue";
+
+        if (tableExists(tableName)) {
+            return;
+        }
+
+        List<AttributeDefinition> attributeDefinitions = new ArrayList<>();
+        attributeDefinitions.add(AttributeDefinition.builder().attributeName("incidentId").attributeType("S").build());
+        attributeDefinitions.add(AttributeDefinition.builder().attributeName("queueName").attributeType("S").build());
+        attributeDefinitions.add(AttributeDefinition.builder().attributeName("visibleAt").attributeType("S").build());
+
+        List<KeySchemaElement> keySchema = new ArrayList<>();
+        keySchema.add(KeySchemaElement.builder().attributeName("incidentId").keyType(KeyType.HASH).build());
+
+        List<GlobalSecondaryIndex> gsiList = new ArrayList<>();
+
+        gsiList.add(GlobalSecondaryIndex.builder()
+                .indexName("queue-visibility-index")
+                .keySchema(
+                        KeySchemaElement.builder().attributeName("queueName").keyType(KeyType.HASH).build(),
+                        KeySchemaElement.builder().attributeName("visibleAt").keyType(KeyType.RANGE).build()
+                )
+                .projection(Projection.builder().projectionType(ProjectionType.ALL).build())
+                .provisionedThroughput(ProvisionedThroughput.builder().readCapacityUnits(5L).writeCapacityUnits(5L).build())
+                .build());
+
+        createTable(tableName, attributeDefinitions, keySchema, gsiList);
+    }
+
+    /**
+     * Creates the EnrichmentCache table used as the persistent tier of the
+     * enrichment result cache, with TTL enabled on {@code expiresAt}.
+     */
+    private void createEnrichmentCacheTable() {
+        String tableName = "EnrichmentCache";
+
+        if (tableExists(tableName)) {
+            return;
+        }
+
+        List<AttributeDefinition> attributeDefinitions = new ArrayList<>();
+        attributeDefinitions.add(AttributeDefinition.builder().attributeName("cacheKey").attributeType("S").build());
+
+        List<KeySchemaElement> keySchema = new ArrayList<>();
+        keySchema.add(KeySchemaElement.builder().attributeName("cacheKey").keyType(KeyType.HASH).build());
+
+        createTable(tableName, attributeDefinitions, keySchema, List.of());
+
+        dynamoDbClient.updateTimeToLive(UpdateTimeToLiveRequest.builder()
+                .tableName(tableName)
+                .timeToLiveSpecification(TimeToLiveSpecification.builder()
+                        .attributeName("expiresAt")
+                        .enabled(true)
+                        .build())
+                .build());
+    }
+
+    /**
+     * Creates the EnrichmentJobs table holding the checkpoint and lease of
+     * each long-running enrichment job.
+     */
+    private void createEnrichmentJobsTable() {
+        String tableName = "EnrichmentJobs";
+
+        if (tableExists(tableName)) {
+            return;
+        }
+
+        List<AttributeDefinition> attributeDefinitions = new ArrayList<>();
+        attributeDefinitions.add(AttributeDefinition.builder().attributeName("jobName").attributeType("S").build());
+
+        List<KeySchemaElement> keySchema = new ArrayList<>();
+        keySchema.add(KeySchemaElement.builder().attributeName("jobName").keyType(KeyType.HASH).build());
+
+        createTable(tableName, attributeDefinitions, keySchema, List.of());
+    }
+
+    /**
+     * Checks whether a table exists.
+     *
+     * @param tableName the table name
+     * @return true if the table exists
+     */
+    private boolean tableExists(String tableName) {
+        try {
+            dynamoDbClient.describeTable(DescribeTableRequest.builder().tableName(tableName).build());
+            System.out.println("DynamoDB table '" + tableName + "' already exists. Skipping creation.");
+            return true;
+        } catch (ResourceNotFoundException e) {
+            System.out.println("DynamoDB table '" + tableName + "' not found. Creating...");
+            return false;
+        }
+    }
+
+    /**
+     * Adds indexes that are defined in code but missing from an existing
+     * table, one at a time as DynamoDB requires.
+     */
+    private void addMissingIndexes(
+            String tableName,
+            List<AttributeDefinition> attributeDefinitions,
+            List<GlobalSecondaryIndex> gsiList) {
+
+        Set<String> existing = dynamoDbClient.describeTable(
+                DescribeTableRequest.builder().tableName(tableName).build()
+        ).table().globalSecondaryIndexes().stream()
+                .map(GlobalSecondaryIndexDescription::indexName)
+                .collect(Collectors.toSet());
+
+        for (GlobalSecondaryIndex gsi : gsiList) {
+            if (existing.contains(gsi.indexName())) {
+                continue;
+            }
+            System.out.println("Adding GSI '" + gsi.indexName() + "' to DynamoDB table '" + tableName + "'...");
+
+            Set<String> keyAttributes = gsi.keySchema().stream()
+                    .map(KeySchemaElement::attributeName)
+                    .collect(Collectors.toSet());
+
+            dynamoDbClient.updateTable(UpdateTableRequest.builder()
+                    .tableName(tableName)
+                    .attributeDefinitions(attributeDefinitions.stream()
+                            .filter(a -> keyAttributes.contains(a.attributeName()))
+                            .toList())
+                    .globalSecondaryIndexUpdates(GlobalSecondaryIndexUpdate.builder()
+                            .create(CreateGlobalSecondaryIndexAction.builder()
+                                    .indexName(gsi.indexName())
+                                    .keySchema(gsi.keySchema())
+                                    .projection(gsi.projection())
+                                    .provisionedThroughput(gsi.provisionedThroughput())
+                                    .build())
+                            .build())
+                    .build());
+
+            waitUntilActive(tableName);
+        }
+    }
+
+    /**
+     * Drops the given indexes from an existing table if present, one at a
+     * time as DynamoDB requires.
+     */
+    private void dropIndexes(String tableName, List<String> indexNames) {
+        Set<String> existing = dynamoDbClient.describeTable(
+                DescribeTableRequest.builder().tableName(tableName).build()
+        ).table().globalSecondaryIndexes().stream()
+                .map(GlobalSecondaryIndexDescription::indexName)
+                .collect(Collectors.toSet());
+
+        for (String indexName : indexNames) {
+            if (!existing.contains(indexName)) {
+                continue;
+            }
+            System.out.println("Dropping GSI '" + indexName + "' from DynamoDB table '" + tableName + "'...");
+
+            dynamoDbClient.updateTable(UpdateTableRequest.builder()
+                    .tableName(tableName)
+                    .globalSecondaryIndexUpdates(GlobalSecondaryIndexUpdate.builder()
+                            .delete(DeleteGlobalSecondaryIndexAction.builder().indexName(indexName).build())
+                            .build())
+                    .build());
+
+            waitUntilActive(tableName);
+        }
+    }
+
+    /**
+     * Creates a table and waits until it is ACTIVE.
+     */
+    private void createTable(
+            String tableName,
+            List<AttributeDefinition> attributeDefinitions,
+            List<KeySchemaElement> keySchema,
+            List<GlobalSecondaryIndex> gsiList) {
+
         // Build create table request
-        CreateTableRequest request = CreateTableRequest.builder()
+        CreateTableRequest.Builder request = CreateTableRequest.builder()
                 .tableName(tableName)
                 .attributeDefinitions(attributeDefinitions)
                 .keySchema(keySchema)
-                .globalSecondaryIndexes(gsiList)
-                .provisionedThroughput(ProvisionedThroughput.builder().readCapacityUnits(5L).writeCapacityUnits(5L).build())
-                .build();
+                .provisionedThroughput(ProvisionedThroughput.builder().readCapacityUnits(5L).writeCapacityUnits(5L).build());
+
+        if (!gsiList.isEmpty()) {
+            request.globalSecondaryIndexes(gsiList);
+        }
 
         // Create the table
-        dynamoDbClient.createTable(request);
+        dynamoDbClient.createTable(request.build());
+        waitUntilActive(tableName);
+    }
+
+    /**
+     * Waits until the table and all of its indexes are ACTIVE.
+     */
+    private void waitUntilActive(String tableName) {
         while (true) {
             try {
-                String status = dynamoDbClient.describeTable(
+                TableDescription table = dynamoDbClient.describeTable(
                     DescribeTableRequest.builder().tableName(tableName).build()
-                ).table().tableStatusAsString();
+                ).table();
+
+                boolean indexesActive = table.globalSecondaryIndexes().stream()
+                        .allMatch(gsi -> "ACTIVE".equals(gsi.indexStatusAsString()));
 
-                if ("ACTIVE".equals(status)) break;
+                if ("ACTIVE".equals(table.tableStatusAsString()) && indexesActive) break;
                 Thread.sleep(500);
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
@@ -0,0 +1,95 @@
+package com.stephenusselman.incidentservice.config;
+
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Configuration for the shared executor that runs AI enrichment calls
+ * and the timer that drives attempt timeouts and retry backoff.
+ *
+ * The pool is fixed-size with a bounded queue so that a burst of incident
+ * creations cannot grow the number of threads without limit. Tasks that
+ * do not fit are rejected and counted rather than queued indefinitely.
+ */
+@Configuration
+public class EnrichmentExecutorConfig {
+
+    /** Number of worker threads dedicated to AI calls */
+    @Value("${ai.enrichment.executor.pool-size:8}")
+    private int poolSize;
+
+    /** Maximum number of AI calls waiting for a free worker */
+    @Value("${ai.enrichment.executor.queue-capacity:500}")
+    private int queueCapacity;
+
+    /** Seconds to wait for in-flight calls to finish on shutdown */
+    @Value("${ai.enrichment.executor.await-termination-seconds:30}")
+    private int awaitTerminationSeconds;
+
+    /** Number of timer threads used for timeouts and retry scheduling */
+    @Value("${ai.enrichment.scheduler.pool-size:2}")
+    private int schedulerPoolSize;
+
+    /**
+     * Bounded executor used by the enrichment coordinator for AI calls.
+     * Exposes active, queued and rejected task metrics.
+     *
+     * @param meterRegistry registry used to publish executor metrics
+     * @return the managed enrichment executor
+     */
+    @Bean(name = "aiEnrichmentExecutor")
+    public ThreadPoolTaskExecutor aiEnrichmentExecutor(MeterRegistry meterRegistry) {
+        Counter rejected = Counter.builder("ai.enrichment.executor.rejected")
+                .description("AI enrichment tasks rejected because the executor was saturated")
+                .register(meterRegistry);
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("ai-enrichment-");
+        executor.setRejectedExecutionHandler((task, pool) -> {
+            rejected.increment();
+            throw new RejectedExecutionException("AI enrichment executor is saturated");
+        });
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(awaitTerminationSeconds);
+
+        Gauge.builder("ai.enrichment.executor.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+                .description("AI enrichment tasks currently running")
+                .register(meterRegistry);
+        Gauge.builder("ai.enrichment.executor.queued", executor, ThreadPoolTaskExecutor::getQueueSize)
+                .description("AI enrichment tasks waiting for a worker")
+                .register(meterRegistry);
+
+        return executor;
+    }
+
+    /**
+     * Timer shared by the enrichment stages: attempt timeouts, retry
+     * backoff, hedges, batch flushes, token budget drains and the periodic
+     * jobs all fire on it. Its few threads only hand work off; AI calls,
+     * DynamoDB reads and writes and anything else that blocks must run on
+     * the enrichment executor or a job's own thread, or they would delay
+     * every timeout behind them.
+     *
+     * @return the managed enrichment scheduler
+     */
+    @Bean(name = "aiEnrichmentScheduler")
+    public ThreadPoolTaskScheduler aiEnrichmentScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(schedulerPoolSize);
+        scheduler.setThreadNamePrefix("ai-enrichment-timer-");
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+}
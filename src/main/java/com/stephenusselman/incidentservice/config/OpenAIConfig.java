@@ -1,31 +1,86 @@
 package com.stephenusselman.incidentservice.config;
 
+import java.time.Duration;
+
 import com.openai.client.OpenAIClient;
 import com.openai.client.okhttp.OpenAIOkHttpClient;
+import com.openai.core.Timeout;
+import com.stephenusselman.incidentservice.service.ai.EnrichmentRetryPolicy;
 
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 /**
  * Spring configuration for OpenAI client integration.
+ * Not loaded under the {@code stub} profile, which needs no API key.
+ *
+ * The client takes its retries and timeouts from the
+ * {@link EnrichmentRetryPolicy}, so SDK retries (disabled by default) do not
+ * multiply the coordinator's attempts, and each HTTP request is bounded by
+ * the same per-attempt timeout the coordinator enforces.
  */
 @Configuration
+@Profile("!stub")
 public class OpenAIConfig {
 
+    /** Time allowed to establish a connection to the API */
+    @Value("${ai.openai.http.connect-timeout-ms:2000}")
+    private long connectTimeoutMs;
+
+    /** Threads running the HTTP client's calls, which caps calls on the wire */
+    @Value("${ai.openai.http.dispatcher-threads:16}")
+    private int dispatcherThreads;
+
+    /**
+     * Executor that runs the OpenAI HTTP client's calls.
+     *
+     * @return the managed HTTP dispatcher executor
+     */
+    @Bean(name = "openAIHttpDispatcher")
+    public ThreadPoolTaskExecutor openAIHttpDispatcher() {
+        if (dispatcherThreads < 1) {
+            throw new IllegalArgumentException("ai.openai.http.dispatcher-threads must be at least 1");
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(dispatcherThreads);
+        executor.setMaxPoolSize(dispatcherThreads);
+        executor.setThreadNamePrefix("openai-http-");
+        executor.setDaemon(true);
+        return executor;
+    }
+
     /**
      * Provides a configured OpenAI client using environment-based configuration.
      *
+     * @param apiKey the OpenAI API key
+     * @param retryPolicy the enrichment retry policy supplying retries and timeouts
+     * @param dispatcher the executor running HTTP calls
      * @return an initialized {@link OpenAIClient}
      */
     @Bean
-    public OpenAIClient openAIClient(@Value("${openai.api-key}") String apiKey) {
+    public OpenAIClient openAIClient(
+            @Value("${openai.api-key}") String apiKey,
+            EnrichmentRetryPolicy retryPolicy,
+            @Qualifier("openAIHttpDispatcher") ThreadPoolTaskExecutor dispatcher) {
         if (apiKey == null || apiKey.isBlank()) {
             throw new IllegalStateException("OPENAI_API_KEY is not configured");
         }
 
+        Duration attemptTimeout = Duration.ofMillis(retryPolicy.getAttemptTimeoutMs());
         return OpenAIOkHttpClient.builder()
                 .apiKey(apiKey)
+                .maxRetries(retryPolicy.getSdkMaxRetries())
+                .timeout(Timeout.builder()
+                        .connect(Duration.ofMillis(connectTimeoutMs))
+                        .read(attemptTimeout)
+                        .write(attemptTimeout)
+                        .request(attemptTimeout)
+                        .build())
+                .dispatcherExecutorService(dispatcher.getThreadPoolExecutor())
                 .build();
     }
-}
\ No newline at end of file
+}
@@ -54,9 +54,12 @@ public class IncidentController {
                 .aiStatus(incident.getAiStatus())
                 .severity(incident.getSeverity())
                 .category(incident.getCategory())
+                .classificationSource(incident.getClassificationSource())
                 .aiSummary(incident.getAiSummary())
                 .recommendedAction(incident.getRecommendedAction())
                 .aiErrorMessage(incident.getAiErrorMessage())
+                .promptVersion(incident.getPromptVersion())
+                .aiModel(incident.getAiModel())
                 .build();
 
         return ResponseEntity.ok(response);
@@ -86,9 +89,12 @@ public class IncidentController {
             .aiStatus(incident.getAiStatus())
             .severity(incident.getSeverity())
             .category(incident.getCategory())
+            .classificationSource(incident.getClassificationSource())
             .aiSummary(incident.getAiSummary())
             .recommendedAction(incident.getRecommendedAction())
             .aiErrorMessage(incident.getAiErrorMessage())
+            .promptVersion(incident.getPromptVersion())
+            .aiModel(incident.getAiModel())
             .build();
     }
 
@@ -136,4 +142,28 @@ public class IncidentController {
 
         return response;
     }
-}
+
+    /**
+     * List incidents whose AI enrichment is incomplete, oldest first.
+     *
+     * Backed by a sparse index that only contains PENDING and FAILED
+     * incidents, so the cost is proportional to the backlog, not the table.
+     *
+     * Examples:
+     * GET /api/incidents/backlog?status=FAILED&limit=50
+     * GET /api/incidents/backlog?status=PENDING&lastKey=eyJpbmNpZGVudElkIjoiMTIzIn0
+     *
+     * @param status the backlog status to list: PENDING (default) or FAILED
+     * @param limit maximum number of incidents to return (default is 10)
+     * @param lastKey optional pagination token from a previous response
+     * @return a paged response containing backlog incidents and an optional pagination key
+     */
+    @GetMapping("/backlog")
+    public PagedIncidentResponse searchBacklog(
+            @RequestParam(defaultValue = "PENDING") String status,
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(required = false) String lastKey) {
+
+        return incidentService.searchBacklog(status.toUpperCase(), limit, lastKey);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,213 @@
+package com.stephenusselman.incidentservice.domain;
+
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbAttribute;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbBean;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbPartitionKey;
+
+/**
+ * A cached AI enrichment result stored in the persistent cache tier.
+ * Primary key is {@code cacheKey}, a hash of the normalized incident
+ * description and the prompt version and model that produced the result.
+ */
+@DynamoDbBean
+public class EnrichmentCacheEntry {
+
+    /** Hash of the normalized description, prompt version and model */
+    private String cacheKey;
+
+    /** Prompt version the result was produced with */
+    private String promptVersion;
+
+    /** Model the result was produced with */
+    private String aiModel;
+
+    /** Cached AI severity */
+    private String severity;
+
+    /** Cached AI category */
+    private String category;
+
+    /** Cached AI summary */
+    private String summary;
+
+    /** Cached AI recommended action */
+    private String recommendedAction;
+
+    /** Timestamp when the entry was written */
+    private String createdAt;
+
+    /** Expiry in epoch seconds, used as the DynamoDB TTL attribute */
+    private Long expiresAt;
+
+    /**
+     * Gets the cache key. This is the primary partition key.
+     *
+     * @return the cache key
+     */
+    @DynamoDbPartitionKey
+    @DynamoDbAttribute("cacheKey")
+    public String getCacheKey() {
+        return cacheKey;
+    }
+
+    /**
+     * Sets the cache key.
+     *
+     * @param cacheKey the cache key
+     */
+    public void setCacheKey(String cacheKey) {
+        this.cacheKey = cacheKey;
+    }
+
+    /**
+     * Gets the prompt version the result was produced with.
+     *
+     * @return the prompt version
+     */
+    @DynamoDbAttribute("promptVersion")
+    public String getPromptVersion() {
+        return promptVersion;
+    }
+
+    /**
+     * Sets the prompt version the result was produced with.
+     *
+     * @param promptVersion the prompt version
+     */
+    public void setPromptVersion(String promptVersion) {
+        this.promptVersion = promptVersion;
+    }
+
+    /**
+     * Gets the model the result was produced with.
+     *
+     * @return the model
+     */
+    @DynamoDbAttribute("aiModel")
+    public String getAiModel() {
+        return aiModel;
+    }
+
+    /**
+     * Sets the model the result was produced with.
+     *
+     * @param aiModel the model
+     */
+    public void setAiModel(String aiModel) {
+        this.aiModel = aiModel;
+    }
+
+    /**
+     * Gets the cached severity.
+     *
+     * @return the severity
+     */
+    @DynamoDbAttribute("severity")
+    public String getSeverity() {
+        return severity;
+    }
+
+    /**
+     * Sets the cached severity.
+     *
+     * @param severity the severity
+     */
+    public void setSeverity(String severity) {
+        this.severity = severity;
+    }
+
+    /**
+     * Gets the cached category.
+     *
+     * @return the category
+     */
+    @DynamoDbAttribute("category")
+    public String getCategory() {
+        return category;
+    }
+
+    /**
+     * Sets the cached category.
+     *
+     * @param category the category
+     */
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    /**
+     * Gets the cached summary.
+     *
+     * @return the summary
+     */
+    @DynamoDbAttribute("summary")
+    public String getSummary() {
+        return summary;
+    }
+
+    /**
+     * Sets the cached summary.
+     *
+     * @param summary the summary
+     */
+    public void setSummary(String summary) {
+        this.summary = summary;
+    }
+
+    /**
+     * Gets the cached recommended action.
+     *
+     * @return the recommended action
+     */
+    @DynamoDbAttribute("recommendedAction")
+    public String getRecommendedAction() {
+        return recommendedAction;
+    }
+
+    /**
+     * Sets the cached recommended action.
+     *
+     * @param recommendedAction the recommended action
+     */
+    public void setRecommendedAction(String recommendedAction) {
+        this.recommendedAction = recommendedAction;
+    }
+
+    /**
+     * Gets the time the entry was written.
+     *
+     * @return the creation timestamp as an ISO-8601 string
+     */
+    @DynamoDbAttribute("createdAt")
+    public String getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * Sets the time the entry was written.
+     *
+     * @param createdAt the creation timestamp as an ISO-8601 string
+     */
+    public void setCreatedAt(String createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    /**
+     * Gets the expiry time. DynamoDB TTL deletes the item some time after this.
+     *
+     * @return the expiry in epoch seconds
+     */
+    @DynamoDbAttribute("expiresAt")
+    public Long getExpiresAt() {
+        return expiresAt;
+    }
+
+    /**
+     * Sets the expiry time.
+     *
+     * @param expiresAt the expiry in epoch seconds
+     */
+    public void setExpiresAt(Long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
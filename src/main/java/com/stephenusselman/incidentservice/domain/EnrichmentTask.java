@@ -0,0 +1,203 @@
+package com.stephenusselman.incidentservice.domain;
+
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbAttribute;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbBean;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbPartitionKey;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbSecondaryPartitionKey;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbSecondarySortKey;
+
+/**
+ * A pending AI enrichment job stored in the durable enrichment queue.
+ * Primary key is {@code incidentId}, so an incident is queued at most once.
+ *
+ * A task is claimable while {@code visibleAt} is in the past. Claiming a task
+ * moves {@code visibleAt} forward by the lease duration; if the worker dies,
+ * the lease simply expires and another worker picks the task up again.
+ */
+@DynamoDbBean
+public class EnrichmentTask {
+
+    /** Name of the queue every task currently belongs to */
+    public static final String DEFAULT_QUEUE = "enrichment";
+
+    /** Incident this task enriches */
+    private String incidentId;
+
+    /** Queue name (GSI partition key) */
+    private String queueName;
+
+    /** Timestamp after which the task may be claimed (GSI sort key) */
+    private String visibleAt;
+
+    /** Identifier of the worker node currently holding the lease */
+    private String leaseOwner;
+
+    /** Random token identifying the current lease */
+    private String leaseToken;
+
+    /** Number of times the task has been claimed */
+    private Integer attempts;
+
+    /** Timestamp when the task was first enqueued */
+    private String enqueuedAt;
+
+    /** Why the task was enqueued, e.g. CREATED */
+    private String reason;
+
+    /**
+     * Gets the incident ID. This is the primary partition key.
+     *
+     * @return the incident ID
+     */
+    @DynamoDbPartitionKey
+    @DynamoDbAttribute("incidentId")
+    public String getIncidentId() {
+        return incidentId;
+    }
+
+    /**
+     * Sets the incident ID.
+     *
+     * @param incidentId the incident ID
+     */
+    public void setIncidentId(String incidentId) {
+        this.incidentId = incidentId;
+    }
+
+    /**
+     * Gets the queue name.
+     * Used as a GSI partition key ("queue-visibility-index").
+     *
+     * @return the queue name
+     */
+    @DynamoDbSecondaryPartitionKey(indexNames = "queue-visibility-index")
+    @DynamoDbAttribute("queueName")
+    public String getQueueName() {
+        return queueName;
+    }
+
+    /**
+     * Sets the queue name.
+     *
+     * @param queueName the queue name
+     */
+    public void setQueueName(String queueName) {
+        this.queueName = queueName;
+    }
+
+    /**
+     * Gets the time after which the task may be claimed.
+     * Used as a GSI sort key ("queue-visibility-index").
+     *
+     * @return the visibility timestamp as an ISO-8601 string
+     */
+    @DynamoDbSecondarySortKey(indexNames = "queue-visibility-index")
+    @DynamoDbAttribute("visibleAt")
+    public String getVisibleAt() {
+        return visibleAt;
+    }
+
+    /**
+     * Sets the time after which the task may be claimed.
+     *
+     * @param visibleAt the visibility timestamp as an ISO-8601 string
+     */
+    public void setVisibleAt(String visibleAt) {
+        this.visibleAt = visibleAt;
+    }
+
+    /**
+     * Gets the worker currently holding the lease.
+     *
+     * @return the lease owner, or null if never claimed
+     */
+    @DynamoDbAttribute("leaseOwner")
+    public String getLeaseOwner() {
+        return leaseOwner;
+    }
+
+    /**
+     * Sets the worker currently holding the lease.
+     *
+     * @param leaseOwner the lease owner
+     */
+    public void setLeaseOwner(String leaseOwner) {
+        this.leaseOwner = leaseOwner;
+    }
+
+    /**
+     * Gets the token of the current lease.
+     *
+     * @return the lease token, or null if never claimed
+     */
+    @DynamoDbAttribute("leaseToken")
+    public String getLeaseToken() {
+        return leaseToken;
+    }
+
+    /**
+     * Sets the token of the current lease.
+     *
+     * @param leaseToken the lease token
+     */
+    public void setLeaseToken(String leaseToken) {
+        this.leaseToken = leaseToken;
+    }
+
+    /**
+     * Gets the number of times the task has been claimed.
+     *
+     * @return the claim count
+     */
+    @DynamoDbAttribute("attempts")
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * Sets the number of times the task has been claimed.
+     *
+     * @param attempts the claim count
+     */
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    /**
+     * Gets the time the task was first enqueued.
+     *
+     * @return the enqueue timestamp as an ISO-8601 string
+     */
+    @DynamoDbAttribute("enqueuedAt")
+    public String getEnqueuedAt() {
+        return enqueuedAt;
+    }
+
+    /**
+     * Sets the time the task was first enqueued.
+     *
+     * @param enqueuedAt the enqueue timestamp as an ISO-8601 string
+     */
+    public void setEnqueuedAt(String enqueuedAt) {
+        this.enqueuedAt = enqueuedAt;
+    }
+
+    /**
+     * Gets the reason the task was enqueued.
+     *
+     * @return the reason, e.g. CREATED
+     */
+    @DynamoDbAttribute("reason")
+    public String getReason() {
+        return reason;
+    }
+
+    /**
+     * Sets the reason the task was enqueued.
+     *
+     * @param reason the reason
+     */
+    public void setReason(String reason) {
+        this.reason = reason;
+    }
+}
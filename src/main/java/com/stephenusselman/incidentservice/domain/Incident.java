@@ -1,5 +1,12 @@
 package com.stephenusselman.incidentservice.domain;
 
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Set;
+
 import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbAttribute;
 import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbBean;
 import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbPartitionKey;
@@ -10,11 +17,36 @@ import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbSecon
 /**
  * Domain entity representing an Incident in the Smart Incident Service.
  * This class also maps to the DynamoDB table.
- * Primary key is {@code incidentId}. Secondary indexes are {@code severity} and {@code category}
+ * Primary key is {@code incidentId}. Secondary indexes are {@code severity}, {@code category},
+ * the sparse {@code aiBacklogStatus} index, the time-bucketed {@code createdDay} index
+ * and the write-sharded {@code severityShard} and {@code categoryShard} indexes,
+ * which replace the unsharded severity and category indexes once enabled.
  */
 @DynamoDbBean
 public class Incident {
 
+    /** Severity and category were set by the local classifier */
+    public static final String SOURCE_LOCAL = "LOCAL";
+
+    /** Severity and category were set from an AI enrichment result */
+    public static final String SOURCE_AI = "AI";
+
+    /** AI statuses that keep an incident in the sparse backlog index */
+    public static final Set<String> BACKLOG_STATUSES = Set.of("PENDING", "FAILED");
+
+    /** Shards each day of the created-day index is split into */
+    public static final int CREATED_DAY_SHARDS = 4;
+
+    /**
+     * Fixed-width UTC format of {@code createdAt}, with all nine fraction
+     * digits, so timestamps compare as strings in time order
+     */
+    public static final DateTimeFormatter TIMESTAMP_FORMAT =
+            DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ss.SSSSSSSSS'Z'").withZone(ZoneOffset.UTC);
+
+    /** Length of a timestamp in {@link #TIMESTAMP_FORMAT} */
+    public static final int TIMESTAMP_LENGTH = 30;
+
     /** Unique identifier for the incident */
     private String incidentId;
 
@@ -36,6 +68,9 @@ public class Incident {
     /** AI enrichment status for the incident */
     private String aiStatus;
 
+    /** Who assigned severity and category: LOCAL or AI */
+    private String classificationSource;
+
     /** AI-generated summary of the incident */
     private String aiSummary;
 
@@ -45,6 +80,18 @@ public class Incident {
     /** Error message if AI enrichment fails */
     private String aiErrorMessage;
 
+    /** Prompt version requested for, or used by, AI enrichment */
+    private String promptVersion;
+
+    /** Model that produced the AI enrichment */
+    private String aiModel;
+
+    /** Severity with its write shard (sharded GSI), assigned on write */
+    private String severityShard;
+
+    /** Category with its write shard (sharded GSI), assigned on write */
+    private String categoryShard;
+
     /**
      * Gets the unique identifier of the incident.
      * This is the primary partition key for DynamoDB.
@@ -148,11 +195,14 @@ public class Incident {
 
     /**
      * Gets the creation timestamp of the incident.
-     * Used as a GSI sort key for both severity and category indexes.
+     * Used as a GSI sort key for the severity, category, backlog,
+     * created-day and sharded severity and category indexes, and stored in
+     * {@link #TIMESTAMP_FORMAT} so those indexes sort it in time order.
      *
      * @return the creation timestamp as a String
      */
-    @DynamoDbSecondarySortKey(indexNames = {"severity-index", "category-index"})
+    @DynamoDbSecondarySortKey(indexNames = {"severity-index", "category-index", "ai-backlog-index",
+            "created-day-index", "severity-shard-index", "category-shard-index"})
     @DynamoDbAttribute("createdAt")
     public String getCreatedAt() {
         return createdAt;
@@ -186,6 +236,229 @@ public class Incident {
         this.aiStatus = aiStatus;
     }
 
+    /**
+     * Gets who assigned the severity and category.
+     *
+     * @return LOCAL, AI, or null if not yet classified
+     */
+    @DynamoDbAttribute("classificationSource")
+    public String getClassificationSource() {
+        return classificationSource;
+    }
+
+    /**
+     * Sets who assigned the severity and category.
+     *
+     * @param classificationSource LOCAL or AI
+     */
+    public void setClassificationSource(String classificationSource) {
+        this.classificationSource = classificationSource;
+    }
+
+    /**
+     * Gets the prompt version of the AI enrichment. Before enrichment this
+     * is the version requested on creation, if any; once ENRICHED it is the
+     * version whose result was applied.
+     *
+     * @return the prompt version, or null
+     */
+    @DynamoDbAttribute("promptVersion")
+    public String getPromptVersion() {
+        return promptVersion;
+    }
+
+    /**
+     * Sets the prompt version of the AI enrichment.
+     *
+     * @param promptVersion the prompt version
+     */
+    public void setPromptVersion(String promptVersion) {
+        this.promptVersion = promptVersion;
+    }
+
+    /**
+     * Gets the model that produced the AI enrichment.
+     *
+     * @return the model, or null if not enriched yet
+     */
+    @DynamoDbAttribute("aiModel")
+    public String getAiModel() {
+        return aiModel;
+    }
+
+    /**
+     * Sets the model that produced the AI enrichment.
+     *
+     * @param aiModel the model
+     */
+    public void setAiModel(String aiModel) {
+        this.aiModel = aiModel;
+    }
+
+    /**
+     * Gets the AI status while enrichment is incomplete.
+     * Used as a GSI partition key ("ai-backlog-index"). The value is derived
+     * from {@code aiStatus} and is null once the incident is ENRICHED, which
+     * removes the attribute and keeps the index sparse.
+     *
+     * @return PENDING or FAILED while in the backlog, otherwise null
+     */
+    @DynamoDbSecondaryPartitionKey(indexNames = "ai-backlog-index")
+    @DynamoDbAttribute("aiBacklogStatus")
+    public String getAiBacklogStatus() {
+        return aiStatus != null && BACKLOG_STATUSES.contains(aiStatus) ? aiStatus : null;
+    }
+
+    /**
+     * Required by the DynamoDB bean mapper. The stored value is ignored
+     * because the backlog status is always derived from {@code aiStatus}.
+     *
+     * @param aiBacklogStatus the stored backlog status
+     */
+    public void setAiBacklogStatus(String aiBacklogStatus) {
+        // derived from aiStatus
+    }
+
+    /**
+     * Gets the day bucket the incident was created in.
+     * Used as a GSI partition key ("created-day-index") with {@code createdAt}
+     * as the sort key. The value is derived from the UTC day of
+     * {@code createdAt} and a shard picked from the incident ID, for example
+     * {@code 2026-01-31#2}, so one busy day is spread over
+     * {@link #CREATED_DAY_SHARDS} partitions.
+     *
+     * @return the day bucket, or null if the incident ID or creation time is missing or invalid
+     */
+    @DynamoDbSecondaryPartitionKey(indexNames = "created-day-index")
+    @DynamoDbAttribute("createdDay")
+    public String getCreatedDay() {
+        if (incidentId == null || createdAt == null) {
+            return null;
+        }
+        try {
+            LocalDate day = LocalDate.ofInstant(Instant.parse(createdAt), ZoneOffset.UTC);
+            return createdDayBucket(day, Math.floorMod(incidentId.hashCode(), CREATED_DAY_SHARDS));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Required by the DynamoDB bean mapper. The stored value is ignored
+     * because the day bucket is always derived from {@code createdAt}.
+     *
+     * @param createdDay the stored day bucket
+     */
+    public void setCreatedDay(String createdDay) {
+        // derived from createdAt and incidentId
+    }
+
+    /**
+     * Gets the severity with a shard suffix, for example {@code HIGH#5}.
+     * Used as a GSI partition key ("severity-shard-index") so writes of one
+     * severity are spread over several partitions instead of one hot key.
+     * The shard count is configuration, so the value is assigned by
+     * {@link #assignClassificationShards(int)} before each write.
+     *
+     * @return the sharded severity, or null if not assigned
+     */
+    @DynamoDbSecondaryPartitionKey(indexNames = "severity-shard-index")
+    @DynamoDbAttribute("severityShard")
+    public String getSeverityShard() {
+        return severityShard;
+    }
+
+    /**
+     * Sets the sharded severity.
+     *
+     * @param severityShard the sharded severity
+     */
+    public void setSeverityShard(String severityShard) {
+        this.severityShard = severityShard;
+    }
+
+    /**
+     * Gets the category with a shard suffix, for example {@code SECURITY#2}.
+     * Used as a GSI partition key ("category-shard-index").
+     *
+     * @return the sharded category, or null if not assigned
+     */
+    @DynamoDbSecondaryPartitionKey(indexNames = "category-shard-index")
+    @DynamoDbAttribute("categoryShard")
+    public String getCategoryShard() {
+        return categoryShard;
+    }
+
+    /**
+     * Sets the sharded category.
+     *
+     * @param categoryShard the sharded category
+     */
+    public void setCategoryShard(String categoryShard) {
+        this.categoryShard = categoryShard;
+    }
+
+    /**
+     * Derives the sharded severity and category from the current values,
+     * with a shard picked from the incident ID. Either is cleared if its
+     * value or the incident ID is missing.
+     *
+     * @param shards shards each severity and category value is split into
+     */
+    public void assignClassificationShards(int shards) {
+        int shard = incidentId == null ? 0 : Math.floorMod(incidentId.hashCode(), shards);
+        this.severityShard = severity == null || incidentId == null ? null : shardKey(severity, shard);
+        this.categoryShard = category == null || incidentId == null ? null : shardKey(category, shard);
+    }
+
+    /**
+     * Rewrites {@code createdAt} in {@link #TIMESTAMP_FORMAT}, so index range
+     * queries compare it correctly. A missing or unparseable value is left
+     * as it is.
+     */
+    public void normalizeCreatedAt() {
+        if (createdAt == null) {
+            return;
+        }
+        try {
+            createdAt = formatTimestamp(Instant.parse(createdAt));
+        } catch (DateTimeParseException e) {
+            // not a timestamp; kept so the write does not lose it
+        }
+    }
+
+    /**
+     * Formats a timestamp in {@link #TIMESTAMP_FORMAT}.
+     *
+     * @param instant the timestamp
+     * @return the fixed-width timestamp
+     */
+    public static String formatTimestamp(Instant instant) {
+        return TIMESTAMP_FORMAT.format(instant);
+    }
+
+    /**
+     * Builds a sharded index partition key.
+     *
+     * @param value the severity or category
+     * @param shard the shard
+     * @return the partition key
+     */
+    public static String shardKey(String value, int shard) {
+        return value + "#" + shard;
+    }
+
+    /**
+     * Builds a created-day index partition key.
+     *
+     * @param day the UTC day
+     * @param shard the shard, from 0 to {@link #CREATED_DAY_SHARDS} - 1
+     * @return the partition key
+     */
+    public static String createdDayBucket(LocalDate day, int shard) {
+        return day + "#" + shard;
+    }
+
     /**
      * Gets the AI-generated summary.
      *
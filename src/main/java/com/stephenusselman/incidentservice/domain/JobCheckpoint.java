@@ -0,0 +1,240 @@
+package com.stephenusselman.incidentservice.domain;
+
+import java.util.Map;
+
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbAttribute;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbBean;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbPartitionKey;
+
+/**
+ * Progress of a long-running maintenance job, stored in the
+ * {@code EnrichmentJobs} table so the job can resume where it stopped.
+ * Primary key is {@code jobName}.
+ *
+ * The node running the job holds a lease until {@code leaseUntil}; another
+ * node may take the job over only once the lease has expired.
+ */
+@DynamoDbBean
+public class JobCheckpoint {
+
+    /** Name of the job; the primary key */
+    private String jobName;
+
+    /** Exclusive start key of the next page, or null at the start of a run */
+    private Map<String, String> cursor;
+
+    /** Outcome of the latest run: RUNNING, PAUSED, STOPPED or COMPLETED */
+    private String status;
+
+    /** Node currently running the job */
+    private String leaseOwner;
+
+    /** Time until which the owner holds the job */
+    private String leaseUntil;
+
+    /** Time the current run started from the beginning */
+    private String runStartedAt;
+
+    /** Time the checkpoint was last written */
+    private String updatedAt;
+
+    /** Incidents processed in the current run */
+    private Long processed;
+
+    /** Incidents enriched in the current run */
+    private Long succeeded;
+
+    /** Incidents that failed again in the current run */
+    private Long failed;
+
+    /**
+     * Gets the name of the job; the primary key.
+     *
+     * @return the job name
+     */
+    @DynamoDbPartitionKey
+    @DynamoDbAttribute("jobName")
+    public String getJobName() {
+        return jobName;
+    }
+
+    /**
+     * Sets the name of the job; the primary key.
+     *
+     * @param jobName the job name
+     */
+    public void setJobName(String jobName) {
+        this.jobName = jobName;
+    }
+
+    /**
+     * Gets the exclusive start key of the next page, or null at the start of a run.
+     *
+     * @return the cursor as attribute name to string value
+     */
+    @DynamoDbAttribute("cursor")
+    public Map<String, String> getCursor() {
+        return cursor;
+    }
+
+    /**
+     * Sets the exclusive start key of the next page, or null at the start of a run.
+     *
+     * @param cursor the cursor as attribute name to string value
+     */
+    public void setCursor(Map<String, String> cursor) {
+        this.cursor = cursor;
+    }
+
+    /**
+     * Gets the outcome of the latest run: RUNNING, PAUSED, STOPPED or COMPLETED.
+     *
+     * @return the status
+     */
+    @DynamoDbAttribute("status")
+    public String getStatus() {
+        return status;
+    }
+
+    /**
+     * Sets the outcome of the latest run: RUNNING, PAUSED, STOPPED or COMPLETED.
+     *
+     * @param status the status
+     */
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    /**
+     * Gets the node currently running the job.
+     *
+     * @return the lease owner, or null
+     */
+    @DynamoDbAttribute("leaseOwner")
+    public String getLeaseOwner() {
+        return leaseOwner;
+    }
+
+    /**
+     * Sets the node currently running the job.
+     *
+     * @param leaseOwner the lease owner, or null
+     */
+    public void setLeaseOwner(String leaseOwner) {
+        this.leaseOwner = leaseOwner;
+    }
+
+    /**
+     * Gets the time until which the owner holds the job.
+     *
+     * @return the lease expiry as an ISO-8601 string
+     */
+    @DynamoDbAttribute("leaseUntil")
+    public String getLeaseUntil() {
+        return leaseUntil;
+    }
+
+    /**
+     * Sets the time until which the owner holds the job.
+     *
+     * @param leaseUntil the lease expiry as an ISO-8601 string
+     */
+    public void setLeaseUntil(String leaseUntil) {
+        this.leaseUntil = leaseUntil;
+    }
+
+    /**
+     * Gets the time the current run started from the beginning.
+     *
+     * @return the start time as an ISO-8601 string
+     */
+    @DynamoDbAttribute("runStartedAt")
+    public String getRunStartedAt() {
+        return runStartedAt;
+    }
+
+    /**
+     * Sets the time the current run started from the beginning.
+     *
+     * @param runStartedAt the start time as an ISO-8601 string
+     */
+    public void setRunStartedAt(String runStartedAt) {
+        this.runStartedAt = runStartedAt;
+    }
+
+    /**
+     * Gets the time the checkpoint was last written.
+     *
+     * @return the update time as an ISO-8601 string
+     */
+    @DynamoDbAttribute("updatedAt")
+    public String getUpdatedAt() {
+        return updatedAt;
+    }
+
+    /**
+     * Sets the time the checkpoint was last written.
+     *
+     * @param updatedAt the update time as an ISO-8601 string
+     */
+    public void setUpdatedAt(String updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    /**
+     * Gets the incidents processed in the current run.
+     *
+     * @return the processed count
+     */
+    @DynamoDbAttribute("processed")
+    public Long getProcessed() {
+        return processed;
+    }
+
+    /**
+     * Sets the incidents processed in the current run.
+     *
+     * @param processed the processed count
+     */
+    public void setProcessed(Long processed) {
+        this.processed = processed;
+    }
+
+    /**
+     * Gets the incidents enriched in the current run.
+     *
+     * @return the succeeded count
+     */
+    @DynamoDbAttribute("succeeded")
+    public Long getSucceeded() {
+        return succeeded;
+    }
+
+    /**
+     * Sets the incidents enriched in the current run.
+     *
+     * @param succeeded the succeeded count
+     */
+    public void setSucceeded(Long succeeded) {
+        this.succeeded = succeeded;
+    }
+
+    /**
+     * Gets the incidents that failed again in the current run.
+     *
+     * @return the failed count
+     */
+    @DynamoDbAttribute("failed")
+    public Long getFailed() {
+        return failed;
+    }
+
+    /**
+     * Sets the incidents that failed again in the current run.
+     *
+     * @param failed the failed count
+     */
+    public void setFailed(Long failed) {
+        this.failed = failed;
+    }
+}
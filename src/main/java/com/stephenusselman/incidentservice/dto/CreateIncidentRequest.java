@@ -28,4 +28,8 @@ public class CreateIncidentRequest {
     /** Name or identifier of the reporter submitting the incident */
     @NotBlank(message = "ReportedBy is required")
     private String reportedBy;
+
+    /** Optional: AI prompt version to enrich with instead of the configured rollout */
+    @Size(max = 100, message = "Prompt version cannot exceed 100 characters")
+    private String promptVersion;
 }
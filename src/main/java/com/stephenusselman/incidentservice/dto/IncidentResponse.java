@@ -31,6 +31,9 @@ public class IncidentResponse {
     /** Category of the incident, possibly filled by AI */
     private String category;
 
+    /** Who assigned severity and category: LOCAL or AI */
+    private String classificationSource;
+
     /** AI-generated summary of the incident */
     private String aiSummary;
 
@@ -39,4 +42,10 @@ public class IncidentResponse {
 
     /** Error message if AI enrichment failed */
     private String aiErrorMessage;
+
+    /** Prompt version requested for, or used by, AI enrichment */
+    private String promptVersion;
+
+    /** Model that produced the AI enrichment */
+    private String aiModel;
 }
\ No newline at end of file
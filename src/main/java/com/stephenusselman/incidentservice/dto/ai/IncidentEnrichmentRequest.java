@@ -1,5 +1,7 @@
 package com.stephenusselman.incidentservice.dto.ai;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
@@ -25,4 +27,20 @@ public class IncidentEnrichmentRequest {
 
     @NotNull
     private String createdAt;
-}
\ No newline at end of file
+
+    /** Prompt template version to render; the default version if null */
+    @JsonIgnore
+    private String promptVersion;
+
+    /**
+     * Creates a request rendered with the default prompt version.
+     *
+     * @param incidentId the incident ID
+     * @param description the incident description
+     * @param reportedBy who reported the incident
+     * @param createdAt when the incident was created
+     */
+    public IncidentEnrichmentRequest(String incidentId, String description, String reportedBy, String createdAt) {
+        this(incidentId, description, reportedBy, createdAt, null);
+    }
+}
@@ -0,0 +1,66 @@
+package com.stephenusselman.incidentservice.repository;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Budget of DynamoDB capacity units per second shared by several threads.
+ *
+ * The cost of a request is only known once it has completed, so callers
+ * charge the units afterwards and the budget may go negative; the caller
+ * that overdraws it waits until the deficit has refilled. The budget holds
+ * at most one second of units. Thread-safe.
+ */
+class CapacityLimiter {
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    /** Units added per second, or 0 for no limit */
+    private final double unitsPerSecond;
+
+    /** Units available now; guarded by this */
+    private double available;
+    private long lastRefillNanos;
+
+    /**
+     * Creates a full budget.
+     *
+     * @param unitsPerSecond units per second, or 0 for no limit
+     */
+    CapacityLimiter(double unitsPerSecond) {
+        if (unitsPerSecond < 0) {
+            throw new IllegalArgumentException("capacity units per second must not be negative");
+        }
+        this.unitsPerSecond = unitsPerSecond;
+        this.available = unitsPerSecond;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Charges consumed units and waits until the budget is no longer overdrawn.
+     *
+     * @param units the units a completed request consumed
+     * @throws IllegalStateException if interrupted while waiting
+     */
+    void charge(double units) {
+        if (unitsPerSecond == 0) {
+            return;
+        }
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            available = Math.min(unitsPerSecond,
+                    available + (now - lastRefillNanos) / NANOS_PER_SECOND * unitsPerSecond);
+            lastRefillNanos = now;
+            available -= units;
+            waitNanos = available >= 0 ? 0 : (long) Math.ceil(-available / unitsPerSecond * NANOS_PER_SECOND);
+        }
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for DynamoDB capacity", e);
+            }
+        }
+    }
+}
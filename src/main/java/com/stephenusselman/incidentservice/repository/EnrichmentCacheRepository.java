@@ -0,0 +1,47 @@
+package com.stephenusselman.incidentservice.repository;
+
+import org.springframework.stereotype.Repository;
+
+import com.stephenusselman.incidentservice.domain.EnrichmentCacheEntry;
+
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+
+/**
+ * Repository for the persistent tier of the enrichment result cache.
+ * Entries expire through DynamoDB TTL on {@code expiresAt}.
+ */
+@Repository
+public class EnrichmentCacheRepository {
+
+    private final DynamoDbTable<EnrichmentCacheEntry> table;
+
+    public EnrichmentCacheRepository(DynamoDbEnhancedClient enhancedClient) {
+        this.table = enhancedClient.table(
+                "EnrichmentCache",
+                TableSchema.fromBean(EnrichmentCacheEntry.class)
+        );
+    }
+
+    /**
+     * Retrieves a cache entry by key. TTL deletion is lazy, so callers
+     * must still check {@code expiresAt}.
+     *
+     * @param cacheKey the cache key
+     * @return the entry, or null if absent
+     */
+    public EnrichmentCacheEntry findByKey(String cacheKey) {
+        return table.getItem(Key.builder().partitionValue(cacheKey).build());
+    }
+
+    /**
+     * Writes a cache entry, replacing any existing entry with the same key.
+     *
+     * @param entry the entry to store
+     */
+    public void save(EnrichmentCacheEntry entry) {
+        table.putItem(entry);
+    }
+}
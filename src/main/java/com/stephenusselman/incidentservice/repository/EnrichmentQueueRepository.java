@@ -0,0 +1,203 @@
+package com.stephenusselman.incidentservice.repository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.stereotype.Repository;
+
+import com.stephenusselman.incidentservice.domain.EnrichmentTask;
+
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.Expression;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.enhanced.dynamodb.model.DeleteItemEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.PutItemEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryConditional;
+import software.amazon.awssdk.enhanced.dynamodb.model.UpdateItemEnhancedRequest;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+
+/**
+ * Repository for the durable enrichment queue stored in DynamoDB.
+ *
+ * All state transitions are conditional writes, so concurrent workers on
+ * different nodes can never both hold the lease on the same task.
+ */
+@Repository
+public class EnrichmentQueueRepository {
+
+    private final DynamoDbTable<EnrichmentTask> table;
+
+    public EnrichmentQueueRepository(DynamoDbEnhancedClient enhancedClient) {
+        this.table = enhancedClient.table(
+                "EnrichmentQueue",
+                TableSchema.fromBean(EnrichmentTask.class)
+        );
+    }
+
+    /**
+     * Adds a task for the given incident, visible immediately.
+     * Does nothing if the incident is already queued.
+     *
+     * @param incidentId the incident to enrich
+     * @param reason why the task is being enqueued
+     * @return true if a new task was created
+     */
+    public boolean enqueue(String incidentId, String reason) {
+        String now = Instant.now().toString();
+
+        EnrichmentTask task = new EnrichmentTask();
+        task.setIncidentId(incidentId);
+        task.setQueueName(EnrichmentTask.DEFAULT_QUEUE);
+        task.setVisibleAt(now);
+        task.setEnqueuedAt(now);
+        task.setAttempts(0);
+        task.setReason(reason);
+
+        try {
+            table.putItem(PutItemEnhancedRequest.builder(EnrichmentTask.class)
+                    .item(task)
+                    .conditionExpression(Expression.builder()
+                            .expression("attribute_not_exists(incidentId)")
+                            .build())
+                    .build());
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Queries the visibility index for tasks that can be claimed now.
+     * This includes new tasks and tasks whose lease has expired.
+     *
+     * @param now the current time
+     * @param limit the maximum number of tasks to return
+     * @return the claimable tasks, oldest first
+     */
+    public List<EnrichmentTask> findClaimable(Instant now, int limit) {
+        return table.index("queue-visibility-index")
+                .query(r -> r
+                        .queryConditional(QueryConditional.sortLessThanOrEqualTo(k -> k
+                                .partitionValue(EnrichmentTask.DEFAULT_QUEUE)
+                                .sortValue(now.toString())))
+                        .limit(limit)
+                )
+                .iterator()
+                .next()
+                .items();
+    }
+
+    /**
+     * Attempts to take the lease on a task. Succeeds only if no other worker
+     * has claimed or renewed it since it was read.
+     *
+     * @param task the task as returned by {@link #findClaimable}
+     * @param owner identifier of the claiming worker
+     * @param lease how long the lease is held before it expires
+     * @return the claimed task, or null if another worker won the race
+     */
+    public EnrichmentTask claim(EnrichmentTask task, String owner, Duration lease) {
+        String seenVisibleAt = task.getVisibleAt();
+
+        task.setLeaseOwner(owner);
+        task.setLeaseToken(UUID.randomUUID().toString());
+        task.setVisibleAt(Instant.now().plus(lease).toString());
+        task.setAttempts(task.getAttempts() == null ? 1 : task.getAttempts() + 1);
+
+        return conditionalUpdate(task, false, "visibleAt = :seen",
+                Map.of(":seen", AttributeValue.fromS(seenVisibleAt)));
+    }
+
+    /**
+     * Extends the lease on a task held by the caller. Only {@code visibleAt}
+     * is written, so a renewal that races with a release or completion of
+     * the same task cannot overwrite the state those leave behind.
+     *
+     * @param incidentId the incident ID of the leased task
+     * @param leaseToken the lease token received when the task was claimed
+     * @param lease the new lease duration, measured from now
+     * @return true if the lease was renewed, false if it was lost
+     */
+    public boolean renew(String incidentId, String leaseToken, Duration lease) {
+        EnrichmentTask extension = new EnrichmentTask();
+        extension.setIncidentId(incidentId);
+        extension.setVisibleAt(Instant.now().plus(lease).toString());
+        return conditionalUpdate(extension, true, "leaseToken = :token",
+                Map.of(":token", AttributeValue.fromS(leaseToken))) != null;
+    }
+
+    /**
+     * Gives up the lease and makes the task claimable again at the given time.
+     *
+     * @param task the task currently leased by the caller
+     * @param visibleAt when the task should become claimable again
+     * @return true if the task was released, false if the lease was already lost
+     */
+    public boolean release(EnrichmentTask task, Instant visibleAt) {
+        String token = task.getLeaseToken();
+        task.setVisibleAt(visibleAt.toString());
+        task.setLeaseOwner(null);
+        task.setLeaseToken(null);
+        return conditionalUpdate(task, false, "leaseToken = :token",
+                Map.of(":token", AttributeValue.fromS(token))) != null;
+    }
+
+    /**
+     * Removes a finished task, provided the caller still holds its lease.
+     *
+     * @param task the task currently leased by the caller
+     * @return true if the task was removed
+     */
+    public boolean complete(EnrichmentTask task) {
+        try {
+            table.deleteItem(DeleteItemEnhancedRequest.builder()
+                    .key(Key.builder().partitionValue(task.getIncidentId()).build())
+                    .conditionExpression(Expression.builder()
+                            .expression("leaseToken = :token")
+                            .expressionValues(Map.of(":token", AttributeValue.fromS(task.getLeaseToken())))
+                            .build())
+                    .build());
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Retrieves the queued task for an incident, if any.
+     *
+     * @param incidentId the incident ID
+     * @return the task, or null if the incident is not queued
+     */
+    public EnrichmentTask findById(String incidentId) {
+        return table.getItem(Key.builder().partitionValue(incidentId).build());
+    }
+
+    /**
+     * Writes the task only if the given condition holds.
+     *
+     * @param ignoreNulls whether null attributes are left untouched instead of removed
+     * @return the updated task, or null if the condition failed
+     */
+    private EnrichmentTask conditionalUpdate(EnrichmentTask task, boolean ignoreNulls, String condition,
+            Map<String, AttributeValue> values) {
+        try {
+            return table.updateItem(UpdateItemEnhancedRequest.builder(EnrichmentTask.class)
+                    .item(task)
+                    .ignoreNulls(ignoreNulls)
+                    .conditionExpression(Expression.builder()
+                            .expression(condition)
+                            .expressionValues(values)
+                            .build())
+                    .build());
+        } catch (ConditionalCheckFailedException e) {
+            return null;
+        }
+    }
+}
@@ -1,42 +1,123 @@
 package com.stephenusselman.incidentservice.repository;
 
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
 import com.stephenusselman.incidentservice.domain.Incident;
 
 import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.Expression;
 import software.amazon.awssdk.enhanced.dynamodb.Key;
 import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
-import software.amazon.awssdk.enhanced.dynamodb.DynamoDbIndex;
 import software.amazon.awssdk.enhanced.dynamodb.model.Page;
 import software.amazon.awssdk.enhanced.dynamodb.model.QueryConditional;
+import software.amazon.awssdk.enhanced.dynamodb.model.UpdateItemEnhancedRequest;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
 
 /**
  * Repository for managing Incident entities in DynamoDB.
+ *
+ * Severity and category are indexed by value alone ({@code severity-index},
+ * {@code category-index}) and by value plus a write shard
+ * ({@code severity-shard-index}, {@code category-shard-index}) so that a
+ * busy value is spread over {@code dynamodb.sharded-indexes.shards}
+ * partitions. Every write assigns the shard keys. With
+ * {@code dynamodb.sharded-indexes.enabled} the severity and category reads
+ * use the sharded indexes, querying every shard in parallel, and the
+ * legacy indexes are no longer needed.
+ *
+ * Migrating is three deployments. First, with the option off, the sharded
+ * indexes are created and the {@code IndexKeyBackfill} writes shard keys to
+ * older incidents. Then the option is turned on and reads move to the
+ * sharded indexes, while the legacy ones are still maintained so the
+ * option can be turned off again. Once a rollback is ruled out,
+ * {@code dynamodb.sharded-indexes.drop-legacy} lets the
+ * {@code DynamoDbInitializer} drop the legacy indexes, so writes stop
+ * maintaining them.
+ *
+ * The shard count may be raised later, since reads cover every shard up to
+ * the new count and older incidents keep their lower shard. Lowering it
+ * hides incidents in the dropped shards until they are written again.
  */
 @Repository
 public class IncidentRepository {
 
     private final DynamoDbTable<Incident> table;
+    private final ParallelScanner scanner;
+    private final TablePurger purger;
+    private final Executor queryExecutor;
 
-    public IncidentRepository(DynamoDbEnhancedClient enhancedClient) {
+    /** Whether severity and category reads use the sharded indexes */
+    private final boolean shardedIndexes;
+
+    /** Shards each severity and category value is split into */
+    private final int shards;
+
+    /** Created-day partitions queried at the same time by a range read */
+    private final int maxParallelDayQueries;
+
+    private final ShardedIndexQuery<Incident> severityShards;
+    private final ShardedIndexQuery<Incident> categoryShards;
+
+    public IncidentRepository(
+            DynamoDbEnhancedClient enhancedClient,
+            ParallelScanner scanner,
+            TablePurger purger,
+            @Qualifier("dynamoDbQueryExecutor") Executor queryExecutor,
+            @Value("${dynamodb.sharded-indexes.enabled:false}") boolean shardedIndexes,
+            @Value("${dynamodb.sharded-indexes.shards:8}") int shards,
+            @Value("${dynamodb.created-day.max-parallel-queries:16}") int maxParallelDayQueries) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("dynamodb.sharded-indexes.shards must be at least 1");
+        }
+        if (maxParallelDayQueries < 1) {
+            throw new IllegalArgumentException("dynamodb.created-day.max-parallel-queries must be at least 1");
+        }
         this.table = enhancedClient.table(
                 "Incidents",
                 TableSchema.fromBean(Incident.class)
         );
+        this.scanner = scanner;
+        this.purger = purger;
+        this.queryExecutor = queryExecutor;
+        this.shardedIndexes = shardedIndexes;
+        this.shards = shards;
+        this.maxParallelDayQueries = maxParallelDayQueries;
+        this.severityShards = new ShardedIndexQuery<>(table, "severity-shard-index", shards,
+                Incident::shardKey, List.of("incidentId", "createdAt", "severityShard"),
+                Comparator.comparing(Incident::getCreatedAt), queryExecutor);
+        this.categoryShards = new ShardedIndexQuery<>(table, "category-shard-index", shards,
+                Incident::shardKey, List.of("incidentId", "createdAt", "categoryShard"),
+                Comparator.comparing(Incident::getCreatedAt), queryExecutor);
     }
 
     /**
      * Saves an incident to DynamoDB.
      */
     public void save(Incident incident) {
+        incident.normalizeCreatedAt();
+        incident.assignClassificationShards(shards);
         table.putItem(incident);
     }
 
@@ -44,6 +125,8 @@ public class IncidentRepository {
      * Updates an existing item in DynamoDB.
      */
     public void update(Incident incident) {
+        incident.normalizeCreatedAt();
+        incident.assignClassificationShards(shards);
         table.updateItem(incident);
     }
 
@@ -57,67 +140,96 @@ public class IncidentRepository {
     }
 
     /**
-     * Deletes all items in the Incidents table.
+     * Deletes all items in the Incidents table with batched deletes fed by
+     * a parallel key-only scan.
      */
     public void deleteAll() {
-        List<Incident> itemsToDelete = new ArrayList<>();
-        table.scan().forEach(page -> itemsToDelete.addAll(page.items()));
-
-        for (Incident incident : itemsToDelete) {
-            table.deleteItem(incident);
-        }
+        purger.purge(table, incident -> Key.builder().partitionValue(incident.getIncidentId()).build(),
+                "incidentId");
     }
 
     /**
-     * Query incidents by severity using the severity GSI.
+     * Query incidents by severity using the severity GSI, or every shard of
+     * the sharded severity GSI in parallel.
      */
     public List<Incident> findBySeverity(String severity) {
-        DynamoDbIndex<Incident> index =
-                table.index("severity-index");
-
-        List<Incident> results = new ArrayList<>();
-
-        index.query(
-                QueryConditional.keyEqualTo(
-                        Key.builder()
-                                .partitionValue(severity)
-                                .build()
-                )
-        ).forEach(page -> results.addAll(page.items()));
-
-        return results;
+        if (shardedIndexes) {
+            return severityShards.findAll(severity);
+        }
+        return streamBySeverity(severity).toList();
     }
 
     /**
-     * Query incidents by category using the category GSI.
+     * Query incidents by category using the category GSI, or every shard of
+     * the sharded category GSI in parallel.
      */
     public List<Incident> findByCategory(String category) {
-        DynamoDbIndex<Incident> index =
-                table.index("category-index");
-
-        List<Incident> results = new ArrayList<>();
+        if (shardedIndexes) {
+            return categoryShards.findAll(category);
+        }
+        return streamByCategory(category).toList();
+    }
 
-        index.query(
-                QueryConditional.keyEqualTo(
-                        Key.builder()
-                                .partitionValue(category)
-                                .build()
-                )
-        ).forEach(page -> results.addAll(page.items()));
+    /**
+     * Streams incidents with the given severity from the severity GSI. Pages
+     * are fetched lazily as the stream is consumed, so only one page is held
+     * at a time and a short-circuiting operation stops further reads.
+     *
+     * With sharded indexes the shards are read one after another, so the
+     * stream is oldest first within each shard only.
+     *
+     * @param severity the severity value to query (GSI partition key)
+     * @return a sequential stream of matching incidents, oldest first, or
+     *         with sharded indexes oldest first within each shard
+     */
+    public Stream<Incident> streamBySeverity(String severity) {
+        if (shardedIndexes) {
+            return severityShards.stream(severity);
+        }
+        return table.index("severity-index")
+                .query(QueryConditional.keyEqualTo(k -> k.partitionValue(severity)))
+                .stream()
+                .flatMap(page -> page.items().stream());
+    }
 
-        return results;
+    /**
+     * Streams incidents with the given category from the category GSI,
+     * fetching pages lazily.
+     *
+     * With sharded indexes the shards are read one after another, so the
+     * stream is oldest first within each shard only.
+     *
+     * @param category the category value to query (GSI partition key)
+     * @return a sequential stream of matching incidents, oldest first, or
+     *         with sharded indexes oldest first within each shard
+     */
+    public Stream<Incident> streamByCategory(String category) {
+        if (shardedIndexes) {
+            return categoryShards.stream(category);
+        }
+        return table.index("category-index")
+                .query(QueryConditional.keyEqualTo(k -> k.partitionValue(category)))
+                .stream()
+                .flatMap(page -> page.items().stream());
     }
 
     /**
      * Queries incidents by severity using the {@code severity-index}..
+     * With sharded indexes, every shard of the {@code severity-shard-index}
+     * is queried in parallel and the results are merged by createdAt; the
+     * cursor then tracks each shard's position.
      *
      * @param severity the severity value to query (GSI partition key)
      * @param limit the maximum number of items to return
      * @param lastEvaluatedKey the pagination cursor from a previous query,
      *                         or {@code null} to start from the beginning
      * @return a {@link Page} containing incidents and pagination metadata
+     * @throws IllegalArgumentException if the cursor came from the other index layout
      */
     public Page<Incident> queryBySeverity(String severity, int limit, Map<String, AttributeValue> lastEvaluatedKey) {
+        if (shardedIndexes) {
+            return severityShards.query(severity, limit, lastEvaluatedKey);
+        }
         return table.index("severity-index")
                 .query(r -> r
                         .queryConditional(
@@ -132,14 +244,21 @@ public class IncidentRepository {
     
     /**
      * Queries incidents by category using the {@code category-index}.
+     * With sharded indexes, every shard of the {@code category-shard-index}
+     * is queried in parallel and the results are merged by createdAt; the
+     * cursor then tracks each shard's position.
      *
      * @param category the category value to query (GSI partition key)
      * @param limit the maximum number of items to return
      * @param lastEvaluatedKey the pagination cursor from a previous query,
      *                         or {@code null} to start from the beginning
      * @return a {@link Page} containing incidents and pagination metadata
+     * @throws IllegalArgumentException if the cursor came from the other index layout
      */
     public Page<Incident> queryByCategory(String category, int limit, Map<String, AttributeValue> lastEvaluatedKey) {
+        if (shardedIndexes) {
+            return categoryShards.query(category, limit, lastEvaluatedKey);
+        }
         return table.index("category-index")
                 .query(r -> r
                         .queryConditional(
@@ -157,35 +276,269 @@ public class IncidentRepository {
      }
     
     /**
-     * Retrieves all incidents from the table.
-	 * @return a {@link Page} containing all matching incidents
+     * Queries incidents whose enrichment is incomplete using the sparse
+     * {@code ai-backlog-index}. Only PENDING and FAILED incidents are present
+     * in the index, so the cost is proportional to the backlog rather than
+     * to the table. Results are ordered by {@code createdAt}, oldest first.
+     *
+     * @param aiStatus the backlog status to query (PENDING or FAILED)
+     * @param limit the maximum number of items to return
+     * @param lastEvaluatedKey the pagination cursor from a previous query,
+     *                         or {@code null} to start from the beginning
+     * @return a {@link Page} containing incidents and pagination metadata
+     */
+    public Page<Incident> queryByAiStatus(String aiStatus, int limit, Map<String, AttributeValue> lastEvaluatedKey) {
+        return table.index("ai-backlog-index")
+                .query(r -> r
+                        .queryConditional(
+                            QueryConditional.keyEqualTo(k -> k.partitionValue(aiStatus))
+                        )
+                        .limit(limit)
+                        .exclusiveStartKey(lastEvaluatedKey)
+                )
+                .iterator()
+                .next();
+    }
+
+    /**
+     * Counts the incidents in the backlog with the given AI status. Reads
+     * only the keys from the sparse {@code ai-backlog-index}, so the cost
+     * grows with the backlog rather than the table.
+     *
+     * @param aiStatus the AI status to filter by, PENDING or FAILED
+     * @return the number of incidents with that status
+     */
+    public long countByAiStatus(String aiStatus) {
+        long count = 0;
+        for (Page<Incident> page : table.index("ai-backlog-index")
+                .query(r -> r
+                        .queryConditional(
+                            QueryConditional.keyEqualTo(k -> k.partitionValue(aiStatus))
+                        )
+                        .attributesToProject("incidentId")
+                )) {
+            count += page.items().size();
+        }
+        return count;
+    }
+
+    /**
+     * Scans one page of incidents with the given AI status. The filter is
+     * applied after the read, so a page can hold fewer than {@code limit}
+     * items, or none, while more remain; continue until the returned
+     * {@code lastEvaluatedKey} is null.
+     *
+     * @param aiStatus the AI status to keep
+     * @param limit the maximum number of items to read
+     * @param lastEvaluatedKey the cursor from a previous page, or {@code null} to start
+     * @return a {@link Page} with the matching incidents and the next cursor
+     */
+    public Page<Incident> scanByAiStatus(String aiStatus, int limit, Map<String, AttributeValue> lastEvaluatedKey) {
+        return table.scan(r -> r
+                        .filterExpression(Expression.builder()
+                                .expression("aiStatus = :aiStatus")
+                                .expressionValues(Map.of(":aiStatus", AttributeValue.fromS(aiStatus)))
+                                .build())
+                        .limit(limit)
+                        .exclusiveStartKey(lastEvaluatedKey)
+                )
+                .iterator()
+                .next();
+    }
+
+    /**
+     * Retrieves all incidents from the table with a parallel scan.
+	 * @return all incidents, in no particular order
      */
      public List<Incident> findAll() {
-        List<Incident> results = new ArrayList<>();
+        Queue<Incident> results = new ConcurrentLinkedQueue<>();
 
-        table.scan().forEach(page -> results.addAll(page.items()));
+        scanAll(results::add);
 
-        return results;
+        return new ArrayList<>(results);
      }
 
-     /**
-	 * Retrieves incidents whose createdAt timestamp falls within the given range.
-	 * @return a {@link Page} of all incidents that fall within the given range
-	 */
-	public List<Incident> findByCreatedAtBetween(Instant from, Instant to) {
-		List<Incident> results = new ArrayList<>();
-
-		table.scan(r -> r.filterExpression(
-				software.amazon.awssdk.enhanced.dynamodb.Expression.builder()
-					.expression("createdAt BETWEEN :from AND :to")
-					.expressionValues(Map.of(
-						":from", AttributeValue.fromS(from.toString()),
-						":to", AttributeValue.fromS(to.toString())
-					))
-					.build()
-			)
-		).forEach(page -> results.addAll(page.items()));
-
-		return results;
-	}
-}
\ No newline at end of file
+    /**
+     * Streams every incident in the table with a single sequential scan.
+     * Pages are fetched lazily as the stream is consumed, so memory is
+     * bounded by the page size rather than the table size, and a
+     * short-circuiting operation stops the scan early.
+     *
+     * @param attributes attributes to read, or none to read whole items
+     * @return a sequential stream of incidents, in no particular order
+     */
+    public Stream<Incident> streamAll(String... attributes) {
+        return table.scan(r -> {
+                    if (attributes.length > 0) {
+                        r.attributesToProject(attributes);
+                    }
+                })
+                .items()
+                .stream();
+    }
+
+    /**
+     * Streams every incident in the table to the consumer with a parallel
+     * scan, without holding the table in memory.
+     *
+     * @param consumer receives every incident; called concurrently from the scan threads
+     * @return the finished scan's per-segment progress
+     */
+    public ParallelScanner.Scan scanAll(Consumer<Incident> consumer) {
+        return scanner.scan(table, r -> { }, consumer);
+    }
+
+    /**
+     * Streams incidents whose createdAt timestamp falls within the given
+     * range by querying the {@code created-day-index} one day bucket at a
+     * time, fetching pages lazily.
+     *
+     * @param from the start of the range (inclusive)
+     * @param to the end of the range (inclusive)
+     * @param attributes attributes to read, or none to read whole items
+     * @return a sequential stream of matching incidents, ordered by day but not within a day
+     */
+    public Stream<Incident> streamByCreatedAtBetween(Instant from, Instant to, String... attributes) {
+        return createdDayBuckets(from, to).stream()
+                .flatMap(bucket -> queryCreatedDay(bucket, from, to, attributes));
+    }
+
+    /**
+     * Retrieves incidents whose createdAt timestamp falls within the given
+     * range. Queries the day buckets of the {@code created-day-index} in the
+     * range in parallel, at most {@code max-parallel-queries} at a time, and
+     * merges the results, so only matching incidents are read.
+     *
+     * @param from the start of the range (inclusive)
+     * @param to the end of the range (inclusive)
+     * @return the incidents in the range, oldest first
+     */
+    public List<Incident> findByCreatedAtBetween(Instant from, Instant to) {
+        List<String> buckets = createdDayBuckets(from, to);
+        List<List<Incident>> results = new ArrayList<>(buckets.size());
+        try {
+            for (int start = 0; start < buckets.size(); start += maxParallelDayQueries) {
+                List<CompletableFuture<List<Incident>>> window = buckets
+                        .subList(start, Math.min(start + maxParallelDayQueries, buckets.size())).stream()
+                        .map(bucket -> CompletableFuture.supplyAsync(
+                                () -> queryCreatedDay(bucket, from, to).toList(), queryExecutor))
+                        .toList();
+                window.forEach(query -> results.add(query.join()));
+            }
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+        return SortedMerge.merge(results, Comparator.comparing(Incident::getCreatedAt));
+    }
+
+    /**
+     * Writes the derived index keys ({@code createdDay}, {@code severityShard}
+     * and {@code categoryShard}) to incidents saved before those indexes
+     * existed, so they become visible to the day and sharded queries, and
+     * rewrites a {@code createdAt} stored with a variable number of fraction
+     * digits in {@link Incident#TIMESTAMP_FORMAT}. Only the key, the
+     * attributes the index keys derive from and the index keys themselves
+     * are written. Incidents deleted, or whose source attributes changed,
+     * since the scan read them are skipped; their own write already stored
+     * the keys.
+     *
+     * @return the number of incidents updated
+     */
+    public long backfillIndexKeys() {
+        AtomicLong updated = new AtomicLong();
+        scanner.scan(table, r -> r
+                        .filterExpression(Expression.builder()
+                                .expression("(attribute_exists(createdAt) AND attribute_not_exists(createdDay))"
+                                        + " OR (attribute_exists(createdAt) AND size(createdAt) <> :timestampLength)"
+                                        + " OR (attribute_exists(severity) AND attribute_not_exists(severityShard))"
+                                        + " OR (attribute_exists(category) AND attribute_not_exists(categoryShard))")
+                                .expressionValues(Map.of(":timestampLength",
+                                        AttributeValue.fromN(Integer.toString(Incident.TIMESTAMP_LENGTH))))
+                                .build())
+                        .attributesToProject("incidentId", "createdAt", "severity", "category"),
+                incident -> {
+                    Expression unchanged = unchanged(incident);
+                    incident.normalizeCreatedAt();
+                    incident.assignClassificationShards(shards);
+                    try {
+                        table.updateItem(UpdateItemEnhancedRequest.builder(Incident.class)
+                                .item(incident)
+                                .ignoreNulls(true)
+                                .conditionExpression(unchanged)
+                                .build());
+                        updated.incrementAndGet();
+                    } catch (ConditionalCheckFailedException e) {
+                        // deleted or rewritten since the scan read it
+                    }
+                });
+        return updated.get();
+    }
+
+    /**
+     * Builds a condition that the incident still exists with the createdAt,
+     * severity and category the backfill read.
+     */
+    private static Expression unchanged(Incident incident) {
+        StringBuilder expression = new StringBuilder("attribute_exists(incidentId)");
+        Map<String, String> names = new HashMap<>();
+        Map<String, AttributeValue> values = new HashMap<>();
+        Map<String, String> sources = new LinkedHashMap<>();
+        sources.put("createdAt", incident.getCreatedAt());
+        sources.put("severity", incident.getSeverity());
+        sources.put("category", incident.getCategory());
+        sources.forEach((name, value) -> {
+            names.put("#" + name, name);
+            if (value == null) {
+                expression.append(" AND attribute_not_exists(#").append(name).append(')');
+            } else {
+                expression.append(" AND #").append(name).append(" = :").append(name);
+                values.put(":" + name, AttributeValue.fromS(value));
+            }
+        });
+        return Expression.builder()
+                .expression(expression.toString())
+                .expressionNames(names)
+                .expressionValues(values.isEmpty() ? null : values)
+                .build();
+    }
+
+    /**
+     * Lists the created-day index partitions covering a time range: every
+     * shard of every UTC day from {@code from} to {@code to}.
+     *
+     * @param from the start of the range (inclusive)
+     * @param to the end of the range (inclusive)
+     * @return the partition keys in day order, empty if the range is empty
+     */
+    static List<String> createdDayBuckets(Instant from, Instant to) {
+        List<String> buckets = new ArrayList<>();
+        LocalDate last = LocalDate.ofInstant(to, ZoneOffset.UTC);
+        for (LocalDate day = LocalDate.ofInstant(from, ZoneOffset.UTC); !day.isAfter(last); day = day.plusDays(1)) {
+            for (int shard = 0; shard < Incident.CREATED_DAY_SHARDS; shard++) {
+                buckets.add(Incident.createdDayBucket(day, shard));
+            }
+        }
+        return buckets;
+    }
+
+    /**
+     * Queries one created-day partition for incidents in a time range,
+     * fetching pages lazily. Both bounds are formatted like the stored
+     * {@code createdAt}, so the string comparison matches time order.
+     *
+     * @return a stream of matching incidents, oldest first
+     */
+    private Stream<Incident> queryCreatedDay(String bucket, Instant from, Instant to, String... attributes) {
+        return table.index("created-day-index")
+                .query(r -> {
+                    r.queryConditional(QueryConditional.sortBetween(
+                            k -> k.partitionValue(bucket).sortValue(Incident.formatTimestamp(from)),
+                            k -> k.partitionValue(bucket).sortValue(Incident.formatTimestamp(to))));
+                    if (attributes.length > 0) {
+                        r.attributesToProject(attributes);
+                    }
+                })
+                .stream()
+                .flatMap(page -> page.items().stream());
+    }
+}
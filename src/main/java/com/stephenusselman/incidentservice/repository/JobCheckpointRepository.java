@@ -0,0 +1,125 @@
+package com.stephenusselman.incidentservice.repository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+import org.springframework.stereotype.Repository;
+
+import com.stephenusselman.incidentservice.domain.JobCheckpoint;
+
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.Expression;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.enhanced.dynamodb.model.PutItemEnhancedRequest;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+
+/**
+ * Repository for job checkpoints stored in DynamoDB.
+ *
+ * Writes are conditional on the lease, so a job is run by at most one node
+ * at a time and a node that lost its lease cannot overwrite the progress of
+ * the node that took over.
+ */
+@Repository
+public class JobCheckpointRepository {
+
+    private final DynamoDbTable<JobCheckpoint> table;
+
+    public JobCheckpointRepository(DynamoDbEnhancedClient enhancedClient) {
+        this.table = enhancedClient.table(
+                "EnrichmentJobs",
+                TableSchema.fromBean(JobCheckpoint.class)
+        );
+    }
+
+    /**
+     * Retrieves the checkpoint of a job.
+     *
+     * @param jobName the job name
+     * @return the checkpoint, or null if the job never ran
+     */
+    public JobCheckpoint findByName(String jobName) {
+        return table.getItem(Key.builder().partitionValue(jobName).build());
+    }
+
+    /**
+     * Takes the lease on a job, creating its checkpoint on the first run.
+     * Succeeds if the job never ran, its lease has expired, or the caller
+     * already holds it.
+     *
+     * @param jobName the job name
+     * @param owner identifier of the claiming node
+     * @param lease how long the lease is held before it expires
+     * @return the claimed checkpoint, or null if another node holds the lease
+     */
+    public JobCheckpoint claim(String jobName, String owner, Duration lease) {
+        Instant now = Instant.now();
+        JobCheckpoint checkpoint = findByName(jobName);
+        if (checkpoint == null) {
+            checkpoint = new JobCheckpoint();
+            checkpoint.setJobName(jobName);
+        }
+        checkpoint.setLeaseOwner(owner);
+        checkpoint.setLeaseUntil(now.plus(lease).toString());
+        checkpoint.setUpdatedAt(now.toString());
+
+        return write(checkpoint,
+                "attribute_not_exists(jobName) OR leaseUntil < :now OR leaseOwner = :owner",
+                Map.of(":now", AttributeValue.fromS(now.toString()),
+                        ":owner", AttributeValue.fromS(owner))) ? checkpoint : null;
+    }
+
+    /**
+     * Saves progress and extends the lease, provided the caller still holds it.
+     *
+     * @param checkpoint the checkpoint claimed by the caller
+     * @param lease the new lease duration, measured from now
+     * @return true if the checkpoint was saved, false if the lease was lost
+     */
+    public boolean save(JobCheckpoint checkpoint, Duration lease) {
+        Instant now = Instant.now();
+        checkpoint.setLeaseUntil(now.plus(lease).toString());
+        checkpoint.setUpdatedAt(now.toString());
+        return write(checkpoint, "leaseOwner = :owner",
+                Map.of(":owner", AttributeValue.fromS(checkpoint.getLeaseOwner())));
+    }
+
+    /**
+     * Saves final progress and gives up the lease, provided the caller still holds it.
+     *
+     * @param checkpoint the checkpoint claimed by the caller
+     * @return true if the checkpoint was saved, false if the lease was already lost
+     */
+    public boolean release(JobCheckpoint checkpoint) {
+        String owner = checkpoint.getLeaseOwner();
+        checkpoint.setLeaseOwner(null);
+        checkpoint.setLeaseUntil(null);
+        checkpoint.setUpdatedAt(Instant.now().toString());
+        return write(checkpoint, "leaseOwner = :owner",
+                Map.of(":owner", AttributeValue.fromS(owner)));
+    }
+
+    /**
+     * Writes the checkpoint only if the given condition holds.
+     *
+     * @return true if the checkpoint was written
+     */
+    private boolean write(JobCheckpoint checkpoint, String condition, Map<String, AttributeValue> values) {
+        try {
+            table.putItem(PutItemEnhancedRequest.builder(JobCheckpoint.class)
+                    .item(checkpoint)
+                    .conditionExpression(Expression.builder()
+                            .expression(condition)
+                            .expressionValues(values)
+                            .build())
+                    .build());
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.stephenusselman.incidentservice.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.model.Page;
+import software.amazon.awssdk.enhanced.dynamodb.model.ScanEnhancedRequest;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+
+/**
+ * Runs full-table scans as parallel segments.
+ *
+ * The table is split into {@code segments} with DynamoDB's
+ * {@code Segment}/{@code TotalSegments}, and every segment is read page by
+ * page on the {@code dynamoDbScanExecutor} pool, so the scan proceeds at
+ * roughly the combined speed of the segments instead of one page at a
+ * time. Items are handed to the caller's consumer as each page arrives, so
+ * nothing needs to hold the whole table; the consumer is called from
+ * several threads at once and must be thread-safe.
+ *
+ * Every page reports the read units it consumed, and all running scans
+ * share one read budget of {@code max-read-units-per-second}, so a scan
+ * cannot starve the table's provisioned capacity. A segment waits before
+ * its next page while the budget is overdrawn. If any segment fails, the
+ * others stop after their current page.
+ */
+@Slf4j
+@Component
+public class ParallelScanner {
+
+    private final Executor executor;
+
+    /** Segments each scan is split into */
+    private final int segments;
+
+    /** Read units per second shared by all scans */
+    private final CapacityLimiter readUnits;
+
+    private final Counter itemsCounter;
+    private final Counter readUnitsCounter;
+
+    /**
+     * Constructs the scanner.
+     *
+     * @param executor pool the segments run on
+     * @param meterRegistry registry used to publish scan metrics
+     * @param segments segments each scan is split into
+     * @param maxReadUnitsPerSecond read units per second shared by all scans; 0 for no limit
+     */
+    public ParallelScanner(
+            @Qualifier("dynamoDbScanExecutor") Executor executor,
+            MeterRegistry meterRegistry,
+            @Value("${dynamodb.scan.segments:4}") int segments,
+            @Value("${dynamodb.scan.max-read-units-per-second:0}") double maxReadUnitsPerSecond) {
+        if (segments < 1) {
+            throw new IllegalArgumentException("dynamodb.scan.segments must be at least 1");
+        }
+        if (maxReadUnitsPerSecond < 0) {
+            throw new IllegalArgumentException("dynamodb.scan.max-read-units-per-second must not be negative");
+        }
+        this.executor = executor;
+        this.segments = segments;
+        this.readUnits = new CapacityLimiter(maxReadUnitsPerSecond);
+
+        this.itemsCounter = Counter.builder("dynamodb.scan.items")
+                .description("Items read by parallel scans")
+                .register(meterRegistry);
+        this.readUnitsCounter = Counter.builder("dynamodb.scan.read-units")
+                .description("Read capacity units consumed by parallel scans")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts a parallel scan of the whole table.
+     *
+     * @param table the table to scan
+     * @param request adds a filter, projection or other options to every segment's request
+     * @param consumer receives every item; called concurrently from the segment threads
+     * @param <T> the item type
+     * @return a handle reporting progress and completion
+     */
+    public <T> Scan start(DynamoDbTable<T> table, Consumer<ScanEnhancedRequest.Builder> request,
+            Consumer<? super T> consumer) {
+        return startPages(table, request, items -> items.forEach(consumer));
+    }
+
+    /**
+     * Starts a parallel scan of the whole table, handing over each page's
+     * items together.
+     *
+     * @param table the table to scan
+     * @param request adds a filter, projection or other options to every segment's request
+     * @param consumer receives the items of every page; called concurrently from the segment threads
+     * @param <T> the item type
+     * @return a handle reporting progress and completion
+     */
+    public <T> Scan startPages(DynamoDbTable<T> table, Consumer<ScanEnhancedRequest.Builder> request,
+            Consumer<List<T>> consumer) {
+        Scan scan = new Scan(table.tableName(), segments);
+        List<CompletableFuture<Void>> futures = new ArrayList<>(segments);
+        for (int segment = 0; segment < segments; segment++) {
+            SegmentProgress progress = scan.segments.get(segment);
+            futures.add(CompletableFuture.runAsync(() -> scanSegment(table, request, consumer, scan, progress),
+                    executor));
+        }
+        scan.completion = CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new));
+        futures.forEach(future -> future.whenComplete((ignored, error) -> {
+            if (error != null) {
+                scan.cancelled.set(true);
+            }
+        }));
+        return scan;
+    }
+
+    /**
+     * Scans the whole table in parallel and waits for every segment.
+     *
+     * @param table the table to scan
+     * @param request adds a filter, projection or other options to every segment's request
+     * @param consumer receives every item; called concurrently from the segment threads
+     * @param <T> the item type
+     * @return the finished scan's progress
+     * @throws RuntimeException the first error raised by a segment or the consumer
+     */
+    public <T> Scan scan(DynamoDbTable<T> table, Consumer<ScanEnhancedRequest.Builder> request,
+            Consumer<? super T> consumer) {
+        Scan scan = start(table, request, consumer);
+        scan.join();
+        return scan;
+    }
+
+    /**
+     * Scans the whole table in parallel, handing over each page's items
+     * together, and waits for every segment.
+     *
+     * @param table the table to scan
+     * @param request adds a filter, projection or other options to every segment's request
+     * @param consumer receives the items of every page; called concurrently from the segment threads
+     * @param <T> the item type
+     * @return the finished scan's progress
+     * @throws RuntimeException the first error raised by a segment or the consumer
+     */
+    public <T> Scan scanPages(DynamoDbTable<T> table, Consumer<ScanEnhancedRequest.Builder> request,
+            Consumer<List<T>> consumer) {
+        Scan scan = startPages(table, request, consumer);
+        scan.join();
+        return scan;
+    }
+
+    /**
+     * @return the number of segments each scan is split into
+     */
+    public int getSegments() {
+        return segments;
+    }
+
+    /**
+     * Reads one segment page by page until it is exhausted or the scan is
+     * cancelled.
+     */
+    private <T> void scanSegment(DynamoDbTable<T> table, Consumer<ScanEnhancedRequest.Builder> request,
+            Consumer<List<T>> consumer, Scan scan, SegmentProgress progress) {
+        ScanEnhancedRequest.Builder builder = ScanEnhancedRequest.builder();
+        request.accept(builder);
+        builder.segment(progress.segment)
+                .totalSegments(scan.segments.size())
+                .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+
+        for (Page<T> page : table.scan(builder.build())) {
+            double consumed = page.consumedCapacity() == null || page.consumedCapacity().capacityUnits() == null
+                    ? 0 : page.consumedCapacity().capacityUnits();
+            readUnitsCounter.increment(consumed);
+            progress.pages.incrementAndGet();
+            progress.readUnits.add(consumed);
+            consumer.accept(page.items());
+            progress.items.addAndGet(page.items().size());
+            itemsCounter.increment(page.items().size());
+            if (scan.cancelled.get()) {
+                return;
+            }
+            readUnits.charge(consumed);
+        }
+        progress.done = true;
+        log.debug("Scan of {} segment {}/{} finished: {} items", scan.tableName, progress.segment,
+                scan.segments.size(), progress.items.get());
+    }
+
+    /**
+     * A running or finished parallel scan.
+     */
+    public static final class Scan {
+
+        private final String tableName;
+        private final List<SegmentProgress> segments;
+        private final AtomicBoolean cancelled = new AtomicBoolean(false);
+        private volatile CompletableFuture<Void> completion;
+
+        private Scan(String tableName, int totalSegments) {
+            this.tableName = tableName;
+            List<SegmentProgress> progress = new ArrayList<>(totalSegments);
+            for (int segment = 0; segment < totalSegments; segment++) {
+                progress.add(new SegmentProgress(segment));
+            }
+            this.segments = List.copyOf(progress);
+        }
+
+        /**
+         * Waits for every segment to finish.
+         *
+         * @throws RuntimeException the first error raised by a segment or the consumer
+         */
+        public void join() {
+            try {
+                completion.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        /**
+         * @return whether every segment has finished or the scan failed
+         */
+        public boolean isDone() {
+            return completion.isDone();
+        }
+
+        /**
+         * Returns the progress of every segment.
+         *
+         * @return one snapshot per segment, in segment order
+         */
+        public List<SegmentSnapshot> progress() {
+            return segments.stream().map(SegmentProgress::snapshot).toList();
+        }
+
+        /**
+         * @return the items read so far by all segments
+         */
+        public long getItems() {
+            return segments.stream().mapToLong(segment -> segment.items.get()).sum();
+        }
+
+        /**
+         * @return the read units consumed so far by all segments
+         */
+        public double getReadUnits() {
+            return segments.stream().mapToDouble(segment -> segment.readUnits.sum()).sum();
+        }
+    }
+
+    /**
+     * Live progress of one segment.
+     */
+    private static final class SegmentProgress {
+
+        private final int segment;
+        private final AtomicLong pages = new AtomicLong();
+        private final AtomicLong items = new AtomicLong();
+        private final DoubleAdder readUnits = new DoubleAdder();
+        private volatile boolean done;
+
+        private SegmentProgress(int segment) {
+            this.segment = segment;
+        }
+
+        private SegmentSnapshot snapshot() {
+            return new SegmentSnapshot(segment, pages.get(), items.get(), readUnits.sum(), done);
+        }
+    }
+
+    /**
+     * Progress of one segment.
+     *
+     * @param segment the segment number
+     * @param pages pages read
+     * @param items items read
+     * @param readUnits read units consumed
+     * @param done whether the segment has been read to the end
+     */
+    public record SegmentSnapshot(int segment, long pages, long items, double readUnits, boolean done) {
+    }
+}
@@ -0,0 +1,238 @@
+package com.stephenusselman.incidentservice.repository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbIndex;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.model.Page;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryConditional;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * Scatter-gather queries over a write-sharded index, whose partition key is
+ * a value plus a shard suffix and whose sort key orders items within each
+ * shard.
+ *
+ * A page queries every unfinished shard in parallel for up to
+ * {@code limit} items from its own position, k-way merges the results in
+ * sort-key order and keeps the first {@code limit}. The merge stops early
+ * if a shard that has more items runs out of fetched ones, because its
+ * next items might sort first. The returned cursor records, per shard,
+ * the key of the last item taken, or that the shard is finished; shards
+ * absent from the cursor start from the beginning. Items fetched but not
+ * taken are read again by the next page, so a page costs up to one query
+ * per shard.
+ *
+ * @param <T> the item type
+ */
+final class ShardedIndexQuery<T> {
+
+    /** Cursor value of a shard that has no items left */
+    private static final String DONE = "done";
+
+    private final DynamoDbTable<T> table;
+    private final DynamoDbIndex<T> index;
+    private final int shards;
+    private final BiFunction<String, Integer, String> shardKey;
+    private final List<String> keyAttributes;
+    private final Comparator<? super T> order;
+    private final Executor executor;
+
+    /**
+     * Creates a query over one sharded index.
+     *
+     * @param table the table the index belongs to
+     * @param indexName the sharded index
+     * @param shards shards each value is split into
+     * @param shardKey builds the partition key of a value's shard
+     * @param keyAttributes the table and index key attributes that make up an exclusive start key
+     * @param order the index's sort order
+     * @param executor pool the shard queries run on
+     */
+    ShardedIndexQuery(DynamoDbTable<T> table, String indexName, int shards,
+            BiFunction<String, Integer, String> shardKey, List<String> keyAttributes,
+            Comparator<? super T> order, Executor executor) {
+        this.table = table;
+        this.index = table.index(indexName);
+        this.shards = shards;
+        this.shardKey = shardKey;
+        this.keyAttributes = List.copyOf(keyAttributes);
+        this.order = order;
+        this.executor = executor;
+    }
+
+    /**
+     * Reads one page of items with the given value, in sort-key order.
+     *
+     * @param value the unsharded partition value
+     * @param limit the maximum number of items to return
+     * @param cursor the cursor from a previous page, or null to start
+     * @return the items and the next cursor, which is null after the last page
+     * @throws IllegalArgumentException if the cursor was not issued by a sharded query
+     */
+    Page<T> query(String value, int limit, Map<String, AttributeValue> cursor) {
+        Map<Integer, Map<String, AttributeValue>> positions = new HashMap<>();
+        boolean[] done = new boolean[shards];
+        decode(cursor, positions, done);
+
+        List<CompletableFuture<Page<T>>> fetches = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            if (done[shard]) {
+                fetches.add(null);
+                continue;
+            }
+            String partition = shardKey.apply(value, shard);
+            Map<String, AttributeValue> start = positions.get(shard);
+            fetches.add(async(() -> index.query(r -> r
+                            .queryConditional(QueryConditional.keyEqualTo(k -> k.partitionValue(partition)))
+                            .limit(limit)
+                            .exclusiveStartKey(start))
+                    .iterator()
+                    .next()));
+        }
+
+        List<Page<T>> pages = new ArrayList<>(shards);
+        for (CompletableFuture<Page<T>> fetch : fetches) {
+            pages.add(fetch == null ? null : join(fetch));
+        }
+
+        int[] taken = new int[shards];
+        PriorityQueue<Integer> heads = new PriorityQueue<>(Math.max(1, shards),
+                (a, b) -> order.compare(pages.get(a).items().get(taken[a]), pages.get(b).items().get(taken[b])));
+        for (int shard = 0; shard < shards; shard++) {
+            if (pages.get(shard) != null && !pages.get(shard).items().isEmpty()) {
+                heads.add(shard);
+            }
+        }
+
+        List<T> items = new ArrayList<>(limit);
+        while (items.size() < limit && !heads.isEmpty()) {
+            int shard = heads.poll();
+            Page<T> page = pages.get(shard);
+            items.add(page.items().get(taken[shard]++));
+            if (taken[shard] < page.items().size()) {
+                heads.add(shard);
+            } else if (page.lastEvaluatedKey() != null) {
+                break;
+            }
+        }
+
+        Map<String, AttributeValue> next = new HashMap<>();
+        boolean finished = true;
+        for (int shard = 0; shard < shards; shard++) {
+            Page<T> page = pages.get(shard);
+            boolean exhausted = done[shard]
+                    || (taken[shard] == page.items().size() && page.lastEvaluatedKey() == null);
+            if (exhausted) {
+                next.put(Integer.toString(shard), AttributeValue.fromS(DONE));
+                continue;
+            }
+            finished = false;
+            Map<String, AttributeValue> position = taken[shard] > 0
+                    ? table.tableSchema().itemToMap(page.items().get(taken[shard] - 1), keyAttributes)
+                    : positions.get(shard);
+            if (position != null) {
+                String prefix = shard + ".";
+                position.forEach((name, attribute) -> next.put(prefix + name, attribute));
+            }
+        }
+        Page.Builder<T> result = Page.builder(table.tableSchema().itemType().rawClass()).items(items);
+        if (!finished) {
+            result.lastEvaluatedKey(next);
+        }
+        return result.build();
+    }
+
+    /**
+     * Streams every item with the given value, one shard after another,
+     * fetching pages lazily.
+     *
+     * @param value the unsharded partition value
+     * @return a sequential stream ordered by shard, then sort key
+     */
+    Stream<T> stream(String value) {
+        return IntStream.range(0, shards)
+                .mapToObj(shard -> shardKey.apply(value, shard))
+                .flatMap(partition -> index.query(QueryConditional.keyEqualTo(k -> k.partitionValue(partition)))
+                        .stream()
+                        .flatMap(page -> page.items().stream()));
+    }
+
+    /**
+     * Reads every item with the given value, querying all shards in
+     * parallel and merging them.
+     *
+     * @param value the unsharded partition value
+     * @return the items in sort-key order
+     */
+    List<T> findAll(String value) {
+        List<CompletableFuture<List<T>>> fetches = IntStream.range(0, shards)
+                .mapToObj(shard -> shardKey.apply(value, shard))
+                .map(partition -> async(() -> index.query(QueryConditional.keyEqualTo(k -> k.partitionValue(partition)))
+                        .stream()
+                        .flatMap(page -> page.items().stream())
+                        .toList()))
+                .toList();
+        return SortedMerge.merge(fetches.stream().map(ShardedIndexQuery::join).toList(), order);
+    }
+
+    /**
+     * Splits a cursor into per-shard positions and finished shards.
+     *
+     * @throws IllegalArgumentException if the cursor is not a sharded cursor
+     */
+    private void decode(Map<String, AttributeValue> cursor, Map<Integer, Map<String, AttributeValue>> positions,
+            boolean[] done) {
+        if (cursor == null) {
+            return;
+        }
+        cursor.forEach((name, attribute) -> {
+            int dot = name.indexOf('.');
+            int shard = parseShard(dot < 0 ? name : name.substring(0, dot));
+            if (dot < 0) {
+                if (!DONE.equals(attribute.s())) {
+                    throw new IllegalArgumentException("Invalid pagination key");
+                }
+                done[shard] = true;
+            } else {
+                positions.computeIfAbsent(shard, s -> new HashMap<>()).put(name.substring(dot + 1), attribute);
+            }
+        });
+    }
+
+    private int parseShard(String text) {
+        try {
+            int shard = Integer.parseInt(text);
+            if (shard >= 0 && shard < shards) {
+                return shard;
+            }
+        } catch (NumberFormatException e) {
+            // fall through
+        }
+        throw new IllegalArgumentException("Invalid pagination key");
+    }
+
+    private <R> CompletableFuture<R> async(Supplier<R> query) {
+        return CompletableFuture.supplyAsync(query, executor);
+    }
+
+    private static <R> R join(CompletableFuture<R> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.stephenusselman.incidentservice.repository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * K-way merge of lists that are each already sorted, used to combine the
+ * results of queries fanned out over several index partitions.
+ */
+final class SortedMerge {
+
+    private SortedMerge() {
+    }
+
+    /**
+     * Merges sorted lists into one sorted list in O(n log k).
+     *
+     * @param sources the lists, each sorted by {@code order}
+     * @param order the order of every list and of the result
+     * @param <T> the element type
+     * @return a new list holding every element in order
+     */
+    static <T> List<T> merge(List<? extends List<T>> sources, Comparator<? super T> order) {
+        int size = sources.stream().mapToInt(List::size).sum();
+        List<T> merged = new ArrayList<>(size);
+        PriorityQueue<Head<T>> heads = new PriorityQueue<>(Math.max(1, sources.size()),
+                (a, b) -> order.compare(a.value, b.value));
+        for (List<T> source : sources) {
+            Iterator<T> iterator = source.iterator();
+            if (iterator.hasNext()) {
+                heads.add(new Head<>(iterator.next(), iterator));
+            }
+        }
+        while (!heads.isEmpty()) {
+            Head<T> head = heads.poll();
+            merged.add(head.value);
+            if (head.rest.hasNext()) {
+                heads.add(new Head<>(head.rest.next(), head.rest));
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * The smallest unmerged element of one source and the rest of it.
+     */
+    private record Head<T>(T value, Iterator<T> rest) {
+    }
+}
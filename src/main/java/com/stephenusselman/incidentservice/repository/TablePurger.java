@@ -0,0 +1,158 @@
+package com.stephenusselman.incidentservice.repository;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchWriteItemEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchWriteResult;
+import software.amazon.awssdk.enhanced.dynamodb.model.WriteBatch;
+
+/**
+ * Deletes every item of a table with batched writes.
+ *
+ * Keys are read with a key-only {@link ParallelScanner} scan, and each
+ * segment deletes the keys of every page it reads in {@code BatchWriteItem}
+ * requests of up to 25 keys, the most DynamoDB accepts, so a purge takes
+ * about n/25 requests spread over the segments instead of one round trip
+ * per item. Keys DynamoDB returns as unprocessed are retried with
+ * jittered exponential backoff. Deletes can be held to a write budget
+ * shared by all purges, charged at one write unit per item.
+ */
+@Slf4j
+@Component
+public class TablePurger {
+
+    /** Most keys DynamoDB accepts in one BatchWriteItem request */
+    static final int MAX_BATCH_SIZE = 25;
+
+    private static final long INITIAL_BACKOFF_MS = 50;
+    private static final long MAX_BACKOFF_MS = 2_000;
+
+    private final DynamoDbEnhancedClient enhancedClient;
+    private final ParallelScanner scanner;
+
+    /** Write units per second shared by all purges */
+    private final CapacityLimiter writeUnits;
+
+    /** Attempts per batch before unprocessed keys fail the purge */
+    private final int maxAttempts;
+
+    private final Counter deletedCounter;
+    private final Counter retriedCounter;
+
+    /**
+     * Constructs the purger.
+     *
+     * @param enhancedClient the DynamoDB enhanced client
+     * @param scanner the parallel scanner that reads the keys
+     * @param meterRegistry registry used to publish purge metrics
+     * @param maxWriteUnitsPerSecond write units per second shared by all purges; 0 for no limit
+     * @param maxAttempts attempts per batch before unprocessed keys fail the purge
+     */
+    public TablePurger(
+            DynamoDbEnhancedClient enhancedClient,
+            ParallelScanner scanner,
+            MeterRegistry meterRegistry,
+            @Value("${dynamodb.purge.max-write-units-per-second:0}") double maxWriteUnitsPerSecond,
+            @Value("${dynamodb.purge.max-attempts:8}") int maxAttempts) {
+        if (maxWriteUnitsPerSecond < 0) {
+            throw new IllegalArgumentException("dynamodb.purge.max-write-units-per-second must not be negative");
+        }
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("dynamodb.purge.max-attempts must be at least 1");
+        }
+        this.enhancedClient = enhancedClient;
+        this.scanner = scanner;
+        this.writeUnits = new CapacityLimiter(maxWriteUnitsPerSecond);
+        this.maxAttempts = maxAttempts;
+
+        this.deletedCounter = Counter.builder("dynamodb.purge.deleted")
+                .description("Items deleted by table purges")
+                .register(meterRegistry);
+        this.retriedCounter = Counter.builder("dynamodb.purge.unprocessed")
+                .description("Keys DynamoDB left unprocessed and a purge retried")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Deletes every item in the table.
+     *
+     * @param table the table to purge
+     * @param keyOf maps a key-only item to its primary key
+     * @param keyAttributes the table's key attributes, read by the scan
+     * @param <T> the item type
+     * @return the number of items deleted
+     * @throws IllegalStateException if keys are still unprocessed after the last attempt
+     */
+    public <T> long purge(DynamoDbTable<T> table, Function<T, Key> keyOf, String... keyAttributes) {
+        AtomicLong deleted = new AtomicLong();
+        scanner.scanPages(table, r -> r.attributesToProject(keyAttributes), items -> {
+            for (int from = 0; from < items.size(); from += MAX_BATCH_SIZE) {
+                List<Key> keys = items.subList(from, Math.min(items.size(), from + MAX_BATCH_SIZE)).stream()
+                        .map(keyOf)
+                        .toList();
+                deleteBatch(table, keys);
+                deleted.addAndGet(keys.size());
+            }
+        });
+        log.info("Purged {} items from {}", deleted.get(), table.tableName());
+        return deleted.get();
+    }
+
+    /**
+     * Deletes up to 25 keys, retrying unprocessed keys with backoff.
+     *
+     * @param table the table the keys belong to
+     * @param keys the keys to delete
+     * @throws IllegalStateException if keys are still unprocessed after the last attempt
+     */
+    <T> void deleteBatch(DynamoDbTable<T> table, List<Key> keys) {
+        List<Key> pending = keys;
+        long backoffMs = INITIAL_BACKOFF_MS;
+        for (int attempt = 1; ; attempt++) {
+            WriteBatch.Builder<T> batch = WriteBatch.builder(table.tableSchema().itemType().rawClass())
+                    .mappedTableResource(table);
+            pending.forEach(batch::addDeleteItem);
+            BatchWriteResult result = enhancedClient.batchWriteItem(BatchWriteItemEnhancedRequest.builder()
+                    .writeBatches(batch.build())
+                    .build());
+
+            List<Key> unprocessed = result.unprocessedDeleteItemsForTable(table);
+            int done = pending.size() - unprocessed.size();
+            deletedCounter.increment(done);
+            writeUnits.charge(done);
+            if (unprocessed.isEmpty()) {
+                return;
+            }
+            if (attempt >= maxAttempts) {
+                throw new IllegalStateException(unprocessed.size() + " deletes from " + table.tableName()
+                        + " still unprocessed after " + attempt + " attempts");
+            }
+            retriedCounter.increment(unprocessed.size());
+            pending = unprocessed;
+            sleep(ThreadLocalRandom.current().nextLong(backoffMs / 2, backoffMs + 1));
+            backoffMs = Math.min(MAX_BACKOFF_MS, backoffMs * 2);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying unprocessed deletes", e);
+        }
+    }
+}
@@ -5,6 +5,7 @@ import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.springframework.stereotype.Service;
 
@@ -23,19 +24,20 @@ public class IncidentAnalyticsService {
     private final IncidentRepository incidentRepository;
 
     /**
-     * Aggregates incidents by severity.
+     * Aggregates incidents by severity. Streams the table reading only the
+     * severity, so memory is bounded by one page plus the counts.
      *
      * @return a {@link SeverityCountResponse} containing counts per severity
      */
     public SeverityCountResponse getSeverityCounts() {
-        List<Incident> incidents = incidentRepository.findAll();
-
-        Map<String, Long> counts =
-            incidents.stream()
+        Map<String, Long> counts;
+        try (Stream<Incident> incidents = incidentRepository.streamAll("severity")) {
+            counts = incidents
                 .collect(Collectors.groupingBy(
                     Incident::getSeverity,
                     Collectors.counting()
                 ));
+        }
 
         return new SeverityCountResponse(counts);
     }
@@ -54,16 +56,15 @@ public class IncidentAnalyticsService {
     * @return a chronologically sorted list of time bucket counts
     */
     public List<TimeBucketCountResponse> getIncidentsOverTime(Instant from, Instant to, ChronoUnit unit) {
-        List<Incident> incidents =
-            incidentRepository.findByCreatedAtBetween(from, to);
-
-        Map<Instant, Long> buckets =
-            incidents.stream()
+        Map<Instant, Long> buckets;
+        try (Stream<Incident> incidents = incidentRepository.streamByCreatedAtBetween(from, to, "createdAt")) {
+            buckets = incidents
                 .map(i -> Instant.parse(i.getCreatedAt())) // explicit conversion
                 .collect(Collectors.groupingBy(
                     instant -> instant.truncatedTo(unit),
                     Collectors.counting()
                 ));
+        }
 
         return buckets.entrySet().stream()
             .sorted(Map.Entry.comparingByKey())
@@ -77,18 +78,22 @@ public class IncidentAnalyticsService {
     /**
     * Retrieves the most frequently occurring incident categories.
     *
+    * Streams the table reading only the category.
+    *
     * @param limit the maximum number of categories to return
     * @return a list of category count results ordered by frequency
     */
     public List<CategoryCountResponse> getTopCategories(int limit) {
-        List<Incident> incidents = incidentRepository.findAll();
+        Map<String, Long> counts;
+        try (Stream<Incident> incidents = incidentRepository.streamAll("category")) {
+            counts = incidents
+                .collect(Collectors.groupingBy(
+                    Incident::getCategory,
+                    Collectors.counting()
+                ));
+        }
 
-        return incidents.stream()
-            .collect(Collectors.groupingBy(
-                Incident::getCategory,
-                Collectors.counting()
-            ))
-            .entrySet().stream()
+        return counts.entrySet().stream()
             .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
             .limit(limit)
             .map(e -> new CategoryCountResponse(e.getKey(), e.getValue()))
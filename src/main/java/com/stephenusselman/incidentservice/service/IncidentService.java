@@ -1,6 +1,9 @@
 package com.stephenusselman.incidentservice.service;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.UUID;
 import java.util.Base64;
@@ -8,12 +11,17 @@ import java.util.Map;
 
 import org.springframework.stereotype.Service;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import com.stephenusselman.incidentservice.domain.Incident;
 import com.stephenusselman.incidentservice.dto.CreateIncidentRequest;
 import com.stephenusselman.incidentservice.dto.IncidentResponse;
 import com.stephenusselman.incidentservice.dto.PagedIncidentResponse;
 import com.stephenusselman.incidentservice.repository.IncidentRepository;
-import com.stephenusselman.incidentservice.service.ai.IncidentEnrichmentCoordinator;
+import com.stephenusselman.incidentservice.service.ai.EnrichmentQueue;
+import com.stephenusselman.incidentservice.service.ai.IncidentReEnricher;
+import com.stephenusselman.incidentservice.service.ai.LocalIncidentClassifier;
 
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 import software.amazon.awssdk.enhanced.dynamodb.model.Page;
@@ -27,11 +35,18 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class IncidentService {
 
+    /** Mapper used to serialize pagination cursors */
+    private static final ObjectMapper CURSOR_MAPPER = new ObjectMapper();
+
     private final IncidentRepository repository;
-    private final IncidentEnrichmentCoordinator enrichmentCoordinator;
+    private final EnrichmentQueue enrichmentQueue;
+    private final LocalIncidentClassifier localClassifier;
+    private final IncidentReEnricher reEnricher;
 
     /**
-     * Creates a new incident based on the input request.
+     * Creates a new incident based on the input request and durably
+     * enqueues it for AI enrichment. If the local classifier is confident,
+     * severity and category are set immediately and kept by enrichment.
      * 
      * @param request the DTO containing incident details
      * @return the created Incident entity
@@ -41,28 +56,40 @@ public class IncidentService {
         incident.setIncidentId(UUID.randomUUID().toString());
         incident.setDescription(request.getDescription());
         incident.setReportedBy(request.getReportedBy());
-        incident.setCreatedAt(Instant.now().toString());
+        incident.setCreatedAt(Incident.formatTimestamp(Instant.now()));
+        incident.setPromptVersion(request.getPromptVersion());
 
         incident.setAiStatus("PENDING");
-        incident.setSeverity("PENDING");
-        incident.setCategory("PENDING");
+
+        LocalIncidentClassifier.Prediction prediction = localClassifier.classify(request.getDescription());
+        if (prediction != null) {
+            incident.setSeverity(prediction.severity());
+            incident.setCategory(prediction.category());
+            incident.setClassificationSource(Incident.SOURCE_LOCAL);
+        } else {
+            incident.setSeverity("PENDING");
+            incident.setCategory("PENDING");
+        }
 
         repository.save(incident);
 
-        enrichmentCoordinator.enrichIncidentAsync(incident);
+        enrichmentQueue.enqueue(incident);
 
         return incident;
     }
 
     /**
-     * Gets the Incident associated with provided id as a string
+     * Gets the Incident associated with provided id as a string.
+     * An outdated enrichment is queued for re-enrichment.
      *
      * @param id the id
      * 
      * @return the Incident
      */
     public Incident getIncident(String id) {
-        return repository.findById(id);
+        Incident incident = repository.findById(id);
+        reEnricher.onRead(incident);
+        return incident;
     }
 
     /**
@@ -71,11 +98,11 @@ public class IncidentService {
     public List<Incident> searchIncidents(String severity, String category) {
 
         if (severity != null) {
-            return repository.findBySeverity(severity);
+            return read(repository.findBySeverity(severity));
         }
 
         if (category != null) {
-            return repository.findByCategory(category);
+            return read(repository.findByCategory(category));
         }
 
         throw new IllegalArgumentException("Either severity or category must be provided");
@@ -116,6 +143,51 @@ public class IncidentService {
             );
         }
 
+        reEnricher.onRead(page.items());
+        return toPagedResponse(page);
+    }
+
+    /**
+     * Lists incidents whose AI enrichment is incomplete, oldest first, using
+     * the sparse backlog index.
+     *
+     * @param aiStatus the backlog status to list (PENDING or FAILED)
+     * @param limit maximum number of items to return in this page
+     * @param lastKey encoded pagination key from a previous response, or null
+     * @return a {@link PagedIncidentResponse} containing incidents and a
+     *         pagination token for the next page, if available
+     * @throws IllegalArgumentException if the status is not a backlog status
+     */
+    public PagedIncidentResponse searchBacklog(String aiStatus, int limit, String lastKey) {
+        if (aiStatus == null || !Incident.BACKLOG_STATUSES.contains(aiStatus)) {
+            throw new IllegalArgumentException("status must be one of " + Incident.BACKLOG_STATUSES);
+        }
+
+        Map<String, AttributeValue> exclusiveStartKey = lastKey != null ? decodeLastKey(lastKey) : null;
+
+        Page<Incident> page = repository.queryByAiStatus(aiStatus, limit, exclusiveStartKey);
+
+        return toPagedResponse(page);
+    }
+
+    /**
+     * Queues outdated enrichments among incidents being returned.
+     *
+     * @param incidents the incidents read
+     * @return the same incidents
+     */
+    private List<Incident> read(List<Incident> incidents) {
+        reEnricher.onRead(incidents);
+        return incidents;
+    }
+
+    /**
+     * Builds a paged response from a DynamoDB page.
+     *
+     * @param page the page returned by a query
+     * @return the paged response with an encoded cursor, if more results exist
+     */
+    private PagedIncidentResponse toPagedResponse(Page<Incident> page) {
         String nextKey = page.lastEvaluatedKey() != null
                 ? encodeLastKey(page.lastEvaluatedKey())
                 : null;
@@ -142,39 +214,55 @@ public class IncidentService {
                 .description(incident.getDescription())
                 .severity(incident.getSeverity())
                 .category(incident.getCategory())
+                .classificationSource(incident.getClassificationSource())
                 .reportedBy(incident.getReportedBy())
                 .createdAt(incident.getCreatedAt())
                 .aiStatus(incident.getAiStatus())
                 .aiSummary(incident.getAiSummary())
                 .recommendedAction(incident.getRecommendedAction())
                 .aiErrorMessage(incident.getAiErrorMessage())
+                .promptVersion(incident.getPromptVersion())
+                .aiModel(incident.getAiModel())
                 .build();
     }
 
     /**
      * Encode a DynamoDB key map into a Base64 string suitable for pagination.
+     * All key attributes of the incident table and its indexes are strings.
      * 
      * @param key the DynamoDB key map to encode
-     * @return a Base64-encoded string representing the key
+     * @return a URL-safe Base64-encoded JSON object representing the key
      */
     private String encodeLastKey(Map<String, AttributeValue> key) {
-        return Base64.getEncoder()
-                .encodeToString(key.toString().getBytes());
+        Map<String, String> plain = new LinkedHashMap<>();
+        key.forEach((name, value) -> plain.put(name, value.s()));
+
+        try {
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(CURSOR_MAPPER.writeValueAsBytes(plain));
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to encode pagination key", e);
+        }
     }
 
     /**
      * Decode a Base64-encoded pagination token into a DynamoDB key map.
-     * <p>
-     * This method is not yet implemented. When implemented, it will allow
-     * clients to provide a lastKey value to fetch the next page of results.
      *
      * @param encoded the Base64-encoded key string
-     * @return the DynamoDB key map (to be implemented)
-     * @throws UnsupportedOperationException always, as this is a placeholder
+     * @return the DynamoDB key map
+     * @throws IllegalArgumentException if the token is malformed
      */
     private Map<String, AttributeValue> decodeLastKey(String encoded) {
-        throw new UnsupportedOperationException(
-                "Decoding will be implemented later"
-        );
+        try {
+            Map<String, String> plain = CURSOR_MAPPER.readValue(
+                    Base64.getUrlDecoder().decode(encoded.getBytes(StandardCharsets.US_ASCII)),
+                    new TypeReference<Map<String, String>>() {});
+
+            Map<String, AttributeValue> key = new LinkedHashMap<>();
+            plain.forEach((name, value) -> key.put(name, AttributeValue.fromS(value)));
+            return key;
+        } catch (IllegalArgumentException | IOException e) {
+            throw new IllegalArgumentException("Invalid lastKey", e);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,132 @@
+package com.stephenusselman.incidentservice.service;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import com.stephenusselman.incidentservice.domain.JobCheckpoint;
+import com.stephenusselman.incidentservice.repository.IncidentRepository;
+import com.stephenusselman.incidentservice.repository.JobCheckpointRepository;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Populates the derived index keys of incidents stored before the
+ * {@code created-day-index} and the sharded severity and category indexes
+ * existed, and rewrites their {@code createdAt} in the fixed-width format
+ * the range queries compare against.
+ *
+ * New and updated incidents get their keys on every write, so only older
+ * rows need them. Once the application is ready, one node takes the job's
+ * lease and runs {@link IncidentRepository#backfillIndexKeys()} in the
+ * background; the completed checkpoint stops later startups from scanning
+ * the table again. A run that is interrupted is simply repeated, since it
+ * only touches incidents that still lack a key.
+ */
+@Slf4j
+@Component
+public class IndexKeyBackfill {
+
+    /**
+     * Name of the job's checkpoint; changed whenever the backfill takes on
+     * more work, so nodes that completed the previous version run it again
+     */
+    public static final String JOB_NAME = "index-key-backfill-v2";
+
+    private static final String STATUS_COMPLETED = "COMPLETED";
+
+    private final IncidentRepository repository;
+    private final JobCheckpointRepository checkpoints;
+
+    /** Whether the backfill runs on startup */
+    private final boolean enabled;
+
+    /** How long a node holds the job */
+    private final Duration lease;
+
+    /** Identifies this node as lease owner */
+    private final String ownerId = "backfill-" + UUID.randomUUID();
+
+    private final ExecutorService runner =
+            Executors.newSingleThreadExecutor(new CustomizableThreadFactory("index-key-backfill-"));
+
+    /**
+     * Constructs the backfill.
+     *
+     * @param repository the incident repository
+     * @param checkpoints the job checkpoint repository
+     * @param enabled whether the backfill runs on startup
+     * @param leaseMinutes how long a node holds the job before another may take over
+     */
+    public IndexKeyBackfill(
+            IncidentRepository repository,
+            JobCheckpointRepository checkpoints,
+            @Value("${dynamodb.index-key-backfill.enabled:true}") boolean enabled,
+            @Value("${dynamodb.index-key-backfill.lease-minutes:60}") long leaseMinutes) {
+        if (leaseMinutes < 1) {
+            throw new IllegalArgumentException("dynamodb.index-key-backfill.lease-minutes must be at least 1");
+        }
+        this.repository = repository;
+        this.checkpoints = checkpoints;
+        this.enabled = enabled;
+        this.lease = Duration.ofMinutes(leaseMinutes);
+    }
+
+    /**
+     * Starts the backfill in the background once the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        runner.execute(() -> {
+            try {
+                run();
+            } catch (RuntimeException e) {
+                log.warn("Index key backfill failed; it runs again on the next startup: {}",
+                        e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Stops the runner on shutdown. An unfinished run is repeated later.
+     */
+    @PreDestroy
+    public void stop() {
+        runner.shutdownNow();
+    }
+
+    /**
+     * Runs the backfill on the calling thread unless it already completed
+     * or another node holds the job.
+     *
+     * @return the number of incidents updated, or -1 if nothing ran
+     */
+    long run() {
+        JobCheckpoint existing = checkpoints.findByName(JOB_NAME);
+        if (existing != null && STATUS_COMPLETED.equals(existing.getStatus())) {
+            return -1;
+        }
+        JobCheckpoint checkpoint = checkpoints.claim(JOB_NAME, ownerId, lease);
+        if (checkpoint == null) {
+            log.info("Index key backfill is running on another node");
+            return -1;
+        }
+        long updated = repository.backfillIndexKeys();
+        checkpoint.setStatus(STATUS_COMPLETED);
+        checkpoint.setProcessed(updated);
+        checkpoints.release(checkpoint);
+        log.info("Index key backfill completed: {} incidents updated", updated);
+        return updated;
+    }
+}
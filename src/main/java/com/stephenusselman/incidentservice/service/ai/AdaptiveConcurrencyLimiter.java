@@ -0,0 +1,212 @@
+package com.stephenusselman.incidentservice.service.ai;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.openai.errors.RateLimitException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Adaptive limit on the number of AI calls in flight, using additive
+ * increase / multiplicative decrease (AIMD).
+ *
+ * Every fast, successful call that started while at least half the limit was
+ * in use raises the limit by {@code 1 / limit}, so it grows by about one per
+ * round of calls under load and does not grow while capacity sits idle. A
+ * 429 response, a timeout or a call slower than {@code latency-threshold-ms}
+ * multiplies the limit by {@code backoff-ratio}, at most once per
+ * {@code decrease-cooldown-ms} so one burst of failures does not collapse
+ * the limit. Other errors leave the limit unchanged.
+ */
+@Component
+public class AdaptiveConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+    private final long decreaseCooldownNanos;
+
+    /** Current limit; fractional so additive increase can accumulate */
+    private double limit;
+
+    /** Calls currently holding a permit */
+    private int inFlight;
+
+    /** When the limit was last decreased */
+    private long lastDecreaseNanos;
+
+    private final Counter limitedCounter;
+
+    /**
+     * Constructs the limiter.
+     *
+     * @param meterRegistry registry used to publish limiter metrics
+     * @param initialLimit starting limit
+     * @param minLimit lowest limit
+     * @param maxLimit highest limit
+     * @param latencyThresholdMs latency above which a call counts as overload
+     * @param backoffRatio factor applied to the limit on overload
+     * @param decreaseCooldownMs minimum time between two decreases
+     */
+    public AdaptiveConcurrencyLimiter(
+            MeterRegistry meterRegistry,
+            @Value("${ai.concurrency.initial-limit:8}") int initialLimit,
+            @Value("${ai.concurrency.min-limit:1}") int minLimit,
+            @Value("${ai.concurrency.max-limit:64}") int maxLimit,
+            @Value("${ai.concurrency.latency-threshold-ms:5000}") long latencyThresholdMs,
+            @Value("${ai.concurrency.backoff-ratio:0.7}") double backoffRatio,
+            @Value("${ai.concurrency.decrease-cooldown-ms:1000}") long decreaseCooldownMs) {
+        if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException(
+                    "ai.concurrency limits must satisfy 1 <= min-limit <= initial-limit <= max-limit");
+        }
+        if (backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("ai.concurrency.backoff-ratio must be in (0, 1)");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = Duration.ofMillis(latencyThresholdMs).toNanos();
+        this.backoffRatio = backoffRatio;
+        this.decreaseCooldownNanos = Duration.ofMillis(decreaseCooldownMs).toNanos();
+        this.limit = initialLimit;
+        this.lastDecreaseNanos = System.nanoTime() - decreaseCooldownNanos;
+
+        this.limitedCounter = Counter.builder("ai.concurrency.limited")
+                .description("AI calls refused because the adaptive concurrency limit was reached")
+                .register(meterRegistry);
+        Gauge.builder("ai.concurrency.limit", this, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current adaptive limit on AI calls in flight")
+                .register(meterRegistry);
+        Gauge.builder("ai.concurrency.in-flight", this, AdaptiveConcurrencyLimiter::getInFlight)
+                .description("AI calls currently in flight")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Takes a permit if the number of calls in flight is below the limit.
+     *
+     * @return the permit, or null if the limit is reached
+     */
+    public synchronized Permit tryAcquire() {
+        if (inFlight >= getLimit()) {
+            limitedCounter.increment();
+            return null;
+        }
+        inFlight++;
+        return new Permit(System.nanoTime(), 2 * inFlight >= limit);
+    }
+
+    /**
+     * Gets the current limit.
+     *
+     * @return the limit rounded down
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Gets the number of calls currently in flight.
+     *
+     * @return the in-flight count
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Gets the number of calls that could start now.
+     *
+     * @return free permits, never negative
+     */
+    public synchronized int getAvailable() {
+        return Math.max(0, getLimit() - inFlight);
+    }
+
+    /**
+     * Returns whether an error signals upstream overload: a 429 response
+     * or an attempt timeout, anywhere in the cause chain.
+     *
+     * @param error the call error
+     * @return true if the limit should shrink
+     */
+    public static boolean isOverload(Throwable error) {
+        for (Throwable current = error; current != null; current = current.getCause()) {
+            if (current instanceof RateLimitException || current instanceof AiTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adjusts the limit for a completed call and frees its permit.
+     */
+    private synchronized void onComplete(long startNanos, boolean underLoad, Outcome outcome) {
+        long now = System.nanoTime();
+        inFlight--;
+
+        boolean slow = now - startNanos >= latencyThresholdNanos;
+        if (outcome == Outcome.OVERLOAD || (outcome == Outcome.SUCCESS && slow)) {
+            if (now - lastDecreaseNanos >= decreaseCooldownNanos) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+                lastDecreaseNanos = now;
+            }
+        } else if (outcome == Outcome.SUCCESS && underLoad) {
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+    }
+
+    /**
+     * How a call completed.
+     */
+    private enum Outcome { SUCCESS, OVERLOAD, IGNORED }
+
+    /**
+     * Permission for one AI call. Must be completed exactly once.
+     */
+    public final class Permit {
+
+        private final long startNanos;
+
+        /** Whether at least half the limit was in use when the call started */
+        private final boolean underLoad;
+
+        private boolean completed;
+
+        private Permit(long startNanos, boolean underLoad) {
+            this.startNanos = startNanos;
+            this.underLoad = underLoad;
+        }
+
+        /**
+         * Completes the permit with the call's outcome.
+         *
+         * @param error the call error, or null on success
+         */
+        public synchronized void record(Throwable error) {
+            complete(error == null ? Outcome.SUCCESS : isOverload(error) ? Outcome.OVERLOAD : Outcome.IGNORED);
+        }
+
+        /**
+         * Completes the permit without affecting the limit, for calls that
+         * never reached the AI service.
+         */
+        public synchronized void release() {
+            complete(Outcome.IGNORED);
+        }
+
+        private void complete(Outcome outcome) {
+            if (!completed) {
+                completed = true;
+                onComplete(startNanos, underLoad, outcome);
+            }
+        }
+    }
+}
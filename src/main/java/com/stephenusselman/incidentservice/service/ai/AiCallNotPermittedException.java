@@ -0,0 +1,36 @@
+package com.stephenusselman.incidentservice.service.ai;
+
+import java.time.Instant;
+
+/**
+ * Thrown when an AI call is refused before it is made, either because the
+ * circuit breaker is open or because the AI bulkhead is full.
+ *
+ * Callers should park the work until {@link #getRetryAt()} instead of
+ * retrying immediately.
+ */
+public class AiCallNotPermittedException extends RuntimeException {
+
+    /** Earliest time at which a new call may be permitted */
+    private final Instant retryAt;
+
+    /**
+     * Constructs the exception.
+     *
+     * @param message why the call was refused
+     * @param retryAt earliest time at which a new call may be permitted
+     */
+    public AiCallNotPermittedException(String message, Instant retryAt) {
+        super(message);
+        this.retryAt = retryAt;
+    }
+
+    /**
+     * Gets the earliest time at which a new call may be permitted.
+     *
+     * @return the retry time
+     */
+    public Instant getRetryAt() {
+        return retryAt;
+    }
+}
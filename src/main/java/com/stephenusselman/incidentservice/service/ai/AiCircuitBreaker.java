@@ -0,0 +1,375 @@
+package com.stephenusselman.incidentservice.service.ai;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Circuit breaker and concurrency bulkhead around AI calls.
+ *
+ * In CLOSED state the outcome of the last {@code window-size} calls is
+ * tracked. Once at least {@code minimum-calls} are recorded and either the
+ * failure rate or the slow-call rate reaches its threshold, the breaker
+ * OPENs and refuses calls for {@code open-duration-seconds}. It then moves
+ * to HALF_OPEN and lets {@code half-open-calls} trial calls through; if they
+ * are healthy it CLOSEs again, otherwise it re-OPENs.
+ *
+ * Independently of the state, at most {@code max-concurrent-calls} AI calls
+ * may be in flight. Refused calls throw {@link AiCallNotPermittedException}.
+ */
+@Slf4j
+@Component
+public class AiCircuitBreaker {
+
+    /** Number of recent transitions kept for the actuator endpoint */
+    private static final int TRANSITION_HISTORY = 20;
+
+    /** How long to park work refused by the bulkhead or a busy half-open breaker */
+    private static final Duration SHORT_PARK = Duration.ofSeconds(1);
+
+    /**
+     * Breaker states.
+     */
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final Duration openDuration;
+    private final int halfOpenCalls;
+    private final int maxConcurrentCalls;
+
+    /** Limits the number of AI calls in flight */
+    private final Semaphore bulkhead;
+
+    /** Ring buffer of recent outcomes: bit 0 = failed, bit 1 = slow */
+    private final byte[] window;
+    private int windowPosition;
+    private int windowCount;
+    private int windowFailures;
+    private int windowSlowCalls;
+
+    private State state = State.CLOSED;
+    private Instant openedAt;
+    private int halfOpenInFlight;
+
+    /** Recent state transitions, newest last */
+    private final Deque<Transition> transitions = new ArrayDeque<>();
+
+    private final MeterRegistry meterRegistry;
+    private final Counter openRejections;
+    private final Counter bulkheadRejections;
+
+    /**
+     * Constructs the circuit breaker.
+     *
+     * @param meterRegistry registry used to publish breaker metrics
+     * @param windowSize number of recent calls considered
+     * @param minimumCalls calls required before rates are evaluated
+     * @param failureRateThreshold failure rate in percent that opens the breaker
+     * @param slowCallRateThreshold slow-call rate in percent that opens the breaker
+     * @param slowCallMs duration from which a call counts as slow
+     * @param openDurationSeconds how long the breaker stays open
+     * @param halfOpenCalls trial calls permitted while half-open
+     * @param maxConcurrentCalls bulkhead size
+     */
+    public AiCircuitBreaker(
+            MeterRegistry meterRegistry,
+            @Value("${ai.circuit-breaker.window-size:20}") int windowSize,
+            @Value("${ai.circuit-breaker.minimum-calls:10}") int minimumCalls,
+            @Value("${ai.circuit-breaker.failure-rate-threshold:50}") double failureRateThreshold,
+            @Value("${ai.circuit-breaker.slow-call-rate-threshold:80}") double slowCallRateThreshold,
+            @Value("${ai.circuit-breaker.slow-call-ms:5000}") long slowCallMs,
+            @Value("${ai.circuit-breaker.open-duration-seconds:30}") long openDurationSeconds,
+            @Value("${ai.circuit-breaker.half-open-calls:3}") int halfOpenCalls,
+            @Value("${ai.bulkhead.max-concurrent-calls:16}") int maxConcurrentCalls) {
+        if (windowSize < 1 || minimumCalls < 1 || halfOpenCalls < 1 || maxConcurrentCalls < 1) {
+            throw new IllegalArgumentException(
+                    "ai.circuit-breaker window-size, minimum-calls, half-open-calls and "
+                            + "ai.bulkhead.max-concurrent-calls must be at least 1");
+        }
+        if (failureRateThreshold <= 0 || failureRateThreshold > 100
+                || slowCallRateThreshold <= 0 || slowCallRateThreshold > 100) {
+            throw new IllegalArgumentException("ai.circuit-breaker rate thresholds must be in (0, 100]");
+        }
+        this.windowSize = windowSize;
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallNanos = Duration.ofMillis(slowCallMs).toNanos();
+        this.openDuration = Duration.ofSeconds(openDurationSeconds);
+        this.halfOpenCalls = halfOpenCalls;
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.bulkhead = new Semaphore(maxConcurrentCalls);
+        this.window = new byte[windowSize];
+
+        this.meterRegistry = meterRegistry;
+        this.openRejections = Counter.builder("ai.circuit-breaker.rejected")
+                .tag("reason", "open")
+                .description("AI calls refused by the circuit breaker or bulkhead")
+                .register(meterRegistry);
+        this.bulkheadRejections = Counter.builder("ai.circuit-breaker.rejected")
+                .tag("reason", "bulkhead")
+                .description("AI calls refused by the circuit breaker or bulkhead")
+                .register(meterRegistry);
+        Gauge.builder("ai.circuit-breaker.state", this, b -> b.getState().ordinal())
+                .description("Circuit breaker state: 0 closed, 1 open, 2 half-open")
+                .register(meterRegistry);
+        Gauge.builder("ai.bulkhead.available", bulkhead, Semaphore::availablePermits)
+                .description("AI calls that can still start before the bulkhead is full")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Requests permission for one AI call. The returned permit must be
+     * completed with {@link Permit#record} or {@link Permit#release}.
+     *
+     * @return the permit
+     * @throws AiCallNotPermittedException if the breaker is open or the bulkhead is full
+     */
+    public Permit acquire() {
+        boolean trial;
+        synchronized (this) {
+            if (state == State.OPEN) {
+                Instant retryAt = openedAt.plus(openDuration);
+                if (Instant.now().isBefore(retryAt)) {
+                    openRejections.increment();
+                    throw new AiCallNotPermittedException("AI circuit breaker is open", retryAt);
+                }
+                transitionTo(State.HALF_OPEN);
+            }
+            trial = state == State.HALF_OPEN;
+            if (trial) {
+                if (halfOpenInFlight >= halfOpenCalls) {
+                    openRejections.increment();
+                    throw new AiCallNotPermittedException(
+                            "AI circuit breaker is half-open", Instant.now().plus(SHORT_PARK));
+                }
+                halfOpenInFlight++;
+            }
+        }
+
+        if (!bulkhead.tryAcquire()) {
+            if (trial) {
+                synchronized (this) {
+                    halfOpenInFlight--;
+                }
+            }
+            bulkheadRejections.increment();
+            throw new AiCallNotPermittedException("AI bulkhead is full", Instant.now().plus(SHORT_PARK));
+        }
+        return new Permit(System.nanoTime(), trial);
+    }
+
+    /**
+     * Returns whether a call would currently be allowed past the breaker,
+     * ignoring the bulkhead. Used to stop pulling work while open.
+     *
+     * @return false while the breaker is open and its open duration has not elapsed
+     */
+    public synchronized boolean isCallPermitted() {
+        return state != State.OPEN || !Instant.now().isBefore(openedAt.plus(openDuration));
+    }
+
+    /**
+     * Gets the current state.
+     *
+     * @return the breaker state
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Returns a snapshot of the breaker for monitoring.
+     *
+     * @return the current state, rates and recent transitions
+     */
+    public synchronized Snapshot snapshot() {
+        return new Snapshot(
+                state,
+                rate(windowFailures),
+                rate(windowSlowCalls),
+                windowCount,
+                bulkhead.availablePermits(),
+                maxConcurrentCalls,
+                state == State.OPEN ? openedAt.plus(openDuration) : null,
+                List.copyOf(transitions));
+    }
+
+    /**
+     * Records the outcome of a permitted call.
+     */
+    private void onComplete(Permit permit, boolean success) {
+        bulkhead.release();
+        boolean slow = System.nanoTime() - permit.startNanos() >= slowCallNanos;
+
+        synchronized (this) {
+            if (permit.trial()) {
+                halfOpenInFlight--;
+            }
+            if (state == State.OPEN || (state == State.HALF_OPEN && !permit.trial())) {
+                return;
+            }
+
+            recordOutcome(!success, slow);
+
+            if (state == State.HALF_OPEN) {
+                if (!success || slow) {
+                    transitionTo(State.OPEN);
+                } else if (windowCount >= halfOpenCalls) {
+                    transitionTo(State.CLOSED);
+                }
+            } else if (windowCount >= minimumCalls
+                    && (rate(windowFailures) >= failureRateThreshold
+                        || rate(windowSlowCalls) >= slowCallRateThreshold)) {
+                transitionTo(State.OPEN);
+            }
+        }
+    }
+
+    /**
+     * Adds an outcome to the ring buffer, evicting the oldest if full.
+     * Called while holding the monitor.
+     */
+    private void recordOutcome(boolean failed, boolean slow) {
+        if (windowCount == windowSize) {
+            byte evicted = window[windowPosition];
+            windowFailures -= evicted & 1;
+            windowSlowCalls -= (evicted >> 1) & 1;
+        } else {
+            windowCount++;
+        }
+        byte outcome = (byte) ((failed ? 1 : 0) | (slow ? 2 : 0));
+        window[windowPosition] = outcome;
+        windowPosition = (windowPosition + 1) % windowSize;
+        windowFailures += failed ? 1 : 0;
+        windowSlowCalls += slow ? 1 : 0;
+    }
+
+    /**
+     * Moves to a new state and resets the outcome window.
+     * Called while holding the monitor.
+     */
+    private void transitionTo(State next) {
+        State previous = state;
+        state = next;
+        openedAt = next == State.OPEN ? Instant.now() : openedAt;
+        windowPosition = 0;
+        windowCount = 0;
+        windowFailures = 0;
+        windowSlowCalls = 0;
+
+        transitions.addLast(new Transition(previous, next, Instant.now()));
+        if (transitions.size() > TRANSITION_HISTORY) {
+            transitions.removeFirst();
+        }
+        meterRegistry.counter("ai.circuit-breaker.transitions", "from", previous.name(), "to", next.name())
+                .increment();
+        log.warn("AI circuit breaker {} -> {}", previous, next);
+    }
+
+    /**
+     * Percentage of recorded calls matching a count.
+     */
+    private double rate(int count) {
+        return windowCount == 0 ? 0 : 100.0 * count / windowCount;
+    }
+
+    /**
+     * Permission for one AI call, holding a bulkhead slot until completed.
+     */
+    public final class Permit {
+
+        private final long startNanos;
+        private final boolean trial;
+        private boolean completed;
+
+        private Permit(long startNanos, boolean trial) {
+            this.startNanos = startNanos;
+            this.trial = trial;
+        }
+
+        private long startNanos() {
+            return startNanos;
+        }
+
+        private boolean trial() {
+            return trial;
+        }
+
+        /**
+         * Records the call outcome and frees the bulkhead slot.
+         *
+         * @param success whether the call succeeded
+         */
+        public synchronized void record(boolean success) {
+            if (!completed) {
+                completed = true;
+                onComplete(this, success);
+            }
+        }
+
+        /**
+         * Frees the bulkhead slot without recording an outcome, for calls
+         * that never reached the AI service.
+         */
+        public synchronized void release() {
+            if (!completed) {
+                completed = true;
+                bulkhead.release();
+                if (trial) {
+                    synchronized (AiCircuitBreaker.this) {
+                        halfOpenInFlight--;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A state change of the breaker.
+     *
+     * @param from the previous state
+     * @param to the new state
+     * @param at when the change happened
+     */
+    public record Transition(State from, State to, Instant at) {
+    }
+
+    /**
+     * Point-in-time view of the breaker.
+     *
+     * @param state the current state
+     * @param failureRate failure rate in percent over the current window
+     * @param slowCallRate slow-call rate in percent over the current window
+     * @param bufferedCalls calls recorded in the current window
+     * @param bulkheadAvailable free bulkhead slots
+     * @param bulkheadSize total bulkhead slots
+     * @param openUntil when an open breaker will allow trial calls, or null
+     * @param transitions recent transitions, newest last
+     */
+    public record Snapshot(
+            State state,
+            double failureRate,
+            double slowCallRate,
+            int bufferedCalls,
+            int bulkheadAvailable,
+            int bulkheadSize,
+            Instant openUntil,
+            List<Transition> transitions) {
+    }
+}
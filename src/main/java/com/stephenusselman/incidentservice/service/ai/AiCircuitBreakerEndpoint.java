@@ -0,0 +1,30 @@
+package com.stephenusselman.incidentservice.service.ai;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Actuator endpoint exposing the AI circuit breaker state, failure and
+ * slow-call rates, bulkhead usage and recent transitions at
+ * {@code /actuator/aicircuitbreaker}.
+ */
+@Component
+@Endpoint(id = "aicircuitbreaker")
+@RequiredArgsConstructor
+public class AiCircuitBreakerEndpoint {
+
+    private final AiCircuitBreaker circuitBreaker;
+
+    /**
+     * Returns the current breaker snapshot.
+     *
+     * @return the breaker snapshot
+     */
+    @ReadOperation
+    public AiCircuitBreaker.Snapshot circuitBreaker() {
+        return circuitBreaker.snapshot();
+    }
+}
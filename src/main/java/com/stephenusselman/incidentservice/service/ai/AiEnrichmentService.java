@@ -3,48 +3,90 @@ package com.stephenusselman.incidentservice.service.ai;
 import com.stephenusselman.incidentservice.dto.ai.IncidentEnrichmentRequest;
 import com.stephenusselman.incidentservice.dto.ai.IncidentEnrichmentResult;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
-import org.springframework.core.io.ClassPathResource;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.openai.client.OpenAIClient;
+import com.openai.core.http.AsyncStreamResponse;
 import com.openai.models.responses.Response;
 import com.openai.models.responses.ResponseCreateParams;
+import com.openai.models.responses.ResponseStreamEvent;
+import com.openai.models.responses.ResponseTextConfig;
+
+import io.micrometer.core.instrument.MeterRegistry;
 
 @Service
+@Profile("!stub")
 /**
  * Service interface for enriching incidents using AI.
  * 
- * The AI model is expected to return a JSON object that strictly matches
- * the {@link IncidentEnrichmentResult} schema. Any deviation will result
- * in a failure.
+ * Requests use the API's structured output mode with a strict JSON schema
+ * derived from {@link IncidentEnrichmentResult}, so the model returns a
+ * parseable object with allowed severity and category values. Responses
+ * are read by the tolerant {@link EnrichmentResponseParser}, which still
+ * recovers a result wrapped in prose or code fences.
+ *
+ * Prompts are rendered from the compiled templates of the
+ * {@link PromptTemplateRegistry}, using the version set on each request.
+ *
+ * This is the OpenAI-backed {@link EnrichmentProvider}; it is replaced by
+ * the {@link StubEnrichmentProvider} under the {@code stub} profile.
  */
-public class AiEnrichmentService {
+public class AiEnrichmentService implements EnrichmentProvider {
 
-    /** Classpath location of the enrichment prompt template */
-    private static final String PROMPT_PATH = "ai/prompts/incident-enrichment-v1.txt";      
+    /** Rough characters per token for English prompt text */
+    private static final int CHARS_PER_TOKEN = 4;
 
     /** OpenAI client injected by Spring */
     private final OpenAIClient openAIClient;
 
-    /** JSON mapper for parsing AI responses */
+    /** JSON mapper for rendering prompts and streaming parsers */
     private final ObjectMapper objectMapper;
 
-    /** Cached prompt template loaded at startup */
-    private final String promptTemplate;
+    /** Tolerant parser for AI responses */
+    private final EnrichmentResponseParser responseParser;
+
+    /** Compiled prompt templates by version */
+    private final PromptTemplateRegistry promptTemplates;
+
+    /** Model used for every call */
+    private final String model;
 
     /**
      * Constructs the AI enrichment service.
      *
      * @param openAIClient the OpenAI client
      * @param objectMapper Jackson object mapper
+     * @param promptTemplates the compiled prompt templates
+     * @param meterRegistry registry used to publish parse outcome metrics
+     * @param model the model used for every call
      */
-    public AiEnrichmentService(OpenAIClient openAIClient, ObjectMapper objectMapper) {
+    public AiEnrichmentService(OpenAIClient openAIClient, ObjectMapper objectMapper,
+            PromptTemplateRegistry promptTemplates, MeterRegistry meterRegistry,
+            @Value("${ai.openai.model:gpt-5-nano}") String model) {
         this.openAIClient = openAIClient;
         this.objectMapper = objectMapper;
-        this.promptTemplate = loadPromptTemplate();
+        this.promptTemplates = promptTemplates;
+        this.model = model;
+        this.responseParser = new EnrichmentResponseParser(objectMapper, meterRegistry);
+    }
+
+    /**
+     * Returns the configured OpenAI model.
+     *
+     * @return the model name
+     */
+    @Override
+    public String getModel() {
+        return model;
     }
 
    /**
@@ -54,73 +96,272 @@ public class AiEnrichmentService {
      * @return the AI-generated enrichment result
      * @throws IllegalStateException if the AI response cannot be parsed
      */
+    @Override
     public IncidentEnrichmentResult enrichIncident(IncidentEnrichmentRequest request) {
 
         String prompt = buildPrompt(request);
 
-        Response response = openAIClient.responses().create(
-                ResponseCreateParams.builder()
-                        .model("gpt-5-nano")
-                        .input(prompt)
-                        .build()
-        );
-
-        String rawJson = extractOutputText(response);
+        String rawJson = callModel(prompt, EnrichmentResultSchema.single());
 
         return parseJsonResult(rawJson);
     }
 
     /**
-     * Builds the final prompt by substituting request values
-     * into the loaded prompt template.
+     * Enriches several incidents with a single AI call. The model returns a
+     * JSON array keyed by incident ID, which is fanned back out per incident.
+     *
+     * Incidents missing from the response, or whose element cannot be parsed,
+     * are simply absent from the returned map so the caller can fall back to
+     * {@link #enrichIncident} for them.
+     *
+     * @param requests the incident enrichment requests
+     * @return the parsed results keyed by incident ID
+     * @throws IllegalStateException if the response is not a JSON array
+     */
+    @Override
+    public Map<String, IncidentEnrichmentResult> enrichIncidents(List<IncidentEnrichmentRequest> requests) {
+
+        String prompt = buildBatchPrompt(requests);
+
+        String rawJson = callModel(prompt, EnrichmentResultSchema.batch());
+
+        return parseBatchResult(rawJson);
+    }
+
+    /**
+     * Enriches an incident without blocking a thread while the model
+     * responds, using the SDK's asynchronous client.
+     *
+     * @param request the incident enrichment request
+     * @return a future completed with the parsed result, or exceptionally if
+     *         the call fails or the response cannot be parsed
+     */
+    @Override
+    public CompletableFuture<IncidentEnrichmentResult> enrichIncidentAsync(IncidentEnrichmentRequest request) {
+        try {
+            CompletableFuture<String> call = callModelAsync(buildPrompt(request), EnrichmentResultSchema.single());
+            return cancelling(call, call.thenApply(this::parseJsonResult));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Enriches an incident with the Responses streaming API. Text deltas are
+     * fed to a {@link StreamingClassificationParser} as they arrive, so the
+     * classification is reported before the rest of the response is
+     * generated; the full text is parsed once the stream ends. Cancelling the
+     * returned future closes the stream.
+     *
+     * @param request the incident enrichment request
+     * @param onClassification receives severity and category once complete
+     * @return a future completed with the parsed result, or exceptionally if
+     *         the stream fails or the response cannot be parsed
+     */
+    @Override
+    public CompletableFuture<IncidentEnrichmentResult> enrichIncidentStreaming(
+            IncidentEnrichmentRequest request, Consumer<IncidentEnrichmentResult> onClassification) {
+        try {
+            CompletableFuture<String> call = callModelStreaming(buildPrompt(request),
+                    new StreamingClassificationParser(objectMapper.getFactory(), onClassification));
+            return cancelling(call, call.thenApply(this::parseJsonResult));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Non-blocking variant of {@link #enrichIncidents}.
+     *
+     * @param requests the incident enrichment requests
+     * @return a future completed with the parsed results keyed by incident ID
+     */
+    @Override
+    public CompletableFuture<Map<String, IncidentEnrichmentResult>> enrichIncidentsAsync(
+            List<IncidentEnrichmentRequest> requests) {
+        try {
+            CompletableFuture<String> call = callModelAsync(buildBatchPrompt(requests), EnrichmentResultSchema.batch());
+            return cancelling(call, call.thenApply(this::parseBatchResult));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Estimates the prompt tokens a single-incident call for this request
+     * will consume, at roughly four characters per token.
+     *
+     * @param request the incident enrichment request
+     * @return the estimated prompt tokens
+     */
+    @Override
+    public int estimatePromptTokens(IncidentEnrichmentRequest request) {
+        return (buildPrompt(request).length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    /**
+     * Sends a prompt to the AI model and returns its text output.
+     *
+     * @param prompt the fully constructed prompt
+     * @param format the structured output schema for the response
+     * @return the raw text returned by the model
+     */
+    private String callModel(String prompt, ResponseTextConfig format) {
+        Response response = openAIClient.responses().create(buildParams(prompt, format));
+
+        return extractOutputText(response);
+    }
+
+    /**
+     * Sends a prompt to the AI model with the asynchronous client.
+     * Cancelling the returned future is passed on to the SDK call.
+     *
+     * @param prompt the fully constructed prompt
+     * @param format the structured output schema for the response
+     * @return a future completed with the raw text returned by the model
+     */
+    private CompletableFuture<String> callModelAsync(String prompt, ResponseTextConfig format) {
+        CompletableFuture<Response> call = openAIClient.async().responses().create(buildParams(prompt, format));
+        return cancelling(call, call.thenApply(this::extractOutputText));
+    }
+
+    /**
+     * Streams a prompt's response, feeding each text delta to the parser and
+     * accumulating the full text.
+     *
+     * @param prompt the fully constructed prompt
+     * @param parser incremental parser for the text deltas
+     * @return a future completed with the full text once the stream ends
+     */
+    private CompletableFuture<String> callModelStreaming(String prompt, StreamingClassificationParser parser) {
+        CompletableFuture<String> text = new CompletableFuture<>();
+        StringBuilder output = new StringBuilder();
+        AsyncStreamResponse<ResponseStreamEvent> stream =
+                openAIClient.async().responses().createStreaming(buildParams(prompt, EnrichmentResultSchema.single()));
+
+        stream.subscribe(new AsyncStreamResponse.Handler<ResponseStreamEvent>() {
+            @Override
+            public void onNext(ResponseStreamEvent event) {
+                event.outputTextDelta().ifPresent(delta -> {
+                    output.append(delta.delta());
+                    parser.feed(delta.delta());
+                });
+                event.error().ifPresent(error -> text.completeExceptionally(
+                        new IllegalStateException("AI streaming response failed: " + error.message())));
+                event.failed().ifPresent(failed -> text.completeExceptionally(new IllegalStateException(
+                        "AI streaming response failed: " + failed.response().error()
+                                .map(error -> error.message()).orElse("unknown error"))));
+            }
+
+            @Override
+            public void onComplete(Optional<Throwable> error) {
+                if (error.isPresent()) {
+                    text.completeExceptionally(error.get());
+                } else if (output.isEmpty()) {
+                    text.completeExceptionally(new IllegalStateException(
+                            "No text output returned from AI response"));
+                } else {
+                    text.complete(output.toString());
+                }
+            }
+        });
+
+        text.whenComplete((r, e) -> {
+            if (text.isCancelled()) {
+                stream.close();
+            }
+        });
+        return text;
+    }
+
+    /**
+     * Cancels the source future when the dependent stage is cancelled, which
+     * {@link CompletableFuture} composition does not do by itself.
+     *
+     * @param source the upstream future
+     * @param dependent the stage derived from it
+     * @return the dependent stage
+     */
+    private static <T> CompletableFuture<T> cancelling(CompletableFuture<?> source, CompletableFuture<T> dependent) {
+        dependent.whenComplete((r, e) -> {
+            if (dependent.isCancelled()) {
+                source.cancel(true);
+            }
+        });
+        return dependent;
+    }
+
+    /**
+     * Builds the request parameters for a prompt.
+     *
+     * @param prompt the fully constructed prompt
+     * @param format the structured output schema for the response
+     * @return the response creation parameters
+     */
+    private ResponseCreateParams buildParams(String prompt, ResponseTextConfig format) {
+        return ResponseCreateParams.builder()
+                .model(model)
+                .input(prompt)
+                .text(format)
+                .build();
+    }
+
+    /**
+     * Builds the final prompt by rendering the request's prompt version
+     * with the request values.
      *
      * @param request the enrichment request
      * @return the fully constructed prompt
+     * @throws IllegalArgumentException if the request's prompt version has no template
+     * @throws IllegalStateException if the template uses an unknown placeholder
      */
     private String buildPrompt(IncidentEnrichmentRequest request) {
-        return promptTemplate
-                .replace("{{incidentId}}", request.getIncidentId())
-                .replace("{{description}}", request.getDescription())
-                .replace("{{reportedBy}}", request.getReportedBy())
-                .replace("{{createdAt}}", request.getCreatedAt());
+        return promptTemplates.template(request.getPromptVersion()).render(name -> switch (name) {
+            case "incidentId" -> request.getIncidentId();
+            case "description" -> request.getDescription();
+            case "reportedBy" -> request.getReportedBy();
+            case "createdAt" -> request.getCreatedAt();
+            default -> null;
+        });
     }
 
     /**
-     * Parses the AI response JSON into an {@link IncidentEnrichmentResult}.
+     * Builds the batch prompt by rendering the requests as a JSON array,
+     * which also takes care of escaping free-text descriptions.
      *
-     * @param json the raw JSON returned by the AI model
-     * @return the parsed enrichment result
-     * @throws IllegalStateException if parsing fails
+     * @param requests the enrichment requests
+     * @return the fully constructed prompt
      */
-    private IncidentEnrichmentResult parseJsonResult(String json) {
+    private String buildBatchPrompt(List<IncidentEnrichmentRequest> requests) {
         try {
-            return objectMapper.readValue(
-                    json, IncidentEnrichmentResult.class);
+            String incidents = objectMapper.writeValueAsString(requests);
+            return promptTemplates.batchTemplate().render(name -> name.equals("incidents") ? incidents : null);
         } catch (IOException e) {
-            throw new IllegalStateException(
-                    "Failed to parse AI enrichment response: " + json, e);
+            throw new IllegalStateException("Failed to render batch enrichment prompt", e);
         }
     }
 
     /**
-     * Loads the prompt template from the classpath.
+     * Parses the AI batch response into results keyed by incident ID.
+     * Elements without an incident ID or that fail to parse are skipped.
      *
-     * @return the prompt template as a string
-     * @throws IllegalStateException if the prompt cannot be loaded
+     * @param json the raw text returned by the AI model
+     * @return the parsed results keyed by incident ID
+     * @throws AiResponseParseException if the response holds no array of results
      */
-    private String loadPromptTemplate() {
-        try {
-            ClassPathResource resource =
-                    new ClassPathResource(PROMPT_PATH);
+    private Map<String, IncidentEnrichmentResult> parseBatchResult(String json) {
+        return responseParser.parseBatch(json);
+    }
 
-            return new String(
-                    resource.getInputStream().readAllBytes(),
-                    StandardCharsets.UTF_8
-            );
-        } catch (IOException e) {
-            throw new IllegalStateException(
-                    "Failed to load AI prompt template: " + PROMPT_PATH, e);
-        }
+    /**
+     * Parses the AI response into an {@link IncidentEnrichmentResult}.
+     *
+     * @param json the raw text returned by the AI model
+     * @return the parsed enrichment result
+     * @throws AiResponseParseException if no usable result is found
+     */
+    private IncidentEnrichmentResult parseJsonResult(String json) {
+        return responseParser.parseResult(json);
     }
 
     /**
@@ -0,0 +1,20 @@
+package com.stephenusselman.incidentservice.service.ai;
+
+/**
+ * Thrown when an AI response contains no usable enrichment result.
+ *
+ * Unlike timeouts and upstream errors this says nothing about the AI
+ * service's load, so the coordinator retries it without backoff.
+ */
+public class AiResponseParseException extends IllegalStateException {
+
+    /**
+     * Constructs the exception.
+     *
+     * @param message what could not be parsed
+     * @param cause the underlying parse error, or null
+     */
+    public AiResponseParseException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
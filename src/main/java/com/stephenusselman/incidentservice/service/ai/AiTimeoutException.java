@@ -0,0 +1,24 @@
+package com.stephenusselman.incidentservice.service.ai;
+
+/**
+ * Thrown when an AI call does not complete within the attempt timeout, or
+ * when an incident's enrichment deadline has passed.
+ */
+public class AiTimeoutException extends RuntimeException {
+
+    /**
+     * Constructs the exception with the standard timeout message.
+     */
+    public AiTimeoutException() {
+        super("AI enrichment timed out");
+    }
+
+    /**
+     * Constructs the exception with a specific message.
+     *
+     * @param message the detail message
+     */
+    public AiTimeoutException(String message) {
+        super(message);
+    }
+}
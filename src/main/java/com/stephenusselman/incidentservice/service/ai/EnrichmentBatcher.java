@@ -0,0 +1,352 @@
+package com.stephenusselman.incidentservice.service.ai;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import com.stephenusselman.incidentservice.dto.ai.IncidentEnrichmentRequest;
+import com.stephenusselman.incidentservice.dto.ai.IncidentEnrichmentResult;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Micro-batching stage in front of the AI model.
+ *
+ * Requests are collected until either {@code max-size} are waiting or the
+ * oldest has waited {@code max-wait-ms}, then sent to the model as one
+ * prompt. Results are fanned back out per incident; any incident the batch
+ * call did not return a result for falls back to a single-incident call.
+ * A batch of one is always sent with the single-incident prompt.
+ *
+ * With {@code ai.enrichment.async-client.enabled}, batches are sent with the
+ * SDK's non-blocking client and results are handed to the shared executor;
+ * otherwise each batch blocks an executor thread.
+ */
+@Slf4j
+@Component
+public class EnrichmentBatcher {
+
+    private final EnrichmentProvider enrichmentProvider;
+
+    /** Shared, bounded executor that runs the AI calls */
+    private final AsyncTaskExecutor aiEnrichmentExecutor;
+
+    /** Timer used to flush a partially filled batch */
+    private final TaskScheduler aiEnrichmentScheduler;
+
+    /** Whether calls use the SDK's non-blocking client instead of an executor thread each */
+    private final boolean asyncClient;
+
+    /** Whether requests are batched at all */
+    private final boolean enabled;
+
+    /** Maximum number of incidents sent in one call */
+    private final int maxSize;
+
+    /** Maximum time the first request of a batch waits for company */
+    private final long maxWaitMs;
+
+    private final Counter batchCalls;
+    private final Counter fallbackCalls;
+    private final DistributionSummary batchSize;
+
+    /** Requests waiting for the current batch to be flushed */
+    private List<PendingRequest> pending = new ArrayList<>();
+
+    /** Timer that flushes the current batch once max-wait-ms elapses */
+    private ScheduledFuture<?> flushTimer;
+
+    /**
+     * Constructs the enrichment batcher.
+     *
+     * @param enrichmentProvider the active enrichment provider
+     * @param aiEnrichmentExecutor the shared executor used for AI calls
+     * @param aiEnrichmentScheduler the timer used to flush partial batches
+     * @param meterRegistry registry used to publish batching metrics
+     * @param asyncClient whether calls use the non-blocking client
+     * @param enabled whether requests are batched
+     * @param maxSize maximum number of incidents per call
+     * @param maxWaitMs maximum time a request waits for its batch to fill
+     */
+    public EnrichmentBatcher(
+            EnrichmentProvider enrichmentProvider,
+            @Qualifier("aiEnrichmentExecutor") AsyncTaskExecutor aiEnrichmentExecutor,
+            @Qualifier("aiEnrichmentScheduler") TaskScheduler aiEnrichmentScheduler,
+            MeterRegistry meterRegistry,
+            @Value("${ai.enrichment.async-client.enabled:true}") boolean asyncClient,
+            @Value("${ai.enrichment.batch.enabled:true}") boolean enabled,
+            @Value("${ai.enrichment.batch.max-size:10}") int maxSize,
+            @Value("${ai.enrichment.batch.max-wait-ms:200}") long maxWaitMs) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("ai.enrichment.batch.max-size must be at least 1");
+        }
+        if (maxWaitMs < 0) {
+            throw new IllegalArgumentException("ai.enrichment.batch.max-wait-ms must not be negative");
+        }
+        this.enrichmentProvider = enrichmentProvider;
+        this.aiEnrichmentExecutor = aiEnrichmentExecutor;
+        this.aiEnrichmentScheduler = aiEnrichmentScheduler;
+        this.asyncClient = asyncClient;
+        this.enabled = enabled;
+        this.maxSize = maxSize;
+        this.maxWaitMs = maxWaitMs;
+
+        this.batchCalls = Counter.builder("ai.enrichment.batch.calls")
+                .description("Multi-incident AI calls made")
+                .register(meterRegistry);
+        this.fallbackCalls = Counter.builder("ai.enrichment.batch.fallbacks")
+                .description("Incidents re-sent individually after a batch did not return them")
+                .register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("ai.enrichment.batch.size")
+                .description("Incidents per flushed batch")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns whether requests are batched.
+     *
+     * @return true if batching is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Adds a request to the current batch.
+     *
+     * @param request the enrichment request
+     * @param upstreamCalls incremented for each upstream call made for this
+     *         incident: its share of a batch call and any fallback call
+     * @return a future completed with this incident's result, or exceptionally
+     *         if both the batch and the single-incident fallback fail, or the
+     *         batch's wait timer cannot be scheduled
+     */
+    public CompletableFuture<IncidentEnrichmentResult> submit(
+            IncidentEnrichmentRequest request, AtomicInteger upstreamCalls) {
+        PendingRequest entry = new PendingRequest(request, new CompletableFuture<>(), upstreamCalls);
+        List<PendingRequest> full = null;
+
+        synchronized (this) {
+            if (pending.size() + 1 < maxSize && flushTimer == null) {
+                try {
+                    flushTimer = aiEnrichmentScheduler.schedule(
+                            this::flushOnTimer, Instant.now().plusMillis(maxWaitMs));
+                } catch (RejectedExecutionException e) {
+                    return CompletableFuture.failedFuture(e);
+                }
+            }
+            pending.add(entry);
+            if (pending.size() >= maxSize) {
+                full = takeBatch();
+            }
+        }
+
+        if (full != null) {
+            dispatch(full);
+        }
+        return entry.result();
+    }
+
+    /**
+     * Flushes whatever has accumulated when the wait timer fires.
+     */
+    private void flushOnTimer() {
+        List<PendingRequest> batch;
+        synchronized (this) {
+            flushTimer = null;
+            batch = takeBatch();
+        }
+        if (!batch.isEmpty()) {
+            dispatch(batch);
+        }
+    }
+
+    /**
+     * Detaches the current batch and cancels its wait timer.
+     * Must be called while holding the monitor.
+     *
+     * @return the requests in the current batch
+     */
+    private List<PendingRequest> takeBatch() {
+        List<PendingRequest> batch = pending;
+        pending = new ArrayList<>();
+        if (flushTimer != null) {
+            flushTimer.cancel(false);
+            flushTimer = null;
+        }
+        return batch;
+    }
+
+    /**
+     * Sends a batch with the non-blocking client, or runs it on the shared
+     * executor. If the executor rejects the work, every request in the batch
+     * fails with the same error.
+     *
+     * @param batch the requests to send
+     */
+    private void dispatch(List<PendingRequest> batch) {
+        if (asyncClient) {
+            runAsync(batch);
+            return;
+        }
+        try {
+            aiEnrichmentExecutor.execute(() -> run(batch));
+        } catch (RejectedExecutionException e) {
+            RuntimeException error = new RuntimeException("AI enrichment rejected: executor is saturated", e);
+            batch.forEach(entry -> entry.result().completeExceptionally(error));
+        }
+    }
+
+    /**
+     * Sends a batch to the model and completes each request's future,
+     * falling back to single-incident calls for anything not returned.
+     *
+     * @param batch the requests to send
+     */
+    private void run(List<PendingRequest> batch) {
+        batchSize.record(batch.size());
+
+        if (batch.size() == 1) {
+            runSingle(batch.get(0));
+            return;
+        }
+
+        Map<String, IncidentEnrichmentResult> results = Map.of();
+        try {
+            batchCalls.increment();
+            batch.forEach(entry -> entry.upstreamCalls().incrementAndGet());
+            results = enrichmentProvider.enrichIncidents(
+                    batch.stream().map(PendingRequest::request).toList());
+        } catch (RuntimeException e) {
+            log.warn("Batch enrichment of {} incidents failed, falling back to single calls: {}",
+                    batch.size(), e.getMessage());
+        }
+        fanOut(batch, results, this::runSingle);
+    }
+
+    /**
+     * Non-blocking variant of {@link #run}.
+     *
+     * @param batch the requests to send
+     */
+    private void runAsync(List<PendingRequest> batch) {
+        batchSize.record(batch.size());
+
+        if (batch.size() == 1) {
+            runSingleAsync(batch.get(0));
+            return;
+        }
+
+        batchCalls.increment();
+        batch.forEach(entry -> entry.upstreamCalls().incrementAndGet());
+        enrichmentProvider.enrichIncidentsAsync(batch.stream().map(PendingRequest::request).toList())
+                .whenComplete((results, error) -> deliver(() -> {
+                    if (error != null) {
+                        log.warn("Batch enrichment of {} incidents failed, falling back to single calls: {}",
+                                batch.size(), error.getMessage());
+                    }
+                    fanOut(batch, error == null ? results : Map.of(), this::runSingleAsync);
+                }));
+    }
+
+    /**
+     * Completes each request with its result from the batch, sending the
+     * ones without a result through the fallback.
+     *
+     * @param batch the requests that were sent
+     * @param results the results keyed by incident ID
+     * @param fallback single-incident call for requests without a result
+     */
+    private void fanOut(List<PendingRequest> batch, Map<String, IncidentEnrichmentResult> results,
+            Consumer<PendingRequest> fallback) {
+        for (PendingRequest entry : batch) {
+            IncidentEnrichmentResult result = results.get(entry.request().getIncidentId());
+            if (result != null) {
+                entry.result().complete(result);
+            } else {
+                fallbackCalls.increment();
+                fallback.accept(entry);
+            }
+        }
+    }
+
+    /**
+     * Enriches one incident with the single-incident prompt.
+     *
+     * @param entry the request to send
+     */
+    private void runSingle(PendingRequest entry) {
+        if (entry.result().isDone()) {
+            return;
+        }
+        try {
+            entry.upstreamCalls().incrementAndGet();
+            entry.result().complete(enrichmentProvider.enrichIncident(entry.request()));
+        } catch (Throwable t) {
+            entry.result().completeExceptionally(t);
+        }
+    }
+
+    /**
+     * Non-blocking variant of {@link #runSingle}.
+     *
+     * @param entry the request to send
+     */
+    private void runSingleAsync(PendingRequest entry) {
+        if (entry.result().isDone()) {
+            return;
+        }
+        entry.upstreamCalls().incrementAndGet();
+        enrichmentProvider.enrichIncidentAsync(entry.request())
+                .whenComplete((result, error) -> deliver(() -> {
+                    if (error == null) {
+                        entry.result().complete(result);
+                    } else {
+                        entry.result().completeExceptionally(
+                                error instanceof CompletionException && error.getCause() != null
+                                        ? error.getCause() : error);
+                    }
+                }));
+    }
+
+    /**
+     * Runs a completion on the executor so callers of the returned futures
+     * do not run on the HTTP client's threads. Runs it inline if the
+     * executor rejects it.
+     *
+     * @param completion the completion to run
+     */
+    private void deliver(Runnable completion) {
+        try {
+            aiEnrichmentExecutor.execute(completion);
+        } catch (RejectedExecutionException e) {
+            completion.run();
+        }
+    }
+
+    /**
+     * A request waiting in a batch together with the future for its result
+     * and its incident's upstream call counter.
+     */
+    private record PendingRequest(
+            IncidentEnrichmentRequest request,
+            CompletableFuture<IncidentEnrichmentResult> result,
+            AtomicInteger upstreamCalls) {
+    }
+}
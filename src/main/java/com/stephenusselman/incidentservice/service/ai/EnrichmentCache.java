@@ -0,0 +1,287 @@
+package com.stephenusselman.incidentservice.service.ai;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.stephenusselman.incidentservice.domain.EnrichmentCacheEntry;
+import com.stephenusselman.incidentservice.dto.ai.IncidentEnrichmentResult;
+import com.stephenusselman.incidentservice.repository.EnrichmentCacheRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Content-addressed cache of AI enrichment results.
+ *
+ * Results are keyed by a SHA-256 hash of the prompt version, the model and
+ * the normalized incident description, so repeated incidents reuse an
+ * earlier result instead of paying for another AI call, and a prompt or
+ * model change never serves results produced by the old one.
+ *
+ * The first tier is an in-memory LRU map bounded by size and TTL. The
+ * optional second tier is the EnrichmentCache DynamoDB table, which keeps
+ * hits across restarts and shares them between nodes. Failures of the
+ * persistent tier are logged and treated as misses.
+ */
+@Slf4j
+@Component
+public class EnrichmentCache {
+
+    private final EnrichmentCacheRepository repository;
+
+    /** Whether the cache is consulted at all */
+    private final boolean enabled;
+
+    /** Maximum number of entries kept in memory */
+    private final int maxEntries;
+
+    /** How long an entry stays valid in either tier */
+    private final Duration ttl;
+
+    /** Whether the DynamoDB tier is used */
+    private final boolean persistentEnabled;
+
+    /** In-memory tier in access order, so the eldest entry is least recently used */
+    private final LinkedHashMap<String, CachedResult> entries;
+
+    private final Counter memoryHits;
+    private final Counter persistentHits;
+    private final Counter misses;
+
+    /**
+     * Constructs the enrichment cache.
+     *
+     * @param repository the persistent cache tier
+     * @param meterRegistry registry used to publish hit/miss metrics
+     * @param enabled whether the cache is used
+     * @param maxEntries maximum number of in-memory entries
+     * @param ttlMinutes how long entries remain valid
+     * @param persistentEnabled whether the DynamoDB tier is used
+     */
+    public EnrichmentCache(
+            EnrichmentCacheRepository repository,
+            MeterRegistry meterRegistry,
+            @Value("${ai.enrichment.cache.enabled:true}") boolean enabled,
+            @Value("${ai.enrichment.cache.max-entries:10000}") int maxEntries,
+            @Value("${ai.enrichment.cache.ttl-minutes:1440}") long ttlMinutes,
+            @Value("${ai.enrichment.cache.persistent.enabled:false}") boolean persistentEnabled) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("ai.enrichment.cache.max-entries must be at least 1");
+        }
+        if (ttlMinutes < 1) {
+            throw new IllegalArgumentException("ai.enrichment.cache.ttl-minutes must be at least 1");
+        }
+        this.repository = repository;
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+        this.persistentEnabled = persistentEnabled;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+                return size() > EnrichmentCache.this.maxEntries;
+            }
+        };
+
+        this.memoryHits = Counter.builder("ai.enrichment.cache.requests")
+                .tag("result", "hit").tag("tier", "memory")
+                .description("Enrichment cache lookups")
+                .register(meterRegistry);
+        this.persistentHits = Counter.builder("ai.enrichment.cache.requests")
+                .tag("result", "hit").tag("tier", "dynamodb")
+                .description("Enrichment cache lookups")
+                .register(meterRegistry);
+        this.misses = Counter.builder("ai.enrichment.cache.requests")
+                .tag("result", "miss").tag("tier", "none")
+                .description("Enrichment cache lookups")
+                .register(meterRegistry);
+        Gauge.builder("ai.enrichment.cache.size", this, EnrichmentCache::size)
+                .description("Entries in the in-memory enrichment cache")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Looks up a cached result for the given description.
+     *
+     * @param promptVersion the prompt version the result must come from
+     * @param model the model the result must come from
+     * @param description the incident description
+     * @return the cached result, or null on a miss or if the cache is disabled
+     */
+    public IncidentEnrichmentResult get(String promptVersion, String model, String description) {
+        if (!enabled || promptVersion == null || description == null) {
+            return null;
+        }
+        String key = keyFor(promptVersion, model, description);
+        Instant now = Instant.now();
+
+        synchronized (entries) {
+            CachedResult cached = entries.get(key);
+            if (cached != null && cached.expiresAt().isAfter(now)) {
+                memoryHits.increment();
+                return copy(cached.result());
+            }
+            if (cached != null) {
+                entries.remove(key);
+            }
+        }
+
+        if (persistentEnabled) {
+            IncidentEnrichmentResult stored = readPersistent(key, now);
+            if (stored != null) {
+                persistentHits.increment();
+                synchronized (entries) {
+                    entries.put(key, new CachedResult(copy(stored), now.plus(ttl)));
+                }
+                return stored;
+            }
+        }
+
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Stores a validated result for the given description in every enabled tier.
+     *
+     * @param promptVersion the prompt version that produced the result
+     * @param model the model that produced the result
+     * @param description the incident description
+     * @param result the AI enrichment result
+     */
+    public void put(String promptVersion, String model, String description, IncidentEnrichmentResult result) {
+        if (!enabled || promptVersion == null || description == null || result == null) {
+            return;
+        }
+        String key = keyFor(promptVersion, model, description);
+        Instant expiresAt = Instant.now().plus(ttl);
+
+        synchronized (entries) {
+            entries.put(key, new CachedResult(copy(result), expiresAt));
+        }
+
+        if (persistentEnabled) {
+            writePersistent(key, promptVersion, model, result, expiresAt);
+        }
+    }
+
+    /**
+     * Returns the number of entries currently held in memory.
+     *
+     * @return the in-memory entry count
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Computes the cache key: a hex SHA-256 of the prompt version, the model
+     * and the normalized description.
+     *
+     * @param promptVersion the prompt version
+     * @param model the model, or null if the provider does not name one
+     * @param description the incident description
+     * @return the cache key
+     */
+    String keyFor(String promptVersion, String model, String description) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(promptVersion.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(Objects.toString(model, "").getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(normalize(description).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Normalizes a description so that differences in case and whitespace
+     * map to the same key.
+     *
+     * @param description the incident description
+     * @return the normalized description
+     */
+    static String normalize(String description) {
+        return description.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Reads an unexpired entry from the persistent tier.
+     *
+     * @return the stored result, or null if absent, expired or unavailable
+     */
+    private IncidentEnrichmentResult readPersistent(String key, Instant now) {
+        try {
+            EnrichmentCacheEntry entry = repository.findByKey(key);
+            if (entry == null || entry.getExpiresAt() == null
+                    || entry.getExpiresAt() <= now.getEpochSecond()) {
+                return null;
+            }
+            return new IncidentEnrichmentResult(
+                    entry.getSeverity(),
+                    entry.getCategory(),
+                    entry.getSummary(),
+                    entry.getRecommendedAction());
+        } catch (RuntimeException e) {
+            log.warn("Persistent enrichment cache read failed: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Writes an entry to the persistent tier, ignoring failures.
+     */
+    private void writePersistent(String key, String promptVersion, String model, IncidentEnrichmentResult result,
+            Instant expiresAt) {
+        EnrichmentCacheEntry entry = new EnrichmentCacheEntry();
+        entry.setCacheKey(key);
+        entry.setPromptVersion(promptVersion);
+        entry.setAiModel(model);
+        entry.setSeverity(result.getSeverity());
+        entry.setCategory(result.getCategory());
+        entry.setSummary(result.getSummary());
+        entry.setRecommendedAction(result.getRecommendedAction());
+        entry.setCreatedAt(Instant.now().toString());
+        entry.setExpiresAt(expiresAt.getEpochSecond());
+        try {
+            repository.save(entry);
+        } catch (RuntimeException e) {
+            log.warn("Persistent enrichment cache write failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Copies a result so callers cannot mutate cached state.
+     */
+    private IncidentEnrichmentResult copy(IncidentEnrichmentResult result) {
+        return new IncidentEnrichmentResult(
+                result.getSeverity(),
+                result.getCategory(),
+                result.getSummary(),
+                result.getRecommendedAction());
+    }
+
+    /**
+     * An in-memory cache value with its expiry time.
+     */
+    private record CachedResult(IncidentEnrichmentResult result, Instant expiresAt) {
+    }
+}
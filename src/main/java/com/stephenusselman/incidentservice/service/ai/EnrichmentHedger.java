@@ -0,0 +1,466 @@
+package com.stephenusselman.incidentservice.service.ai;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import com.stephenusselman.incidentservice.dto.ai.IncidentEnrichmentRequest;
+import com.stephenusselman.incidentservice.dto.ai.IncidentEnrichmentResult;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Runs single-incident AI calls with optional request hedging.
+ *
+ * With {@code ai.enrichment.async-client.enabled}, requests go through the
+ * SDK's non-blocking client and no thread waits on the model; results are
+ * handed to the shared executor for the rest of the pipeline. Otherwise each
+ * request blocks an executor thread. With {@code ai.enrichment.streaming.enabled}
+ * as well, non-blocking requests are streamed and the caller is told the
+ * classification as soon as the first request has produced it.
+ *
+ * Latencies of recent successful calls are kept in a sliding window. Once
+ * the window has {@code min-samples}, a call that has not returned by the
+ * configured percentile of that window gets a second, identical request.
+ * The first successful response wins and the other request is cancelled;
+ * the call only fails once every request it started has failed.
+ *
+ * Hedges are limited to {@code max-hedge-ratio} of calls through a small
+ * credit budget, and each hedge needs a free permit from the
+ * {@link AdaptiveConcurrencyLimiter}, so hedging backs off by itself when
+ * the AI service is overloaded. A hedge is a full extra request, so it is
+ * also charged to the {@link TokenBudgetScheduler} and needs its own
+ * {@link AiCircuitBreaker} permit; it is skipped rather than queued when
+ * either refuses it, and its outcome counts towards the breaker's rates.
+ */
+@Component
+public class EnrichmentHedger {
+
+    /** Maximum hedge credits that can be banked during quiet periods */
+    private static final double MAX_HEDGE_CREDITS = 5;
+
+    private final EnrichmentProvider enrichmentProvider;
+
+    /** Shared, bounded executor that runs the AI calls */
+    private final AsyncTaskExecutor aiEnrichmentExecutor;
+
+    /** Timer used to fire hedges */
+    private final TaskScheduler aiEnrichmentScheduler;
+
+    /** Limit on AI calls in flight; hedges take a permit too */
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    /** Token budget that hedges are charged to */
+    private final TokenBudgetScheduler tokenBudgetScheduler;
+
+    /** Circuit breaker that counts hedge outcomes */
+    private final AiCircuitBreaker circuitBreaker;
+
+    /** Whether calls use the SDK's non-blocking client instead of an executor thread each */
+    private final boolean asyncClient;
+
+    /** Whether non-blocking calls stream their response */
+    private final boolean streaming;
+
+    /** Whether hedges are sent at all */
+    private final boolean enabled;
+
+    /** Percentile of recent latency after which a hedge is sent */
+    private final double percentile;
+
+    /** Minimum window samples before hedging starts */
+    private final int minSamples;
+
+    /** Lower bound on the hedge delay */
+    private final long minDelayMs;
+
+    /** Hedge credit earned per call */
+    private final double maxHedgeRatio;
+
+    /** Recent successful call latencies in milliseconds, used as a ring buffer */
+    private final long[] latencies;
+    private int latencyCount;
+    private int latencyNext;
+
+    /** Hedges that may still be sent before the ratio cap applies */
+    private double hedgeCredits;
+
+    private final Counter hedges;
+    private final Counter hedgeWins;
+    private final Counter primaryWins;
+    private final Counter skippedForRatio;
+    private final Counter skippedForConcurrency;
+    private final Counter skippedForTokens;
+    private final Counter skippedForBreaker;
+
+    /**
+     * Constructs the hedger.
+     *
+     * @param enrichmentProvider the active enrichment provider
+     * @param aiEnrichmentExecutor the shared executor used for AI calls
+     * @param aiEnrichmentScheduler the timer used to fire hedges
+     * @param concurrencyLimiter the adaptive limit on AI calls in flight
+     * @param tokenBudgetScheduler the token budget hedges are charged to
+     * @param circuitBreaker the circuit breaker guarding AI calls
+     * @param meterRegistry registry used to publish hedging metrics
+     * @param asyncClient whether calls use the non-blocking client
+     * @param streaming whether non-blocking calls stream their response
+     * @param enabled whether hedges are sent
+     * @param percentile latency percentile after which a hedge is sent
+     * @param windowSize number of recent latencies kept
+     * @param minSamples minimum samples before hedging starts
+     * @param minDelayMs lower bound on the hedge delay
+     * @param maxHedgeRatio maximum fraction of calls that are hedged
+     */
+    public EnrichmentHedger(
+            EnrichmentProvider enrichmentProvider,
+            @Qualifier("aiEnrichmentExecutor") AsyncTaskExecutor aiEnrichmentExecutor,
+            @Qualifier("aiEnrichmentScheduler") TaskScheduler aiEnrichmentScheduler,
+            AdaptiveConcurrencyLimiter concurrencyLimiter,
+            TokenBudgetScheduler tokenBudgetScheduler,
+            AiCircuitBreaker circuitBreaker,
+            MeterRegistry meterRegistry,
+            @Value("${ai.enrichment.async-client.enabled:true}") boolean asyncClient,
+            @Value("${ai.enrichment.streaming.enabled:false}") boolean streaming,
+            @Value("${ai.enrichment.hedge.enabled:false}") boolean enabled,
+            @Value("${ai.enrichment.hedge.percentile:95}") double percentile,
+            @Value("${ai.enrichment.hedge.window-size:200}") int windowSize,
+            @Value("${ai.enrichment.hedge.min-samples:20}") int minSamples,
+            @Value("${ai.enrichment.hedge.min-delay-ms:100}") long minDelayMs,
+            @Value("${ai.enrichment.hedge.max-hedge-ratio:0.1}") double maxHedgeRatio) {
+        if (percentile <= 0 || percentile >= 100) {
+            throw new IllegalArgumentException("ai.enrichment.hedge.percentile must be in (0, 100)");
+        }
+        if (windowSize < 1 || minSamples < 1 || minSamples > windowSize) {
+            throw new IllegalArgumentException(
+                    "ai.enrichment.hedge.min-samples must be between 1 and ai.enrichment.hedge.window-size");
+        }
+        if (minDelayMs < 0) {
+            throw new IllegalArgumentException("ai.enrichment.hedge.min-delay-ms must not be negative");
+        }
+        if (maxHedgeRatio < 0 || maxHedgeRatio > 1) {
+            throw new IllegalArgumentException("ai.enrichment.hedge.max-hedge-ratio must be in [0, 1]");
+        }
+        this.enrichmentProvider = enrichmentProvider;
+        this.aiEnrichmentExecutor = aiEnrichmentExecutor;
+        this.aiEnrichmentScheduler = aiEnrichmentScheduler;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.tokenBudgetScheduler = tokenBudgetScheduler;
+        this.circuitBreaker = circuitBreaker;
+        this.asyncClient = asyncClient;
+        this.streaming = streaming;
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.minSamples = minSamples;
+        this.minDelayMs = minDelayMs;
+        this.maxHedgeRatio = maxHedgeRatio;
+        this.latencies = new long[windowSize];
+
+        this.hedges = Counter.builder("ai.enrichment.hedge.requests")
+                .description("Hedge requests sent")
+                .register(meterRegistry);
+        this.hedgeWins = Counter.builder("ai.enrichment.hedge.wins")
+                .tag("winner", "hedge")
+                .description("Hedged calls by which request returned first")
+                .register(meterRegistry);
+        this.primaryWins = Counter.builder("ai.enrichment.hedge.wins")
+                .tag("winner", "primary")
+                .description("Hedged calls by which request returned first")
+                .register(meterRegistry);
+        this.skippedForRatio = Counter.builder("ai.enrichment.hedge.skipped")
+                .tag("reason", "ratio")
+                .description("Hedges not sent")
+                .register(meterRegistry);
+        this.skippedForConcurrency = Counter.builder("ai.enrichment.hedge.skipped")
+                .tag("reason", "concurrency")
+                .description("Hedges not sent")
+                .register(meterRegistry);
+        this.skippedForTokens = Counter.builder("ai.enrichment.hedge.skipped")
+                .tag("reason", "token-budget")
+                .description("Hedges not sent")
+                .register(meterRegistry);
+        this.skippedForBreaker = Counter.builder("ai.enrichment.hedge.skipped")
+                .tag("reason", "circuit-breaker")
+                .description("Hedges not sent")
+                .register(meterRegistry);
+        Gauge.builder("ai.enrichment.hedge.delay-ms", this, EnrichmentHedger::getHedgeDelayMs)
+                .description("Current hedge delay, or -1 while there are too few samples")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs a single-incident AI call, hedging it if it is slow. Completing
+     * the returned future from outside, for example on timeout, cancels
+     * every request still running.
+     *
+     * @param request the enrichment request
+     * @param upstreamCalls incremented for each request actually sent
+     * @param onClassification receives severity and category once, ahead of
+     *         the full result, when responses are streamed; may be null
+     * @return a future completed with the first successful result, or with
+     *         the last error once every request has failed
+     * @throws RejectedExecutionException if the executor rejects a blocking call
+     */
+    public CompletableFuture<IncidentEnrichmentResult> execute(IncidentEnrichmentRequest request,
+            AtomicInteger upstreamCalls, Consumer<IncidentEnrichmentResult> onClassification) {
+        HedgedCall call = new HedgedCall(request, upstreamCalls, onClassification);
+        call.start(false, null, null);
+        call.result.whenComplete((r, e) -> call.cancelAll());
+
+        if (enabled) {
+            synchronized (this) {
+                hedgeCredits = Math.min(MAX_HEDGE_CREDITS, hedgeCredits + maxHedgeRatio);
+            }
+            long delayMs = getHedgeDelayMs();
+            if (delayMs >= 0 && !call.result.isDone()) {
+                try {
+                    ScheduledFuture<?> timer = aiEnrichmentScheduler.schedule(
+                            call::hedge, Instant.now().plusMillis(delayMs));
+                    call.result.whenComplete((r, e) -> timer.cancel(false));
+                } catch (RejectedExecutionException e) {
+                    // The primary request still runs; it just is not hedged.
+                }
+            }
+        }
+        return call.result;
+    }
+
+    /**
+     * Returns whether hedging is enabled.
+     *
+     * @return true if hedges are sent
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the delay after which a call is currently hedged.
+     *
+     * @return the delay in milliseconds, or -1 while there are too few samples
+     */
+    public synchronized long getHedgeDelayMs() {
+        if (latencyCount < minSamples) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(latencies, latencyCount);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * latencyCount) - 1;
+        return Math.max(minDelayMs, sorted[Math.max(0, index)]);
+    }
+
+    /**
+     * Adds a successful call latency to the window.
+     *
+     * @param latencyMs the latency in milliseconds
+     */
+    private synchronized void recordLatency(long latencyMs) {
+        latencies[latencyNext] = latencyMs;
+        latencyNext = (latencyNext + 1) % latencies.length;
+        latencyCount = Math.min(latencyCount + 1, latencies.length);
+    }
+
+    /**
+     * Spends one hedge credit if available.
+     *
+     * @return true if a hedge may be sent
+     */
+    private synchronized boolean takeHedgeCredit() {
+        if (hedgeCredits < 1) {
+            return false;
+        }
+        hedgeCredits -= 1;
+        return true;
+    }
+
+    /**
+     * Runs a completion on the executor so callers of the returned future
+     * (validation, persistence) do not run on the HTTP client's threads.
+     * Runs it inline if the executor rejects it.
+     *
+     * @param completion the completion to run
+     */
+    private void deliver(Runnable completion) {
+        try {
+            aiEnrichmentExecutor.execute(completion);
+        } catch (RejectedExecutionException e) {
+            completion.run();
+        }
+    }
+
+    /**
+     * One logical AI call and the requests started for it.
+     */
+    private final class HedgedCall {
+
+        private final IncidentEnrichmentRequest request;
+        private final AtomicInteger upstreamCalls;
+        private final Consumer<IncidentEnrichmentResult> onClassification;
+        private final AtomicBoolean classified = new AtomicBoolean();
+        private final AtomicBoolean won = new AtomicBoolean();
+        private final CompletableFuture<IncidentEnrichmentResult> result = new CompletableFuture<>();
+        private final List<Future<?>> tasks = new CopyOnWriteArrayList<>();
+        private final AtomicInteger started = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private volatile boolean hedged;
+
+        HedgedCall(IncidentEnrichmentRequest request, AtomicInteger upstreamCalls,
+                Consumer<IncidentEnrichmentResult> onClassification) {
+            this.request = request;
+            this.upstreamCalls = upstreamCalls;
+            this.onClassification = onClassification;
+        }
+
+        /**
+         * Sends the hedge request if the call is still running and the
+         * ratio budget, circuit breaker, concurrency limit and token budget
+         * all allow it. The hedge's tokens stay spent if it is rejected
+         * after they were reserved.
+         */
+        void hedge() {
+            if (result.isDone()) {
+                return;
+            }
+            if (!takeHedgeCredit()) {
+                skippedForRatio.increment();
+                return;
+            }
+            AiCircuitBreaker.Permit breakerPermit;
+            try {
+                breakerPermit = circuitBreaker.acquire();
+            } catch (AiCallNotPermittedException e) {
+                skippedForBreaker.increment();
+                return;
+            }
+            AdaptiveConcurrencyLimiter.Permit permit = concurrencyLimiter.tryAcquire();
+            if (permit == null) {
+                breakerPermit.release();
+                skippedForConcurrency.increment();
+                return;
+            }
+            if (!tokenBudgetScheduler.tryReserve(request)) {
+                breakerPermit.release();
+                permit.release();
+                skippedForTokens.increment();
+                return;
+            }
+            result.whenComplete((r, e) -> {
+                breakerPermit.release();
+                permit.release();
+            });
+            hedged = true;
+            try {
+                start(true, permit, breakerPermit);
+                hedges.increment();
+            } catch (RejectedExecutionException e) {
+                hedged = false;
+                started.decrementAndGet();
+                breakerPermit.release();
+                permit.release();
+            }
+        }
+
+        /**
+         * Starts one request, either on the SDK's asynchronous client or as
+         * a blocking call on the executor.
+         *
+         * @param hedge whether this is the hedge request
+         * @param permit the hedge's limiter permit, or null for the primary
+         * @param breakerPermit the hedge's circuit breaker permit, or null for the primary
+         */
+        void start(boolean hedge, AdaptiveConcurrencyLimiter.Permit permit,
+                AiCircuitBreaker.Permit breakerPermit) {
+            started.incrementAndGet();
+            long startNanos = System.nanoTime();
+            if (!asyncClient) {
+                tasks.add(aiEnrichmentExecutor.submit(() -> {
+                    try {
+                        upstreamCalls.incrementAndGet();
+                        IncidentEnrichmentResult enrichment = enrichmentProvider.enrichIncident(request);
+                        settle(hedge, permit, breakerPermit, startNanos, enrichment, null);
+                    } catch (Throwable t) {
+                        settle(hedge, permit, breakerPermit, startNanos, null, t);
+                    }
+                }));
+                return;
+            }
+            upstreamCalls.incrementAndGet();
+            CompletableFuture<IncidentEnrichmentResult> call = streaming && onClassification != null
+                    ? enrichmentProvider.enrichIncidentStreaming(request, this::classify)
+                    : enrichmentProvider.enrichIncidentAsync(request);
+            tasks.add(call);
+            call.whenComplete((enrichment, error) ->
+                    deliver(() -> settle(hedge, permit, breakerPermit, startNanos, enrichment, error)));
+        }
+
+        /**
+         * Passes on the first streamed classification of any request while
+         * the call is still running, off the HTTP client's threads.
+         *
+         * @param classification the streamed severity and category
+         */
+        private void classify(IncidentEnrichmentResult classification) {
+            if (!result.isDone() && classified.compareAndSet(false, true)) {
+                deliver(() -> onClassification.accept(classification));
+            }
+        }
+
+        /**
+         * Completes the call if this request is the first success or the
+         * last failure. A hedge records its own outcome in the limiter and
+         * breaker; a hedge cancelled because the call already completed
+         * records nothing.
+         */
+        private void settle(boolean hedge, AdaptiveConcurrencyLimiter.Permit permit,
+                AiCircuitBreaker.Permit breakerPermit, long startNanos,
+                IncidentEnrichmentResult enrichment, Throwable error) {
+            if (error == null) {
+                if (permit != null) {
+                    permit.record(null);
+                    breakerPermit.record(true);
+                }
+                recordLatency((System.nanoTime() - startNanos) / 1_000_000);
+                if (!result.isDone() && won.compareAndSet(false, true)) {
+                    if (hedged) {
+                        (hedge ? hedgeWins : primaryWins).increment();
+                    }
+                    result.complete(enrichment);
+                }
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            if (permit != null && !result.isDone()) {
+                permit.record(cause);
+                breakerPermit.record(false);
+            }
+            if (failed.incrementAndGet() >= started.get()) {
+                result.completeExceptionally(cause);
+            }
+        }
+
+        /**
+         * Cancels every request that is still running.
+         */
+        void cancelAll() {
+            tasks.forEach(task -> task.cancel(true));
+        }
+    }
+}
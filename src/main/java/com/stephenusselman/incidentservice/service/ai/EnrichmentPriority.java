@@ -0,0 +1,50 @@
+package com.stephenusselman.incidentservice.service.ai;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Priority classes for pending AI enrichment, assigned from cheap keyword
+ * heuristics on the incident description. Declared from most to least urgent.
+ */
+public enum EnrichmentPriority {
+
+    /** Likely security incidents or full outages */
+    CRITICAL(List.of("unauthorized", "breach", "ransomware", "exfiltrat", "compromise", "malware",
+            "outage", "down", "data loss", "leak")),
+
+    /** Errors and degraded service */
+    HIGH(List.of("error", "fail", "timeout", "timing out", "latency", "unavailable", "crash", "critical")),
+
+    /** Anything not matched by another class */
+    NORMAL(List.of()),
+
+    /** Warnings and housekeeping */
+    LOW(List.of("warning", "nearing", "scheduled", "informational", "cosmetic"));
+
+    /** Lower-case substrings that place a description in this class */
+    private final List<String> keywords;
+
+    EnrichmentPriority(List<String> keywords) {
+        this.keywords = keywords;
+    }
+
+    /**
+     * Classifies a description by the most urgent class whose keywords it contains.
+     *
+     * @param description the incident description
+     * @return the priority class, NORMAL if nothing matches
+     */
+    public static EnrichmentPriority of(String description) {
+        if (description == null) {
+            return NORMAL;
+        }
+        String text = description.toLowerCase(Locale.ROOT);
+        for (EnrichmentPriority priority : values()) {
+            if (priority.keywords.stream().anyMatch(text::contains)) {
+                return priority;
+            }
+        }
+        return NORMAL;
+    }
+}
@@ -0,0 +1,84 @@
+package com.stephenusselman.incidentservice.service.ai;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import com.stephenusselman.incidentservice.dto.ai.IncidentEnrichmentRequest;
+import com.stephenusselman.incidentservice.dto.ai.IncidentEnrichmentResult;
+
+/**
+ * Source of AI enrichment results for incidents.
+ *
+ * Exactly one implementation is active per application context: the
+ * OpenAI-backed {@link AiEnrichmentService} by default, or the
+ * {@link StubEnrichmentProvider} under the {@code stub} profile.
+ */
+public interface EnrichmentProvider {
+
+    /**
+     * Identifies the model behind the results. It is recorded on every
+     * enriched incident, so incidents enriched by an earlier model can be
+     * found and re-enriched.
+     *
+     * @return the model identifier
+     */
+    String getModel();
+
+    /**
+     * Enriches one incident, blocking until the result is available.
+     *
+     * @param request the incident enrichment request
+     * @return the enrichment result
+     */
+    IncidentEnrichmentResult enrichIncident(IncidentEnrichmentRequest request);
+
+    /**
+     * Enriches several incidents with one call, blocking until the results
+     * are available. Incidents the provider did not return a result for are
+     * absent from the map.
+     *
+     * @param requests the incident enrichment requests
+     * @return the results keyed by incident ID
+     */
+    Map<String, IncidentEnrichmentResult> enrichIncidents(List<IncidentEnrichmentRequest> requests);
+
+    /**
+     * Enriches one incident without blocking the calling thread.
+     *
+     * @param request the incident enrichment request
+     * @return a future completed with the enrichment result
+     */
+    CompletableFuture<IncidentEnrichmentResult> enrichIncidentAsync(IncidentEnrichmentRequest request);
+
+    /**
+     * Enriches one incident with a streamed response, reporting the
+     * classification as soon as severity and category have arrived, before
+     * the summary and recommended action are complete.
+     *
+     * @param request the incident enrichment request
+     * @param onClassification receives a result holding only severity and
+     *         category, at most once and before the returned future completes
+     * @return a future completed with the full enrichment result
+     */
+    CompletableFuture<IncidentEnrichmentResult> enrichIncidentStreaming(
+            IncidentEnrichmentRequest request, Consumer<IncidentEnrichmentResult> onClassification);
+
+    /**
+     * Non-blocking variant of {@link #enrichIncidents}.
+     *
+     * @param requests the incident enrichment requests
+     * @return a future completed with the results keyed by incident ID
+     */
+    CompletableFuture<Map<String, IncidentEnrichmentResult>> enrichIncidentsAsync(
+            List<IncidentEnrichmentRequest> requests);
+
+    /**
+     * Estimates the prompt tokens a single-incident call will consume.
+     *
+     * @param request the incident enrichment request
+     * @return the estimated prompt tokens
+     */
+    int estimatePromptTokens(IncidentEnrichmentRequest request);
+}
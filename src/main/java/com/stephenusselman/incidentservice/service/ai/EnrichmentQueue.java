@@ -0,0 +1,512 @@
+package com.stephenusselman.incidentservice.service.ai;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import com.stephenusselman.incidentservice.domain.EnrichmentTask;
+import com.stephenusselman.incidentservice.domain.Incident;
+import com.stephenusselman.incidentservice.repository.EnrichmentQueueRepository;
+import com.stephenusselman.incidentservice.repository.IncidentRepository;
+
+import software.amazon.awssdk.enhanced.dynamodb.model.Page;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Durable enrichment queue backed by the {@code EnrichmentQueue} table.
+ *
+ * Incidents are enqueued right after they are saved. A worker pool on every
+ * node with {@code ai.enrichment.queue.worker-enabled=true} claims tasks by
+ * lease, hands them to the {@link IncidentEnrichmentCoordinator}, renews the
+ * leases while enrichment is in flight and deletes each task once its outcome
+ * is persisted. If a node stops, its leases expire and the tasks are picked up
+ * by the next poll on any node, including the restarted one.
+ *
+ * While the AI circuit breaker is open no tasks are claimed, and tasks whose
+ * AI call was refused are parked until the breaker allows trial calls again
+ * rather than being retried or marked FAILED. Parked claims do not count as
+ * attempts.
+ *
+ * A task whose processing keeps erroring is given up after
+ * {@code max-attempts} claims: its incident is marked FAILED, where the
+ * backlog index and the failed-enrichment backfill pick it up, and the task
+ * is deleted. An incident that is already ENRICHED keeps its result.
+ */
+@Slf4j
+@Component
+public class EnrichmentQueue {
+
+    /** Reason recorded for tasks enqueued on incident creation */
+    public static final String REASON_CREATED = "CREATED";
+
+    /** Reason recorded for PENDING incidents found without a task at startup */
+    public static final String REASON_RECOVERED = "RECOVERED";
+
+    /** Reason recorded for ENRICHED incidents whose prompt version or model is outdated */
+    public static final String REASON_REENRICH = "REENRICH";
+
+    private final EnrichmentQueueRepository queueRepository;
+    private final IncidentRepository incidentRepository;
+    private final IncidentEnrichmentCoordinator coordinator;
+    private final AiCircuitBreaker circuitBreaker;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final EnrichmentVersions versions;
+
+    /** Executor that loads and starts each claimed task off the poller thread */
+    private final AsyncTaskExecutor aiEnrichmentExecutor;
+
+    /** Whether this node claims and processes tasks */
+    private final boolean workerEnabled;
+
+    /** How long a claimed task stays invisible to other workers */
+    private final Duration lease;
+
+    /** Interval between polls when no wake-up is received */
+    private final long pollIntervalMs;
+
+    /** Maximum tasks requested per poll */
+    private final int batchSize;
+
+    /** Delay before a task whose processing errored becomes claimable again */
+    private final Duration retryDelay;
+
+    /** Claims after which a task whose processing keeps erroring is given up */
+    private final int maxAttempts;
+
+    /** Whether to re-enqueue PENDING incidents that have no task at startup */
+    private final boolean recoverOnStartup;
+
+    /** Limits the number of tasks this node processes at the same time */
+    private final Semaphore permits;
+
+    /** Identifies this node as lease owner */
+    private final String workerId = "worker-" + UUID.randomUUID();
+
+    /** Lease tokens of the tasks currently leased by this node, by incident ID */
+    private final Map<String, String> inFlight = new ConcurrentHashMap<>();
+
+    /** Single thread that polls the queue and renews leases */
+    private final ScheduledExecutorService poller =
+            Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("enrichment-queue-"));
+
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    private final AtomicBoolean wakeUpPending = new AtomicBoolean(false);
+
+    private final Counter claimedCounter;
+    private final Counter completedCounter;
+    private final Counter lostLeaseCounter;
+    private final Counter parkedCounter;
+    private final Counter abandonedCounter;
+
+    public EnrichmentQueue(
+            EnrichmentQueueRepository queueRepository,
+            IncidentRepository incidentRepository,
+            IncidentEnrichmentCoordinator coordinator,
+            AiCircuitBreaker circuitBreaker,
+            AdaptiveConcurrencyLimiter concurrencyLimiter,
+            EnrichmentVersions versions,
+            @Qualifier("aiEnrichmentExecutor") AsyncTaskExecutor aiEnrichmentExecutor,
+            MeterRegistry meterRegistry,
+            @Value("${ai.enrichment.queue.worker-enabled:true}") boolean workerEnabled,
+            @Value("${ai.enrichment.queue.concurrency:16}") int concurrency,
+            @Value("${ai.enrichment.queue.lease-seconds:120}") long leaseSeconds,
+            @Value("${ai.enrichment.queue.poll-interval-ms:1000}") long pollIntervalMs,
+            @Value("${ai.enrichment.queue.batch-size:10}") int batchSize,
+            @Value("${ai.enrichment.queue.retry-delay-seconds:30}") long retryDelaySeconds,
+            @Value("${ai.enrichment.queue.max-attempts:10}") int maxAttempts,
+            @Value("${ai.enrichment.queue.recover-on-startup:true}") boolean recoverOnStartup) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("ai.enrichment.queue.max-attempts must be at least 1");
+        }
+        this.queueRepository = queueRepository;
+        this.incidentRepository = incidentRepository;
+        this.coordinator = coordinator;
+        this.circuitBreaker = circuitBreaker;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.versions = versions;
+        this.aiEnrichmentExecutor = aiEnrichmentExecutor;
+        this.workerEnabled = workerEnabled;
+        this.permits = new Semaphore(concurrency);
+        this.lease = Duration.ofSeconds(leaseSeconds);
+        this.pollIntervalMs = pollIntervalMs;
+        this.batchSize = batchSize;
+        this.retryDelay = Duration.ofSeconds(retryDelaySeconds);
+        this.maxAttempts = maxAttempts;
+        this.recoverOnStartup = recoverOnStartup;
+
+        Gauge.builder("ai.enrichment.queue.in-flight", inFlight, Map::size)
+                .description("Enrichment tasks currently leased by this node")
+                .register(meterRegistry);
+        this.claimedCounter = Counter.builder("ai.enrichment.queue.claimed")
+                .description("Enrichment tasks claimed by this node")
+                .register(meterRegistry);
+        this.completedCounter = Counter.builder("ai.enrichment.queue.completed")
+                .description("Enrichment tasks completed and removed by this node")
+                .register(meterRegistry);
+        this.lostLeaseCounter = Counter.builder("ai.enrichment.queue.lost-leases")
+                .description("Enrichment task leases that expired before the work finished")
+                .register(meterRegistry);
+        this.parkedCounter = Counter.builder("ai.enrichment.queue.parked")
+                .description("Enrichment tasks deferred because the AI circuit breaker refused the call")
+                .register(meterRegistry);
+        this.abandonedCounter = Counter.builder("ai.enrichment.queue.abandoned")
+                .description("Enrichment tasks given up after max-attempts and their incidents marked FAILED")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Durably enqueues a newly created incident for enrichment and wakes the
+     * local workers so the task is normally picked up without waiting for
+     * the next poll.
+     *
+     * @param incident the saved incident
+     */
+    public void enqueue(Incident incident) {
+        enqueue(incident.getIncidentId(), REASON_CREATED);
+    }
+
+    /**
+     * Durably enqueues an incident for enrichment.
+     *
+     * @param incidentId the incident to enrich
+     * @param reason why the incident is being enqueued
+     * @return true if a new task was created, false if one was already queued
+     */
+    public boolean enqueue(String incidentId, String reason) {
+        boolean created = queueRepository.enqueue(incidentId, reason);
+        wakeUp();
+        return created;
+    }
+
+    /**
+     * Starts polling once the application (and its tables) are ready.
+     * The first poll also picks up tasks whose leases expired while the
+     * previous instance of this node was down. Optionally, PENDING incidents
+     * that never made it into the queue are re-enqueued first.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!workerEnabled || !started.compareAndSet(false, true)) {
+            return;
+        }
+        if (recoverOnStartup) {
+            poller.execute(this::recoverPendingIncidents);
+        }
+        poller.scheduleWithFixedDelay(this::pollSafely, 0, pollIntervalMs, TimeUnit.MILLISECONDS);
+
+        long renewIntervalMs = Math.max(lease.toMillis() / 3, 1);
+        poller.scheduleAtFixedRate(this::renewLeases, renewIntervalMs, renewIntervalMs, TimeUnit.MILLISECONDS);
+
+        log.info("Enrichment queue worker {} started", workerId);
+    }
+
+    /**
+     * Stops claiming new work. Tasks still in flight keep running; if they do
+     * not finish before the process exits, their leases expire and another
+     * worker takes them over.
+     */
+    @PreDestroy
+    public void stop() {
+        poller.shutdownNow();
+    }
+
+    /**
+     * Requests an immediate poll. Multiple requests made before the poll
+     * runs are coalesced into one.
+     */
+    public void wakeUp() {
+        if (!started.get() || !wakeUpPending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            poller.execute(() -> {
+                wakeUpPending.set(false);
+                pollSafely();
+            });
+        } catch (RejectedExecutionException e) {
+            wakeUpPending.set(false);
+        }
+    }
+
+    /**
+     * @return the number of tasks currently leased by this node
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * Walks the PENDING partition of the backlog index and enqueues every
+     * incident older than one lease. The enqueue is conditional, so incidents
+     * that already have a task are left untouched. This covers incidents saved
+     * by a node that stopped before it could write their task.
+     *
+     * @return the number of incidents that were re-enqueued
+     */
+    public int recoverPendingIncidents() {
+        Instant cutoff = Instant.now().minus(lease);
+        int recovered = 0;
+
+        try {
+            Map<String, AttributeValue> lastKey = null;
+            do {
+                Page<Incident> page = incidentRepository.queryByAiStatus("PENDING", 100, lastKey);
+                for (Incident incident : page.items()) {
+                    if (Instant.parse(incident.getCreatedAt()).isBefore(cutoff)
+                            && queueRepository.enqueue(incident.getIncidentId(), REASON_RECOVERED)) {
+                        recovered++;
+                    }
+                }
+                lastKey = page.lastEvaluatedKey();
+            } while (lastKey != null);
+        } catch (RuntimeException e) {
+            log.warn("Recovery of pending incidents stopped early: {}", e.getMessage());
+        }
+
+        if (recovered > 0) {
+            log.info("Re-enqueued {} pending incidents without an enrichment task", recovered);
+        }
+        return recovered;
+    }
+
+    /**
+     * Polls without letting an exception cancel the periodic schedule.
+     */
+    private void pollSafely() {
+        try {
+            poll();
+        } catch (RuntimeException e) {
+            log.warn("Enrichment queue poll failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Claims as many visible tasks as there are free permits and dispatches
+     * them, repeating while full batches keep coming back. Claims nothing
+     * while the circuit breaker is open, and no more than the adaptive
+     * concurrency limit currently allows.
+     */
+    private void poll() {
+        while (true) {
+            if (!circuitBreaker.isCallPermitted()) {
+                return;
+            }
+            int wanted = Math.min(batchSize,
+                    Math.min(permits.availablePermits(), concurrencyLimiter.getAvailable()));
+            if (wanted <= 0) {
+                return;
+            }
+
+            List<EnrichmentTask> candidates = queueRepository.findClaimable(Instant.now(), wanted);
+            for (EnrichmentTask candidate : candidates) {
+                if (!permits.tryAcquire()) {
+                    return;
+                }
+                EnrichmentTask claimed = queueRepository.claim(candidate, workerId, lease);
+                if (claimed == null) {
+                    permits.release();
+                    continue;
+                }
+                claimedCounter.increment();
+                dispatch(claimed);
+            }
+
+            if (candidates.size() < wanted) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Hands a claimed task to the enrichment executor, so the incident read
+     * and the coordinator's cache lookups never run on the poller thread.
+     * If the executor is saturated the task is parked for {@code retryDelay}
+     * without counting the claim. Package-private for tests.
+     *
+     * @param task the claimed task
+     */
+    void dispatch(EnrichmentTask task) {
+        inFlight.put(task.getIncidentId(), task.getLeaseToken());
+        try {
+            aiEnrichmentExecutor.execute(() -> process(task));
+        } catch (RejectedExecutionException e) {
+            settle(task, new AiCallNotPermittedException(
+                    "AI enrichment executor is saturated", Instant.now().plus(retryDelay)));
+        }
+    }
+
+    /**
+     * Runs enrichment for a claimed task and settles the task when done.
+     *
+     * @param task the claimed task
+     */
+    private void process(EnrichmentTask task) {
+        CompletableFuture<Void> work;
+        try {
+            Incident incident = incidentRepository.findById(task.getIncidentId());
+            if (incident == null || isAlreadyEnriched(incident, task) || isUpToDate(incident, task)) {
+                work = CompletableFuture.completedFuture(null);
+            } else {
+                work = coordinator.enrichIncidentAsync(incident);
+            }
+        } catch (RuntimeException e) {
+            work = CompletableFuture.failedFuture(e);
+        }
+
+        work.whenComplete((ignored, error) -> settle(task, error));
+    }
+
+    /**
+     * Deletes a finished task or, if processing errored, releases it so it
+     * is retried after {@code retryDelay}, until it has been claimed
+     * {@code maxAttempts} times. Tasks refused by the circuit breaker are
+     * released until the breaker's retry time instead, and the claim is not
+     * counted. The task stops being renewed before any of this is written.
+     * Package-private for tests.
+     *
+     * @param task the task that finished
+     * @param error the processing error, or null on success
+     */
+    void settle(EnrichmentTask task, Throwable error) {
+        inFlight.remove(task.getIncidentId());
+        AiCallNotPermittedException parked = notPermitted(error);
+        try {
+            if (error == null) {
+                if (queueRepository.complete(task)) {
+                    completedCounter.increment();
+                } else {
+                    lostLeaseCounter.increment();
+                }
+            } else if (parked != null) {
+                parkedCounter.increment();
+                log.debug("Parking enrichment of incident {} until {}: {}",
+                        task.getIncidentId(), parked.getRetryAt(), parked.getMessage());
+                if (task.getAttempts() != null && task.getAttempts() > 0) {
+                    task.setAttempts(task.getAttempts() - 1);
+                }
+                queueRepository.release(task, parked.getRetryAt());
+            } else if (task.getAttempts() != null && task.getAttempts() >= maxAttempts) {
+                abandon(task, error);
+            } else {
+                log.warn("Enrichment of incident {} errored, retrying later: {}",
+                        task.getIncidentId(), error.getMessage());
+                queueRepository.release(task, Instant.now().plus(retryDelay));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not settle enrichment task {}: {}", task.getIncidentId(), e.getMessage());
+        } finally {
+            permits.release();
+            wakeUp();
+        }
+    }
+
+    /**
+     * Gives up a task that errored on every attempt: marks its incident
+     * FAILED, unless it already holds a result, and deletes the task. If
+     * the incident cannot be updated it stays PENDING, and the startup
+     * recovery enqueues it again.
+     *
+     * @param task the task that errored for the last time
+     * @param error the last processing error
+     */
+    private void abandon(EnrichmentTask task, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                ? error.getCause() : error;
+        log.warn("Giving up enrichment of incident {} after {} attempts: {}",
+                task.getIncidentId(), task.getAttempts(), cause.getMessage());
+        try {
+            Incident incident = incidentRepository.findById(task.getIncidentId());
+            if (incident != null && !"ENRICHED".equals(incident.getAiStatus())) {
+                incident.setAiStatus("FAILED");
+                incident.setAiErrorMessage("Enrichment gave up after " + task.getAttempts() + " attempts: "
+                        + cause.getMessage());
+                incidentRepository.update(incident);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not mark incident {} FAILED: {}", task.getIncidentId(), e.getMessage());
+        }
+        if (queueRepository.complete(task)) {
+            abandonedCounter.increment();
+        } else {
+            lostLeaseCounter.increment();
+        }
+    }
+
+    /**
+     * Extends the lease of every task this node is still working on, using
+     * the token captured at claim time. A renewal that loses the race with
+     * the task being settled is not counted as a lost lease.
+     */
+    private void renewLeases() {
+        for (Map.Entry<String, String> entry : inFlight.entrySet()) {
+            String incidentId = entry.getKey();
+            try {
+                if (!queueRepository.renew(incidentId, entry.getValue(), lease)
+                        && inFlight.containsKey(incidentId)) {
+                    lostLeaseCounter.increment();
+                    log.warn("Lost lease on enrichment task {}", incidentId);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Could not renew lease on enrichment task {}: {}", incidentId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Finds a circuit breaker refusal in an error's cause chain.
+     *
+     * @param error the processing error, or null
+     * @return the refusal, or null if there is none
+     */
+    private static AiCallNotPermittedException notPermitted(Throwable error) {
+        for (Throwable current = error; current != null; current = current.getCause()) {
+            if (current instanceof AiCallNotPermittedException parked) {
+                return parked;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A creation or recovery task is redundant if a previous worker already
+     * persisted the enrichment but died before deleting the task.
+     */
+    private boolean isAlreadyEnriched(Incident incident, EnrichmentTask task) {
+        boolean firstEnrichment = REASON_CREATED.equals(task.getReason())
+                || REASON_RECOVERED.equals(task.getReason());
+        return firstEnrichment && "ENRICHED".equals(incident.getAiStatus());
+    }
+
+    /**
+     * A re-enrichment task is redundant if the incident was re-enriched, or
+     * the target version changed back, after the task was enqueued.
+     */
+    private boolean isUpToDate(Incident incident, EnrichmentTask task) {
+        return REASON_REENRICH.equals(task.getReason()) && !versions.isOutdated(incident);
+    }
+}
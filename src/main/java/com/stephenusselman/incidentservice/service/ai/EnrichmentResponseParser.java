@@ -0,0 +1,248 @@
+package com.stephenusselman.incidentservice.service.ai;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.json.JsonReadFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.stephenusselman.incidentservice.dto.ai.IncidentEnrichmentResult;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Tolerant parser for enrichment responses.
+ *
+ * Structured output makes well-formed JSON the norm, but a response wrapped
+ * in prose or code fences is still recovered: the parser reads the first
+ * complete JSON value of the expected shape from the text with a lenient
+ * streaming parser (single quotes, unquoted names, comments and trailing
+ * commas are accepted) and ignores whatever follows. Severity and category
+ * are normalized to the allowed values; an unknown category becomes OTHER,
+ * while an unknown severity fails the parse.
+ *
+ * Outcomes are counted in {@code ai.enrichment.parse} as clean, recovered
+ * or failed.
+ */
+class EnrichmentResponseParser {
+
+    /** Most candidate start positions tried in one response */
+    private static final int MAX_CANDIDATES = 32;
+
+    private final ObjectMapper objectMapper;
+
+    /** Factory for the lenient parser used on noisy responses */
+    private final JsonFactory lenientFactory;
+
+    private final Counter clean;
+    private final Counter recovered;
+    private final Counter failed;
+
+    /**
+     * Creates the parser.
+     *
+     * @param objectMapper mapper used to read JSON trees
+     * @param meterRegistry registry used to publish parse outcome metrics
+     */
+    EnrichmentResponseParser(ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.lenientFactory = JsonFactory.builder()
+                .enable(JsonReadFeature.ALLOW_SINGLE_QUOTES)
+                .enable(JsonReadFeature.ALLOW_UNQUOTED_FIELD_NAMES)
+                .enable(JsonReadFeature.ALLOW_JAVA_COMMENTS)
+                .enable(JsonReadFeature.ALLOW_TRAILING_COMMA)
+                .build();
+        this.clean = counter(meterRegistry, "clean");
+        this.recovered = counter(meterRegistry, "recovered");
+        this.failed = counter(meterRegistry, "failed");
+    }
+
+    /**
+     * Parses a single-incident response.
+     *
+     * @param text the text returned by the model
+     * @return the normalized result
+     * @throws AiResponseParseException if no usable result is found
+     */
+    IncidentEnrichmentResult parseResult(String text) {
+        JsonNode node = extract(text, JsonNode::isObject);
+        if (node == null) {
+            failed.increment();
+            throw new AiResponseParseException("Failed to parse AI enrichment response: " + text, null);
+        }
+        try {
+            return toResult((ObjectNode) node);
+        } catch (AiResponseParseException e) {
+            failed.increment();
+            throw e;
+        }
+    }
+
+    /**
+     * Parses a multi-incident response, either a bare array or an object
+     * with an {@code incidents} array. Elements without an incident ID or
+     * that cannot be normalized are skipped.
+     *
+     * @param text the text returned by the model
+     * @return the normalized results keyed by incident ID
+     * @throws AiResponseParseException if the response holds no array of results
+     */
+    Map<String, IncidentEnrichmentResult> parseBatch(String text) {
+        JsonNode node = extract(text, value -> value.isArray()
+                || value.path(EnrichmentResultSchema.BATCH_PROPERTY).isArray());
+        if (node == null) {
+            failed.increment();
+            throw new AiResponseParseException(
+                    "AI batch enrichment response is not a JSON array: " + text, null);
+        }
+        JsonNode items = node.isArray() ? node : node.get(EnrichmentResultSchema.BATCH_PROPERTY);
+
+        Map<String, IncidentEnrichmentResult> results = new HashMap<>();
+        for (JsonNode item : items) {
+            if (!(item instanceof ObjectNode element) || !element.path("incidentId").isTextual()) {
+                continue;
+            }
+            try {
+                results.put(element.get("incidentId").asText(), toResult(element));
+            } catch (AiResponseParseException e) {
+                // left out so the caller retries this incident on its own
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Maps a severity to an allowed value, ignoring case, whitespace and
+     * punctuation.
+     *
+     * @param value the severity from the model
+     * @return the allowed severity, or null if it matches none
+     */
+    static String normalizeSeverity(String value) {
+        return normalize(value, EnrichmentResultSchema.SEVERITIES);
+    }
+
+    /**
+     * Maps a category to an allowed value, ignoring case, whitespace and
+     * punctuation; anything unrecognized is OTHER.
+     *
+     * @param value the category from the model
+     * @return the allowed category
+     */
+    static String normalizeCategory(String value) {
+        String category = normalize(value, EnrichmentResultSchema.CATEGORIES);
+        return category == null ? "OTHER" : category;
+    }
+
+    /**
+     * Finds the first JSON value of the expected shape. The whole text is
+     * tried strictly first; otherwise each opening brace or bracket is tried
+     * as a start with the lenient parser.
+     *
+     * @param text the text returned by the model
+     * @param shape accepts values of the expected shape
+     * @return the value, or null if none was found
+     */
+    private JsonNode extract(String text, Predicate<JsonNode> shape) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        try {
+            JsonNode whole = objectMapper.readTree(text);
+            if (whole != null && shape.test(whole)) {
+                clean.increment();
+                return whole;
+            }
+        } catch (IOException e) {
+            // not clean JSON; look for an embedded value below
+        }
+
+        int candidates = 0;
+        for (int start = nextStart(text, 0); start >= 0 && candidates < MAX_CANDIDATES;
+                start = nextStart(text, start + 1), candidates++) {
+            try (JsonParser parser = lenientFactory.createParser(text.substring(start))) {
+                if (parser.nextToken() == null) {
+                    continue;
+                }
+                JsonNode node = objectMapper.readTree(parser);
+                if (node != null && shape.test(node)) {
+                    recovered.increment();
+                    return node;
+                }
+            } catch (IOException e) {
+                // try the next candidate
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Converts a parsed object into a normalized result.
+     *
+     * @throws AiResponseParseException if the severity is missing or unknown
+     */
+    private IncidentEnrichmentResult toResult(ObjectNode node) {
+        String severity = normalizeSeverity(text(node, "severity"));
+        if (severity == null) {
+            throw new AiResponseParseException(
+                    "AI enrichment response has no valid severity: " + node, null);
+        }
+        return new IncidentEnrichmentResult(
+                severity,
+                normalizeCategory(text(node, "category")),
+                text(node, "summary"),
+                text(node, "recommendedAction"));
+    }
+
+    /**
+     * Returns a field as trimmed text, or null if it is missing or not a scalar.
+     */
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || !value.isValueNode() || value.isNull() ? null : value.asText().strip();
+    }
+
+    /**
+     * Maps a value to one of the allowed values after stripping everything
+     * but letters and upper-casing it.
+     */
+    private static String normalize(String value, List<String> allowed) {
+        if (value == null) {
+            return null;
+        }
+        String key = value.replaceAll("[^A-Za-z]", "").toUpperCase(Locale.ROOT);
+        return allowed.contains(key) ? key : null;
+    }
+
+    /**
+     * Returns the next index at or after {@code from} holding an opening
+     * brace or bracket, or -1.
+     */
+    private static int nextStart(String text, int from) {
+        for (int i = from; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '{' || c == '[') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Registers the parse outcome counter for one outcome.
+     */
+    private static Counter counter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("ai.enrichment.parse")
+                .tag("outcome", outcome)
+                .description("AI enrichment responses by parse outcome")
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,115 @@
+package com.stephenusselman.incidentservice.service.ai;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.openai.core.JsonValue;
+import com.openai.models.responses.ResponseFormatTextJsonSchemaConfig;
+import com.openai.models.responses.ResponseTextConfig;
+import com.stephenusselman.incidentservice.dto.ai.IncidentEnrichmentResult;
+
+/**
+ * JSON schemas for the API's structured output mode, derived from the
+ * fields of {@link IncidentEnrichmentResult}.
+ *
+ * Every field is a required string; severity and category are restricted
+ * to the allowed values, so a strict response can always be parsed and
+ * never carries an unknown enum. Batch responses wrap one element per
+ * incident in an {@code incidents} array, since the schema root must be
+ * an object.
+ */
+final class EnrichmentResultSchema {
+
+    /** Allowed severities, least to most severe */
+    static final List<String> SEVERITIES = List.of("LOW", "MEDIUM", "HIGH", "CRITICAL");
+
+    /** Allowed categories; OTHER is the fallback */
+    static final List<String> CATEGORIES = List.of("SECURITY", "AVAILABILITY", "PERFORMANCE", "DATA", "OTHER");
+
+    /** Property holding the elements of a batch response */
+    static final String BATCH_PROPERTY = "incidents";
+
+    private EnrichmentResultSchema() {
+    }
+
+    /**
+     * Builds the text configuration for a single-incident response.
+     *
+     * @return the strict JSON schema text configuration
+     */
+    static ResponseTextConfig single() {
+        return textConfig("incident_enrichment", resultSchema(false));
+    }
+
+    /**
+     * Builds the text configuration for a multi-incident response.
+     *
+     * @return the strict JSON schema text configuration
+     */
+    static ResponseTextConfig batch() {
+        Map<String, Object> items = new LinkedHashMap<>();
+        items.put("type", "array");
+        items.put("items", resultSchema(true));
+        return textConfig("incident_enrichment_batch", objectSchema(Map.of(BATCH_PROPERTY, items)));
+    }
+
+    /**
+     * Builds the object schema for one result.
+     *
+     * @param withIncidentId whether the element carries its incident ID
+     * @return the schema as nested maps
+     */
+    private static Map<String, Object> resultSchema(boolean withIncidentId) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        if (withIncidentId) {
+            properties.put("incidentId", Map.of("type", "string"));
+        }
+        for (Field field : IncidentEnrichmentResult.class.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers())) {
+                continue;
+            }
+            Map<String, Object> property = new LinkedHashMap<>();
+            property.put("type", "string");
+            switch (field.getName()) {
+                case "severity" -> property.put("enum", SEVERITIES);
+                case "category" -> property.put("enum", CATEGORIES);
+                default -> {
+                    // free text
+                }
+            }
+            properties.put(field.getName(), property);
+        }
+        return objectSchema(properties);
+    }
+
+    /**
+     * Builds a closed object schema requiring every property.
+     */
+    private static Map<String, Object> objectSchema(Map<String, ?> properties) {
+        Map<String, Object> schema = new LinkedHashMap<>();
+        schema.put("type", "object");
+        schema.put("properties", properties);
+        schema.put("required", new ArrayList<>(properties.keySet()));
+        schema.put("additionalProperties", false);
+        return schema;
+    }
+
+    /**
+     * Wraps a schema in a strict JSON schema text configuration.
+     */
+    private static ResponseTextConfig textConfig(String name, Map<String, Object> schema) {
+        ResponseFormatTextJsonSchemaConfig.Schema.Builder body = ResponseFormatTextJsonSchemaConfig.Schema.builder();
+        schema.forEach((key, value) -> body.putAdditionalProperty(key, JsonValue.from(value)));
+        return ResponseTextConfig.builder()
+                .format(ResponseFormatTextJsonSchemaConfig.builder()
+                        .name(name)
+                        .schema(body.build())
+                        .strict(true)
+                        .build())
+                .build();
+    }
+}
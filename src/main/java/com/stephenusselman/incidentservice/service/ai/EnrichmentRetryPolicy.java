@@ -0,0 +1,134 @@
+package com.stephenusselman.incidentservice.service.ai;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Retry and backoff settings for AI enrichment attempts.
+ *
+ * Backoff grows exponentially from {@code initialDelayMs} up to
+ * {@code maxDelayMs}. A configurable fraction of each delay is randomized
+ * so that incidents failing together do not retry together.
+ *
+ * This is the single retry policy for enrichment: the OpenAI client is
+ * built with {@code sdkMaxRetries} (0 by default) and the per-attempt
+ * timeout, so an incident makes at most {@code maxAttempts} upstream calls
+ * plus any hedges, and no retry is started past {@code deadlineMs}.
+ */
+@Component
+public class EnrichmentRetryPolicy {
+
+    /** Total number of AI attempts per incident, including the first */
+    private final int maxAttempts;
+
+    /** Delay before the second attempt */
+    private final long initialDelayMs;
+
+    /** Upper bound for any single backoff delay */
+    private final long maxDelayMs;
+
+    /** Factor applied to the delay after each failed attempt */
+    private final double multiplier;
+
+    /** Fraction of each delay (0..1) that is randomized */
+    private final double jitter;
+
+    /** Maximum time a single AI attempt may take */
+    private final long attemptTimeoutMs;
+
+    /** Time budget for all attempts of one incident, from its first admission */
+    private final long deadlineMs;
+
+    /** Retries the OpenAI SDK may make inside a single attempt */
+    private final int sdkMaxRetries;
+
+    /**
+     * Constructs the retry policy.
+     *
+     * @param maxAttempts total number of attempts per incident
+     * @param initialDelayMs delay before the second attempt
+     * @param maxDelayMs upper bound for any single delay
+     * @param multiplier exponential growth factor
+     * @param jitter fraction of each delay that is randomized (0..1)
+     * @param attemptTimeoutMs timeout for a single attempt
+     * @param deadlineMs time budget for all attempts of one incident
+     * @param sdkMaxRetries retries the OpenAI SDK may make within an attempt
+     */
+    public EnrichmentRetryPolicy(
+            @Value("${ai.enrichment.retry.max-attempts:3}") int maxAttempts,
+            @Value("${ai.enrichment.retry.initial-delay-ms:1000}") long initialDelayMs,
+            @Value("${ai.enrichment.retry.max-delay-ms:10000}") long maxDelayMs,
+            @Value("${ai.enrichment.retry.multiplier:2.0}") double multiplier,
+            @Value("${ai.enrichment.retry.jitter:0.5}") double jitter,
+            @Value("${ai.enrichment.retry.attempt-timeout-ms:10000}") long attemptTimeoutMs,
+            @Value("${ai.enrichment.retry.deadline-ms:30000}") long deadlineMs,
+            @Value("${ai.enrichment.retry.sdk-max-retries:0}") int sdkMaxRetries) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("ai.enrichment.retry.max-attempts must be at least 1");
+        }
+        if (jitter < 0 || jitter > 1) {
+            throw new IllegalArgumentException("ai.enrichment.retry.jitter must be between 0 and 1");
+        }
+        if (attemptTimeoutMs < 1 || deadlineMs < 1) {
+            throw new IllegalArgumentException("ai.enrichment.retry attempt-timeout-ms and deadline-ms must be at least 1");
+        }
+        if (sdkMaxRetries < 0) {
+            throw new IllegalArgumentException("ai.enrichment.retry.sdk-max-retries must not be negative");
+        }
+        this.maxAttempts = maxAttempts;
+        this.initialDelayMs = initialDelayMs;
+        this.maxDelayMs = maxDelayMs;
+        this.multiplier = multiplier;
+        this.jitter = jitter;
+        this.attemptTimeoutMs = attemptTimeoutMs;
+        this.deadlineMs = deadlineMs;
+        this.sdkMaxRetries = sdkMaxRetries;
+    }
+
+    /**
+     * Computes the jittered delay to wait after a failed attempt.
+     *
+     * @param failedAttempt the 1-based number of the attempt that just failed
+     * @return the delay in milliseconds before the next attempt
+     */
+    public long backoffDelayMs(int failedAttempt) {
+        double exponential = initialDelayMs * Math.pow(multiplier, failedAttempt - 1);
+        long capped = (long) Math.min(exponential, maxDelayMs);
+        long randomized = (long) (capped * jitter);
+        long fixed = capped - randomized;
+
+        return randomized > 0
+                ? fixed + ThreadLocalRandom.current().nextLong(randomized + 1)
+                : fixed;
+    }
+
+    /**
+     * @return total number of attempts per incident
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * @return maximum time a single attempt may take, in milliseconds
+     */
+    public long getAttemptTimeoutMs() {
+        return attemptTimeoutMs;
+    }
+
+    /**
+     * @return time budget for all attempts of one incident, in milliseconds
+     */
+    public long getDeadlineMs() {
+        return deadlineMs;
+    }
+
+    /**
+     * @return retries the OpenAI SDK may make within a single attempt
+     */
+    public int getSdkMaxRetries() {
+        return sdkMaxRetries;
+    }
+}
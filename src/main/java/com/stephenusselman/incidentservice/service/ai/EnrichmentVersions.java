@@ -0,0 +1,83 @@
+package com.stephenusselman.incidentservice.service.ai;
+
+import java.util.Objects;
+
+import org.springframework.stereotype.Component;
+
+import com.stephenusselman.incidentservice.domain.Incident;
+
+/**
+ * Decides which prompt version and model an incident should be enriched
+ * with, and whether an enriched incident is outdated.
+ *
+ * A version requested on creation is honoured for the first enrichment
+ * only. Once an incident is ENRICHED, its target is the version the
+ * {@link PromptTemplateRegistry} selects for it without a request, and it
+ * is outdated if the recorded prompt version or model differ from the
+ * current target, including incidents enriched before either was recorded.
+ */
+@Component
+public class EnrichmentVersions {
+
+    private final PromptTemplateRegistry promptTemplates;
+    private final EnrichmentProvider provider;
+
+    /**
+     * Constructs the version policy.
+     *
+     * @param promptTemplates the prompt templates and version selection
+     * @param provider the active enrichment provider
+     */
+    public EnrichmentVersions(PromptTemplateRegistry promptTemplates, EnrichmentProvider provider) {
+        this.promptTemplates = promptTemplates;
+        this.provider = provider;
+    }
+
+    /**
+     * Selects the prompt version for the incident's next enrichment.
+     *
+     * @param incident the incident about to be enriched
+     * @return the prompt version to render
+     */
+    public String select(Incident incident) {
+        String requested = isEnriched(incident) ? null : incident.getPromptVersion();
+        return promptTemplates.select(incident.getIncidentId(), requested);
+    }
+
+    /**
+     * Whether incidents on a prompt version may share a batch call.
+     *
+     * @param promptVersion the prompt version
+     * @return true if the version can be batched
+     */
+    public boolean isBatchable(String promptVersion) {
+        return promptTemplates.isBatchable(promptVersion);
+    }
+
+    /**
+     * @return the model that produces new enrichment results
+     */
+    public String getModel() {
+        return provider.getModel();
+    }
+
+    /**
+     * Whether an enriched incident was produced by a prompt version or model
+     * other than the current ones.
+     *
+     * @param incident the incident
+     * @return true if the incident is ENRICHED and outdated
+     */
+    public boolean isOutdated(Incident incident) {
+        if (!isEnriched(incident)) {
+            return false;
+        }
+        return !Objects.equals(incident.getAiModel(), provider.getModel())
+                || !Objects.equals(incident.getPromptVersion(),
+                        promptTemplates.select(incident.getIncidentId(), null));
+    }
+
+    private static boolean isEnriched(Incident incident) {
+        return "ENRICHED".equals(incident.getAiStatus());
+    }
+}
@@ -0,0 +1,538 @@
+package com.stephenusselman.incidentservice.service.ai;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import com.stephenusselman.incidentservice.domain.Incident;
+import com.stephenusselman.incidentservice.domain.JobCheckpoint;
+import com.stephenusselman.incidentservice.repository.IncidentRepository;
+import com.stephenusselman.incidentservice.repository.JobCheckpointRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.enhanced.dynamodb.model.Page;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * Re-drives enrichment of incidents that ended FAILED after all retries.
+ *
+ * A run pages through the FAILED partition of the sparse
+ * {@code ai-backlog-index}, so it reads only failed incidents and never
+ * scans the table. Each incident is enriched through the
+ * {@link IncidentEnrichmentCoordinator} with at most {@code concurrency}
+ * calls in flight and at most {@code rate-per-minute} calls started per
+ * minute. Incidents that succeed leave the partition; those that fail again
+ * stay FAILED and are passed over until the next run.
+ *
+ * Progress is checkpointed in the {@code EnrichmentJobs} table after every
+ * page, together with a lease, so only one node runs the job and a run that
+ * is stopped, paused or interrupted by a restart resumes from the last
+ * completed page. A page is not checkpointed if the circuit breaker refused
+ * a call or the run was stopped part way, so it is read again on resume.
+ *
+ * Runs are started on a schedule and through {@code /actuator/aibackfill},
+ * which also reports throughput and the number of incidents still FAILED.
+ */
+@Slf4j
+@Component
+public class FailedEnrichmentBackfill {
+
+    /** Name of the job's checkpoint */
+    public static final String JOB_NAME = "failed-enrichment-backfill";
+
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_PAUSED = "PAUSED";
+    public static final String STATUS_STOPPED = "STOPPED";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+
+    private static final String FAILED = "FAILED";
+
+    private final IncidentRepository repository;
+    private final JobCheckpointRepository checkpoints;
+    private final IncidentEnrichmentCoordinator coordinator;
+    private final AiCircuitBreaker circuitBreaker;
+    private final TaskScheduler scheduler;
+
+    /** Whether the job can run at all */
+    private final boolean enabled;
+
+    /** Failed incidents read per page */
+    private final int pageSize;
+
+    /** Interval between scheduled runs, or zero when only started by hand */
+    private final Duration scheduleInterval;
+
+    /** How long a node holds the job without saving progress */
+    private final Duration lease;
+
+    /** Limits enrichments started per minute; used only by the runner thread */
+    private final TokenBucket rateBucket;
+
+    /** Limits enrichments in flight */
+    private final Semaphore permits;
+
+    /** Identifies this node as lease owner */
+    private final String ownerId = "backfill-" + UUID.randomUUID();
+
+    /** Runs the job off the caller's thread */
+    private final ExecutorService runner =
+            Executors.newSingleThreadExecutor(new CustomizableThreadFactory("enrichment-backfill-"));
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    private volatile boolean stopRequested;
+
+    /** Incidents still FAILED, as of the start of the run less those enriched since */
+    private volatile long remaining = -1;
+
+    /** Progress of the latest run on this node, for throughput */
+    private volatile Instant sessionStartedAt;
+    private volatile Instant sessionFinishedAt;
+    private final AtomicInteger sessionProcessed = new AtomicInteger();
+
+    private final Counter succeededCounter;
+    private final Counter failedCounter;
+
+    /**
+     * Constructs the backfill job.
+     *
+     * @param repository the incident repository
+     * @param checkpoints the job checkpoint repository
+     * @param coordinator the coordinator that enriches each incident
+     * @param circuitBreaker the AI circuit breaker; the run pauses while it is open
+     * @param scheduler timer that triggers scheduled runs
+     * @param meterRegistry registry used to publish progress metrics
+     * @param enabled whether the job can run
+     * @param ratePerMinute maximum enrichments started per minute
+     * @param concurrency maximum enrichments in flight
+     * @param pageSize failed incidents read per page
+     * @param scheduleMinutes interval between scheduled runs; 0 disables the schedule
+     * @param leaseSeconds how long a node holds the job without saving progress
+     */
+    public FailedEnrichmentBackfill(
+            IncidentRepository repository,
+            JobCheckpointRepository checkpoints,
+            IncidentEnrichmentCoordinator coordinator,
+            AiCircuitBreaker circuitBreaker,
+            @Qualifier("aiEnrichmentScheduler") TaskScheduler scheduler,
+            MeterRegistry meterRegistry,
+            @Value("${ai.backfill.enabled:true}") boolean enabled,
+            @Value("${ai.backfill.rate-per-minute:120}") long ratePerMinute,
+            @Value("${ai.backfill.concurrency:4}") int concurrency,
+            @Value("${ai.backfill.page-size:50}") int pageSize,
+            @Value("${ai.backfill.schedule-minutes:60}") long scheduleMinutes,
+            @Value("${ai.backfill.lease-seconds:300}") long leaseSeconds) {
+        if (ratePerMinute < 1) {
+            throw new IllegalArgumentException("ai.backfill.rate-per-minute must be at least 1");
+        }
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("ai.backfill.concurrency must be at least 1");
+        }
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("ai.backfill.page-size must be at least 1");
+        }
+        if (scheduleMinutes < 0) {
+            throw new IllegalArgumentException("ai.backfill.schedule-minutes must not be negative");
+        }
+        if (leaseSeconds < 1) {
+            throw new IllegalArgumentException("ai.backfill.lease-seconds must be at least 1");
+        }
+        this.repository = repository;
+        this.checkpoints = checkpoints;
+        this.coordinator = coordinator;
+        this.circuitBreaker = circuitBreaker;
+        this.scheduler = scheduler;
+        this.enabled = enabled;
+        this.pageSize = pageSize;
+        this.scheduleInterval = Duration.ofMinutes(scheduleMinutes);
+        this.lease = Duration.ofSeconds(leaseSeconds);
+        this.rateBucket = new TokenBucket(ratePerMinute);
+        this.permits = new Semaphore(concurrency);
+
+        this.succeededCounter = Counter.builder("ai.backfill.processed")
+                .tag("outcome", "succeeded")
+                .description("Failed incidents re-driven by the backfill job, by outcome")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("ai.backfill.processed")
+                .tag("outcome", "failed")
+                .description("Failed incidents re-driven by the backfill job, by outcome")
+                .register(meterRegistry);
+        Gauge.builder("ai.backfill.remaining", this, backfill -> Math.max(0, backfill.remaining))
+                .description("Incidents still FAILED as seen by the latest backfill run")
+                .register(meterRegistry);
+        Gauge.builder("ai.backfill.running", running, flag -> flag.get() ? 1 : 0)
+                .description("Whether the backfill job is running on this node")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Schedules periodic runs once the application is ready. The first run
+     * starts one interval after startup.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void schedule() {
+        if (!enabled || scheduleInterval.isZero() || !started.compareAndSet(false, true)) {
+            return;
+        }
+        scheduler.scheduleWithFixedDelay(() -> start(false),
+                Instant.now().plus(scheduleInterval), scheduleInterval);
+        log.info("Failed enrichment backfill scheduled every {} minutes", scheduleInterval.toMinutes());
+    }
+
+    /**
+     * Starts a run in the background, resuming from the checkpoint unless
+     * asked to start over.
+     *
+     * @param fromBeginning whether to discard the checkpoint and start from the first failed incident
+     * @return true if a run was started, false if the job is disabled or already running on this node
+     */
+    public boolean start(boolean fromBeginning) {
+        if (!enabled || !running.compareAndSet(false, true)) {
+            return false;
+        }
+        stopRequested = false;
+        try {
+            runner.execute(() -> {
+                try {
+                    run(fromBeginning);
+                } catch (RuntimeException e) {
+                    log.warn("Failed enrichment backfill errored; it resumes from the last checkpoint: {}",
+                            e.getMessage());
+                } finally {
+                    running.set(false);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            running.set(false);
+            return false;
+        }
+    }
+
+    /**
+     * Asks the running job to stop after the enrichments in flight. The
+     * current page is not checkpointed, so it is read again on resume.
+     *
+     * @return true if a run was in progress on this node
+     */
+    public boolean stop() {
+        stopRequested = true;
+        return running.get();
+    }
+
+    /**
+     * Stops the runner on shutdown. A run in progress is abandoned and
+     * resumed from its checkpoint once its lease expires.
+     */
+    @PreDestroy
+    public void shutdown() {
+        stopRequested = true;
+        runner.shutdownNow();
+    }
+
+    /**
+     * Runs the job on the calling thread until it completes, pauses, is
+     * stopped or loses its lease.
+     *
+     * @param fromBeginning whether to discard the checkpoint
+     * @return the final status, or null if another node holds the job or the lease was lost
+     */
+    String run(boolean fromBeginning) {
+        JobCheckpoint checkpoint = checkpoints.claim(JOB_NAME, ownerId, lease);
+        if (checkpoint == null) {
+            log.info("Failed enrichment backfill is running on another node");
+            return null;
+        }
+        Instant now = Instant.now();
+        if (fromBeginning || checkpoint.getStatus() == null || STATUS_COMPLETED.equals(checkpoint.getStatus())) {
+            checkpoint.setCursor(null);
+            checkpoint.setRunStartedAt(now.toString());
+            checkpoint.setProcessed(0L);
+            checkpoint.setSucceeded(0L);
+            checkpoint.setFailed(0L);
+        }
+        checkpoint.setStatus(STATUS_RUNNING);
+        sessionStartedAt = now;
+        sessionFinishedAt = null;
+        sessionProcessed.set(0);
+        remaining = repository.countByAiStatus(FAILED);
+        log.info("Failed enrichment backfill {}: {} incidents FAILED",
+                checkpoint.getCursor() == null ? "started" : "resumed", remaining);
+
+        String status = STATUS_COMPLETED;
+        while (true) {
+            if (stopRequested) {
+                status = STATUS_STOPPED;
+                break;
+            }
+            if (!circuitBreaker.isCallPermitted()) {
+                status = STATUS_PAUSED;
+                break;
+            }
+            Page<Incident> page = repository.queryByAiStatus(FAILED, pageSize, toKey(checkpoint.getCursor()));
+            PageOutcome outcome = redrive(page.items());
+            checkpoint.setProcessed(count(checkpoint.getProcessed()) + outcome.succeeded() + outcome.failed());
+            checkpoint.setSucceeded(count(checkpoint.getSucceeded()) + outcome.succeeded());
+            checkpoint.setFailed(count(checkpoint.getFailed()) + outcome.failed());
+            if (outcome.interrupted() != null) {
+                status = outcome.interrupted();
+                break;
+            }
+            checkpoint.setCursor(fromKey(page.lastEvaluatedKey()));
+            if (checkpoint.getCursor() == null) {
+                break;
+            }
+            if (!checkpoints.save(checkpoint, lease)) {
+                return lostLease();
+            }
+        }
+
+        checkpoint.setStatus(status);
+        if (STATUS_COMPLETED.equals(status)) {
+            checkpoint.setCursor(null);
+        }
+        sessionFinishedAt = Instant.now();
+        if (!checkpoints.release(checkpoint)) {
+            return lostLease();
+        }
+        log.info("Failed enrichment backfill {}: {} processed, {} succeeded, {} failed",
+                status.toLowerCase(), checkpoint.getProcessed(), checkpoint.getSucceeded(), checkpoint.getFailed());
+        return status;
+    }
+
+    /**
+     * Returns the job's progress, read from its checkpoint.
+     *
+     * @return the progress snapshot
+     */
+    public Status status() {
+        JobCheckpoint checkpoint = checkpoints.findByName(JOB_NAME);
+        boolean runningHere = running.get();
+        if (!runningHere) {
+            remaining = repository.countByAiStatus(FAILED);
+        }
+        return new Status(
+                enabled,
+                runningHere,
+                checkpoint == null ? null : checkpoint.getStatus(),
+                checkpoint == null ? null : checkpoint.getLeaseOwner(),
+                checkpoint == null ? null : parseInstant(checkpoint.getRunStartedAt()),
+                checkpoint == null ? null : parseInstant(checkpoint.getUpdatedAt()),
+                checkpoint == null ? 0 : count(checkpoint.getProcessed()),
+                checkpoint == null ? 0 : count(checkpoint.getSucceeded()),
+                checkpoint == null ? 0 : count(checkpoint.getFailed()),
+                Math.max(0, remaining),
+                throughputPerMinute());
+    }
+
+    /**
+     * Enriches one page of failed incidents within the rate and concurrency
+     * limits and waits for all of them to settle.
+     *
+     * @param incidents the failed incidents
+     * @return the page's outcome
+     */
+    private PageOutcome redrive(List<Incident> incidents) {
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicBoolean parked = new AtomicBoolean(false);
+        List<CompletableFuture<Void>> inFlight = new ArrayList<>();
+        String interrupted = null;
+
+        for (Incident incident : incidents) {
+            if (stopRequested) {
+                interrupted = STATUS_STOPPED;
+                break;
+            }
+            if (parked.get()) {
+                break;
+            }
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                interrupted = STATUS_STOPPED;
+                break;
+            }
+            try {
+                awaitRate();
+            } catch (InterruptedException e) {
+                permits.release();
+                Thread.currentThread().interrupt();
+                interrupted = STATUS_STOPPED;
+                break;
+            }
+
+            CompletableFuture<Void> enrichment;
+            try {
+                enrichment = coordinator.enrichIncidentAsync(incident);
+            } catch (RuntimeException e) {
+                enrichment = CompletableFuture.failedFuture(e);
+            }
+            inFlight.add(enrichment.handle((ignored, error) -> {
+                permits.release();
+                if (isParked(error)) {
+                    parked.set(true);
+                } else if (error == null && "ENRICHED".equals(incident.getAiStatus())) {
+                    succeeded.incrementAndGet();
+                    succeededCounter.increment();
+                    remaining = Math.max(0, remaining - 1);
+                } else {
+                    failed.incrementAndGet();
+                    failedCounter.increment();
+                    if (error != null) {
+                        log.debug("Backfill of incident {} errored: {}", incident.getIncidentId(), error.getMessage());
+                    }
+                }
+                sessionProcessed.incrementAndGet();
+                return null;
+            }));
+        }
+
+        CompletableFuture.allOf(inFlight.toArray(CompletableFuture[]::new)).join();
+        if (interrupted == null && parked.get()) {
+            interrupted = STATUS_PAUSED;
+        }
+        return new PageOutcome(succeeded.get(), failed.get(), interrupted);
+    }
+
+    /**
+     * Blocks until the rate limit allows another enrichment to start.
+     *
+     * @throws InterruptedException if the runner is shut down while waiting
+     */
+    private void awaitRate() throws InterruptedException {
+        long waitNanos;
+        while ((waitNanos = rateBucket.tryConsume(1)) > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Enrichments completed per minute in the latest run on this node.
+     */
+    private double throughputPerMinute() {
+        Instant from = sessionStartedAt;
+        if (from == null) {
+            return 0;
+        }
+        Instant to = sessionFinishedAt == null ? Instant.now() : sessionFinishedAt;
+        long millis = Math.max(1, Duration.between(from, to).toMillis());
+        return sessionProcessed.get() * 60_000.0 / millis;
+    }
+
+    private String lostLease() {
+        sessionFinishedAt = Instant.now();
+        log.warn("Failed enrichment backfill lost its lease; another node has taken over");
+        return null;
+    }
+
+    /**
+     * Whether an enrichment was refused by the circuit breaker without
+     * touching the incident.
+     */
+    private static boolean isParked(Throwable error) {
+        for (Throwable current = error; current != null; current = current.getCause()) {
+            if (current instanceof AiCallNotPermittedException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long count(Long value) {
+        return value == null ? 0 : value;
+    }
+
+    private static Instant parseInstant(String value) {
+        return value == null ? null : Instant.parse(value);
+    }
+
+    /**
+     * Converts a stored cursor back to an exclusive start key. The index
+     * keys are all strings.
+     */
+    private static Map<String, AttributeValue> toKey(Map<String, String> cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        Map<String, AttributeValue> key = new HashMap<>();
+        cursor.forEach((name, value) -> key.put(name, AttributeValue.fromS(value)));
+        return key;
+    }
+
+    /**
+     * Converts a last evaluated key to a storable cursor.
+     */
+    private static Map<String, String> fromKey(Map<String, AttributeValue> key) {
+        if (key == null || key.isEmpty()) {
+            return null;
+        }
+        Map<String, String> cursor = new HashMap<>();
+        key.forEach((name, value) -> cursor.put(name, value.s()));
+        return cursor;
+    }
+
+    /**
+     * Outcome of one page.
+     *
+     * @param succeeded incidents enriched
+     * @param failed incidents that failed again
+     * @param interrupted the status to stop with if the page was not finished, or null
+     */
+    private record PageOutcome(int succeeded, int failed, String interrupted) {
+    }
+
+    /**
+     * Progress of the backfill job.
+     *
+     * @param enabled whether the job can run
+     * @param running whether a run is in progress on this node
+     * @param status the latest run's status, or null if the job never ran
+     * @param leaseOwner the node holding the job, or null
+     * @param runStartedAt when the current or latest run started from the beginning
+     * @param updatedAt when progress was last saved
+     * @param processed incidents re-driven in the run
+     * @param succeeded incidents enriched in the run
+     * @param failed incidents that failed again in the run
+     * @param remaining incidents still FAILED
+     * @param throughputPerMinute enrichments completed per minute in the latest run on this node
+     */
+    public record Status(
+            boolean enabled,
+            boolean running,
+            String status,
+            String leaseOwner,
+            Instant runStartedAt,
+            Instant updatedAt,
+            long processed,
+            long succeeded,
+            long failed,
+            long remaining,
+            double throughputPerMinute) {
+    }
+}
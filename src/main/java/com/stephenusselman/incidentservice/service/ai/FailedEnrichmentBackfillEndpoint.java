@@ -0,0 +1,56 @@
+package com.stephenusselman.incidentservice.service.ai;
+
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Actuator endpoint for the failed enrichment backfill at
+ * {@code /actuator/aibackfill}: GET reports progress, POST starts a run
+ * and DELETE stops it.
+ */
+@Component
+@Endpoint(id = "aibackfill")
+@RequiredArgsConstructor
+public class FailedEnrichmentBackfillEndpoint {
+
+    private final FailedEnrichmentBackfill backfill;
+
+    /**
+     * Returns the job's progress.
+     *
+     * @return the job progress
+     */
+    @ReadOperation
+    public FailedEnrichmentBackfill.Status status() {
+        return backfill.status();
+    }
+
+    /**
+     * Starts a run, resuming from the checkpoint unless asked to start over.
+     *
+     * @param fromBeginning whether to discard the checkpoint; defaults to false
+     * @return whether a run was started
+     */
+    @WriteOperation
+    public Map<String, Boolean> start(@Nullable Boolean fromBeginning) {
+        return Map.of("started", backfill.start(Boolean.TRUE.equals(fromBeginning)));
+    }
+
+    /**
+     * Stops the running job after the enrichments in flight.
+     *
+     * @return whether a run was in progress on this node
+     */
+    @DeleteOperation
+    public Map<String, Boolean> stop() {
+        return Map.of("stopping", backfill.stop());
+    }
+}
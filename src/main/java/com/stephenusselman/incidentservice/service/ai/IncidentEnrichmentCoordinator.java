@@ -1,121 +1,564 @@
 package com.stephenusselman.incidentservice.service.ai;
 
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.stereotype.Service;
-import org.springframework.scheduling.annotation.Async;
 
 import jakarta.validation.Validator;
 import jakarta.validation.ConstraintViolation;
+import java.time.Instant;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 import com.stephenusselman.incidentservice.domain.Incident;
 import com.stephenusselman.incidentservice.repository.IncidentRepository;
 import com.stephenusselman.incidentservice.dto.ai.IncidentEnrichmentRequest;
 import com.stephenusselman.incidentservice.dto.ai.IncidentEnrichmentResult;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
 
 /**
  * Coordinates AI-based enrichment of {@link Incident} entities.
  *
  * Enrichment is executed asynchronously to avoid blocking the main request
  * lifecycle and to isolate AI latency or failures from core incident creation.
+ * Attempts run on the shared enrichment executor; retries are scheduled on a
+ * timer with jittered exponential backoff so no thread is held while waiting.
+ * When batching is enabled, attempts go through the {@link EnrichmentBatcher}
+ * so bursts of incidents share AI calls. Descriptions seen before are served
+ * from the {@link EnrichmentCache} without an AI call, and near-identical
+ * descriptions reuse a recent classification from the {@link NearDuplicateIndex}
+ * while the AI still writes their own summary and recommended action.
+ * Severity and category already assigned by the local classifier are kept;
+ * the AI result then only supplies the summary and recommended action.
+ *
+ * Every AI call is admitted by the {@link TokenBudgetScheduler}, which orders
+ * waiting calls by priority under the token budget, and then goes through the
+ * {@link AiCircuitBreaker} and the {@link AdaptiveConcurrencyLimiter}. When
+ * any of them refuses a call, the incident
+ * is not retried or marked FAILED; the returned future fails with
+ * {@link AiCallNotPermittedException} so the caller can park it.
+ *
+ * All attempts of one incident share the policy's deadline, counted from the
+ * first admission: each attempt's timeout is capped by the time remaining,
+ * and no retry is scheduled whose backoff would end past the deadline. The
+ * number of upstream calls each incident caused, including batch calls,
+ * fallbacks and hedges, is published as {@code ai.enrichment.upstream.calls}.
+ *
+ * The timer only fires timeouts and retries; the stages that follow them,
+ * including the blocking write of the outcome, are handed to the shared
+ * executor so a burst of timeouts cannot tie up the timer.
+ *
+ * When responses are streamed, severity and category are persisted as soon
+ * as the model has produced them, and the summary fields follow in a second
+ * update once the full result is validated. Re-enrichments write nothing
+ * early, so a failed one leaves the previous result whole.
+ *
+ * The prompt version is chosen by {@link EnrichmentVersions} before the
+ * first attempt, keys the cache and near-duplicate lookups together with the
+ * model, and is recorded on the incident with the result and the model. Only
+ * incidents on the default version are batched. Enriching an incident that
+ * is already ENRICHED re-enriches it with the current version; if that
+ * fails, the previous result is kept rather than marking the incident
+ * FAILED.
  */
+@Slf4j
 @Service
-@RequiredArgsConstructor
 public class IncidentEnrichmentCoordinator {
 
-    private final AiEnrichmentService aiEnrichmentService;
     private final IncidentRepository repository;
     private final Validator validator;
 
-    //Retry Configuration Values
-    private static final int MAX_RETRIES = 3;
-    private static final long INITIAL_DELAY_MS = 1000; // 1 sec
-    private static final long MAX_DELAY_MS = 10000;    // 10 sec max delay
-    private static final long TIMEOUT_MS = 10000;
+    /** Executor that runs the stages following a timer event, and persistence */
+    private final AsyncTaskExecutor aiEnrichmentExecutor;
+
+    /** Timer used for attempt timeouts and retry backoff */
+    private final TaskScheduler aiEnrichmentScheduler;
+
+    /** Retry, backoff and timeout settings */
+    private final EnrichmentRetryPolicy retryPolicy;
+
+    /** Micro-batching stage used for AI calls when enabled */
+    private final EnrichmentBatcher batcher;
+
+    /** Cache of results for previously seen descriptions */
+    private final EnrichmentCache cache;
+
+    /** Index of recently enriched descriptions for near-duplicate reuse */
+    private final NearDuplicateIndex nearDuplicates;
+
+    /** Circuit breaker and bulkhead guarding the AI calls */
+    private final AiCircuitBreaker circuitBreaker;
+
+    /** Adaptive limit on AI calls in flight */
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    /** Priority-ordered admission under the AI token budget */
+    private final TokenBudgetScheduler tokenBudgetScheduler;
+
+    /** Runs unbatched AI calls, hedging slow ones when enabled */
+    private final EnrichmentHedger hedger;
+
+    /** Selects the prompt version for each incident and names the model */
+    private final EnrichmentVersions versions;
+
+    private final DistributionSummary upstreamCalls;
+    private final Counter deadlineExceeded;
+    private final Counter streamedClassifications;
+    private final Counter parseRetries;
+    private final Counter timeoutRetries;
+    private final Counter errorRetries;
+    private final Counter failedReEnrichments;
 
     /**
-     * Asynchronously enrich an incident with exponential backoff retry.
+     * Constructs the enrichment coordinator.
+     *
+     * @param repository the incident repository
+     * @param validator the bean validator
+     * @param aiEnrichmentExecutor the shared executor that persists outcomes
+     * @param aiEnrichmentScheduler the timer used for timeouts and backoff
+     * @param retryPolicy the retry and backoff settings
+     * @param batcher the micro-batching stage for AI calls
+     * @param cache the enrichment result cache
+     * @param nearDuplicates the near-duplicate description index
+     * @param circuitBreaker the circuit breaker guarding AI calls
+     * @param concurrencyLimiter the adaptive limit on AI calls in flight
+     * @param tokenBudgetScheduler the token budget admission stage
+     * @param hedger the hedging stage for unbatched AI calls
+     * @param versions the prompt version and model policy
+     * @param meterRegistry registry used to publish upstream call metrics
      */
-    @Async
-    public CompletableFuture<Void> enrichIncidentAsync(Incident incident) {
-        enrichIncident(incident);
-        return CompletableFuture.completedFuture(null);
+    public IncidentEnrichmentCoordinator(
+            IncidentRepository repository,
+            Validator validator,
+            @Qualifier("aiEnrichmentExecutor") AsyncTaskExecutor aiEnrichmentExecutor,
+            @Qualifier("aiEnrichmentScheduler") TaskScheduler aiEnrichmentScheduler,
+            EnrichmentRetryPolicy retryPolicy,
+            EnrichmentBatcher batcher,
+            EnrichmentCache cache,
+            NearDuplicateIndex nearDuplicates,
+            AiCircuitBreaker circuitBreaker,
+            AdaptiveConcurrencyLimiter concurrencyLimiter,
+            TokenBudgetScheduler tokenBudgetScheduler,
+            EnrichmentHedger hedger,
+            EnrichmentVersions versions,
+            MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.validator = validator;
+        this.aiEnrichmentExecutor = aiEnrichmentExecutor;
+        this.aiEnrichmentScheduler = aiEnrichmentScheduler;
+        this.retryPolicy = retryPolicy;
+        this.batcher = batcher;
+        this.cache = cache;
+        this.nearDuplicates = nearDuplicates;
+        this.circuitBreaker = circuitBreaker;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.tokenBudgetScheduler = tokenBudgetScheduler;
+        this.hedger = hedger;
+        this.versions = versions;
+
+        this.upstreamCalls = DistributionSummary.builder("ai.enrichment.upstream.calls")
+                .description("Upstream AI calls made per enriched incident")
+                .register(meterRegistry);
+        this.deadlineExceeded = Counter.builder("ai.enrichment.retry.deadline-exceeded")
+                .description("Incidents whose retries were cut short by the enrichment deadline")
+                .register(meterRegistry);
+        this.streamedClassifications = Counter.builder("ai.enrichment.streaming.early-classifications")
+                .description("Streamed classifications persisted ahead of the full result")
+                .register(meterRegistry);
+        this.parseRetries = retryCounter(meterRegistry, "parse");
+        this.timeoutRetries = retryCounter(meterRegistry, "timeout");
+        this.errorRetries = retryCounter(meterRegistry, "error");
+        this.failedReEnrichments = Counter.builder("ai.reenrichment.failed")
+                .description("Re-enrichments that failed and kept the previous result")
+                .register(meterRegistry);
     }
 
     /**
-     * Perform AI enrichment on an incident.
+     * Asynchronously enrich an incident with jittered exponential backoff retry.
+     * Returns immediately; the future completes once the outcome is persisted,
+     * or fails with {@link AiCallNotPermittedException} without touching the
+     * incident if the circuit breaker refused the call.
      *
      * @param incident the incident to enrich
+     * @return a future completed after the incident has been updated
      */
-    public void enrichIncident(Incident incident) {
+    public CompletableFuture<Void> enrichIncidentAsync(Incident incident) {
         IncidentEnrichmentRequest request = new IncidentEnrichmentRequest(
             incident.getIncidentId(),
             incident.getDescription(),
             incident.getReportedBy(),
-            incident.getCreatedAt()
+            incident.getCreatedAt(),
+            versions.select(incident)
         );
 
-        validate(request);
-
-        int attempt = 0;
-        long delay = INITIAL_DELAY_MS;
-        boolean success = false;
+        try {
+            validate(request);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
 
-        while (attempt < MAX_RETRIES && !success) {
-            attempt++;
+        EnrichmentRun run = new EnrichmentRun(incident);
+        CompletableFuture<Void> settled = new CompletableFuture<>();
+        resolve(request, run).whenComplete((result, error) -> deliver(() -> {
             try {
-                IncidentEnrichmentResult result = callAiWithTimeout(request, TIMEOUT_MS);
-
-                validate(result);
+                synchronized (run) {
+                    run.settled = true;
+                    settle(incident, request.getPromptVersion(), result, error);
+                }
+                settled.complete(null);
+            } catch (RuntimeException e) {
+                settled.completeExceptionally(e);
+            }
+        }));
+        return settled;
+    }
 
+    /**
+     * Applies the enrichment outcome to the incident and persists it. A
+     * failed re-enrichment leaves the incident as it was. Must be called
+     * while holding the run's monitor.
+     *
+     * @param incident the incident being enriched
+     * @param promptVersion the prompt version the result was produced with
+     * @param result the enrichment result, or null on failure
+     * @param error the failure, or null on success
+     * @throws AiCallNotPermittedException if the call was refused and should be parked
+     */
+    private void settle(Incident incident, String promptVersion, IncidentEnrichmentResult result,
+            Throwable error) {
+        if (error != null && unwrap(error) instanceof AiCallNotPermittedException parked) {
+            throw parked;
+        }
+        if (error != null && "ENRICHED".equals(incident.getAiStatus())) {
+            failedReEnrichments.increment();
+            log.warn("Re-enrichment of incident {} failed, keeping the previous result: {}",
+                    incident.getIncidentId(), unwrap(error).getMessage());
+            return;
+        }
+        if (error == null) {
+            if (!Incident.SOURCE_LOCAL.equals(incident.getClassificationSource())) {
                 incident.setSeverity(result.getSeverity());
                 incident.setCategory(result.getCategory());
-                incident.setAiSummary(result.getSummary());
-                incident.setRecommendedAction(result.getRecommendedAction());
-                incident.setAiStatus("ENRICHED");
-                incident.setAiErrorMessage(null);
-
-                success = true;
-
-            } catch (Exception e) {
-                if (attempt >= MAX_RETRIES) {
-                    incident.setAiStatus("FAILED");
-                    incident.setAiErrorMessage(e.getMessage());
-                } else {
-                    try {
-                        Thread.sleep(delay);
-                    } catch (InterruptedException ignored) {}
-                    // Exponential backoff
-                    delay = Math.min(delay * 2, MAX_DELAY_MS);
-                }
+                incident.setClassificationSource(Incident.SOURCE_AI);
             }
+            incident.setAiSummary(result.getSummary());
+            incident.setRecommendedAction(result.getRecommendedAction());
+            incident.setPromptVersion(promptVersion);
+            incident.setAiModel(versions.getModel());
+            incident.setAiStatus("ENRICHED");
+            incident.setAiErrorMessage(null);
+        } else {
+            incident.setAiStatus("FAILED");
+            incident.setAiErrorMessage(unwrap(error).getMessage());
         }
         repository.update(incident);
     }
 
     /**
-     * Invokes the AI enrichment service with a hard timeout.
+     * Persists a streamed classification ahead of the full result, so
+     * severity-based routing and queries see the incident sooner. Ignored
+     * if it is invalid or the enrichment has already settled.
+     *
+     * @param run the incident's enrichment run
+     * @param classification the streamed severity and category
+     */
+    private void persistClassification(EnrichmentRun run, IncidentEnrichmentResult classification) {
+        if (!validator.validateProperty(classification, "severity").isEmpty()
+                || !validator.validateProperty(classification, "category").isEmpty()) {
+            return;
+        }
+        synchronized (run) {
+            if (run.settled) {
+                return;
+            }
+            run.incident.setSeverity(classification.getSeverity());
+            run.incident.setCategory(classification.getCategory());
+            run.incident.setClassificationSource(Incident.SOURCE_AI);
+            repository.update(run.incident);
+        }
+        streamedClassifications.increment();
+    }
+
+    /**
+     * Perform AI enrichment on an incident and wait for the outcome.
+     *
+     * @param incident the incident to enrich
+     */
+    public void enrichIncident(Incident incident) {
+        try {
+            enrichIncidentAsync(incident).join();
+        } catch (CompletionException e) {
+            throw unwrap(e) instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    /**
+     * Serves the result from the cache when possible, otherwise calls the
+     * AI with retries and records the validated result in the cache and the
+     * near-duplicate index. Both are keyed by the target prompt version and
+     * model. A near-duplicate's classification replaces the one the AI
+     * returns, so near-identical incidents are classified alike; only if the
+     * index reuses whole results is the AI call skipped. A re-enrichment
+     * never borrows a near duplicate's result, since it exists to replace
+     * the incident's own result with a fresh one.
+     *
+     * @param request the enrichment request payload
+     * @param run the incident's enrichment run
+     * @return a future completed with the validated result or the last error
+     */
+    private CompletableFuture<IncidentEnrichmentResult> resolve(IncidentEnrichmentRequest request, EnrichmentRun run) {
+        String promptVersion = request.getPromptVersion();
+        String model = versions.getModel();
+        IncidentEnrichmentResult cached = cache.get(promptVersion, model, request.getDescription());
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        IncidentEnrichmentResult similar = "ENRICHED".equals(run.incident.getAiStatus())
+                ? null
+                : nearDuplicates.findSimilar(promptVersion, model, request.getDescription());
+        if (similar != null && nearDuplicates.isReusingSummary()) {
+            return CompletableFuture.completedFuture(similar);
+        }
+        run.reusedClassification = similar;
+        return attempt(request, 1, run)
+                .whenComplete((result, error) -> upstreamCalls.record(run.upstreamCalls.get()))
+                .thenApply(result -> {
+                    cache.put(promptVersion, model, request.getDescription(), result);
+                    nearDuplicates.add(promptVersion, model, request.getDescription(), result);
+                    if (similar == null) {
+                        return result;
+                    }
+                    return new IncidentEnrichmentResult(similar.getSeverity(), similar.getCategory(),
+                            result.getSummary(), result.getRecommendedAction());
+                });
+    }
+
+    /**
+     * Runs a single attempt once the token budget admits it and, on failure,
+     * schedules the next one after the backoff delay until the attempt
+     * budget or the deadline is exhausted. A response that could not be
+     * parsed says nothing about load, so it is retried without backoff.
+     * The attempt timeout starts at admission and never extends past the
+     * deadline.
+     *
+     * @param request the enrichment request payload
+     * @param attempt the 1-based attempt number
+     * @param run the incident's deadline and upstream call count
+     * @return a future completed with the validated result or the last error
+     */
+    private CompletableFuture<IncidentEnrichmentResult> attempt(
+            IncidentEnrichmentRequest request, int attempt, EnrichmentRun run) {
+        return tokenBudgetScheduler.submit(request, () -> {
+                    long remainingMs = run.admit(retryPolicy.getDeadlineMs());
+                    if (remainingMs <= 0) {
+                        deadlineExceeded.increment();
+                        return CompletableFuture.failedFuture(
+                                new AiTimeoutException("AI enrichment deadline exceeded"));
+                    }
+                    long timeoutMs = Math.min(retryPolicy.getAttemptTimeoutMs(), remainingMs);
+                    return callAiWithTimeout(request, timeoutMs, run);
+                })
+                .thenApply(result -> {
+                    validate(result);
+                    return result;
+                })
+                .handle((result, error) -> {
+                    if (error == null) {
+                        return CompletableFuture.completedFuture(result);
+                    }
+                    if (attempt >= retryPolicy.getMaxAttempts()
+                            || unwrap(error) instanceof AiCallNotPermittedException) {
+                        return CompletableFuture.<IncidentEnrichmentResult>failedFuture(unwrap(error));
+                    }
+                    Throwable cause = unwrap(error);
+                    long backoffMs = cause instanceof AiResponseParseException
+                            ? 0
+                            : retryPolicy.backoffDelayMs(attempt);
+                    if (backoffMs >= run.remainingMs()) {
+                        deadlineExceeded.increment();
+                        return CompletableFuture.<IncidentEnrichmentResult>failedFuture(cause);
+                    }
+                    retryCounter(cause).increment();
+                    return retryAfterBackoff(request, attempt, backoffMs, run);
+                })
+                .thenCompose(Function.identity());
+    }
+
+    /**
+     * Schedules the next attempt on the timer after a jittered backoff.
      *
      * @param request the enrichment request payload
+     * @param failedAttempt the attempt that just failed
+     * @param backoffMs the delay before the next attempt
+     * @param run the incident's deadline and upstream call count
+     * @return a future completed by the next attempt
+     */
+    private CompletableFuture<IncidentEnrichmentResult> retryAfterBackoff(
+            IncidentEnrichmentRequest request, int failedAttempt, long backoffMs, EnrichmentRun run) {
+        CompletableFuture<IncidentEnrichmentResult> next = new CompletableFuture<>();
+        Instant retryAt = Instant.now().plusMillis(backoffMs);
+
+        try {
+            aiEnrichmentScheduler.schedule(
+                    () -> deliver(() -> attempt(request, failedAttempt + 1, run).whenComplete((result, error) -> {
+                        if (error == null) {
+                            next.complete(result);
+                        } else {
+                            next.completeExceptionally(error);
+                        }
+                    })),
+                    retryAt);
+        } catch (RejectedExecutionException e) {
+            next.completeExceptionally(e);
+        }
+        return next;
+    }
+
+    /**
+     * Invokes the AI enrichment service on the shared executor with a hard timeout.
+     * Unbatched calls go through the {@link EnrichmentHedger}, and their
+     * requests are cancelled if they do not complete in time so a slow call
+     * does not keep holding a worker. Batched calls are shared with
+     * other incidents, so on timeout only this incident's wait is abandoned.
+     * The call holds a circuit breaker permit and a concurrency limiter
+     * permit until it completes.
+     *
+     * @param request the enrichment request payload
+     * @param timeoutMs maximum time to wait for the AI response
+     * @param run the incident's enrichment run
+     * @return a future completed with the AI result, or exceptionally if the
+     *         call fails, is rejected or times out
+     */
+    private CompletableFuture<IncidentEnrichmentResult> callAiWithTimeout(
+            IncidentEnrichmentRequest request, long timeoutMs, EnrichmentRun run) {
+        AiCircuitBreaker.Permit permit;
+        try {
+            permit = circuitBreaker.acquire();
+        } catch (AiCallNotPermittedException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        AdaptiveConcurrencyLimiter.Permit limit = concurrencyLimiter.tryAcquire();
+        if (limit == null) {
+            permit.release();
+            return CompletableFuture.failedFuture(new AiCallNotPermittedException(
+                    "AI concurrency limit reached", Instant.now().plusSeconds(1)));
+        }
+
+        if (batcher.isEnabled() && versions.isBatchable(request.getPromptVersion())) {
+            return withTimeout(batcher.submit(request, run.upstreamCalls), timeoutMs)
+                    .whenComplete((r, e) -> {
+                        permit.record(e == null);
+                        limit.record(e);
+                    });
+        }
+
+        CompletableFuture<IncidentEnrichmentResult> result;
+        try {
+            result = hedger.execute(request, run.upstreamCalls, run.streamsClassification()
+                    ? classification -> persistClassification(run, classification)
+                    : null);
+        } catch (RejectedExecutionException e) {
+            permit.release();
+            limit.release();
+            return CompletableFuture.failedFuture(
+                    new RuntimeException("AI enrichment rejected: executor is saturated", e));
+        } catch (RuntimeException e) {
+            permit.release();
+            limit.release();
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return withTimeout(result, timeoutMs)
+                .whenComplete((r, e) -> {
+                    permit.record(e == null);
+                    limit.record(e);
+                });
+    }
+
+    /**
+     * Fails the given future if it has not completed within the timeout.
+     * Stages that own the underlying requests cancel them when the future
+     * is completed this way. The timeout is completed on the executor, so
+     * the stages that follow it do not run on the timer.
+     *
+     * @param result the pending AI result
      * @param timeoutMs maximum time to wait for the AI response
-     * @return the AI enrichment result
-     * @throws Exception if the call fails or times out
+     * @return the same future
      */
-    private IncidentEnrichmentResult callAiWithTimeout(IncidentEnrichmentRequest request, long timeoutMs) throws Exception {
-        Future<IncidentEnrichmentResult> future =
-                Executors.newSingleThreadExecutor().submit(() -> aiEnrichmentService.enrichIncident(request));
+    private CompletableFuture<IncidentEnrichmentResult> withTimeout(
+            CompletableFuture<IncidentEnrichmentResult> result, long timeoutMs) {
+        ScheduledFuture<?> timeout = aiEnrichmentScheduler.schedule(
+                () -> deliver(() -> result.completeExceptionally(new AiTimeoutException())),
+                Instant.now().plusMillis(timeoutMs));
+
+        result.whenComplete((r, e) -> timeout.cancel(false));
+        return result;
+    }
 
+    /**
+     * Runs a stage on the executor so it does not hold the timer or the
+     * thread that completed the previous stage. Runs it inline if the
+     * executor rejects it.
+     *
+     * @param stage the stage to run
+     */
+    private void deliver(Runnable stage) {
         try {
-            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
-        } catch (java.util.concurrent.TimeoutException e) {
-            future.cancel(true);
-            throw new RuntimeException("AI enrichment timed out");
+            aiEnrichmentExecutor.execute(stage);
+        } catch (RejectedExecutionException e) {
+            stage.run();
+        }
+    }
+
+    /**
+     * Selects the retry counter for the failure that caused a retry.
+     *
+     * @param cause the failure of the previous attempt
+     * @return the counter to increment
+     */
+    private Counter retryCounter(Throwable cause) {
+        if (cause instanceof AiResponseParseException) {
+            return parseRetries;
+        }
+        return cause instanceof AiTimeoutException ? timeoutRetries : errorRetries;
+    }
+
+    /**
+     * Registers the retry counter for one cause.
+     */
+    private static Counter retryCounter(MeterRegistry meterRegistry, String cause) {
+        return Counter.builder("ai.enrichment.retries")
+                .tag("cause", cause)
+                .description("AI enrichment attempts retried, by cause of the failed attempt")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Strips the wrappers added by {@link CompletableFuture} composition.
+     *
+     * @param error the error reported by a future
+     * @return the underlying cause
+     */
+    private Throwable unwrap(Throwable error) {
+        Throwable current = error;
+        while ((current instanceof CompletionException || current instanceof ExecutionException)
+                && current.getCause() != null) {
+            current = current.getCause();
         }
+        return current;
     }
 
     /**
@@ -130,4 +573,63 @@ public class IncidentEnrichmentCoordinator {
             throw new RuntimeException("Validation failed: " + violations);
         }
     }
+
+    /**
+     * State shared by the attempts of one incident: its deadline, upstream
+     * call count and whether the outcome has been persisted.
+     */
+    private static final class EnrichmentRun {
+
+        private final Incident incident;
+
+        /** Set once the final outcome is applied; guarded by the run's monitor */
+        private boolean settled;
+
+        /** Upstream calls made for the incident so far */
+        private final AtomicInteger upstreamCalls = new AtomicInteger();
+
+        /** Classification taken from a near-duplicate, or null */
+        private volatile IncidentEnrichmentResult reusedClassification;
+
+        /** Deadline in {@link System#nanoTime()} units, set at first admission */
+        private volatile long deadlineNanos;
+        private volatile boolean admitted;
+
+        EnrichmentRun(Incident incident) {
+            this.incident = incident;
+        }
+
+        /**
+         * @return true if a streamed classification may be written early,
+         *         which the local classifier's or a near-duplicate's result
+         *         rules out, as does a previous result a failed
+         *         re-enrichment must leave intact
+         */
+        boolean streamsClassification() {
+            return reusedClassification == null
+                    && !Incident.SOURCE_LOCAL.equals(incident.getClassificationSource())
+                    && !"ENRICHED".equals(incident.getAiStatus());
+        }
+
+        /**
+         * Starts the deadline on the first admission.
+         *
+         * @param deadlineMs the time budget for all attempts
+         * @return the time remaining before the deadline, in milliseconds
+         */
+        long admit(long deadlineMs) {
+            if (!admitted) {
+                deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+                admitted = true;
+            }
+            return remainingMs();
+        }
+
+        /**
+         * @return the time remaining before the deadline, in milliseconds
+         */
+        long remainingMs() {
+            return TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+        }
+    }
 }
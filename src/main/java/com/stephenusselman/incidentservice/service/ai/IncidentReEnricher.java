@@ -0,0 +1,392 @@
+package com.stephenusselman.incidentservice.service.ai;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import com.stephenusselman.incidentservice.domain.Incident;
+import com.stephenusselman.incidentservice.repository.IncidentRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.enhanced.dynamodb.model.Page;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * Re-enriches incidents whose prompt version or model is outdated, spread
+ * over time instead of in one pass over the table.
+ *
+ * Outdated incidents are found two ways. Reads check every incident they
+ * return and enqueue the outdated ones, so incidents that are looked at
+ * migrate first. The optional sweeper scans ENRICHED incidents one page per
+ * tick and enqueues the outdated ones at a configured rate; a finished
+ * pass is followed by a pause before the next one. Both paths go through
+ * the durable {@link EnrichmentQueue} with reason
+ * {@link EnrichmentQueue#REASON_REENRICH} and draw from their own token
+ * buckets, so a migration never floods the queue or the AI budget. The
+ * incident keeps serving its previous result until the new one is
+ * persisted.
+ *
+ * The shared enrichment timer only fires the sweep ticks; the scan and the
+ * enqueues run on a dedicated thread, and a tick is skipped while the
+ * previous one is still running.
+ *
+ * Sweep progress is published as metrics and at
+ * {@code /actuator/aireenrichment}. The scan cursor is kept in memory, so
+ * a restart begins a new pass; incidents migrated before the restart are
+ * skipped without being enqueued again.
+ */
+@Slf4j
+@Component
+public class IncidentReEnricher {
+
+    private final EnrichmentVersions versions;
+    private final EnrichmentQueue queue;
+    private final IncidentRepository repository;
+    private final AiCircuitBreaker circuitBreaker;
+    private final TaskScheduler scheduler;
+
+    /** Whether outdated incidents are re-enriched at all */
+    private final boolean enabled;
+
+    /** Whether reads enqueue the outdated incidents they return */
+    private final boolean onReadEnabled;
+
+    /** Whether the background sweeper runs */
+    private final boolean sweepEnabled;
+
+    /** Incidents read per sweep tick */
+    private final int pageSize;
+
+    /** Interval between sweep ticks */
+    private final Duration sweepInterval;
+
+    /** Pause between the end of one pass and the start of the next */
+    private final Duration passInterval;
+
+    /** Limits enqueues triggered by reads; guarded by itself */
+    private final TokenBucket readBucket;
+
+    /** Limits enqueues made by the sweeper; guarded by this */
+    private final TokenBucket sweepBucket;
+
+    /** Outdated incidents found by the sweeper and not yet enqueued; guarded by this */
+    private final Deque<String> waiting = new ArrayDeque<>();
+
+    /** Scan position within the current pass; guarded by this */
+    private Map<String, AttributeValue> cursor;
+
+    /** Progress of the current pass; guarded by this */
+    private Instant passStartedAt;
+    private long scanned;
+    private long outdated;
+    private long enqueued;
+
+    /** Outcome of earlier passes; guarded by this */
+    private long passesCompleted;
+    private Instant lastPassCompletedAt;
+    private Instant nextPassAt;
+
+    /** Runs the sweep ticks off the timer */
+    private final ExecutorService runner =
+            Executors.newSingleThreadExecutor(new CustomizableThreadFactory("reenrichment-sweep-"));
+
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    private final AtomicBoolean sweeping = new AtomicBoolean(false);
+
+    private final Counter scannedCounter;
+    private final Counter enqueuedOnRead;
+    private final Counter enqueuedBySweep;
+
+    /**
+     * Constructs the re-enricher.
+     *
+     * @param versions the prompt version and model policy
+     * @param queue the durable enrichment queue
+     * @param repository the incident repository scanned by the sweeper
+     * @param circuitBreaker the AI circuit breaker; no sweeping while it is open
+     * @param scheduler timer that fires the sweep ticks
+     * @param meterRegistry registry used to publish progress metrics
+     * @param enabled whether outdated incidents are re-enriched
+     * @param onReadEnabled whether reads enqueue outdated incidents
+     * @param readRatePerMinute maximum enqueues per minute triggered by reads
+     * @param sweepEnabled whether the background sweeper runs
+     * @param sweepRatePerMinute maximum enqueues per minute made by the sweeper
+     * @param pageSize incidents read per sweep tick
+     * @param sweepIntervalMs interval between sweep ticks
+     * @param passIntervalMinutes pause between sweep passes
+     */
+    public IncidentReEnricher(
+            EnrichmentVersions versions,
+            EnrichmentQueue queue,
+            IncidentRepository repository,
+            AiCircuitBreaker circuitBreaker,
+            @Qualifier("aiEnrichmentScheduler") TaskScheduler scheduler,
+            MeterRegistry meterRegistry,
+            @Value("${ai.reenrichment.enabled:true}") boolean enabled,
+            @Value("${ai.reenrichment.on-read.enabled:true}") boolean onReadEnabled,
+            @Value("${ai.reenrichment.on-read.rate-per-minute:600}") long readRatePerMinute,
+            @Value("${ai.reenrichment.sweep.enabled:false}") boolean sweepEnabled,
+            @Value("${ai.reenrichment.sweep.rate-per-minute:60}") long sweepRatePerMinute,
+            @Value("${ai.reenrichment.sweep.page-size:100}") int pageSize,
+            @Value("${ai.reenrichment.sweep.interval-ms:5000}") long sweepIntervalMs,
+            @Value("${ai.reenrichment.sweep.pass-interval-minutes:60}") long passIntervalMinutes) {
+        if (readRatePerMinute < 1 || sweepRatePerMinute < 1) {
+            throw new IllegalArgumentException("ai.reenrichment rates must be at least 1 per minute");
+        }
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("ai.reenrichment.sweep.page-size must be at least 1");
+        }
+        if (sweepIntervalMs < 1 || passIntervalMinutes < 0) {
+            throw new IllegalArgumentException("ai.reenrichment.sweep intervals must not be negative");
+        }
+        this.versions = versions;
+        this.queue = queue;
+        this.repository = repository;
+        this.circuitBreaker = circuitBreaker;
+        this.scheduler = scheduler;
+        this.enabled = enabled;
+        this.onReadEnabled = enabled && onReadEnabled;
+        this.sweepEnabled = enabled && sweepEnabled;
+        this.pageSize = pageSize;
+        this.sweepInterval = Duration.ofMillis(sweepIntervalMs);
+        this.passInterval = Duration.ofMinutes(passIntervalMinutes);
+        this.readBucket = new TokenBucket(readRatePerMinute);
+        this.sweepBucket = new TokenBucket(sweepRatePerMinute);
+
+        this.scannedCounter = Counter.builder("ai.reenrichment.scanned")
+                .description("Enriched incidents checked by the re-enrichment sweeper")
+                .register(meterRegistry);
+        this.enqueuedOnRead = Counter.builder("ai.reenrichment.enqueued")
+                .tag("trigger", "read")
+                .description("Outdated incidents enqueued for re-enrichment")
+                .register(meterRegistry);
+        this.enqueuedBySweep = Counter.builder("ai.reenrichment.enqueued")
+                .tag("trigger", "sweep")
+                .description("Outdated incidents enqueued for re-enrichment")
+                .register(meterRegistry);
+        Gauge.builder("ai.reenrichment.waiting", this, IncidentReEnricher::getWaitingCount)
+                .description("Outdated incidents found by the sweeper and not yet enqueued")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts the sweeper once the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!sweepEnabled || !started.compareAndSet(false, true)) {
+            return;
+        }
+        scheduler.scheduleWithFixedDelay(this::tick, sweepInterval);
+        log.info("Re-enrichment sweeper started: {} incidents every {} ms", pageSize, sweepInterval.toMillis());
+    }
+
+    /**
+     * Stops the runner on shutdown. The scan cursor is in memory, so the
+     * next start begins a new pass.
+     */
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+    }
+
+    /**
+     * Enqueues a re-enrichment for an incident that was just read, if it is
+     * outdated and the read budget allows.
+     *
+     * @param incident the incident returned to the caller, or null
+     */
+    public void onRead(Incident incident) {
+        if (!onReadEnabled || incident == null || !versions.isOutdated(incident)) {
+            return;
+        }
+        synchronized (readBucket) {
+            if (readBucket.tryConsume(1) > 0) {
+                return;
+            }
+        }
+        try {
+            if (queue.enqueue(incident.getIncidentId(), EnrichmentQueue.REASON_REENRICH)) {
+                enqueuedOnRead.increment();
+            }
+        } catch (RuntimeException e) {
+            log.debug("Could not enqueue re-enrichment of incident {}: {}", incident.getIncidentId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Enqueues re-enrichments for the outdated incidents among those read.
+     *
+     * @param incidents the incidents returned to the caller
+     */
+    public void onRead(List<Incident> incidents) {
+        if (!onReadEnabled) {
+            return;
+        }
+        incidents.forEach(this::onRead);
+    }
+
+    /**
+     * Runs one sweep tick: enqueues waiting incidents as the rate allows
+     * and, once none are waiting, scans the next page. Does nothing while
+     * the circuit breaker is open or between passes.
+     */
+    public synchronized void sweep() {
+        if (!enabled || !circuitBreaker.isCallPermitted()) {
+            return;
+        }
+        Instant now = Instant.now();
+        if (!drain()) {
+            return;
+        }
+        if (passStartedAt == null) {
+            if (nextPassAt != null && now.isBefore(nextPassAt)) {
+                return;
+            }
+            passStartedAt = now;
+            scanned = 0;
+            outdated = 0;
+            enqueued = 0;
+        }
+
+        Page<Incident> page = repository.scanByAiStatus("ENRICHED", pageSize, cursor);
+        for (Incident incident : page.items()) {
+            scanned++;
+            scannedCounter.increment();
+            if (versions.isOutdated(incident)) {
+                outdated++;
+                waiting.add(incident.getIncidentId());
+            }
+        }
+        cursor = page.lastEvaluatedKey();
+        if (cursor == null) {
+            passesCompleted++;
+            lastPassCompletedAt = now;
+            nextPassAt = now.plus(passInterval);
+            passStartedAt = null;
+            log.info("Re-enrichment sweep pass finished: {} scanned, {} outdated", scanned, outdated);
+        }
+        drain();
+    }
+
+    /**
+     * Returns the sweeper's progress.
+     *
+     * @return the progress snapshot
+     */
+    public synchronized Progress progress() {
+        return new Progress(
+                sweepEnabled,
+                passStartedAt != null,
+                passStartedAt,
+                scanned,
+                outdated,
+                enqueued,
+                waiting.size(),
+                passesCompleted,
+                lastPassCompletedAt,
+                passStartedAt == null ? nextPassAt : null);
+    }
+
+    /**
+     * @return the number of outdated incidents waiting to be enqueued
+     */
+    public synchronized int getWaitingCount() {
+        return waiting.size();
+    }
+
+    /**
+     * Enqueues waiting incidents while the sweep budget allows.
+     *
+     * @return true if none are left waiting
+     */
+    private boolean drain() {
+        while (!waiting.isEmpty() && sweepBucket.tryConsume(1) == 0) {
+            String incidentId = waiting.poll();
+            if (queue.enqueue(incidentId, EnrichmentQueue.REASON_REENRICH)) {
+                enqueued++;
+                enqueuedBySweep.increment();
+            }
+        }
+        return waiting.isEmpty();
+    }
+
+    /**
+     * Hands a sweep tick to the runner unless the previous one is still
+     * running, so the timer thread never scans or enqueues.
+     */
+    private void tick() {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            runner.execute(() -> {
+                try {
+                    sweepSafely();
+                } finally {
+                    sweeping.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            sweeping.set(false);
+        }
+    }
+
+    /**
+     * Sweeps without letting an exception cancel the periodic schedule. The
+     * cursor is kept, so the failed page is read again on the next tick.
+     */
+    private void sweepSafely() {
+        try {
+            sweep();
+        } catch (RuntimeException e) {
+            log.warn("Re-enrichment sweep failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Progress of the re-enrichment sweeper.
+     *
+     * @param enabled whether the sweeper runs
+     * @param passInProgress whether a pass is under way
+     * @param passStartedAt when the current pass started, or null
+     * @param scanned incidents checked in the current or last pass
+     * @param outdated outdated incidents found in the current or last pass
+     * @param enqueued re-enrichments enqueued in the current or last pass
+     * @param waiting outdated incidents found and not yet enqueued
+     * @param passesCompleted passes finished since startup
+     * @param lastPassCompletedAt when the last pass finished, or null
+     * @param nextPassAt when the next pass starts, or null while one is under way
+     */
+    public record Progress(
+            boolean enabled,
+            boolean passInProgress,
+            Instant passStartedAt,
+            long scanned,
+            long outdated,
+            long enqueued,
+            int waiting,
+            long passesCompleted,
+            Instant lastPassCompletedAt,
+            Instant nextPassAt) {
+    }
+}
@@ -0,0 +1,29 @@
+package com.stephenusselman.incidentservice.service.ai;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Actuator endpoint exposing the progress of the re-enrichment sweeper at
+ * {@code /actuator/aireenrichment}.
+ */
+@Component
+@Endpoint(id = "aireenrichment")
+@RequiredArgsConstructor
+public class IncidentReEnricherEndpoint {
+
+    private final IncidentReEnricher reEnricher;
+
+    /**
+     * Returns the current sweep progress.
+     *
+     * @return the sweep progress
+     */
+    @ReadOperation
+    public IncidentReEnricher.Progress progress() {
+        return reEnricher.progress();
+    }
+}
@@ -0,0 +1,313 @@
+package com.stephenusselman.incidentservice.service.ai;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.stephenusselman.incidentservice.domain.Incident;
+import com.stephenusselman.incidentservice.repository.IncidentRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-process severity and category classifier used as a fast path before
+ * AI enrichment.
+ *
+ * Two multinomial naive Bayes models over description tokens are trained
+ * from incidents whose classification came from the AI, and retrained in
+ * the background every {@code retrain-interval-minutes}. Incidents the
+ * classifier labelled itself are never used for training, so its own
+ * mistakes are not reinforced.
+ *
+ * A prediction is only reported as confident when both models reach
+ * {@code confidence-threshold}; otherwise the AI decides.
+ */
+@Slf4j
+@Component
+public class LocalIncidentClassifier {
+
+    private final IncidentRepository repository;
+
+    /** Whether the classifier is used at all */
+    private final boolean enabled;
+
+    /** Minimum posterior probability for both labels */
+    private final double confidenceThreshold;
+
+    /** Minimum number of AI-labelled incidents before predictions are made */
+    private final int minTrainingSamples;
+
+    /** Minutes between retraining runs */
+    private final long retrainIntervalMinutes;
+
+    private final Counter confidentPredictions;
+    private final Counter uncertainPredictions;
+
+    /** Currently active models, replaced atomically after each training run */
+    private volatile TrainedModels models;
+
+    /** Background thread that retrains the models */
+    private ScheduledExecutorService trainer;
+
+    /**
+     * Constructs the local classifier.
+     *
+     * @param repository the incident repository used for training data
+     * @param meterRegistry registry used to publish classifier metrics
+     * @param enabled whether the classifier is used
+     * @param confidenceThreshold minimum posterior for a confident prediction
+     * @param minTrainingSamples minimum training set size
+     * @param retrainIntervalMinutes minutes between retraining runs
+     */
+    public LocalIncidentClassifier(
+            IncidentRepository repository,
+            MeterRegistry meterRegistry,
+            @Value("${ai.classifier.enabled:true}") boolean enabled,
+            @Value("${ai.classifier.confidence-threshold:0.9}") double confidenceThreshold,
+            @Value("${ai.classifier.min-training-samples:50}") int minTrainingSamples,
+            @Value("${ai.classifier.retrain-interval-minutes:30}") long retrainIntervalMinutes) {
+        if (confidenceThreshold <= 0 || confidenceThreshold > 1) {
+            throw new IllegalArgumentException("ai.classifier.confidence-threshold must be in (0, 1]");
+        }
+        if (retrainIntervalMinutes < 1) {
+            throw new IllegalArgumentException("ai.classifier.retrain-interval-minutes must be at least 1");
+        }
+        this.repository = repository;
+        this.enabled = enabled;
+        this.confidenceThreshold = confidenceThreshold;
+        this.minTrainingSamples = Math.max(1, minTrainingSamples);
+        this.retrainIntervalMinutes = retrainIntervalMinutes;
+
+        this.confidentPredictions = Counter.builder("ai.classifier.predictions")
+                .tag("outcome", "confident")
+                .description("Local classifier predictions")
+                .register(meterRegistry);
+        this.uncertainPredictions = Counter.builder("ai.classifier.predictions")
+                .tag("outcome", "uncertain")
+                .description("Local classifier predictions")
+                .register(meterRegistry);
+        Gauge.builder("ai.classifier.training-samples", this, LocalIncidentClassifier::getTrainingSamples)
+                .description("Incidents the active local classifier was trained on")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts periodic background training once the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled || trainer != null) {
+            return;
+        }
+        trainer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "local-classifier-trainer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        trainer.scheduleWithFixedDelay(this::retrainSafely, 0, retrainIntervalMinutes, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Stops background training.
+     */
+    @PreDestroy
+    public void stop() {
+        if (trainer != null) {
+            trainer.shutdownNow();
+        }
+    }
+
+    /**
+     * Classifies a description if the classifier is confident about both
+     * severity and category.
+     *
+     * @param description the incident description
+     * @return the prediction, or null if untrained or not confident
+     */
+    public Prediction classify(String description) {
+        TrainedModels current = models;
+        if (!enabled || current == null || description == null) {
+            return null;
+        }
+
+        List<String> tokens = tokenize(description);
+        Label severity = current.severity().predict(tokens);
+        Label category = current.category().predict(tokens);
+
+        double confidence = Math.min(severity.probability(), category.probability());
+        if (confidence < confidenceThreshold) {
+            uncertainPredictions.increment();
+            return null;
+        }
+        confidentPredictions.increment();
+        return new Prediction(severity.value(), category.value(), confidence);
+    }
+
+    /**
+     * Retrains both models from AI-labelled, enriched incidents and swaps
+     * them in. Keeps the previous models if there is too little data.
+     * Incidents are streamed from the table and counted into the models as
+     * they arrive, so the training set is never held in memory.
+     *
+     * @return the number of incidents trained on
+     */
+    public int retrain() {
+        NaiveBayes severity = new NaiveBayes();
+        NaiveBayes category = new NaiveBayes();
+        int samples = 0;
+        try (Stream<Incident> incidents = repository.streamAll(
+                "aiStatus", "classificationSource", "description", "severity", "category")) {
+            Iterator<Incident> training = incidents
+                    .filter(i -> "ENRICHED".equals(i.getAiStatus()))
+                    .filter(i -> !Incident.SOURCE_LOCAL.equals(i.getClassificationSource()))
+                    .filter(i -> i.getDescription() != null && i.getSeverity() != null && i.getCategory() != null)
+                    .iterator();
+            while (training.hasNext()) {
+                Incident incident = training.next();
+                List<String> tokens = tokenize(incident.getDescription());
+                severity.add(incident.getSeverity(), tokens);
+                category.add(incident.getCategory(), tokens);
+                samples++;
+            }
+        }
+
+        if (samples < minTrainingSamples) {
+            log.info("Local classifier has {} training samples, needs {}", samples, minTrainingSamples);
+            return samples;
+        }
+
+        models = new TrainedModels(severity, category, samples);
+        log.info("Local classifier retrained on {} incidents", samples);
+        return samples;
+    }
+
+    /**
+     * Returns the number of incidents the active models were trained on.
+     *
+     * @return the training set size, or 0 if untrained
+     */
+    public int getTrainingSamples() {
+        TrainedModels current = models;
+        return current == null ? 0 : current.samples();
+    }
+
+    /**
+     * Runs a training pass, logging instead of killing the schedule on failure.
+     */
+    private void retrainSafely() {
+        try {
+            retrain();
+        } catch (RuntimeException e) {
+            log.warn("Local classifier training failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Splits a description into lower-case word tokens with digit runs masked.
+     *
+     * @param description the incident description
+     * @return the tokens
+     */
+    static List<String> tokenize(String description) {
+        return Arrays.stream(description.toLowerCase(Locale.ROOT)
+                        .replaceAll("[0-9]+", "#")
+                        .split("[^\\p{L}#]+"))
+                .filter(token -> !token.isEmpty())
+                .toList();
+    }
+
+    /**
+     * A confident local classification.
+     *
+     * @param severity the predicted severity
+     * @param category the predicted category
+     * @param confidence the lower of the two posterior probabilities
+     */
+    public record Prediction(String severity, String category, double confidence) {
+    }
+
+    /**
+     * The most likely label of one model and its posterior probability.
+     */
+    private record Label(String value, double probability) {
+    }
+
+    /**
+     * A severity and category model pair trained together.
+     */
+    private record TrainedModels(NaiveBayes severity, NaiveBayes category, int samples) {
+    }
+
+    /**
+     * Multinomial naive Bayes with Laplace smoothing. Built once by the
+     * trainer thread and read-only afterwards.
+     */
+    private static final class NaiveBayes {
+
+        private final Map<String, Integer> documentsPerLabel = new HashMap<>();
+        private final Map<String, Map<String, Integer>> tokenCountsPerLabel = new HashMap<>();
+        private final Map<String, Integer> tokensPerLabel = new HashMap<>();
+        private final Set<String> vocabulary = new HashSet<>();
+        private int documents;
+
+        /**
+         * Adds one labelled document.
+         */
+        void add(String label, List<String> tokens) {
+            documents++;
+            documentsPerLabel.merge(label, 1, Integer::sum);
+            tokensPerLabel.merge(label, tokens.size(), Integer::sum);
+            Map<String, Integer> counts = tokenCountsPerLabel.computeIfAbsent(label, k -> new HashMap<>());
+            for (String token : tokens) {
+                counts.merge(token, 1, Integer::sum);
+                vocabulary.add(token);
+            }
+        }
+
+        /**
+         * Returns the most likely label with its normalized posterior.
+         */
+        Label predict(List<String> tokens) {
+            Map<String, Double> logScores = new HashMap<>();
+            for (Map.Entry<String, Integer> entry : documentsPerLabel.entrySet()) {
+                String label = entry.getKey();
+                Map<String, Integer> counts = tokenCountsPerLabel.get(label);
+                double denominator = tokensPerLabel.get(label) + vocabulary.size();
+
+                double score = Math.log((double) entry.getValue() / documents);
+                for (String token : tokens) {
+                    if (vocabulary.contains(token)) {
+                        score += Math.log((counts.getOrDefault(token, 0) + 1) / denominator);
+                    }
+                }
+                logScores.put(label, score);
+            }
+
+            double max = logScores.values().stream().mapToDouble(Double::doubleValue).max().orElse(0);
+            double total = logScores.values().stream().mapToDouble(v -> Math.exp(v - max)).sum();
+
+            Map.Entry<String, Double> best = logScores.entrySet().stream()
+                    .max(Map.Entry.comparingByValue())
+                    .orElseThrow();
+            return new Label(best.getKey(), Math.exp(best.getValue() - max) / total);
+        }
+    }
+}
@@ -0,0 +1,374 @@
+package com.stephenusselman.incidentservice.service.ai;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.stephenusselman.incidentservice.dto.ai.IncidentEnrichmentResult;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * In-memory locality-sensitive hashing index over incident descriptions,
+ * used to reuse the classification of a recently enriched, near-identical
+ * incident.
+ *
+ * Descriptions are lower-cased, split into words with digit runs masked (so
+ * timestamps and host numbers do not matter), and turned into word shingles.
+ * Each description gets a MinHash signature split into bands; incidents that
+ * share any band are candidates, and a candidate is only reused if the exact
+ * Jaccard similarity of the shingle sets reaches the configured threshold.
+ *
+ * Only severity and category are reused: the summary and recommended
+ * action describe the other incident, whose host names and timestamps are
+ * exactly the details the matching ignores. With {@code reuse-summary} the
+ * whole result is reused instead, saving the AI call at the cost of
+ * summaries that may name the wrong host or time.
+ *
+ * Entries are partitioned by the prompt version and model that produced
+ * them, so a lookup only matches results the same prompt and model would
+ * give; a prompt or model change starts from an empty partition.
+ *
+ * The index holds at most {@code max-entries} descriptions across all
+ * partitions and evicts the least recently used one when full.
+ */
+@Component
+public class NearDuplicateIndex {
+
+    /** Large prime used by the MinHash hash family */
+    private static final long PRIME = 2_147_483_647L;
+
+    /** Fixed seed so signatures are stable across restarts */
+    private static final long SEED = 0x5eed_1dL;
+
+    /** Whether the index is consulted at all */
+    private final boolean enabled;
+
+    /** Minimum Jaccard similarity required to reuse a classification */
+    private final double threshold;
+
+    /** Maximum number of descriptions kept */
+    private final int maxEntries;
+
+    /** Number of words per shingle */
+    private final int shingleSize;
+
+    /** Number of LSH bands */
+    private final int bands;
+
+    /** MinHash values per band */
+    private final int rows;
+
+    /** Whether the summary and recommended action are reused with the classification */
+    private final boolean reuseSummary;
+
+    /** Coefficients of the MinHash hash functions {@code (a * x + b) mod PRIME} */
+    private final long[] hashA;
+    private final long[] hashB;
+
+    /** Indexed descriptions in access order, so the eldest is least recently used */
+    private final LinkedHashMap<Long, IndexedDescription> entries;
+
+    /** LSH buckets: band hash to the ids of descriptions in that bucket */
+    private final Map<Long, Set<Long>> buckets = new HashMap<>();
+
+    /** Id assigned to the next indexed description */
+    private long nextId;
+
+    private final Counter lookups;
+    private final Counter hits;
+
+    /**
+     * Constructs the near-duplicate index.
+     *
+     * @param meterRegistry registry used to publish hit-rate metrics
+     * @param enabled whether the index is used
+     * @param threshold minimum Jaccard similarity for a reuse
+     * @param maxEntries maximum number of indexed descriptions
+     * @param shingleSize number of words per shingle
+     * @param bands number of LSH bands
+     * @param rows MinHash values per band
+     * @param reuseSummary whether the summary and recommended action are reused too
+     */
+    public NearDuplicateIndex(
+            MeterRegistry meterRegistry,
+            @Value("${ai.enrichment.near-duplicate.enabled:true}") boolean enabled,
+            @Value("${ai.enrichment.near-duplicate.similarity-threshold:0.8}") double threshold,
+            @Value("${ai.enrichment.near-duplicate.max-entries:5000}") int maxEntries,
+            @Value("${ai.enrichment.near-duplicate.shingle-size:2}") int shingleSize,
+            @Value("${ai.enrichment.near-duplicate.bands:16}") int bands,
+            @Value("${ai.enrichment.near-duplicate.rows:4}") int rows,
+            @Value("${ai.enrichment.near-duplicate.reuse-summary:false}") boolean reuseSummary) {
+        if (threshold <= 0 || threshold > 1) {
+            throw new IllegalArgumentException("ai.enrichment.near-duplicate.similarity-threshold must be in (0, 1]");
+        }
+        if (maxEntries < 1 || shingleSize < 1 || bands < 1 || rows < 1) {
+            throw new IllegalArgumentException(
+                    "ai.enrichment.near-duplicate max-entries, shingle-size, bands and rows must be at least 1");
+        }
+        this.enabled = enabled;
+        this.threshold = threshold;
+        this.maxEntries = maxEntries;
+        this.shingleSize = shingleSize;
+        this.bands = bands;
+        this.rows = rows;
+        this.reuseSummary = reuseSummary;
+
+        Random random = new Random(SEED);
+        this.hashA = new long[bands * rows];
+        this.hashB = new long[bands * rows];
+        for (int i = 0; i < hashA.length; i++) {
+            hashA[i] = 1 + random.nextInt(Integer.MAX_VALUE - 1);
+            hashB[i] = random.nextInt(Integer.MAX_VALUE);
+        }
+
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, IndexedDescription> eldest) {
+                if (size() > NearDuplicateIndex.this.maxEntries) {
+                    unbucket(eldest.getKey(), eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        this.lookups = Counter.builder("ai.enrichment.near-duplicate.lookups")
+                .description("Near-duplicate index lookups")
+                .register(meterRegistry);
+        this.hits = Counter.builder("ai.enrichment.near-duplicate.hits")
+                .description("Lookups that reused a near-duplicate classification")
+                .register(meterRegistry);
+        Gauge.builder("ai.enrichment.near-duplicate.hit-rate", this, NearDuplicateIndex::getHitRate)
+                .description("Fraction of lookups that reused a near-duplicate classification")
+                .register(meterRegistry);
+        Gauge.builder("ai.enrichment.near-duplicate.size", this, NearDuplicateIndex::size)
+                .description("Descriptions held in the near-duplicate index")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Adds an enriched description to the index.
+     *
+     * @param promptVersion the prompt version that produced the result
+     * @param model the model that produced the result
+     * @param description the incident description
+     * @param result the validated enrichment result for it
+     */
+    public void add(String promptVersion, String model, String description, IncidentEnrichmentResult result) {
+        if (!enabled || description == null || result == null) {
+            return;
+        }
+        int[] shingles = shingles(description);
+        if (shingles.length == 0) {
+            return;
+        }
+        String partition = partition(promptVersion, model);
+        long[] bandKeys = bandKeys(partition, signature(shingles));
+
+        synchronized (this) {
+            long id = nextId++;
+            IndexedDescription indexed = new IndexedDescription(partition, shingles, bandKeys, result);
+            for (long bandKey : bandKeys) {
+                buckets.computeIfAbsent(bandKey, k -> new HashSet<>()).add(id);
+            }
+            entries.put(id, indexed);
+        }
+    }
+
+    /**
+     * Finds the most similar description at or above the threshold among
+     * those enriched with the given prompt version and model.
+     *
+     * @param promptVersion the prompt version the result must come from
+     * @param model the model the result must come from
+     * @param description the incident description
+     * @return the reusable result, or null if there is no near duplicate; it
+     *         holds only severity and category unless {@code reuse-summary} is on
+     */
+    public IncidentEnrichmentResult findSimilar(String promptVersion, String model, String description) {
+        if (!enabled || description == null) {
+            return null;
+        }
+        lookups.increment();
+
+        int[] shingles = shingles(description);
+        if (shingles.length == 0) {
+            return null;
+        }
+        String partition = partition(promptVersion, model);
+        long[] bandKeys = bandKeys(partition, signature(shingles));
+
+        IncidentEnrichmentResult best = null;
+        double bestSimilarity = 0;
+        synchronized (this) {
+            Set<Long> candidates = new HashSet<>();
+            for (long bandKey : bandKeys) {
+                candidates.addAll(buckets.getOrDefault(bandKey, Set.of()));
+            }
+            for (Long id : candidates) {
+                IndexedDescription candidate = entries.get(id);
+                if (!candidate.partition().equals(partition)) {
+                    continue;
+                }
+                double similarity = jaccard(shingles, candidate.shingles());
+                if (similarity >= threshold && similarity > bestSimilarity) {
+                    bestSimilarity = similarity;
+                    best = candidate.result();
+                }
+            }
+        }
+
+        if (best == null) {
+            return null;
+        }
+        hits.increment();
+        return reuseSummary
+                ? new IncidentEnrichmentResult(
+                        best.getSeverity(), best.getCategory(), best.getSummary(), best.getRecommendedAction())
+                : new IncidentEnrichmentResult(best.getSeverity(), best.getCategory(), null, null);
+    }
+
+    /**
+     * @return whether lookups return the whole result rather than only the classification
+     */
+    public boolean isReusingSummary() {
+        return reuseSummary;
+    }
+
+    /**
+     * Returns the fraction of lookups that found a near duplicate.
+     *
+     * @return the hit rate, or 0 before the first lookup
+     */
+    public double getHitRate() {
+        double total = lookups.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+
+    /**
+     * Returns the number of indexed descriptions.
+     *
+     * @return the index size
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Splits a description into the sorted, distinct hashes of its word shingles.
+     *
+     * @param description the incident description
+     * @return the shingle hashes
+     */
+    int[] shingles(String description) {
+        String[] words = description.toLowerCase(Locale.ROOT)
+                .replaceAll("[0-9]+", "#")
+                .split("[^\\p{L}#]+");
+        String[] tokens = Arrays.stream(words).filter(w -> !w.isEmpty()).toArray(String[]::new);
+        if (tokens.length == 0) {
+            return new int[0];
+        }
+
+        int width = Math.min(shingleSize, tokens.length);
+        Set<Integer> hashes = new HashSet<>();
+        for (int i = 0; i + width <= tokens.length; i++) {
+            hashes.add(String.join(" ", Arrays.copyOfRange(tokens, i, i + width)).hashCode());
+        }
+        return hashes.stream().mapToInt(Integer::intValue).sorted().toArray();
+    }
+
+    /**
+     * Computes the MinHash signature of a shingle set.
+     */
+    private long[] signature(int[] shingles) {
+        long[] signature = new long[hashA.length];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        for (int shingle : shingles) {
+            long x = shingle & 0xffffffffL;
+            for (int i = 0; i < signature.length; i++) {
+                long h = (hashA[i] * x + hashB[i]) % PRIME;
+                if (h < signature[i]) {
+                    signature[i] = h;
+                }
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * Names the partition of a prompt version and model.
+     */
+    private static String partition(String promptVersion, String model) {
+        return Objects.toString(promptVersion, "") + '\0' + Objects.toString(model, "");
+    }
+
+    /**
+     * Hashes each band of a signature into a bucket key that also encodes
+     * the partition and band number, so equal values in different bands or
+     * partitions rarely share a bucket.
+     */
+    private long[] bandKeys(String partition, long[] signature) {
+        long[] keys = new long[bands];
+        for (int band = 0; band < bands; band++) {
+            long key = partition.hashCode() * 31L + band;
+            for (int row = 0; row < rows; row++) {
+                key = key * 31 + signature[band * rows + row];
+            }
+            keys[band] = key;
+        }
+        return keys;
+    }
+
+    /**
+     * Exact Jaccard similarity of two sorted shingle hash arrays.
+     */
+    private static double jaccard(int[] a, int[] b) {
+        int i = 0;
+        int j = 0;
+        int intersection = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                intersection++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return (double) intersection / (a.length + b.length - intersection);
+    }
+
+    /**
+     * Removes an evicted description from its LSH buckets.
+     * Called while holding the monitor.
+     */
+    private void unbucket(long id, IndexedDescription indexed) {
+        for (long bandKey : indexed.bandKeys()) {
+            Set<Long> bucket = buckets.get(bandKey);
+            if (bucket != null && bucket.remove(id) && bucket.isEmpty()) {
+                buckets.remove(bandKey);
+            }
+        }
+    }
+
+    /**
+     * An indexed description: its partition, shingle hashes, LSH band keys and result.
+     */
+    private record IndexedDescription(String partition, int[] shingles, long[] bandKeys,
+            IncidentEnrichmentResult result) {
+    }
+}
@@ -0,0 +1,130 @@
+package com.stephenusselman.incidentservice.service.ai;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * A prompt template parsed once into alternating literal and placeholder
+ * segments.
+ *
+ * Placeholders are written {@code {{name}}}. Rendering looks up every value
+ * first, sizes the builder to the exact output length and appends the
+ * segments in a single pass, so values are never scanned for placeholders
+ * themselves: a description containing {@code {{reportedBy}}} is rendered
+ * as written. An opening {@code {{} without a matching {@code }}} is kept as
+ * literal text. Instances are immutable and thread-safe.
+ */
+final class PromptTemplate {
+
+    private static final String OPEN = "{{";
+    private static final String CLOSE = "}}";
+
+    /** The template's version, its file name without extension */
+    private final String version;
+
+    /** Literal text around the placeholders; one more entry than {@link #names} */
+    private final String[] literals;
+
+    /** Placeholder names in order of appearance */
+    private final String[] names;
+
+    /** Combined length of all literals */
+    private final int literalLength;
+
+    private PromptTemplate(String version, String[] literals, String[] names) {
+        this.version = version;
+        this.literals = literals;
+        this.names = names;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * Parses template text into segments.
+     *
+     * @param version the template's version
+     * @param text the template text
+     * @return the parsed template
+     * @throws IllegalArgumentException if a placeholder name is blank
+     */
+    static PromptTemplate parse(String version, String text) {
+        List<String> literals = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        int position = 0;
+        while (true) {
+            int open = text.indexOf(OPEN, position);
+            int close = open < 0 ? -1 : text.indexOf(CLOSE, open + OPEN.length());
+            if (close < 0) {
+                literals.add(text.substring(position));
+                break;
+            }
+            String name = text.substring(open + OPEN.length(), close).strip();
+            if (name.isEmpty()) {
+                throw new IllegalArgumentException(
+                        "Prompt template " + version + " has an empty placeholder at offset " + open);
+            }
+            literals.add(text.substring(position, open));
+            names.add(name);
+            position = close + CLOSE.length();
+        }
+        return new PromptTemplate(version, literals.toArray(String[]::new), names.toArray(String[]::new));
+    }
+
+    /**
+     * @return the template's version
+     */
+    String getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the distinct placeholder names in order of appearance
+     */
+    Set<String> placeholders() {
+        return new LinkedHashSet<>(List.of(names));
+    }
+
+    /**
+     * Whether another template renders exactly the same prompts as this one.
+     *
+     * @param other the template to compare with
+     * @return true if both have the same literals and placeholders
+     */
+    boolean hasSameText(PromptTemplate other) {
+        return Arrays.equals(literals, other.literals) && Arrays.equals(names, other.names);
+    }
+
+    /**
+     * Renders the template.
+     *
+     * @param values returns the value for a placeholder name, or null if unknown
+     * @return the rendered prompt
+     * @throws IllegalStateException if a placeholder has no value
+     */
+    String render(Function<String, String> values) {
+        String[] resolved = new String[names.length];
+        int length = literalLength;
+        for (int i = 0; i < names.length; i++) {
+            String value = values.apply(names[i]);
+            if (value == null) {
+                throw new IllegalStateException(
+                        "Prompt template " + version + " has no value for placeholder " + names[i]);
+            }
+            resolved[i] = value;
+            length += value.length();
+        }
+
+        StringBuilder prompt = new StringBuilder(length);
+        for (int i = 0; i < names.length; i++) {
+            prompt.append(literals[i]).append(resolved[i]);
+        }
+        return prompt.append(literals[names.length]).toString();
+    }
+}
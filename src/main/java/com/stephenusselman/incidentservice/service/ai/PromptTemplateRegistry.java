@@ -0,0 +1,385 @@
+package com.stephenusselman.incidentservice.service.ai;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Compiled prompt templates by version.
+ *
+ * Every {@code ai/prompts/*.txt} on the classpath is parsed once at startup
+ * into a {@link PromptTemplate} whose version is its file name without the
+ * extension. When {@code ai.prompts.directory} is set, {@code *.txt} files
+ * there add versions or override classpath ones, and the directory is
+ * polled for changes, so a new version can be added without a restart. A
+ * file that fails to load keeps its previous template.
+ *
+ * Once loaded, a version's text cannot change until the next restart: the
+ * enrichment cache, near-duplicate matches and the version recorded on
+ * incidents only know the version name, so a reload that would give a
+ * loaded version different text is rejected and the version keeps its
+ * previous template. Edits go into a new version instead.
+ *
+ * Each incident gets the version requested on creation if it exists,
+ * otherwise the rollout version for the configured percentage of incidents
+ * (bucketed by incident ID, so an incident always lands in the same
+ * bucket), otherwise the default version. Only the default version has a
+ * multi-incident form, the batch template, so incidents on any other
+ * version are enriched one at a time.
+ */
+@Slf4j
+@Component
+public class PromptTemplateRegistry {
+
+    private static final String CLASSPATH_PATTERN = "classpath*:ai/prompts/*.txt";
+    private static final String EXTENSION = ".txt";
+
+    private final TaskScheduler scheduler;
+
+    /** Version used when no other version applies */
+    private final String defaultVersion;
+
+    /** Version of the multi-incident template used for batches */
+    private final String batchVersion;
+
+    /** Version rolled out to a share of incidents, or null */
+    private final String rolloutVersion;
+
+    /** Share of incidents, 0 to 100, that get the rollout version */
+    private final int rolloutPercent;
+
+    /** Directory polled for template overrides, or null */
+    private final Path directory;
+
+    /** Interval between polls of the directory */
+    private final Duration reloadInterval;
+
+    /** Templates bundled with the application */
+    private final Map<String, PromptTemplate> classpathTemplates;
+
+    /** Templates loaded from the directory by file; guarded by this */
+    private Map<Path, DiskTemplate> diskTemplates = Map.of();
+
+    /** All templates by version, replaced as a whole on reload */
+    private volatile Map<String, PromptTemplate> templates;
+
+    private final AtomicBoolean started = new AtomicBoolean(false);
+
+    private final Counter reloads;
+    private final Counter failedReloads;
+    private final Counter rejectedEdits;
+    private final Counter unknownRequested;
+
+    /**
+     * Constructs the registry and loads all templates.
+     *
+     * @param scheduler timer used to poll the template directory
+     * @param meterRegistry registry used to publish template metrics
+     * @param defaultVersion version used when no other version applies
+     * @param batchVersion version of the multi-incident template
+     * @param rolloutVersion version rolled out to a share of incidents; blank for none
+     * @param rolloutPercent share of incidents, 0 to 100, that get the rollout version
+     * @param directory directory polled for template overrides; blank for none
+     * @param reloadIntervalMs interval between polls of the directory
+     * @throws IllegalArgumentException if the settings are invalid or a configured version has no template
+     */
+    public PromptTemplateRegistry(
+            @Qualifier("aiEnrichmentScheduler") TaskScheduler scheduler,
+            MeterRegistry meterRegistry,
+            @Value("${ai.prompts.default-version:incident-enrichment-v1}") String defaultVersion,
+            @Value("${ai.prompts.batch-version:incident-enrichment-batch-v1}") String batchVersion,
+            @Value("${ai.prompts.rollout.version:}") String rolloutVersion,
+            @Value("${ai.prompts.rollout.percent:0}") int rolloutPercent,
+            @Value("${ai.prompts.directory:}") String directory,
+            @Value("${ai.prompts.reload-interval-ms:10000}") long reloadIntervalMs) {
+        if (rolloutPercent < 0 || rolloutPercent > 100) {
+            throw new IllegalArgumentException("ai.prompts.rollout.percent must be between 0 and 100");
+        }
+        if (rolloutPercent > 0 && (rolloutVersion == null || rolloutVersion.isBlank())) {
+            throw new IllegalArgumentException("ai.prompts.rollout.version is required when rolling out a prompt");
+        }
+        if (reloadIntervalMs < 100) {
+            throw new IllegalArgumentException("ai.prompts.reload-interval-ms must be at least 100");
+        }
+        this.scheduler = scheduler;
+        this.defaultVersion = defaultVersion;
+        this.batchVersion = batchVersion;
+        this.rolloutVersion = rolloutPercent > 0 ? rolloutVersion : null;
+        this.rolloutPercent = rolloutPercent;
+        this.directory = directory == null || directory.isBlank() ? null : Path.of(directory);
+        this.reloadInterval = Duration.ofMillis(reloadIntervalMs);
+
+        this.reloads = Counter.builder("ai.prompts.reloads")
+                .tag("result", "changed")
+                .description("Prompt template directory polls, by result")
+                .register(meterRegistry);
+        this.failedReloads = Counter.builder("ai.prompts.reloads")
+                .tag("result", "failed")
+                .description("Prompt template directory polls, by result")
+                .register(meterRegistry);
+        this.rejectedEdits = Counter.builder("ai.prompts.reloads")
+                .tag("result", "rejected")
+                .description("Prompt template directory polls, by result")
+                .register(meterRegistry);
+        this.unknownRequested = Counter.builder("ai.prompts.unknown-requested")
+                .description("Incidents that requested a prompt version with no template")
+                .register(meterRegistry);
+
+        this.classpathTemplates = loadClasspath();
+        this.templates = classpathTemplates;
+        load(true);
+
+        for (String version : new String[] { defaultVersion, batchVersion, this.rolloutVersion }) {
+            if (version != null && !templates.containsKey(version)) {
+                throw new IllegalArgumentException("No prompt template found for version " + version);
+            }
+        }
+        if (defaultVersion.equals(batchVersion) || batchVersion.equals(this.rolloutVersion)) {
+            throw new IllegalArgumentException("ai.prompts.batch-version cannot be used for single incidents");
+        }
+
+        Gauge.builder("ai.prompts.templates", this, registry -> registry.templates.size())
+                .description("Prompt template versions currently loaded")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts polling the template directory once the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (directory == null || !started.compareAndSet(false, true)) {
+            return;
+        }
+        scheduler.scheduleWithFixedDelay(this::reloadSafely, reloadInterval);
+        log.info("Polling {} for prompt template changes every {} ms", directory, reloadInterval.toMillis());
+    }
+
+    /**
+     * Selects the prompt version for an incident.
+     *
+     * @param incidentId the incident ID, used to bucket the rollout
+     * @param requested the version requested for the incident, or null
+     * @return the version to render
+     */
+    public String select(String incidentId, String requested) {
+        Map<String, PromptTemplate> current = templates;
+        if (requested != null) {
+            if (current.containsKey(requested) && !requested.equals(batchVersion)) {
+                return requested;
+            }
+            unknownRequested.increment();
+            log.debug("Prompt version {} requested for incident {} is not available", requested, incidentId);
+        }
+        if (rolloutVersion != null && bucket(incidentId) < rolloutPercent && current.containsKey(rolloutVersion)) {
+            return rolloutVersion;
+        }
+        return defaultVersion;
+    }
+
+    /**
+     * Returns the template for a version.
+     *
+     * @param version the version, or null for the default version
+     * @return the template
+     * @throws IllegalArgumentException if no template has that version
+     */
+    PromptTemplate template(String version) {
+        PromptTemplate template = templates.get(version == null ? defaultVersion : version);
+        if (template == null) {
+            throw new IllegalArgumentException("No prompt template found for version " + version);
+        }
+        return template;
+    }
+
+    /**
+     * @return the multi-incident template used for batches
+     */
+    PromptTemplate batchTemplate() {
+        return template(batchVersion);
+    }
+
+    /**
+     * Whether incidents on a version may share a batch call, which renders
+     * the batch template instead of the version's own.
+     *
+     * @param version the incident's version, or null for the default version
+     * @return true if the version is the default version
+     */
+    public boolean isBatchable(String version) {
+        return version == null || defaultVersion.equals(version);
+    }
+
+    /**
+     * @return the version used when no other version applies
+     */
+    public String getDefaultVersion() {
+        return defaultVersion;
+    }
+
+    /**
+     * Re-reads the template directory, parsing only files that were added
+     * or modified since the last poll, and swaps in the new set of
+     * templates if anything changed. A loaded version whose text would
+     * change keeps its current template.
+     *
+     * @return true if the set of templates changed
+     */
+    public boolean reload() {
+        return load(false);
+    }
+
+    /**
+     * Reads the template directory and merges it over the bundled templates.
+     *
+     * @param initial whether this is the load at startup, when directory
+     *         files may still override the text of bundled versions
+     * @return true if the set of templates changed
+     */
+    private synchronized boolean load(boolean initial) {
+        if (directory == null) {
+            return false;
+        }
+        Map<Path, DiskTemplate> loaded = new HashMap<>();
+        boolean changed = false;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path file : files) {
+                DiskTemplate previous = diskTemplates.get(file);
+                try {
+                    FileTime modified = Files.getLastModifiedTime(file);
+                    if (previous != null && previous.modified().equals(modified)) {
+                        loaded.put(file, previous);
+                        continue;
+                    }
+                    String version = versionOf(file.getFileName().toString());
+                    String text = Files.readString(file, StandardCharsets.UTF_8);
+                    loaded.put(file, new DiskTemplate(PromptTemplate.parse(version, text), modified));
+                    changed = true;
+                } catch (IOException | IllegalArgumentException e) {
+                    failedReloads.increment();
+                    log.warn("Failed to load prompt template {}; keeping the previous version: {}",
+                            file, e.getMessage());
+                    if (previous != null) {
+                        loaded.put(file, previous);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            failedReloads.increment();
+            log.warn("Failed to list prompt template directory {}: {}", directory, e.getMessage());
+            return false;
+        }
+
+        if (!changed && loaded.keySet().equals(diskTemplates.keySet())) {
+            return false;
+        }
+        Map<String, PromptTemplate> merged = new HashMap<>(classpathTemplates);
+        loaded.values().forEach(disk -> merged.put(disk.template().getVersion(), disk.template()));
+        if (!initial) {
+            keepLoadedText(merged);
+        }
+        diskTemplates = loaded;
+        if (merged.equals(templates)) {
+            return false;
+        }
+        templates = Map.copyOf(merged);
+        reloads.increment();
+        log.info("Loaded prompt templates {}", templates.keySet());
+        return true;
+    }
+
+    /**
+     * Puts back the current template of every version whose text the
+     * reload would change.
+     *
+     * @param merged the templates about to be swapped in
+     */
+    private void keepLoadedText(Map<String, PromptTemplate> merged) {
+        for (Map.Entry<String, PromptTemplate> entry : merged.entrySet()) {
+            PromptTemplate current = templates.get(entry.getKey());
+            if (current != null && !current.hasSameText(entry.getValue())) {
+                rejectedEdits.increment();
+                log.warn("Prompt template {} was edited in place; keeping its loaded text. "
+                        + "Add the change as a new version instead", entry.getKey());
+                entry.setValue(current);
+            }
+        }
+    }
+
+    /**
+     * Reloads on the timer, keeping the poll alive if anything goes wrong.
+     */
+    private void reloadSafely() {
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            failedReloads.increment();
+            log.warn("Prompt template reload failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Parses every bundled template.
+     *
+     * @return the templates by version
+     * @throws IllegalStateException if a template cannot be read
+     */
+    private static Map<String, PromptTemplate> loadClasspath() {
+        Map<String, PromptTemplate> loaded = new HashMap<>();
+        try {
+            for (Resource resource : new PathMatchingResourcePatternResolver().getResources(CLASSPATH_PATTERN)) {
+                String version = versionOf(resource.getFilename());
+                loaded.putIfAbsent(version, PromptTemplate.parse(version,
+                        new String(resource.getInputStream().readAllBytes(), StandardCharsets.UTF_8)));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to load AI prompt templates: " + CLASSPATH_PATTERN, e);
+        }
+        return Map.copyOf(loaded);
+    }
+
+    /**
+     * Maps a template file name to its version.
+     */
+    private static String versionOf(String fileName) {
+        return fileName.substring(0, fileName.length() - EXTENSION.length());
+    }
+
+    /**
+     * Maps an incident ID to a stable rollout bucket from 0 to 99.
+     */
+    static int bucket(String incidentId) {
+        int hash = incidentId == null ? 0 : incidentId.hashCode();
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        return Math.floorMod(hash, 100);
+    }
+
+    /**
+     * A template loaded from the directory with the file's modification time.
+     */
+    private record DiskTemplate(PromptTemplate template, FileTime modified) {
+    }
+}
@@ -0,0 +1,130 @@
+package com.stephenusselman.incidentservice.service.ai;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.stephenusselman.incidentservice.dto.ai.IncidentEnrichmentResult;
+
+/**
+ * Incremental parser that watches a streamed enrichment response and reports
+ * the classification as soon as both {@code severity} and {@code category}
+ * have been received in full, without waiting for the summary fields.
+ *
+ * Uses Jackson's non-blocking parser, so each text delta is parsed once as
+ * it arrives. Values are normalized like the full response, and an unknown
+ * severity stops the parser. Anything before the first {@code '{'} is skipped. If the
+ * stream turns out not to be JSON the parser stops quietly and the complete
+ * response is still parsed as usual. Not thread-safe; deltas must be fed in
+ * order from one thread at a time.
+ */
+class StreamingClassificationParser {
+
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+    private final Consumer<IncidentEnrichmentResult> onClassification;
+
+    /** Whether the opening brace has been seen */
+    private boolean started;
+
+    /** Whether the parser has given up or the classification was reported */
+    private boolean done;
+
+    /** Nesting depth; top-level fields are at depth 1 */
+    private int depth;
+
+    private String field;
+    private String severity;
+    private String category;
+
+    /**
+     * Creates a parser for one response.
+     *
+     * @param jsonFactory factory for the non-blocking parser
+     * @param onClassification receives a result holding only severity and category
+     * @throws IllegalStateException if the parser cannot be created
+     */
+    StreamingClassificationParser(JsonFactory jsonFactory, Consumer<IncidentEnrichmentResult> onClassification) {
+        try {
+            this.parser = jsonFactory.createNonBlockingByteArrayParser();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to create streaming JSON parser", e);
+        }
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+        this.onClassification = onClassification;
+    }
+
+    /**
+     * Parses the next chunk of response text.
+     *
+     * @param delta the text received since the previous call
+     */
+    void feed(String delta) {
+        if (done || delta == null || delta.isEmpty()) {
+            return;
+        }
+        String text = delta;
+        if (!started) {
+            int brace = text.indexOf('{');
+            if (brace < 0) {
+                return;
+            }
+            started = true;
+            text = text.substring(brace);
+        }
+
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        try {
+            feeder.feedInput(bytes, 0, bytes.length);
+            JsonToken token;
+            while (!done && (token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                onToken(token);
+            }
+        } catch (IOException e) {
+            done = true;
+        }
+    }
+
+    /**
+     * Tracks nesting and records top-level classification strings.
+     *
+     * @param token the token just parsed
+     */
+    private void onToken(JsonToken token) throws IOException {
+        switch (token) {
+            case START_OBJECT, START_ARRAY -> depth++;
+            case END_OBJECT, END_ARRAY -> {
+                depth--;
+                if (depth == 0) {
+                    done = true;
+                }
+            }
+            case FIELD_NAME -> field = depth == 1 ? parser.currentName() : null;
+            case VALUE_STRING -> {
+                if (depth != 1 || field == null) {
+                    return;
+                }
+                if (field.equals("severity")) {
+                    severity = EnrichmentResponseParser.normalizeSeverity(parser.getText());
+                    if (severity == null) {
+                        done = true;
+                        return;
+                    }
+                } else if (field.equals("category")) {
+                    category = EnrichmentResponseParser.normalizeCategory(parser.getText());
+                }
+                if (severity != null && category != null) {
+                    done = true;
+                    onClassification.accept(new IncidentEnrichmentResult(severity, category, null, null));
+                }
+            }
+            default -> {
+                // numbers, booleans and nulls carry nothing we report early
+            }
+        }
+    }
+}
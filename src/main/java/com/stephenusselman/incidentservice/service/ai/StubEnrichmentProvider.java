@@ -0,0 +1,371 @@
+package com.stephenusselman.incidentservice.service.ai;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import com.openai.core.http.Headers;
+import com.openai.errors.RateLimitException;
+import com.stephenusselman.incidentservice.dto.ai.IncidentEnrichmentRequest;
+import com.stephenusselman.incidentservice.dto.ai.IncidentEnrichmentResult;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Network-free {@link EnrichmentProvider} for load testing, active under
+ * the {@code stub} profile.
+ *
+ * Classifications are deterministic: severity comes from the
+ * {@link EnrichmentPriority} keyword heuristics and category from a second
+ * keyword table, so the same description always gets the same result.
+ * Each call waits for a latency drawn from the configured distribution and
+ * can fail with a generic error or an OpenAI {@link RateLimitException} at
+ * configured rates, so the whole create, enrich and persist pipeline,
+ * including backoff and overload handling, can be exercised at production
+ * rates. Asynchronous calls wait on a timer rather than a blocked thread.
+ * Streamed calls report the classification a third of the way through
+ * their latency, like a model that emits severity and category first.
+ */
+@Service
+@Profile("stub")
+public class StubEnrichmentProvider implements EnrichmentProvider {
+
+    /** Category keywords, checked in order */
+    private static final Map<String, List<String>> CATEGORY_KEYWORDS = categoryKeywords();
+
+    /** Model identifier recorded on incidents the stub enriched */
+    static final String MODEL = "stub";
+
+    /** Rough characters per token, matching the OpenAI provider's estimate */
+    private static final int CHARS_PER_TOKEN = 4;
+
+    /** Approximate size of the real prompt template in tokens */
+    private static final int TEMPLATE_TOKENS = 300;
+
+    /** Longest description excerpt used in the stub summary */
+    private static final int SUMMARY_EXCERPT_LENGTH = 120;
+
+    private final LatencyDistribution distribution;
+    private final long medianMs;
+    private final double sigma;
+    private final long minMs;
+    private final long maxMs;
+    private final double errorRate;
+    private final double rateLimitRate;
+
+    /** Source of latency and fault samples; seeded so runs are repeatable */
+    private final Random random;
+
+    /** Timer that completes asynchronous calls after their latency */
+    private final ScheduledExecutorService timer;
+
+    private final Counter successes;
+    private final Counter errors;
+    private final Counter rateLimited;
+
+    /**
+     * Constructs the stub provider.
+     *
+     * @param meterRegistry registry used to publish stub call metrics
+     * @param distribution latency distribution: fixed, uniform or lognormal
+     * @param medianMs fixed latency, or the median of the lognormal distribution
+     * @param sigma shape of the lognormal distribution
+     * @param minMs lower latency bound, and the start of the uniform range
+     * @param maxMs upper latency bound, and the end of the uniform range
+     * @param errorRate fraction of calls that fail with a generic error
+     * @param rateLimitRate fraction of calls that fail with a 429
+     * @param seed seed for latency and fault sampling
+     */
+    public StubEnrichmentProvider(
+            MeterRegistry meterRegistry,
+            @Value("${ai.stub.latency.distribution:lognormal}") String distribution,
+            @Value("${ai.stub.latency.median-ms:800}") long medianMs,
+            @Value("${ai.stub.latency.sigma:0.5}") double sigma,
+            @Value("${ai.stub.latency.min-ms:0}") long minMs,
+            @Value("${ai.stub.latency.max-ms:30000}") long maxMs,
+            @Value("${ai.stub.error-rate:0.0}") double errorRate,
+            @Value("${ai.stub.rate-limit-rate:0.0}") double rateLimitRate,
+            @Value("${ai.stub.seed:42}") long seed) {
+        if (minMs < 0 || maxMs < minMs) {
+            throw new IllegalArgumentException("ai.stub.latency min-ms and max-ms must satisfy 0 <= min-ms <= max-ms");
+        }
+        if (medianMs < 0 || sigma < 0) {
+            throw new IllegalArgumentException("ai.stub.latency median-ms and sigma must not be negative");
+        }
+        if (errorRate < 0 || rateLimitRate < 0 || errorRate + rateLimitRate > 1) {
+            throw new IllegalArgumentException("ai.stub error-rate and rate-limit-rate must be in [0, 1] and sum to at most 1");
+        }
+        this.distribution = LatencyDistribution.valueOf(distribution.trim().toUpperCase(Locale.ROOT));
+        this.medianMs = medianMs;
+        this.sigma = sigma;
+        this.minMs = minMs;
+        this.maxMs = maxMs;
+        this.errorRate = errorRate;
+        this.rateLimitRate = rateLimitRate;
+        this.random = new Random(seed);
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "stub-ai-provider");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.successes = Counter.builder("ai.stub.calls")
+                .tag("outcome", "success")
+                .description("Stub AI provider calls")
+                .register(meterRegistry);
+        this.errors = Counter.builder("ai.stub.calls")
+                .tag("outcome", "error")
+                .description("Stub AI provider calls")
+                .register(meterRegistry);
+        this.rateLimited = Counter.builder("ai.stub.calls")
+                .tag("outcome", "rate-limited")
+                .description("Stub AI provider calls")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Stops the latency timer.
+     */
+    @PreDestroy
+    public void stop() {
+        timer.shutdownNow();
+    }
+
+    /**
+     * Identifies the stub, so incidents it enriched are re-enriched once a
+     * real model is used.
+     *
+     * @return the stub's model identifier
+     */
+    @Override
+    public String getModel() {
+        return MODEL;
+    }
+
+    /**
+     * Classifies one incident after blocking for a latency sample.
+     *
+     * @param request the incident enrichment request
+     * @return the deterministic stub result
+     */
+    @Override
+    public IncidentEnrichmentResult enrichIncident(IncidentEnrichmentRequest request) {
+        sleep(sampleLatencyMs());
+        injectFault();
+        return classify(request.getDescription());
+    }
+
+    /**
+     * Classifies a batch after blocking for one latency sample.
+     *
+     * @param requests the incident enrichment requests
+     * @return the deterministic stub results keyed by incident ID
+     */
+    @Override
+    public Map<String, IncidentEnrichmentResult> enrichIncidents(List<IncidentEnrichmentRequest> requests) {
+        sleep(sampleLatencyMs());
+        injectFault();
+        return classifyAll(requests);
+    }
+
+    /**
+     * Classifies one incident once a latency sample has elapsed on the timer.
+     *
+     * @param request the incident enrichment request
+     * @return a future completed with the deterministic stub result
+     */
+    @Override
+    public CompletableFuture<IncidentEnrichmentResult> enrichIncidentAsync(IncidentEnrichmentRequest request) {
+        return afterLatency(() -> classify(request.getDescription()), sampleLatencyMs());
+    }
+
+    /**
+     * Reports the classification a third of the way through a latency
+     * sample, then completes with the full result, or an injected fault,
+     * once the whole sample has elapsed.
+     *
+     * @param request the incident enrichment request
+     * @param onClassification receives severity and category
+     * @return a future completed with the deterministic stub result
+     */
+    @Override
+    public CompletableFuture<IncidentEnrichmentResult> enrichIncidentStreaming(
+            IncidentEnrichmentRequest request, Consumer<IncidentEnrichmentResult> onClassification) {
+        long latencyMs = sampleLatencyMs();
+        IncidentEnrichmentResult result = classify(request.getDescription());
+        timer.schedule(
+                () -> onClassification.accept(new IncidentEnrichmentResult(
+                        result.getSeverity(), result.getCategory(), null, null)),
+                latencyMs / 3, TimeUnit.MILLISECONDS);
+        return afterLatency(() -> result, latencyMs);
+    }
+
+    /**
+     * Classifies a batch once a latency sample has elapsed on the timer.
+     *
+     * @param requests the incident enrichment requests
+     * @return a future completed with the stub results keyed by incident ID
+     */
+    @Override
+    public CompletableFuture<Map<String, IncidentEnrichmentResult>> enrichIncidentsAsync(
+            List<IncidentEnrichmentRequest> requests) {
+        return afterLatency(() -> classifyAll(requests), sampleLatencyMs());
+    }
+
+    /**
+     * Estimates prompt tokens as the real template size plus the description.
+     *
+     * @param request the incident enrichment request
+     * @return the estimated prompt tokens
+     */
+    @Override
+    public int estimatePromptTokens(IncidentEnrichmentRequest request) {
+        String description = request.getDescription() == null ? "" : request.getDescription();
+        return TEMPLATE_TOKENS + (description.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    /**
+     * Deterministically classifies a description.
+     *
+     * @param description the incident description
+     * @return the stub enrichment result
+     */
+    static IncidentEnrichmentResult classify(String description) {
+        String text = description == null ? "" : description.toLowerCase(Locale.ROOT);
+        String severity = switch (EnrichmentPriority.of(description)) {
+            case CRITICAL -> "CRITICAL";
+            case HIGH -> "HIGH";
+            case NORMAL -> "MEDIUM";
+            case LOW -> "LOW";
+        };
+        String category = CATEGORY_KEYWORDS.entrySet().stream()
+                .filter(entry -> entry.getValue().stream().anyMatch(text::contains))
+                .map(Map.Entry::getKey)
+                .findFirst()
+                .orElse("OTHER");
+
+        String excerpt = description == null ? "" : description.strip();
+        if (excerpt.length() > SUMMARY_EXCERPT_LENGTH) {
+            excerpt = excerpt.substring(0, SUMMARY_EXCERPT_LENGTH) + "...";
+        }
+        return new IncidentEnrichmentResult(
+                severity,
+                category,
+                "Stub " + category.toLowerCase(Locale.ROOT) + " incident: " + excerpt,
+                "Investigate the " + category.toLowerCase(Locale.ROOT) + " issue and escalate if it persists.");
+    }
+
+    /**
+     * Classifies every request of a batch.
+     */
+    private Map<String, IncidentEnrichmentResult> classifyAll(List<IncidentEnrichmentRequest> requests) {
+        Map<String, IncidentEnrichmentResult> results = new LinkedHashMap<>();
+        for (IncidentEnrichmentRequest request : requests) {
+            results.put(request.getIncidentId(), classify(request.getDescription()));
+        }
+        return results;
+    }
+
+    /**
+     * Completes a future with the supplied result, or an injected fault,
+     * once the latency has elapsed on the timer.
+     */
+    private <T> CompletableFuture<T> afterLatency(Supplier<T> result, long latencyMs) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        timer.schedule(() -> {
+            try {
+                injectFault();
+                future.complete(result.get());
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        }, latencyMs, TimeUnit.MILLISECONDS);
+        return future;
+    }
+
+    /**
+     * Draws a latency from the configured distribution, clamped to [min-ms, max-ms].
+     *
+     * @return the latency in milliseconds
+     */
+    long sampleLatencyMs() {
+        double latency = switch (distribution) {
+            case FIXED -> medianMs;
+            case UNIFORM -> minMs + random.nextDouble() * (maxMs - minMs);
+            case LOGNORMAL -> medianMs * Math.exp(sigma * random.nextGaussian());
+        };
+        return Math.max(minMs, Math.min(maxMs, Math.round(latency)));
+    }
+
+    /**
+     * Throws an injected failure at the configured rates, and counts the outcome.
+     */
+    private void injectFault() {
+        double roll = random.nextDouble();
+        if (roll < rateLimitRate) {
+            rateLimited.increment();
+            throw RateLimitException.builder()
+                    .headers(Headers.builder().put("retry-after", "1").build())
+                    .build();
+        }
+        if (roll < rateLimitRate + errorRate) {
+            errors.increment();
+            throw new IllegalStateException("Stub AI provider injected failure");
+        }
+        successes.increment();
+    }
+
+    /**
+     * Blocks the calling thread for a latency sample.
+     */
+    private void sleep(long latencyMs) {
+        try {
+            Thread.sleep(latencyMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Stub AI call interrupted", e);
+        }
+    }
+
+    /**
+     * Builds the ordered category keyword table.
+     */
+    private static Map<String, List<String>> categoryKeywords() {
+        Map<String, List<String>> keywords = new LinkedHashMap<>();
+        keywords.put("SECURITY", List.of("unauthorized", "breach", "malware", "phishing", "credential",
+                "login", "ransomware", "exfiltrat"));
+        keywords.put("AVAILABILITY", List.of("outage", "down", "unavailable", "unreachable", "crash", "503"));
+        keywords.put("PERFORMANCE", List.of("slow", "latency", "timeout", "timing out", "cpu", "memory"));
+        keywords.put("DATA", List.of("database", "data", "backup", "corrupt", "replication", "disk"));
+        return keywords;
+    }
+
+    /**
+     * Shapes of latency the stub can simulate.
+     */
+    public enum LatencyDistribution {
+
+        /** Every call takes median-ms */
+        FIXED,
+
+        /** Uniform between min-ms and max-ms */
+        UNIFORM,
+
+        /** Lognormal around median-ms with shape sigma, giving a long tail */
+        LOGNORMAL
+    }
+}
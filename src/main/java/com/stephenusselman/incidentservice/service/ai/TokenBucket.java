@@ -0,0 +1,68 @@
+package com.stephenusselman.incidentservice.service.ai;
+
+/**
+ * Token bucket refilled continuously at a fixed rate per minute, used to keep
+ * estimated AI token usage within the provider's tokens-per-minute quota.
+ * Not thread-safe; callers synchronize.
+ */
+class TokenBucket {
+
+    private static final double NANOS_PER_MINUTE = 60_000_000_000.0;
+
+    /** Maximum tokens the bucket can hold (one minute of quota) */
+    private final long capacity;
+
+    /** Tokens added per nanosecond */
+    private final double refillPerNano;
+
+    private double available;
+    private long lastRefillNanos;
+
+    /**
+     * Creates a full bucket.
+     *
+     * @param tokensPerMinute the quota per minute
+     */
+    TokenBucket(long tokensPerMinute) {
+        if (tokensPerMinute < 1) {
+            throw new IllegalArgumentException("tokens per minute must be at least 1");
+        }
+        this.capacity = tokensPerMinute;
+        this.refillPerNano = tokensPerMinute / NANOS_PER_MINUTE;
+        this.available = tokensPerMinute;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Takes the tokens if available. Requests larger than the capacity are
+     * clamped so they can still run once the bucket is full.
+     *
+     * @param tokens the tokens needed
+     * @return 0 if the tokens were taken, otherwise nanoseconds until they will be available
+     */
+    long tryConsume(long tokens) {
+        refill();
+        double needed = Math.min(tokens, capacity);
+        if (available >= needed) {
+            available -= needed;
+            return 0;
+        }
+        return Math.max(1, (long) Math.ceil((needed - available) / refillPerNano));
+    }
+
+    /**
+     * Gets the tokens currently available.
+     *
+     * @return the available tokens rounded down
+     */
+    long getAvailable() {
+        refill();
+        return (long) available;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        available = Math.min(capacity, available + (now - lastRefillNanos) * refillPerNano);
+        lastRefillNanos = now;
+    }
+}
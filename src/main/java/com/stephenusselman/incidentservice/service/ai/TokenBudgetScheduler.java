@@ -0,0 +1,329 @@
+package com.stephenusselman.incidentservice.service.ai;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import com.stephenusselman.incidentservice.dto.ai.IncidentEnrichmentRequest;
+import com.stephenusselman.incidentservice.dto.ai.IncidentEnrichmentResult;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Token-budget-aware, priority-ordered admission in front of the AI calls.
+ *
+ * Each call is charged its estimated prompt tokens plus a fixed allowance
+ * for the response against a token bucket sized to the provider's
+ * tokens-per-minute quota. Calls that cannot be afforded yet wait in a
+ * priority queue ordered by {@link EnrichmentPriority} and then by arrival,
+ * so a likely security incident is admitted before a backlog of warnings.
+ * The queue head blocks everything behind it, which keeps large urgent
+ * prompts from being starved by small routine ones.
+ *
+ * A call that waits longer than {@code max-wait-ms} fails with
+ * {@link AiCallNotPermittedException} so the durable queue parks it
+ * instead of holding it in memory.
+ */
+@Slf4j
+@Component
+public class TokenBudgetScheduler {
+
+    /** Most urgent class first, then oldest first */
+    private static final Comparator<PendingCall> ORDER = Comparator
+            .comparing(PendingCall::priority)
+            .thenComparingLong(PendingCall::sequence);
+
+    private final EnrichmentProvider enrichmentProvider;
+
+    /** Timer used to admit calls once the bucket has refilled */
+    private final TaskScheduler aiEnrichmentScheduler;
+
+    /** Whether calls are budgeted at all */
+    private final boolean enabled;
+
+    /** Tokens reserved per call for the model's response */
+    private final int outputTokensPerRequest;
+
+    /** Maximum time a call waits for budget before it is parked */
+    private final long maxWaitMs;
+
+    private final TokenBucket bucket;
+
+    /** Calls waiting for budget */
+    private final PriorityQueue<PendingCall> pending = new PriorityQueue<>(ORDER);
+
+    /** Calls waiting per priority class, for the queued gauge */
+    private final Map<EnrichmentPriority, Integer> queuedByPriority = new EnumMap<>(EnrichmentPriority.class);
+
+    private final Map<EnrichmentPriority, Timer> waitTimers = new EnumMap<>(EnrichmentPriority.class);
+    private final Counter reservedTokens;
+    private final Counter expiredCalls;
+
+    /** Arrival counter used to keep equal priorities in FIFO order */
+    private long sequence;
+
+    /** Timer that admits the queue head once enough tokens have refilled */
+    private ScheduledFuture<?> drainTimer;
+
+    /**
+     * Constructs the token budget scheduler.
+     *
+     * @param enrichmentProvider the active enrichment provider, used to estimate prompt tokens
+     * @param aiEnrichmentScheduler the timer used to admit waiting calls
+     * @param meterRegistry registry used to publish budget and wait metrics
+     * @param enabled whether calls are budgeted
+     * @param tokensPerMinute the token quota per minute
+     * @param outputTokensPerRequest tokens reserved per call for the response
+     * @param maxWaitMs maximum time a call waits for budget
+     */
+    public TokenBudgetScheduler(
+            EnrichmentProvider enrichmentProvider,
+            @Qualifier("aiEnrichmentScheduler") TaskScheduler aiEnrichmentScheduler,
+            MeterRegistry meterRegistry,
+            @Value("${ai.token-budget.enabled:true}") boolean enabled,
+            @Value("${ai.token-budget.tokens-per-minute:200000}") long tokensPerMinute,
+            @Value("${ai.token-budget.output-tokens-per-request:500}") int outputTokensPerRequest,
+            @Value("${ai.token-budget.max-wait-ms:60000}") long maxWaitMs) {
+        if (tokensPerMinute < 1) {
+            throw new IllegalArgumentException("ai.token-budget.tokens-per-minute must be at least 1");
+        }
+        if (outputTokensPerRequest < 0) {
+            throw new IllegalArgumentException("ai.token-budget.output-tokens-per-request must not be negative");
+        }
+        if (maxWaitMs < 1) {
+            throw new IllegalArgumentException("ai.token-budget.max-wait-ms must be at least 1");
+        }
+        this.enrichmentProvider = enrichmentProvider;
+        this.aiEnrichmentScheduler = aiEnrichmentScheduler;
+        this.enabled = enabled;
+        this.outputTokensPerRequest = outputTokensPerRequest;
+        this.maxWaitMs = maxWaitMs;
+        this.bucket = new TokenBucket(tokensPerMinute);
+
+        for (EnrichmentPriority priority : EnrichmentPriority.values()) {
+            String tag = priority.name().toLowerCase(Locale.ROOT);
+            queuedByPriority.put(priority, 0);
+            waitTimers.put(priority, Timer.builder("ai.enrichment.scheduler.wait")
+                    .tag("priority", tag)
+                    .description("Time AI calls waited for token budget")
+                    .register(meterRegistry));
+            Gauge.builder("ai.enrichment.scheduler.queued", this, s -> s.getQueued(priority))
+                    .tag("priority", tag)
+                    .description("AI calls waiting for token budget")
+                    .register(meterRegistry);
+        }
+        this.reservedTokens = Counter.builder("ai.token-budget.reserved")
+                .description("Estimated tokens reserved for admitted AI calls")
+                .register(meterRegistry);
+        this.expiredCalls = Counter.builder("ai.enrichment.scheduler.expired")
+                .description("AI calls parked after waiting too long for token budget")
+                .register(meterRegistry);
+        Gauge.builder("ai.token-budget.available", this, TokenBudgetScheduler::getAvailableTokens)
+                .description("Tokens currently available in the budget")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs the call once the budget allows it, ahead of any less urgent
+     * calls that are still waiting.
+     *
+     * @param request the enrichment request, used for priority and token estimate
+     * @param call starts the AI call and returns its pending result
+     * @return a future completed with the call's result, or with
+     *         {@link AiCallNotPermittedException} if it waited too long
+     */
+    public CompletableFuture<IncidentEnrichmentResult> submit(
+            IncidentEnrichmentRequest request,
+            Supplier<CompletableFuture<IncidentEnrichmentResult>> call) {
+        if (!enabled) {
+            return call.get();
+        }
+
+        EnrichmentPriority priority = EnrichmentPriority.of(request.getDescription());
+        long tokens = (long) enrichmentProvider.estimatePromptTokens(request) + outputTokensPerRequest;
+        CompletableFuture<IncidentEnrichmentResult> result = new CompletableFuture<>();
+
+        PendingCall entry;
+        synchronized (this) {
+            entry = new PendingCall(priority, sequence++, tokens, System.nanoTime(), call, result);
+            pending.add(entry);
+            queuedByPriority.merge(priority, 1, Integer::sum);
+        }
+
+        try {
+            ScheduledFuture<?> expiry = aiEnrichmentScheduler.schedule(
+                    () -> expire(entry), Instant.now().plusMillis(maxWaitMs));
+            result.whenComplete((r, e) -> expiry.cancel(false));
+        } catch (RejectedExecutionException e) {
+            remove(entry);
+            return CompletableFuture.failedFuture(e);
+        }
+
+        drain();
+        return result;
+    }
+
+    /**
+     * Charges an extra request to the budget if it can be afforded right
+     * now, without waiting. Used for hedges, which are only worth sending
+     * immediately and must not jump ahead of calls already waiting.
+     *
+     * @param request the enrichment request, used for the token estimate
+     * @return true if the tokens were reserved or budgeting is disabled
+     */
+    public boolean tryReserve(IncidentEnrichmentRequest request) {
+        if (!enabled) {
+            return true;
+        }
+        long tokens = (long) enrichmentProvider.estimatePromptTokens(request) + outputTokensPerRequest;
+        synchronized (this) {
+            if (!pending.isEmpty() || bucket.tryConsume(tokens) > 0) {
+                return false;
+            }
+        }
+        reservedTokens.increment(tokens);
+        return true;
+    }
+
+    /**
+     * Returns the calls currently waiting in one priority class.
+     *
+     * @param priority the priority class
+     * @return the number of waiting calls
+     */
+    public synchronized int getQueued(EnrichmentPriority priority) {
+        return queuedByPriority.get(priority);
+    }
+
+    /**
+     * Returns the tokens currently available in the budget.
+     *
+     * @return the available tokens
+     */
+    public synchronized long getAvailableTokens() {
+        return bucket.getAvailable();
+    }
+
+    /**
+     * Admits waiting calls in priority order while the budget lasts, and
+     * schedules another pass for when the queue head becomes affordable.
+     */
+    private void drain() {
+        List<PendingCall> admitted = new ArrayList<>();
+        synchronized (this) {
+            while (!pending.isEmpty()) {
+                PendingCall head = pending.peek();
+                long waitNanos = bucket.tryConsume(head.tokens());
+                if (waitNanos > 0) {
+                    scheduleDrain(waitNanos);
+                    break;
+                }
+                pending.poll();
+                queuedByPriority.merge(head.priority(), -1, Integer::sum);
+                admitted.add(head);
+            }
+        }
+        admitted.forEach(this::start);
+    }
+
+    /**
+     * Replaces the drain timer so it fires when the head can be afforded.
+     * Must be called while holding the monitor.
+     *
+     * @param waitNanos time until enough tokens are available
+     */
+    private void scheduleDrain(long waitNanos) {
+        if (drainTimer != null) {
+            drainTimer.cancel(false);
+        }
+        try {
+            drainTimer = aiEnrichmentScheduler.schedule(
+                    this::drain, Instant.now().plusNanos(waitNanos));
+        } catch (RejectedExecutionException e) {
+            drainTimer = null;
+            log.warn("Could not schedule token budget drain: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Starts an admitted call and forwards its outcome.
+     *
+     * @param entry the admitted call
+     */
+    private void start(PendingCall entry) {
+        waitTimers.get(entry.priority())
+                .record(System.nanoTime() - entry.enqueuedNanos(), TimeUnit.NANOSECONDS);
+        reservedTokens.increment(entry.tokens());
+        try {
+            entry.call().get().whenComplete((r, e) -> {
+                if (e == null) {
+                    entry.result().complete(r);
+                } else {
+                    entry.result().completeExceptionally(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            entry.result().completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Parks a call that is still waiting after max-wait-ms.
+     *
+     * @param entry the waiting call
+     */
+    private void expire(PendingCall entry) {
+        if (!remove(entry)) {
+            return;
+        }
+        expiredCalls.increment();
+        entry.result().completeExceptionally(new AiCallNotPermittedException(
+                "AI token budget exhausted", Instant.now().plusMillis(maxWaitMs)));
+        drain();
+    }
+
+    /**
+     * Removes a call from the waiting queue.
+     *
+     * @param entry the call to remove
+     * @return true if it was still waiting
+     */
+    private synchronized boolean remove(PendingCall entry) {
+        if (!pending.remove(entry)) {
+            return false;
+        }
+        queuedByPriority.merge(entry.priority(), -1, Integer::sum);
+        return true;
+    }
+
+    /**
+     * A call waiting for token budget.
+     */
+    private record PendingCall(
+            EnrichmentPriority priority,
+            long sequence,
+            long tokens,
+            long enqueuedNanos,
+            Supplier<CompletableFuture<IncidentEnrichmentResult>> call,
+            CompletableFuture<IncidentEnrichmentResult> result) {
+    }
+}
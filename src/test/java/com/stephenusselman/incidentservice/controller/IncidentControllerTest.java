@@ -220,4 +220,28 @@ public class IncidentControllerTest {
                             ((ResponseStatusException) result.getResolvedException()).getReason());
                 });
     }
-}
\ No newline at end of file
+
+    /**
+     * Ensures the backlog endpoint defaults to PENDING incidents and
+     * returns the paged service response.
+     */
+    @Test
+    void whenGetBacklog_thenReturnsPendingIncidents() throws Exception {
+        IncidentResponse pending = IncidentResponse.builder()
+                .incidentId("1")
+                .aiStatus("PENDING")
+                .build();
+
+        PagedIncidentResponse pagedResponse = PagedIncidentResponse.builder()
+                .items(List.of(pending))
+                .build();
+
+        when(incidentService.searchBacklog("PENDING", 10, null)).thenReturn(pagedResponse);
+
+        mockMvc.perform(get("/api/incidents/backlog")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].incidentId").value("1"))
+                .andExpect(jsonPath("$.items[0].aiStatus").value("PENDING"));
+    }
+}
@@ -0,0 +1,111 @@
+package com.stephenusselman.incidentservice.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import com.stephenusselman.incidentservice.domain.EnrichmentTask;
+import com.stephenusselman.incidentservice.domain.Incident;
+import com.stephenusselman.incidentservice.dto.CreateIncidentRequest;
+import com.stephenusselman.incidentservice.repository.EnrichmentQueueRepository;
+import com.stephenusselman.incidentservice.service.IncidentService;
+import com.stephenusselman.incidentservice.service.ai.AiEnrichmentService;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+@SpringBootTest(properties = {
+        "spring.profiles.active=local",
+        "ai.enrichment.queue.worker-enabled=false"
+})
+public class EnrichmentQueueIntegrationTest {
+
+    @Autowired
+    private IncidentService incidentService;
+
+    @Autowired
+    private EnrichmentQueueRepository queueRepository;
+
+    @MockitoBean
+    private AiEnrichmentService aiEnrichmentService;
+
+    /**
+     * Tests that creating an incident durably enqueues an enrichment task
+     * that is immediately claimable.
+     */
+    @Test
+    void createIncident_enqueuesClaimableTask() {
+        CreateIncidentRequest request = new CreateIncidentRequest();
+        request.setDescription("Queued enrichment");
+        request.setReportedBy("Tester");
+
+        Incident incident = incidentService.createIncident(request);
+
+        EnrichmentTask task = queueRepository.findById(incident.getIncidentId());
+        assertThat(task).isNotNull();
+        assertThat(task.getReason()).isEqualTo("CREATED");
+        assertThat(task.getAttempts()).isZero();
+        assertThat(Instant.parse(task.getVisibleAt())).isBeforeOrEqualTo(Instant.now());
+    }
+
+    /**
+     * Tests that a leased task cannot be claimed twice, and that it becomes
+     * claimable again once its lease expires. Expiry is checked against a
+     * future clock so workers of other test contexts never see the task.
+     */
+    @Test
+    void claim_isExclusiveUntilLeaseExpires() {
+        String incidentId = UUID.randomUUID().toString();
+        queueRepository.enqueue(incidentId, "TEST");
+
+        EnrichmentTask seen = queueRepository.findById(incidentId);
+        EnrichmentTask duplicate = queueRepository.findById(incidentId);
+
+        EnrichmentTask claimed = queueRepository.claim(seen, "worker-a", Duration.ofSeconds(60));
+        assertThat(claimed).isNotNull();
+        assertThat(queueRepository.claim(duplicate, "worker-b", Duration.ofSeconds(60))).isNull();
+
+        assertThat(queueRepository.findClaimable(Instant.now(), 100))
+                .extracting(EnrichmentTask::getIncidentId).doesNotContain(incidentId);
+        assertThat(queueRepository.findClaimable(Instant.now().plusSeconds(61), 100))
+                .extracting(EnrichmentTask::getIncidentId).contains(incidentId);
+
+        EnrichmentTask expired = queueRepository.findById(incidentId);
+        EnrichmentTask reclaimed = queueRepository.claim(expired, "worker-b", Duration.ofSeconds(60));
+        assertThat(reclaimed).isNotNull();
+        assertThat(reclaimed.getAttempts()).isEqualTo(2);
+
+        assertThat(queueRepository.complete(claimed)).isFalse();
+        assertThat(queueRepository.complete(reclaimed)).isTrue();
+    }
+
+    /**
+     * Tests that a lease renewal arriving after the task was released fails
+     * without touching the released task, and that a renewal arriving first
+     * does not stop the release from taking effect.
+     */
+    @Test
+    void renew_doesNotOverwriteRelease() {
+        String incidentId = UUID.randomUUID().toString();
+        queueRepository.enqueue(incidentId, "TEST");
+        EnrichmentTask claimed = queueRepository.claim(
+                queueRepository.findById(incidentId), "worker-a", Duration.ofSeconds(60));
+        String token = claimed.getLeaseToken();
+        Instant retryAt = Instant.now().plusSeconds(600);
+
+        assertThat(queueRepository.renew(incidentId, token, Duration.ofSeconds(60))).isTrue();
+        assertThat(queueRepository.release(claimed, retryAt)).isTrue();
+        assertThat(queueRepository.renew(incidentId, token, Duration.ofSeconds(60))).isFalse();
+
+        EnrichmentTask released = queueRepository.findById(incidentId);
+        assertThat(released.getLeaseToken()).isNull();
+        assertThat(released.getLeaseOwner()).isNull();
+        assertThat(released.getAttempts()).isEqualTo(1);
+        assertThat(released.getVisibleAt()).isEqualTo(retryAt.toString());
+    }
+}
@@ -10,6 +10,8 @@ import com.stephenusselman.incidentservice.domain.Incident;
 import com.stephenusselman.incidentservice.dto.CreateIncidentRequest;
 import com.stephenusselman.incidentservice.dto.PagedIncidentResponse;
 import com.stephenusselman.incidentservice.repository.IncidentRepository;
+import com.stephenusselman.incidentservice.repository.ParallelScanner;
+import com.stephenusselman.incidentservice.repository.TablePurger;
 import com.stephenusselman.incidentservice.service.IncidentService;
 import com.stephenusselman.incidentservice.service.ai.AiEnrichmentService;
 
@@ -17,9 +19,15 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.enhanced.dynamodb.model.Page;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
 @SpringBootTest(properties = {"spring.profiles.active=local"})
 public class IncidentServiceIntegrationTest {
 
@@ -29,6 +37,22 @@ public class IncidentServiceIntegrationTest {
     @Autowired
     private IncidentRepository repository;
 
+    @Autowired
+    private DynamoDbClient dynamoDbClient;
+
+    @Autowired
+    private DynamoDbEnhancedClient enhancedClient;
+
+    @Autowired
+    private ParallelScanner scanner;
+
+    @Autowired
+    private TablePurger purger;
+
+    @Autowired
+    @Qualifier("dynamoDbQueryExecutor")
+    private java.util.concurrent.Executor queryExecutor;
+
     @MockitoBean
     private AiEnrichmentService aiEnrichmentService;
 
@@ -64,13 +88,13 @@ public class IncidentServiceIntegrationTest {
      */
     @Test
     void createIncident_shouldTriggerAiEnrichment() throws Exception {
-        Mockito.when(aiEnrichmentService.enrichIncident(Mockito.any()))
-               .thenAnswer(invocation -> {
-                   var req = invocation.getArgument(0);
-                   return new com.stephenusselman.incidentservice.dto.ai.IncidentEnrichmentResult(
-                       "HIGH", "PERFORMANCE", "summary", "action"
-                   );
-               });
+        Mockito.when(aiEnrichmentService.enrichIncidentAsync(Mockito.any()))
+               .thenAnswer(invocation -> java.util.concurrent.CompletableFuture.completedFuture(
+                       new com.stephenusselman.incidentservice.dto.ai.IncidentEnrichmentResult(
+                           "HIGH", "PERFORMANCE", "summary", "action"
+                       )));
+        Mockito.when(aiEnrichmentService.enrichIncidentsAsync(Mockito.anyList()))
+               .thenReturn(java.util.concurrent.CompletableFuture.completedFuture(java.util.Map.of()));
 
         CreateIncidentRequest request = new CreateIncidentRequest();
         request.setDescription("Test AI enrichment");
@@ -124,6 +148,195 @@ public class IncidentServiceIntegrationTest {
     }
 
 
+    /**
+     * Tests that the parallel scan reads every segment to the end and that
+     * together the segments return each incident exactly once.
+     */
+    @Test
+    public void scanAll_shouldReadEveryIncidentOnceAcrossSegments() {
+        List<String> saved = new java.util.ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            Incident incident = createTestIncident("LOW", "OTHER");
+            repository.save(incident);
+            saved.add(incident.getIncidentId());
+        }
+
+        java.util.Queue<String> seen = new java.util.concurrent.ConcurrentLinkedQueue<>();
+        ParallelScanner.Scan scan = repository.scanAll(incident -> seen.add(incident.getIncidentId()));
+
+        assertThat(scan.progress()).hasSizeGreaterThan(1)
+                .allSatisfy(segment -> assertThat(segment.done()).isTrue());
+        assertThat(scan.getItems()).isEqualTo(seen.size());
+        assertThat(seen).doesNotHaveDuplicates().containsAll(saved);
+        assertThat(repository.findAll()).extracting(Incident::getIncidentId).containsAll(saved);
+    }
+
+    /**
+     * Tests that streamed queries return the same incidents as the list
+     * variants and that a short-circuiting stream stops early.
+     */
+    @Test
+    public void streamBySeverity_shouldStreamMatchingIncidentsLazily() {
+        Incident first = createTestIncident("HIGH", "SECURITY");
+        Incident second = createTestIncident("HIGH", "NETWORK");
+        repository.save(first);
+        repository.save(second);
+
+        assertThat(repository.streamBySeverity("HIGH"))
+                .extracting(Incident::getIncidentId)
+                .contains(first.getIncidentId(), second.getIncidentId());
+        assertThat(repository.streamAll("incidentId").limit(1)).hasSize(1)
+                .allSatisfy(incident -> assertThat(incident.getDescription()).isNull());
+    }
+
+    /**
+     * Tests that a time-range query reads the matching day buckets of the
+     * created-day index, returns the incidents oldest first and excludes
+     * those outside the range.
+     */
+    @Test
+    public void findByCreatedAtBetween_shouldQueryDayBucketsInOrder() {
+        Instant base = Instant.parse("2001-03-04T22:00:00Z");
+        List<String> inRange = new java.util.ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            Incident incident = createTestIncident("LOW", "OTHER");
+            incident.setCreatedAt(base.plusSeconds(i * 3600L).toString());
+            repository.save(incident);
+            inRange.add(incident.getIncidentId());
+        }
+        Incident outside = createTestIncident("LOW", "OTHER");
+        outside.setCreatedAt(base.minusSeconds(3600).toString());
+        repository.save(outside);
+
+        List<Incident> found = repository.findByCreatedAtBetween(base, base.plusSeconds(5 * 3600L));
+        IncidentRepository windowed = new IncidentRepository(enhancedClient, scanner, purger, queryExecutor, false, 8, 3);
+
+        assertThat(found).extracting(Incident::getIncidentId).containsExactlyElementsOf(inRange);
+        assertThat(windowed.findByCreatedAtBetween(base, base.plusSeconds(5 * 3600L)))
+                .extracting(Incident::getIncidentId).containsExactlyElementsOf(inRange);
+        assertThat(repository.streamByCreatedAtBetween(base, base.plusSeconds(5 * 3600L)))
+                .extracting(Incident::getIncidentId)
+                .containsExactlyInAnyOrderElementsOf(inRange);
+    }
+
+    /**
+     * Tests that range bounds and stored timestamps with different numbers
+     * of fraction digits still compare in time order.
+     */
+    @Test
+    public void findByCreatedAtBetween_shouldCompareTimestampsOfAnyPrecision() {
+        Instant base = Instant.parse("2001-03-05T10:00:00Z");
+        List<String> ids = new java.util.ArrayList<>();
+        for (Instant at : List.of(base, base.plusMillis(100), base.plusSeconds(1), base.plusSeconds(1).plusNanos(1))) {
+            Incident incident = createTestIncident("LOW", "OTHER");
+            incident.setCreatedAt(at.toString());
+            repository.save(incident);
+            ids.add(incident.getIncidentId());
+        }
+
+        assertThat(repository.findByCreatedAtBetween(base.plusMillis(100), base.plusSeconds(1)))
+                .extracting(Incident::getIncidentId)
+                .containsExactly(ids.get(1), ids.get(2));
+        assertThat(repository.findById(ids.get(0)).getCreatedAt())
+                .isEqualTo("2001-03-05T10:00:00.000000000Z");
+    }
+
+    /**
+     * Tests that the backfill adds the day bucket and severity shard to
+     * incidents written without them, making them visible to range and
+     * sharded queries.
+     */
+    @Test
+    public void backfillIndexKeys_shouldIndexIncidentsWrittenBeforeTheIndexes() {
+        String incidentId = UUID.randomUUID().toString();
+        String createdAt = "2001-05-06T07:08:09Z";
+        dynamoDbClient.putItem(r -> r.tableName("Incidents").item(java.util.Map.of(
+                "incidentId", AttributeValue.fromS(incidentId),
+                "createdAt", AttributeValue.fromS(createdAt),
+                "severity", AttributeValue.fromS("LEGACY"),
+                "description", AttributeValue.fromS("Legacy incident"))));
+        Instant at = Instant.parse(createdAt);
+        IncidentRepository sharded = new IncidentRepository(enhancedClient, scanner, purger, queryExecutor, true, 8, 16);
+        assertThat(repository.findByCreatedAtBetween(at, at)).isEmpty();
+        assertThat(sharded.findBySeverity("LEGACY")).isEmpty();
+
+        assertThat(repository.backfillIndexKeys()).isGreaterThanOrEqualTo(1);
+
+        assertThat(repository.findByCreatedAtBetween(at, at))
+                .extracting(Incident::getIncidentId, Incident::getDescription, Incident::getCreatedAt)
+                .containsExactly(org.assertj.core.groups.Tuple.tuple(
+                        incidentId, "Legacy incident", "2001-05-06T07:08:09.000000000Z"));
+        assertThat(sharded.findBySeverity("LEGACY"))
+                .extracting(Incident::getIncidentId)
+                .containsExactly(incidentId);
+    }
+
+    /**
+     * Tests that paging through the sharded severity index with the
+     * composite cursor returns every incident once, oldest first.
+     */
+    @Test
+    public void queryBySeverity_shouldPageAcrossShardsInCreatedAtOrder() {
+        IncidentRepository sharded = new IncidentRepository(enhancedClient, scanner, purger, queryExecutor, true, 8, 16);
+        Instant base = Instant.parse("2002-01-01T00:00:00Z");
+        List<String> expected = new java.util.ArrayList<>();
+        for (int i = 0; i < 23; i++) {
+            Incident incident = createTestIncident("CRITICAL", "SECURITY");
+            incident.setCreatedAt(base.plusSeconds(i).toString());
+            repository.save(incident);
+            expected.add(incident.getIncidentId());
+        }
+        repository.save(createTestIncident("LOW", "SECURITY"));
+
+        List<String> seen = new java.util.ArrayList<>();
+        java.util.Map<String, AttributeValue> cursor = null;
+        int pages = 0;
+        do {
+            Page<Incident> page = sharded.queryBySeverity("CRITICAL", 5, cursor);
+            assertThat(page.items()).hasSizeLessThanOrEqualTo(5);
+            page.items().forEach(incident -> seen.add(incident.getIncidentId()));
+            cursor = page.lastEvaluatedKey();
+            pages++;
+        } while (cursor != null && pages < 20);
+
+        assertThat(seen).containsExactlyElementsOf(expected);
+        assertThat(sharded.findBySeverity("CRITICAL"))
+                .extracting(Incident::getIncidentId)
+                .containsExactlyElementsOf(expected);
+        assertThat(sharded.streamByCategory("SECURITY")).hasSize(24);
+    }
+
+    /**
+     * Tests that incidents written with fewer shards are still found after
+     * the shard count is raised.
+     */
+    @Test
+    public void findBySeverity_shouldFindIncidentsAfterShardCountIsRaised() {
+        Incident incident = createTestIncident("MEDIUM", "NETWORK");
+        repository.save(incident);
+        IncidentRepository wider = new IncidentRepository(enhancedClient, scanner, purger, queryExecutor, true, 32, 16);
+
+        assertThat(wider.findBySeverity("MEDIUM"))
+                .extracting(Incident::getIncidentId)
+                .containsExactly(incident.getIncidentId());
+    }
+
+    /**
+     * Tests that a cursor from the unsharded index is rejected by a
+     * sharded query instead of being misread.
+     */
+    @Test
+    public void queryBySeverity_shouldRejectUnshardedCursor() {
+        IncidentRepository sharded = new IncidentRepository(enhancedClient, scanner, purger, queryExecutor, true, 8, 16);
+        java.util.Map<String, AttributeValue> legacy = java.util.Map.of(
+                "incidentId", AttributeValue.fromS("id"),
+                "severity", AttributeValue.fromS("HIGH"),
+                "createdAt", AttributeValue.fromS("2002-01-01T00:00:00Z"));
+
+        org.assertj.core.api.Assertions.assertThatThrownBy(() -> sharded.queryBySeverity("HIGH", 5, legacy))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
     /**
      * Tests that searching incidents via the service correctly maps DynamoDB
      * entities to response DTOs and handles pagination.
@@ -148,6 +361,64 @@ public class IncidentServiceIntegrationTest {
         assertThat(response.getItems().get(0).getReportedBy()).isEqualTo("seed-bot");
     }
 
+    /**
+     * Tests that the sparse backlog index only returns incidents with the
+     * requested incomplete status, and drops incidents once enriched.
+     */
+    @Test
+    public void queryByAiStatus_shouldOnlyReturnBacklogIncidents() {
+        Incident pending = createTestIncident("HIGH", "SECURITY");
+        Incident failed = createTestIncident("LOW", "NETWORK");
+        failed.setAiStatus("FAILED");
+        Incident enriched = createTestIncident("LOW", "NETWORK");
+        enriched.setAiStatus("ENRICHED");
+
+        repository.save(pending);
+        repository.save(failed);
+        repository.save(enriched);
+
+        // other tests' enrichments may still land asynchronously, so only
+        // assert on the incidents created here
+        assertThat(repository.queryByAiStatus("PENDING", 10, null).items())
+                .extracting(Incident::getIncidentId)
+                .contains(pending.getIncidentId())
+                .doesNotContain(failed.getIncidentId(), enriched.getIncidentId());
+        assertThat(repository.queryByAiStatus("FAILED", 10, null).items())
+                .extracting(Incident::getIncidentId)
+                .contains(failed.getIncidentId())
+                .doesNotContain(pending.getIncidentId(), enriched.getIncidentId());
+
+        pending.setAiStatus("ENRICHED");
+        repository.update(pending);
+
+        assertThat(repository.queryByAiStatus("PENDING", 10, null).items())
+                .extracting(Incident::getIncidentId)
+                .doesNotContain(pending.getIncidentId());
+    }
+
+    /**
+     * Tests that the backlog can be paged through using the encoded
+     * lastKey returned by the previous page.
+     */
+    @Test
+    public void searchBacklog_shouldPageWithLastKey() {
+        for (int i = 0; i < 3; i++) {
+            Incident incident = createTestIncident("LOW", "OTHER");
+            incident.setAiStatus("FAILED");
+            incident.setCreatedAt(Instant.parse("2000-01-01T00:00:00Z").plusSeconds(i).toString());
+            repository.save(incident);
+        }
+
+        PagedIncidentResponse first = incidentService.searchBacklog("FAILED", 2, null);
+        assertThat(first.getItems()).hasSize(2);
+        assertThat(first.getLastKey()).isNotNull();
+
+        PagedIncidentResponse second = incidentService.searchBacklog("FAILED", 2, first.getLastKey());
+        assertThat(second.getItems()).isNotEmpty();
+        assertThat(Instant.parse(second.getItems().get(0).getCreatedAt()))
+                .isEqualTo(Instant.parse("2000-01-01T00:00:02Z"));
+    }
+
     /**
      * Creates a sample Incident instance for use in tests.
      * Populates the incident with a unique ID, description, reporter, 
@@ -0,0 +1,65 @@
+package com.stephenusselman.incidentservice.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.openai.client.OpenAIClient;
+import com.stephenusselman.incidentservice.domain.Incident;
+import com.stephenusselman.incidentservice.dto.CreateIncidentRequest;
+import com.stephenusselman.incidentservice.repository.IncidentRepository;
+import com.stephenusselman.incidentservice.service.IncidentService;
+import com.stephenusselman.incidentservice.service.ai.EnrichmentProvider;
+import com.stephenusselman.incidentservice.service.ai.StubEnrichmentProvider;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+
+@SpringBootTest(properties = {
+        "spring.profiles.active=local,stub",
+        "ai.stub.latency.distribution=fixed",
+        "ai.stub.latency.median-ms=10"
+})
+public class StubProviderIntegrationTest {
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private EnrichmentProvider enrichmentProvider;
+
+    @Autowired
+    private IncidentService incidentService;
+
+    @Autowired
+    private IncidentRepository repository;
+
+    /**
+     * Tests that the stub profile replaces the OpenAI provider and client.
+     */
+    @Test
+    void stubProfile_selectsStubProvider() {
+        assertThat(enrichmentProvider).isInstanceOf(StubEnrichmentProvider.class);
+        assertThat(context.getBeanNamesForType(OpenAIClient.class)).isEmpty();
+    }
+
+    /**
+     * Tests the full create, enrich and persist pipeline against the stub.
+     */
+    @Test
+    void createIncident_isEnrichedByStub() throws Exception {
+        CreateIncidentRequest request = new CreateIncidentRequest();
+        request.setDescription("Unauthorized access to the billing database");
+        request.setReportedBy("LoadTester");
+
+        Incident incident = incidentService.createIncident(request);
+
+        Incident fromDb = repository.findById(incident.getIncidentId());
+        for (int i = 0; i < 100 && !"ENRICHED".equals(fromDb.getAiStatus()); i++) {
+            Thread.sleep(100);
+            fromDb = repository.findById(incident.getIncidentId());
+        }
+        assertThat(fromDb.getAiStatus()).isEqualTo("ENRICHED");
+        assertThat(fromDb.getAiSummary()).startsWith("Stub ");
+    }
+}
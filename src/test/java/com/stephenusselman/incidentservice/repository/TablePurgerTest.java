@@ -0,0 +1,95 @@
+package com.stephenusselman.incidentservice.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.stephenusselman.incidentservice.domain.Incident;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.DeleteRequest;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+class TablePurgerTest {
+
+    private DynamoDbClient dynamoDbClient;
+    private DynamoDbEnhancedClient enhancedClient;
+    private DynamoDbTable<Incident> table;
+
+    @BeforeEach
+    void setUp() {
+        dynamoDbClient = mock(DynamoDbClient.class);
+        enhancedClient = DynamoDbEnhancedClient.builder().dynamoDbClient(dynamoDbClient).build();
+        table = enhancedClient.table("Incidents", TableSchema.fromBean(Incident.class));
+    }
+
+    /**
+     * Ensures keys DynamoDB leaves unprocessed are sent again, alone.
+     */
+    @Test
+    void deleteBatch_retriesUnprocessedKeys() {
+        when(dynamoDbClient.batchWriteItem(any(BatchWriteItemRequest.class)))
+                .thenReturn(unprocessed("b"))
+                .thenReturn(BatchWriteItemResponse.builder().build());
+
+        purger(3).deleteBatch(table, List.of(key("a"), key("b"), key("c")));
+
+        ArgumentCaptor<BatchWriteItemRequest> requests = ArgumentCaptor.forClass(BatchWriteItemRequest.class);
+        verify(dynamoDbClient, times(2)).batchWriteItem(requests.capture());
+        assertThat(requests.getAllValues().get(0).requestItems().get("Incidents")).hasSize(3);
+        assertThat(requests.getAllValues().get(1).requestItems().get("Incidents"))
+                .extracting(request -> request.deleteRequest().key().get("incidentId").s())
+                .containsExactly("b");
+    }
+
+    /**
+     * Ensures a purge fails rather than silently leaving items behind once
+     * the attempts are used up.
+     */
+    @Test
+    void deleteBatch_whenKeysStayUnprocessed_fails() {
+        when(dynamoDbClient.batchWriteItem(any(BatchWriteItemRequest.class))).thenReturn(unprocessed("a"));
+
+        assertThatThrownBy(() -> purger(2).deleteBatch(table, List.of(key("a"))))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("unprocessed after 2 attempts");
+        verify(dynamoDbClient, times(2)).batchWriteItem(any(BatchWriteItemRequest.class));
+    }
+
+    private TablePurger purger(int maxAttempts) {
+        return new TablePurger(enhancedClient, null, new SimpleMeterRegistry(), 0, maxAttempts);
+    }
+
+    private static Key key(String incidentId) {
+        return Key.builder().partitionValue(incidentId).build();
+    }
+
+    private static BatchWriteItemResponse unprocessed(String incidentId) {
+        return BatchWriteItemResponse.builder()
+                .unprocessedItems(Map.of("Incidents", List.of(WriteRequest.builder()
+                        .deleteRequest(DeleteRequest.builder()
+                                .key(Map.of("incidentId", AttributeValue.fromS(incidentId)))
+                                .build())
+                        .build())))
+                .build();
+    }
+}
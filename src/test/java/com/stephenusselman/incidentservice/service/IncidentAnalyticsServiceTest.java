@@ -5,9 +5,9 @@ import static org.mockito.Mockito.*;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import com.stephenusselman.incidentservice.domain.Incident;
 import com.stephenusselman.incidentservice.dto.CategoryCountResponse;
@@ -43,7 +43,7 @@ class IncidentAnalyticsServiceTest {
         Incident high = new Incident();
         high.setSeverity("HIGH");
 
-        when(repository.findAll()).thenReturn(Arrays.asList(low, high, low));
+        when(repository.streamAll("severity")).thenReturn(Stream.of(low, high, low));
 
         SeverityCountResponse response = service.getSeverityCounts();
 
@@ -63,7 +63,7 @@ class IncidentAnalyticsServiceTest {
         Incident catC = new Incident();
         catC.setCategory("Network");
 
-        when(repository.findAll()).thenReturn(Arrays.asList(catA, catB, catC));
+        when(repository.streamAll("category")).thenReturn(Stream.of(catA, catB, catC));
 
         List<CategoryCountResponse> topCategories = service.getTopCategories(2);
 
@@ -88,7 +88,7 @@ class IncidentAnalyticsServiceTest {
         Incident i3 = new Incident();
         i3.setCreatedAt(t3.toString());
 
-        when(repository.findByCreatedAtBetween(t1, t3)).thenReturn(Arrays.asList(i1, i2, i3));
+        when(repository.streamByCreatedAtBetween(t1, t3, "createdAt")).thenReturn(Stream.of(i1, i2, i3));
 
         List<TimeBucketCountResponse> buckets = service.getIncidentsOverTime(t1, t3, ChronoUnit.DAYS);
 
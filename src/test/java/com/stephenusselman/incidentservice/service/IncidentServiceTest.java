@@ -2,14 +2,18 @@ package com.stephenusselman.incidentservice.service;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.*;
 
 import java.util.List;
 
 import com.stephenusselman.incidentservice.domain.Incident;
 import com.stephenusselman.incidentservice.dto.CreateIncidentRequest;
+import com.stephenusselman.incidentservice.dto.PagedIncidentResponse;
 import com.stephenusselman.incidentservice.repository.IncidentRepository;
-import com.stephenusselman.incidentservice.service.ai.IncidentEnrichmentCoordinator;
+import com.stephenusselman.incidentservice.service.ai.EnrichmentQueue;
+import com.stephenusselman.incidentservice.service.ai.IncidentReEnricher;
+import com.stephenusselman.incidentservice.service.ai.LocalIncidentClassifier;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -17,13 +21,21 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import software.amazon.awssdk.enhanced.dynamodb.model.Page;
+
 public class IncidentServiceTest {
 
     @Mock
     private IncidentRepository repository;
 
     @Mock
-    private IncidentEnrichmentCoordinator enrichmentCoordinator;
+    private EnrichmentQueue enrichmentQueue;
+
+    @Mock
+    private LocalIncidentClassifier localClassifier;
+
+    @Mock
+    private IncidentReEnricher reEnricher;
 
     @InjectMocks
     private IncidentService incidentService;
@@ -36,7 +48,7 @@ public class IncidentServiceTest {
 
     /**
      * Ensures creating an incident persists it, initializes AI status,
-     * and triggers asynchronous AI enrichment.
+     * and enqueues it for AI enrichment.
      */
     @Test
     void whenCreateIncident_thenSavedAndEnrichmentTriggered() {
@@ -47,8 +59,8 @@ public class IncidentServiceTest {
         Incident result = incidentService.createIncident(request);
 
         verify(repository, times(1)).save(any(Incident.class));
-        verify(enrichmentCoordinator, times(1))
-                .enrichIncidentAsync(any(Incident.class));
+        verify(enrichmentQueue, times(1))
+                .enqueue(any(Incident.class));
 
         assertNotNull(result.getIncidentId());
         assertEquals("Test incident", result.getDescription());
@@ -58,7 +70,30 @@ public class IncidentServiceTest {
     }
 
     /**
-     * Ensures getIncident delegates directly to the repository.
+     * Ensures a confident local prediction sets severity and category at
+     * creation time, while the incident is still enqueued for enrichment.
+     */
+    @Test
+    void whenLocalClassifierIsConfident_thenClassificationIsSetAtCreation() {
+        CreateIncidentRequest request = new CreateIncidentRequest();
+        request.setDescription("Primary network link is down");
+        request.setReportedBy("user123");
+
+        when(localClassifier.classify("Primary network link is down"))
+                .thenReturn(new LocalIncidentClassifier.Prediction("HIGH", "AVAILABILITY", 0.97));
+
+        Incident result = incidentService.createIncident(request);
+
+        assertEquals("HIGH", result.getSeverity());
+        assertEquals("AVAILABILITY", result.getCategory());
+        assertEquals(Incident.SOURCE_LOCAL, result.getClassificationSource());
+        assertEquals("PENDING", result.getAiStatus());
+        verify(enrichmentQueue, times(1)).enqueue(result);
+    }
+
+    /**
+     * Ensures getIncident delegates to the repository and offers the
+     * incident for re-enrichment.
      */
     @Test
     void whenGetIncident_thenRepositoryIsCalled() {
@@ -71,6 +106,7 @@ public class IncidentServiceTest {
 
         assertEquals("123", result.getIncidentId());
         verify(repository, times(1)).findById("123");
+        verify(reEnricher).onRead(incident);
     }
 
     /**
@@ -116,4 +152,46 @@ public class IncidentServiceTest {
                 () -> incidentService.searchIncidents(null, null)
         );
     }
-}
\ No newline at end of file
+
+    /**
+     * Ensures listing the backlog queries the sparse backlog index.
+     */
+    @Test
+    void whenSearchBacklog_thenRepositoryQueryByAiStatusCalled() {
+        Incident incident = new Incident();
+        incident.setIncidentId("123");
+        incident.setAiStatus("FAILED");
+
+        Page<Incident> page = Page.create(List.of(incident));
+        when(repository.queryByAiStatus("FAILED", 10, null)).thenReturn(page);
+
+        PagedIncidentResponse response = incidentService.searchBacklog("FAILED", 10, null);
+
+        assertEquals(1, response.getItems().size());
+        assertEquals("123", response.getItems().get(0).getIncidentId());
+        assertNull(response.getLastKey());
+    }
+
+    /**
+     * Ensures only incomplete statuses can be listed from the backlog.
+     */
+    @Test
+    void whenSearchBacklogWithEnrichedStatus_thenThrowsException() {
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> incidentService.searchBacklog("ENRICHED", 10, null)
+        );
+        verify(repository, never()).queryByAiStatus(any(), anyInt(), any());
+    }
+
+    /**
+     * Ensures a malformed pagination token is rejected as a bad argument.
+     */
+    @Test
+    void whenSearchBacklogWithInvalidLastKey_thenThrowsException() {
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> incidentService.searchBacklog("PENDING", 10, "not-a-cursor!")
+        );
+    }
+}
@@ -0,0 +1,119 @@
+package com.stephenusselman.incidentservice.service.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    /**
+     * Ensures no more permits are handed out than the current limit.
+     */
+    @Test
+    void tryAcquire_refusesBeyondLimit() {
+        AdaptiveConcurrencyLimiter limiter = limiter(2, 60_000, 0);
+
+        AdaptiveConcurrencyLimiter.Permit first = limiter.tryAcquire();
+        assertThat(limiter.tryAcquire()).isNotNull();
+        assertThat(limiter.tryAcquire()).isNull();
+
+        first.release();
+        assertThat(limiter.getAvailable()).isEqualTo(1);
+    }
+
+    /**
+     * Ensures fast successes under load grow the limit additively.
+     */
+    @Test
+    void successUnderLoad_growsLimit() {
+        AdaptiveConcurrencyLimiter limiter = limiter(4, 60_000, 0);
+
+        for (int round = 0; round < 5; round++) {
+            List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+            for (int i = 0; i < limiter.getLimit(); i++) {
+                permits.add(limiter.tryAcquire());
+            }
+            permits.forEach(p -> p.record(null));
+        }
+
+        assertThat(limiter.getLimit()).isBetween(6, 8);
+    }
+
+    /**
+     * Ensures successes while mostly idle do not grow the limit.
+     */
+    @Test
+    void successWhileIdle_keepsLimit() {
+        AdaptiveConcurrencyLimiter limiter = limiter(4, 60_000, 0);
+
+        for (int i = 0; i < 20; i++) {
+            limiter.tryAcquire().record(null);
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(4);
+    }
+
+    /**
+     * Ensures a timeout shrinks the limit multiplicatively, and repeated
+     * overload within the cooldown only shrinks it once.
+     */
+    @Test
+    void overload_shrinksLimitOncePerCooldown() {
+        AdaptiveConcurrencyLimiter limiter = limiter(10, 60_000, 60_000);
+
+        limiter.tryAcquire().record(new CompletionException(new AiTimeoutException()));
+        limiter.tryAcquire().record(new AiTimeoutException());
+
+        assertThat(limiter.getLimit()).isEqualTo(5);
+    }
+
+    /**
+     * Ensures errors that do not signal overload leave the limit unchanged.
+     */
+    @Test
+    void otherErrors_doNotChangeLimit() {
+        AdaptiveConcurrencyLimiter limiter = limiter(10, 60_000, 0);
+
+        limiter.tryAcquire().record(new IllegalStateException("Failed to parse AI enrichment response"));
+
+        assertThat(limiter.getLimit()).isEqualTo(10);
+        assertThat(AdaptiveConcurrencyLimiter.isOverload(new RuntimeException("boom"))).isFalse();
+    }
+
+    /**
+     * Ensures slow successes count as overload.
+     */
+    @Test
+    void slowSuccess_shrinksLimit() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = limiter(10, 1, 0);
+
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+        Thread.sleep(5);
+        permit.record(null);
+
+        assertThat(limiter.getLimit()).isEqualTo(5);
+    }
+
+    /**
+     * Ensures invalid settings are rejected at construction.
+     */
+    @Test
+    void constructor_rejectsInvalidSettings() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new AdaptiveConcurrencyLimiter(new SimpleMeterRegistry(), 0, 1, 10, 1000, 0.5, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new AdaptiveConcurrencyLimiter(new SimpleMeterRegistry(), 5, 1, 10, 1000, 1.5, 0));
+    }
+
+    private AdaptiveConcurrencyLimiter limiter(int initialLimit, long latencyThresholdMs, long cooldownMs) {
+        return new AdaptiveConcurrencyLimiter(
+                new SimpleMeterRegistry(), initialLimit, 1, 64, latencyThresholdMs, 0.5, cooldownMs);
+    }
+}
@@ -0,0 +1,95 @@
+package com.stephenusselman.incidentservice.service.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class AiCircuitBreakerTest {
+
+    /**
+     * Ensures the breaker opens once the failure rate reaches the threshold
+     * and then refuses calls with a retry time.
+     */
+    @Test
+    void opensWhenFailureRateReachesThreshold() {
+        AiCircuitBreaker breaker = breaker(4, 60_000, 30, 10);
+
+        breaker.acquire().record(true);
+        breaker.acquire().record(true);
+        breaker.acquire().record(false);
+        assertThat(breaker.getState()).isEqualTo(AiCircuitBreaker.State.CLOSED);
+
+        breaker.acquire().record(false);
+        assertThat(breaker.getState()).isEqualTo(AiCircuitBreaker.State.OPEN);
+        assertThat(breaker.isCallPermitted()).isFalse();
+
+        AiCallNotPermittedException refused = assertThrows(AiCallNotPermittedException.class, breaker::acquire);
+        assertThat(refused.getRetryAt()).isAfter(Instant.now());
+        assertThat(breaker.snapshot().transitions()).hasSize(1);
+    }
+
+    /**
+     * Ensures slow calls open the breaker even when they succeed.
+     */
+    @Test
+    void opensWhenSlowCallRateReachesThreshold() throws Exception {
+        AiCircuitBreaker breaker = breaker(2, 1, 30, 10);
+
+        AiCircuitBreaker.Permit first = breaker.acquire();
+        AiCircuitBreaker.Permit second = breaker.acquire();
+        Thread.sleep(5);
+        first.record(true);
+        second.record(true);
+
+        assertThat(breaker.getState()).isEqualTo(AiCircuitBreaker.State.OPEN);
+    }
+
+    /**
+     * Ensures that after the open duration a successful trial call closes
+     * the breaker and a failed one re-opens it.
+     */
+    @Test
+    void halfOpenTrialDecidesNextState() {
+        AiCircuitBreaker breaker = breaker(1, 60_000, 0, 10);
+
+        breaker.acquire().record(false);
+        assertThat(breaker.getState()).isEqualTo(AiCircuitBreaker.State.OPEN);
+
+        AiCircuitBreaker.Permit trial = breaker.acquire();
+        assertThat(breaker.getState()).isEqualTo(AiCircuitBreaker.State.HALF_OPEN);
+        assertThrows(AiCallNotPermittedException.class, breaker::acquire);
+        trial.record(false);
+        assertThat(breaker.getState()).isEqualTo(AiCircuitBreaker.State.OPEN);
+
+        breaker.acquire().record(true);
+        assertThat(breaker.getState()).isEqualTo(AiCircuitBreaker.State.CLOSED);
+    }
+
+    /**
+     * Ensures the bulkhead refuses calls beyond its size and frees a slot
+     * when a call completes.
+     */
+    @Test
+    void bulkheadLimitsConcurrentCalls() {
+        AiCircuitBreaker breaker = breaker(10, 60_000, 30, 2);
+
+        AiCircuitBreaker.Permit first = breaker.acquire();
+        breaker.acquire();
+        assertThrows(AiCallNotPermittedException.class, breaker::acquire);
+
+        first.release();
+        breaker.acquire();
+        assertThat(breaker.snapshot().bulkheadAvailable()).isZero();
+        assertThat(breaker.getState()).isEqualTo(AiCircuitBreaker.State.CLOSED);
+    }
+
+    private AiCircuitBreaker breaker(int window, long slowCallMs, long openSeconds, int bulkhead) {
+        return new AiCircuitBreaker(
+                new SimpleMeterRegistry(), window, window, 50, 100, slowCallMs, openSeconds, 1, bulkhead);
+    }
+}
@@ -2,15 +2,38 @@ package com.stephenusselman.incidentservice.service.ai;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import com.stephenusselman.incidentservice.dto.ai.IncidentEnrichmentRequest;
+import com.stephenusselman.incidentservice.dto.ai.IncidentEnrichmentResult;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openai.client.OpenAIClient;
+import com.openai.core.JsonValue;
+import com.openai.core.http.AsyncStreamResponse;
+import com.openai.models.responses.Response;
+import com.openai.models.responses.ResponseCreateParams;
+import com.openai.models.responses.ResponseFormatTextJsonSchemaConfig;
+import com.openai.models.responses.ResponseStreamEvent;
+import com.openai.models.responses.ResponseTextConfig;
+import com.openai.models.responses.ResponseTextDeltaEvent;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 public class AiEnrichmentServiceTest {
 
@@ -19,19 +42,24 @@ public class AiEnrichmentServiceTest {
     @BeforeEach
     void setUp() {
         ObjectMapper mapper = new ObjectMapper();
-        aiEnrichmentService = new AiEnrichmentService(null, mapper); // openAIClient null because we won't call it
+        aiEnrichmentService = new AiEnrichmentService(null, mapper, prompts(), new SimpleMeterRegistry(), "gpt-5-nano"); // openAIClient null because we won't call it
     }
 
     /**
-     * Verifies that the prompt template is loaded from classpath and is not empty.
+     * Verifies that values are rendered as written, even when they look
+     * like placeholders of the template.
      */
     @Test
-    public void loadPromptTemplate_shouldLoadNonEmptyString() throws Exception {
-        Method loadPrompt = AiEnrichmentService.class.getDeclaredMethod("loadPromptTemplate");
-        loadPrompt.setAccessible(true);
+    public void buildPrompt_shouldNotExpandPlaceholdersInValues() throws Exception {
+        IncidentEnrichmentRequest request = new IncidentEnrichmentRequest(
+                "123", "Saw {{reportedBy}} in the logs", "Tester", "2026-01-19T18:00:00Z"
+        );
 
-        String prompt = (String) loadPrompt.invoke(aiEnrichmentService);
-        assertThat(prompt).isNotNull().isNotEmpty();
+        Method buildPrompt = AiEnrichmentService.class.getDeclaredMethod("buildPrompt", IncidentEnrichmentRequest.class);
+        buildPrompt.setAccessible(true);
+
+        String prompt = (String) buildPrompt.invoke(aiEnrichmentService, request);
+        assertThat(prompt).contains("Description: Saw {{reportedBy}} in the logs", "Reported By: Tester");
     }
 
     /**
@@ -95,4 +123,144 @@ public class AiEnrichmentServiceTest {
         assertThat(exception.getCause()).isInstanceOf(IllegalStateException.class)
                 .hasMessageContaining("Failed to parse AI enrichment response");
         }
+
+    /**
+     * Verifies that parseBatchResult keys results by incident ID and skips
+     * elements that are missing an ID or required structure.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void parseBatchResult_shouldKeyResultsByIncidentId() throws Exception {
+        String json = """
+                [
+                  {"incidentId": "A", "severity": "HIGH", "category": "SECURITY",
+                   "summary": "First", "recommendedAction": "Rotate keys"},
+                  {"severity": "LOW", "category": "OTHER", "summary": "No id", "recommendedAction": "None"},
+                  {"incidentId": "B", "severity": "LOW", "category": "DATA",
+                   "summary": "Second", "recommendedAction": "Restore backup"}
+                ]
+                """;
+
+        Method parseBatchResult = AiEnrichmentService.class.getDeclaredMethod("parseBatchResult", String.class);
+        parseBatchResult.setAccessible(true);
+
+        Map<String, IncidentEnrichmentResult> results =
+                (Map<String, IncidentEnrichmentResult>) parseBatchResult.invoke(aiEnrichmentService, json);
+
+        assertThat(results).containsOnlyKeys("A", "B");
+        assertThat(results.get("A").getSeverity()).isEqualTo("HIGH");
+        assertThat(results.get("B").getSummary()).isEqualTo("Second");
+    }
+
+    /**
+     * Ensures that buildBatchPrompt renders every incident into the prompt.
+     */
+    @Test
+    public void buildBatchPrompt_shouldIncludeEveryIncident() throws Exception {
+        List<IncidentEnrichmentRequest> requests = List.of(
+                new IncidentEnrichmentRequest("1", "Disk \"full\"", "Tester", "2026-01-19T18:00:00Z"),
+                new IncidentEnrichmentRequest("2", "Login failures", "Tester", "2026-01-19T18:05:00Z"));
+
+        Method buildBatchPrompt = AiEnrichmentService.class.getDeclaredMethod("buildBatchPrompt", List.class);
+        buildBatchPrompt.setAccessible(true);
+
+        String prompt = (String) buildBatchPrompt.invoke(aiEnrichmentService, requests);
+        assertThat(prompt)
+                .contains("\"incidentId\":\"1\"", "\"incidentId\":\"2\"", "Disk \\\"full\\\"")
+                .doesNotContain("{{incidents}}");
+    }
+
+    /**
+     * Ensures cancelling an asynchronous enrichment cancels the SDK call.
+     */
+    @Test
+    public void enrichIncidentAsync_cancellationReachesSdkCall() {
+        OpenAIClient client = mock(OpenAIClient.class, RETURNS_DEEP_STUBS);
+        CompletableFuture<Response> sdkCall = new CompletableFuture<>();
+        when(client.async().responses().create(any(ResponseCreateParams.class))).thenReturn(sdkCall);
+        AiEnrichmentService service = new AiEnrichmentService(client, new ObjectMapper(), prompts(), new SimpleMeterRegistry(), "gpt-5-nano");
+
+        CompletableFuture<IncidentEnrichmentResult> result = service.enrichIncidentAsync(
+                new IncidentEnrichmentRequest("123", "Test incident", "Tester", "2026-01-19T18:00:00Z"));
+        result.cancel(true);
+
+        assertThat(sdkCall.isCancelled()).isTrue();
+    }
+
+    /**
+     * Ensures a streamed response reports the classification before the
+     * stream ends, completes with the full result and closes the stream
+     * when cancelled.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void enrichIncidentStreaming_reportsClassificationBeforeCompletion() throws Exception {
+        OpenAIClient client = mock(OpenAIClient.class, RETURNS_DEEP_STUBS);
+        AsyncStreamResponse<ResponseStreamEvent> stream = mock(AsyncStreamResponse.class);
+        when(client.async().responses().createStreaming(any(ResponseCreateParams.class))).thenReturn(stream);
+        AiEnrichmentService service = new AiEnrichmentService(client, new ObjectMapper(), prompts(), new SimpleMeterRegistry(), "gpt-5-nano");
+        IncidentEnrichmentRequest request =
+                new IncidentEnrichmentRequest("123", "Test incident", "Tester", "2026-01-19T18:00:00Z");
+
+        List<IncidentEnrichmentResult> classifications = new ArrayList<>();
+        CompletableFuture<IncidentEnrichmentResult> result =
+                service.enrichIncidentStreaming(request, classifications::add);
+
+        ArgumentCaptor<AsyncStreamResponse.Handler<ResponseStreamEvent>> handler =
+                ArgumentCaptor.forClass(AsyncStreamResponse.Handler.class);
+        verify(stream).subscribe(handler.capture());
+        handler.getValue().onNext(textDelta("{\"severity\": \"HIGH\", \"category\": \"SECURITY\","));
+        assertThat(classifications).extracting(IncidentEnrichmentResult::getSeverity).containsExactly("HIGH");
+        assertThat(result).isNotDone();
+
+        handler.getValue().onNext(textDelta(" \"summary\": \"Leak\", \"recommendedAction\": \"Rotate\"}"));
+        handler.getValue().onComplete(Optional.empty());
+        assertThat(result.get().getSummary()).isEqualTo("Leak");
+
+        CompletableFuture<IncidentEnrichmentResult> cancelled =
+                service.enrichIncidentStreaming(request, classifications::add);
+        cancelled.cancel(true);
+        verify(stream).close();
+    }
+
+    /**
+     * Ensures requests use strict structured output whose schema covers every
+     * result field and restricts severity to the allowed values.
+     */
+    @Test
+    public void buildParams_shouldRequestStrictJsonSchema() throws Exception {
+        Method buildParams = AiEnrichmentService.class.getDeclaredMethod(
+                "buildParams", String.class, ResponseTextConfig.class);
+        buildParams.setAccessible(true);
+
+        ResponseCreateParams params = (ResponseCreateParams) buildParams.invoke(
+                aiEnrichmentService, "prompt", EnrichmentResultSchema.single());
+
+        ResponseFormatTextJsonSchemaConfig format = params.text().orElseThrow()
+                .format().orElseThrow().asJsonSchema();
+        assertThat(format.strict()).contains(true);
+        Map<String, JsonValue> schema = format.schema()._additionalProperties();
+        assertThat(schema.get("required").toString())
+                .contains("severity", "category", "summary", "recommendedAction");
+        assertThat(schema.get("properties").toString()).contains("CRITICAL", "AVAILABILITY");
+    }
+
+    private ResponseStreamEvent textDelta(String delta) {
+        return ResponseStreamEvent.ofOutputTextDelta(ResponseTextDeltaEvent.builder()
+                .contentIndex(0)
+                .delta(delta)
+                .itemId("item")
+                .logprobs(List.of())
+                .outputIndex(0)
+                .sequenceNumber(0)
+                .build());
+    }
+
+    /**
+     * Creates a prompt registry with the bundled templates.
+     */
+    private static PromptTemplateRegistry prompts() {
+        return new PromptTemplateRegistry(null, new SimpleMeterRegistry(),
+                "incident-enrichment-v1", "incident-enrichment-batch-v1", "", 0, "", 10_000);
+    }
 }
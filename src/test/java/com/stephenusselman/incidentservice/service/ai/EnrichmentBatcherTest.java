@@ -0,0 +1,186 @@
+package com.stephenusselman.incidentservice.service.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.stephenusselman.incidentservice.dto.ai.IncidentEnrichmentRequest;
+import com.stephenusselman.incidentservice.dto.ai.IncidentEnrichmentResult;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class EnrichmentBatcherTest {
+
+    @Mock
+    private AiEnrichmentService aiEnrichmentService;
+
+    private ThreadPoolTaskExecutor executor;
+
+    private ThreadPoolTaskScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.initialize();
+
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+        scheduler.shutdown();
+    }
+
+    /**
+     * Ensures a full batch is sent as one AI call and each result is
+     * routed back to the matching incident.
+     */
+    @Test
+    void whenBatchFills_thenOneCallEnrichesAllIncidents() {
+        EnrichmentBatcher batcher = batcher(2, 10_000);
+
+        when(aiEnrichmentService.enrichIncidents(anyList())).thenReturn(Map.of(
+                "A", result("HIGH"),
+                "B", result("LOW")));
+
+        CompletableFuture<IncidentEnrichmentResult> a = batcher.submit(request("A"), new AtomicInteger());
+        CompletableFuture<IncidentEnrichmentResult> b = batcher.submit(request("B"), new AtomicInteger());
+
+        assertThat(a.join().getSeverity()).isEqualTo("HIGH");
+        assertThat(b.join().getSeverity()).isEqualTo("LOW");
+        verify(aiEnrichmentService, times(1)).enrichIncidents(anyList());
+        verify(aiEnrichmentService, never()).enrichIncident(any());
+    }
+
+    /**
+     * Ensures a partially filled batch is flushed once the wait expires.
+     */
+    @Test
+    void whenWaitExpires_thenPartialBatchIsFlushed() {
+        EnrichmentBatcher batcher = batcher(10, 20);
+
+        when(aiEnrichmentService.enrichIncidents(anyList())).thenReturn(Map.of(
+                "A", result("HIGH"),
+                "B", result("LOW")));
+
+        CompletableFuture<IncidentEnrichmentResult> a = batcher.submit(request("A"), new AtomicInteger());
+        CompletableFuture<IncidentEnrichmentResult> b = batcher.submit(request("B"), new AtomicInteger());
+
+        assertThat(a.join().getSeverity()).isEqualTo("HIGH");
+        assertThat(b.join().getSeverity()).isEqualTo("LOW");
+    }
+
+    /**
+     * Ensures incidents missing from the batch response are retried with
+     * a single-incident call, which counts as a second upstream call.
+     */
+    @Test
+    void whenBatchOmitsIncident_thenFallsBackToSingleCall() {
+        EnrichmentBatcher batcher = batcher(2, 10_000);
+
+        when(aiEnrichmentService.enrichIncidents(anyList())).thenReturn(Map.of("A", result("HIGH")));
+        when(aiEnrichmentService.enrichIncident(any())).thenReturn(result("MEDIUM"));
+
+        AtomicInteger callsA = new AtomicInteger();
+        AtomicInteger callsB = new AtomicInteger();
+        CompletableFuture<IncidentEnrichmentResult> a = batcher.submit(request("A"), callsA);
+        CompletableFuture<IncidentEnrichmentResult> b = batcher.submit(request("B"), callsB);
+
+        assertThat(a.join().getSeverity()).isEqualTo("HIGH");
+        assertThat(b.join().getSeverity()).isEqualTo("MEDIUM");
+        verify(aiEnrichmentService, times(1)).enrichIncident(request("B"));
+        assertThat(callsA.get()).isEqualTo(1);
+        assertThat(callsB.get()).isEqualTo(2);
+    }
+
+    /**
+     * Ensures a failed batch call falls back to single calls for every incident.
+     */
+    @Test
+    void whenBatchCallFails_thenEveryIncidentFallsBackToSingleCall() {
+        EnrichmentBatcher batcher = batcher(2, 10_000);
+
+        when(aiEnrichmentService.enrichIncidents(anyList())).thenThrow(new IllegalStateException("bad json"));
+        when(aiEnrichmentService.enrichIncident(any())).thenReturn(result("MEDIUM"));
+
+        List<CompletableFuture<IncidentEnrichmentResult>> futures =
+                List.of(batcher.submit(request("A"), new AtomicInteger()),
+                        batcher.submit(request("B"), new AtomicInteger()));
+
+        futures.forEach(f -> assertThat(f.join().getSeverity()).isEqualTo("MEDIUM"));
+        verify(aiEnrichmentService, times(2)).enrichIncident(any());
+    }
+
+    /**
+     * Ensures a request whose wait timer cannot be scheduled fails at once
+     * instead of being left in the batch.
+     */
+    @Test
+    void whenFlushTimerIsRejected_thenRequestFailsWithoutJoiningBatch() {
+        EnrichmentBatcher batcher = batcher(2, 10_000);
+        scheduler.shutdown();
+
+        CompletableFuture<IncidentEnrichmentResult> a = batcher.submit(request("A"), new AtomicInteger());
+        CompletableFuture<IncidentEnrichmentResult> b = batcher.submit(request("B"), new AtomicInteger());
+
+        assertThat(a).isCompletedExceptionally();
+        assertThat(b).isCompletedExceptionally();
+        verify(aiEnrichmentService, never()).enrichIncidents(anyList());
+    }
+
+    /**
+     * Ensures the non-blocking client path batches and falls back the same way.
+     */
+    @Test
+    void whenAsyncClientEnabled_thenBatchAndFallbackUseAsyncCalls() {
+        EnrichmentBatcher batcher = new EnrichmentBatcher(
+                aiEnrichmentService, executor, scheduler, new SimpleMeterRegistry(), true, true, 2, 1000);
+        when(aiEnrichmentService.enrichIncidentsAsync(anyList()))
+                .thenReturn(CompletableFuture.completedFuture(Map.of("A", result("HIGH"))));
+        when(aiEnrichmentService.enrichIncidentAsync(any()))
+                .thenReturn(CompletableFuture.completedFuture(result("LOW")));
+
+        CompletableFuture<IncidentEnrichmentResult> a = batcher.submit(request("A"), new AtomicInteger());
+        CompletableFuture<IncidentEnrichmentResult> b = batcher.submit(request("B"), new AtomicInteger());
+
+        assertThat(a.join().getSeverity()).isEqualTo("HIGH");
+        assertThat(b.join().getSeverity()).isEqualTo("LOW");
+        verify(aiEnrichmentService, never()).enrichIncidents(anyList());
+        verify(aiEnrichmentService, never()).enrichIncident(any());
+    }
+
+    private EnrichmentBatcher batcher(int maxSize, long maxWaitMs) {
+        return new EnrichmentBatcher(
+                aiEnrichmentService, executor, scheduler, new SimpleMeterRegistry(), false, true, maxSize, maxWaitMs);
+    }
+
+    private IncidentEnrichmentRequest request(String incidentId) {
+        return new IncidentEnrichmentRequest(incidentId, "desc " + incidentId, "user", "2024-01-01T00:00:00Z");
+    }
+
+    private IncidentEnrichmentResult result(String severity) {
+        return new IncidentEnrichmentResult(severity, "OTHER", "summary", "action");
+    }
+}
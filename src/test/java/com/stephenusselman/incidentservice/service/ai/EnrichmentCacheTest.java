@@ -0,0 +1,115 @@
+package com.stephenusselman.incidentservice.service.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+
+import com.stephenusselman.incidentservice.domain.EnrichmentCacheEntry;
+import com.stephenusselman.incidentservice.dto.ai.IncidentEnrichmentResult;
+import com.stephenusselman.incidentservice.repository.EnrichmentCacheRepository;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class EnrichmentCacheTest {
+
+    private static final String VERSION = "incident-enrichment-v1";
+
+    private static final String MODEL = "model-a";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    /**
+     * Ensures descriptions differing only in case and whitespace share a key,
+     * and that each prompt version and model has its own keys.
+     */
+    @Test
+    void keyFor_ignoresCaseAndWhitespace() {
+        EnrichmentCache cache = new EnrichmentCache(null, meterRegistry, true, 10, 60, false);
+
+        assertThat(cache.keyFor(VERSION, MODEL, "Database  connection\tlost"))
+                .isEqualTo(cache.keyFor(VERSION, MODEL, " database connection LOST "))
+                .isNotEqualTo(cache.keyFor(VERSION, MODEL, "database connection restored"))
+                .isNotEqualTo(cache.keyFor("incident-enrichment-v2", MODEL, "Database connection lost"))
+                .isNotEqualTo(cache.keyFor(VERSION, "other-model", "Database connection lost"));
+    }
+
+    /**
+     * Ensures the least recently used entry is evicted once the cache is full.
+     */
+    @Test
+    void put_evictsLeastRecentlyUsedEntry() {
+        EnrichmentCache cache = new EnrichmentCache(null, meterRegistry, true, 2, 60, false);
+
+        cache.put(VERSION, MODEL, "a", result("LOW"));
+        cache.put(VERSION, MODEL, "b", result("MEDIUM"));
+        cache.get(VERSION, MODEL, "a");
+        cache.put(VERSION, MODEL, "c", result("HIGH"));
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get(VERSION, MODEL, "a")).isNotNull();
+        assertThat(cache.get(VERSION, MODEL, "b")).isNull();
+        assertThat(cache.get(VERSION, MODEL, "c").getSeverity()).isEqualTo("HIGH");
+        assertThat(meterRegistry.get("ai.enrichment.cache.requests").tag("result", "miss").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    /**
+     * Ensures a memory miss falls through to the persistent tier, and that
+     * expired persistent entries are ignored.
+     */
+    @Test
+    void get_readsUnexpiredEntriesFromPersistentTier() {
+        EnrichmentCacheRepository repository = mock(EnrichmentCacheRepository.class);
+        EnrichmentCache cache = new EnrichmentCache(repository, meterRegistry, true, 10, 60, true);
+
+        EnrichmentCacheEntry fresh = entry(Instant.now().plusSeconds(60));
+        EnrichmentCacheEntry expired = entry(Instant.now().minusSeconds(60));
+        when(repository.findByKey(cache.keyFor(VERSION, MODEL, "fresh"))).thenReturn(fresh);
+        when(repository.findByKey(cache.keyFor(VERSION, MODEL, "expired"))).thenReturn(expired);
+
+        assertThat(cache.get(VERSION, MODEL, "fresh").getSeverity()).isEqualTo("CRITICAL");
+        assertThat(cache.get(VERSION, MODEL, "expired")).isNull();
+        assertThat(meterRegistry.get("ai.enrichment.cache.requests").tag("tier", "dynamodb").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    /**
+     * Ensures a failing persistent tier is treated as a miss and does not
+     * prevent results from being cached in memory.
+     */
+    @Test
+    void persistentTierFailures_areIgnored() {
+        EnrichmentCacheRepository repository = mock(EnrichmentCacheRepository.class);
+        EnrichmentCache cache = new EnrichmentCache(repository, meterRegistry, true, 10, 60, true);
+
+        when(repository.findByKey(anyString())).thenThrow(new RuntimeException("DynamoDB unavailable"));
+        doThrow(new RuntimeException("DynamoDB unavailable")).when(repository).save(any());
+
+        assertThat(cache.get(VERSION, MODEL, "description")).isNull();
+        cache.put(VERSION, MODEL, "description", result("LOW"));
+        assertThat(cache.get(VERSION, MODEL, "description").getSeverity()).isEqualTo("LOW");
+        verify(repository).save(any());
+    }
+
+    private IncidentEnrichmentResult result(String severity) {
+        return new IncidentEnrichmentResult(severity, "OTHER", "summary", "action");
+    }
+
+    private EnrichmentCacheEntry entry(Instant expiresAt) {
+        EnrichmentCacheEntry entry = new EnrichmentCacheEntry();
+        entry.setSeverity("CRITICAL");
+        entry.setCategory("SECURITY");
+        entry.setSummary("summary");
+        entry.setRecommendedAction("action");
+        entry.setExpiresAt(expiresAt.getEpochSecond());
+        return entry;
+    }
+}
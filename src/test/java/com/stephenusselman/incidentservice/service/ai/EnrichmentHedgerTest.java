@@ -0,0 +1,217 @@
+package com.stephenusselman.incidentservice.service.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import com.stephenusselman.incidentservice.dto.ai.IncidentEnrichmentRequest;
+import com.stephenusselman.incidentservice.dto.ai.IncidentEnrichmentResult;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class EnrichmentHedgerTest {
+
+    private AiEnrichmentService aiEnrichmentService;
+
+    private ThreadPoolTaskExecutor executor;
+
+    private ThreadPoolTaskScheduler scheduler;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private AiCircuitBreaker circuitBreaker;
+
+    private TokenBudgetScheduler tokenBudget;
+
+    /** Calls to the AI service so far; the slow call is chosen by number */
+    private final AtomicInteger calls = new AtomicInteger();
+
+    /** Released when the slow call is interrupted */
+    private final CountDownLatch slowCallCancelled = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        aiEnrichmentService = mock(AiEnrichmentService.class);
+
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(4);
+        executor.initialize();
+
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.initialize();
+
+        meterRegistry = new SimpleMeterRegistry();
+        circuitBreaker = new AiCircuitBreaker(new SimpleMeterRegistry(), 10, 10, 50, 100, 60_000, 30, 1, 10);
+        tokenBudget = new TokenBudgetScheduler(
+                aiEnrichmentService, scheduler, new SimpleMeterRegistry(), true, 1000, 500, 60_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+        scheduler.shutdown();
+    }
+
+    /**
+     * Ensures nothing is hedged before the latency window has enough samples.
+     */
+    @Test
+    void execute_beforeMinSamples_doesNotHedge() throws Exception {
+        when(aiEnrichmentService.enrichIncident(any())).thenReturn(result());
+        EnrichmentHedger hedger = hedger(3, 1.0);
+
+        assertThat(hedger.getHedgeDelayMs()).isEqualTo(-1);
+        hedger.execute(request(), new AtomicInteger(), null).get(1, TimeUnit.SECONDS);
+
+        assertThat(hedger.getHedgeDelayMs()).isEqualTo(-1);
+        assertThat(meterRegistry.get("ai.enrichment.hedge.requests").counter().count()).isZero();
+    }
+
+    /**
+     * Ensures a slow request is hedged, the hedge wins and the loser is cancelled.
+     */
+    @Test
+    void execute_slowPrimary_hedgeWinsAndPrimaryIsCancelled() throws Exception {
+        slowOnCall(2);
+        EnrichmentHedger hedger = hedger(1, 1.0);
+        hedger.execute(request(), new AtomicInteger(), null).get(1, TimeUnit.SECONDS);
+
+        long start = System.nanoTime();
+        IncidentEnrichmentResult hedged = hedger.execute(request(), new AtomicInteger(), null).get(2, TimeUnit.SECONDS);
+
+        assertThat(hedged.getSeverity()).isEqualTo("LOW");
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(2_000);
+        assertThat(meterRegistry.get("ai.enrichment.hedge.wins").tag("winner", "hedge").counter().count())
+                .isEqualTo(1);
+        assertThat(slowCallCancelled.await(1, TimeUnit.SECONDS)).isTrue();
+        verify(aiEnrichmentService, times(3)).enrichIncident(any());
+        assertThat(circuitBreaker.snapshot().bufferedCalls()).isEqualTo(1);
+        assertThat(circuitBreaker.snapshot().bulkheadAvailable()).isEqualTo(10);
+    }
+
+    /**
+     * Ensures the hedge ratio cap stops hedges and the primary result is used.
+     */
+    @Test
+    void execute_hedgeRatioExhausted_waitsForPrimary() throws Exception {
+        when(aiEnrichmentService.enrichIncident(any())).thenAnswer(invocation -> {
+            if (calls.incrementAndGet() == 2) {
+                Thread.sleep(300);
+            }
+            return result();
+        });
+        EnrichmentHedger hedger = hedger(1, 0);
+        hedger.execute(request(), new AtomicInteger(), null).get(1, TimeUnit.SECONDS);
+
+        hedger.execute(request(), new AtomicInteger(), null).get(2, TimeUnit.SECONDS);
+
+        assertThat(meterRegistry.get("ai.enrichment.hedge.skipped").tag("reason", "ratio").counter().count())
+                .isEqualTo(1);
+        verify(aiEnrichmentService, times(2)).enrichIncident(any());
+    }
+
+    /**
+     * Ensures a hedge the token budget cannot cover is skipped and the
+     * primary result is used.
+     */
+    @Test
+    void execute_tokenBudgetExhausted_waitsForPrimary() throws Exception {
+        when(aiEnrichmentService.enrichIncident(any())).thenAnswer(invocation -> {
+            if (calls.incrementAndGet() == 2) {
+                Thread.sleep(300);
+            }
+            return result();
+        });
+        EnrichmentHedger hedger = hedger(1, 1.0);
+        hedger.execute(request(), new AtomicInteger(), null).get(1, TimeUnit.SECONDS);
+        assertThat(tokenBudget.tryReserve(request())).isTrue();
+        assertThat(tokenBudget.tryReserve(request())).isTrue();
+
+        hedger.execute(request(), new AtomicInteger(), null).get(2, TimeUnit.SECONDS);
+
+        assertThat(meterRegistry.get("ai.enrichment.hedge.skipped").tag("reason", "token-budget").counter().count())
+                .isEqualTo(1);
+        assertThat(circuitBreaker.snapshot().bulkheadAvailable()).isEqualTo(10);
+        verify(aiEnrichmentService, times(2)).enrichIncident(any());
+    }
+
+    /**
+     * Ensures the non-blocking client path hedges too, and that the losing
+     * request's future is cancelled.
+     */
+    @Test
+    void execute_asyncClient_hedgeWinsAndPrimaryIsCancelled() throws Exception {
+        CompletableFuture<IncidentEnrichmentResult> slow = new CompletableFuture<>();
+        when(aiEnrichmentService.enrichIncidentAsync(any()))
+                .thenReturn(CompletableFuture.completedFuture(result()))
+                .thenReturn(slow)
+                .thenReturn(CompletableFuture.completedFuture(result()));
+        EnrichmentHedger hedger = hedger(true, 1, 1.0);
+        hedger.execute(request(), new AtomicInteger(), null).get(1, TimeUnit.SECONDS);
+
+        IncidentEnrichmentResult hedged = hedger.execute(request(), new AtomicInteger(), null).get(2, TimeUnit.SECONDS);
+
+        assertThat(hedged.getSeverity()).isEqualTo("LOW");
+        assertThat(slow.isCancelled()).isTrue();
+        verify(aiEnrichmentService, times(3)).enrichIncidentAsync(any());
+        verify(aiEnrichmentService, never()).enrichIncident(any());
+    }
+
+    /**
+     * Makes the given AI call block for ten seconds, simulating a tail-latency response.
+     */
+    private void slowOnCall(int slowCall) {
+        when(aiEnrichmentService.enrichIncident(any())).thenAnswer(invocation -> {
+            if (calls.incrementAndGet() == slowCall) {
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    slowCallCancelled.countDown();
+                    throw e;
+                }
+            }
+            return result();
+        });
+    }
+
+    /**
+     * Creates an enabled, blocking hedger that hedges at the 95th percentile, at least 20 ms in.
+     */
+    private EnrichmentHedger hedger(int minSamples, double maxHedgeRatio) {
+        return hedger(false, minSamples, maxHedgeRatio);
+    }
+
+    /**
+     * Creates an enabled hedger using the blocking or non-blocking client.
+     */
+    private EnrichmentHedger hedger(boolean asyncClient, int minSamples, double maxHedgeRatio) {
+        AdaptiveConcurrencyLimiter limiter =
+                new AdaptiveConcurrencyLimiter(new SimpleMeterRegistry(), 10, 1, 10, 60_000, 0.5, 0);
+        return new EnrichmentHedger(aiEnrichmentService, executor, scheduler, limiter, tokenBudget,
+                circuitBreaker, meterRegistry, asyncClient, false, true, 95, 10, minSamples, 20, maxHedgeRatio);
+    }
+
+    private IncidentEnrichmentRequest request() {
+        return new IncidentEnrichmentRequest("INC-1", "Checkout is slow", "user", "2024-01-01T00:00:00Z");
+    }
+
+    private IncidentEnrichmentResult result() {
+        return new IncidentEnrichmentResult("LOW", "OTHER", "summary", "action");
+    }
+}
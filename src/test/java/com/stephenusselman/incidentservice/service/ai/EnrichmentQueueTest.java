@@ -0,0 +1,170 @@
+package com.stephenusselman.incidentservice.service.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.mockito.ArgumentCaptor;
+import org.springframework.core.task.AsyncTaskExecutor;
+
+import com.stephenusselman.incidentservice.domain.EnrichmentTask;
+import com.stephenusselman.incidentservice.domain.Incident;
+import com.stephenusselman.incidentservice.repository.EnrichmentQueueRepository;
+import com.stephenusselman.incidentservice.repository.IncidentRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class EnrichmentQueueTest {
+
+    private EnrichmentQueueRepository queueRepository;
+    private IncidentRepository incidentRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private AsyncTaskExecutor executor;
+    private EnrichmentQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        queueRepository = mock(EnrichmentQueueRepository.class);
+        incidentRepository = mock(IncidentRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        when(queueRepository.complete(any())).thenReturn(true);
+        when(queueRepository.release(any(), any())).thenReturn(true);
+
+        executor = mock(AsyncTaskExecutor.class);
+
+        queue = new EnrichmentQueue(queueRepository, incidentRepository, mock(IncidentEnrichmentCoordinator.class),
+                mock(AiCircuitBreaker.class), mock(AdaptiveConcurrencyLimiter.class), mock(EnrichmentVersions.class),
+                executor, meterRegistry, false, 4, 120, 1000, 10, 30, 3, false);
+    }
+
+    /**
+     * Ensures an errored task is released for another attempt while it has
+     * attempts left.
+     */
+    @Test
+    void settle_releasesErroredTaskWithAttemptsLeft() {
+        EnrichmentTask task = task(2);
+
+        queue.settle(task, new RuntimeException("update failed"));
+
+        verify(queueRepository).release(any(), any(Instant.class));
+        verify(queueRepository, never()).complete(any());
+        verify(incidentRepository, never()).update(any());
+    }
+
+    /**
+     * Ensures a task that errored on its last attempt is deleted, its
+     * incident marked FAILED and the give-up counted.
+     */
+    @Test
+    void settle_givesUpAfterMaxAttempts() {
+        EnrichmentTask task = task(3);
+        Incident incident = incident("PENDING");
+        when(incidentRepository.findById("INC-1")).thenReturn(incident);
+
+        queue.settle(task, new CompletionException(new RuntimeException("Validation failed")));
+
+        assertThat(incident.getAiStatus()).isEqualTo("FAILED");
+        assertThat(incident.getAiErrorMessage()).contains("3 attempts").contains("Validation failed");
+        verify(incidentRepository).update(incident);
+        verify(queueRepository).complete(task);
+        verify(queueRepository, never()).release(any(), any());
+        assertThat(meterRegistry.get("ai.enrichment.queue.abandoned").counter().count()).isEqualTo(1);
+    }
+
+    /**
+     * Ensures a re-enrichment that keeps erroring is dropped without
+     * overwriting the incident's existing result.
+     */
+    @Test
+    void settle_givingUpKeepsAnEnrichedResult() {
+        EnrichmentTask task = task(3);
+        when(incidentRepository.findById("INC-1")).thenReturn(incident("ENRICHED"));
+
+        queue.settle(task, new RuntimeException("AI down"));
+
+        verify(incidentRepository, never()).update(any());
+        verify(queueRepository).complete(task);
+    }
+
+    /**
+     * Ensures a claim refused by the circuit breaker does not use up an
+     * attempt.
+     */
+    @Test
+    void settle_parkedClaimIsNotCounted() {
+        EnrichmentTask task = task(3);
+
+        queue.settle(task, new AiCallNotPermittedException("open", Instant.now().plusSeconds(5)));
+
+        assertThat(task.getAttempts()).isEqualTo(2);
+        verify(queueRepository).release(any(), any(Instant.class));
+        verify(queueRepository, never()).complete(any());
+    }
+
+    /**
+     * Ensures a claimed task is loaded on the enrichment executor rather
+     * than on the calling poller thread.
+     */
+    @Test
+    void dispatch_loadsIncidentOnExecutor() {
+        EnrichmentTask task = task(1);
+
+        queue.dispatch(task);
+
+        verify(incidentRepository, never()).findById(any());
+        assertThat(queue.getInFlightCount()).isEqualTo(1);
+
+        ArgumentCaptor<Runnable> work = ArgumentCaptor.forClass(Runnable.class);
+        verify(executor).execute(work.capture());
+        work.getValue().run();
+
+        verify(incidentRepository).findById("INC-1");
+        verify(queueRepository).complete(task);
+        assertThat(queue.getInFlightCount()).isZero();
+    }
+
+    /**
+     * Ensures a task the saturated executor refuses is parked without using
+     * up an attempt.
+     */
+    @Test
+    void dispatch_parksTaskWhenExecutorIsSaturated() {
+        EnrichmentTask task = task(1);
+        doThrow(new RejectedExecutionException("saturated")).when(executor).execute(any());
+
+        queue.dispatch(task);
+
+        assertThat(task.getAttempts()).isZero();
+        verify(queueRepository).release(any(), any(Instant.class));
+        verify(incidentRepository, never()).findById(any());
+        assertThat(queue.getInFlightCount()).isZero();
+    }
+
+    private EnrichmentTask task(int attempts) {
+        EnrichmentTask task = new EnrichmentTask();
+        task.setIncidentId("INC-1");
+        task.setLeaseToken("token");
+        task.setReason(EnrichmentQueue.REASON_CREATED);
+        task.setAttempts(attempts);
+        return task;
+    }
+
+    private Incident incident(String aiStatus) {
+        Incident incident = new Incident();
+        incident.setIncidentId("INC-1");
+        incident.setAiStatus(aiStatus);
+        return incident;
+    }
+}
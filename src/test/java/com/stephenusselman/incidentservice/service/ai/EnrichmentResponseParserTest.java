@@ -0,0 +1,102 @@
+package com.stephenusselman.incidentservice.service.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stephenusselman.incidentservice.dto.ai.IncidentEnrichmentResult;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class EnrichmentResponseParserTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private EnrichmentResponseParser parser;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        parser = new EnrichmentResponseParser(new ObjectMapper(), meterRegistry);
+    }
+
+    /**
+     * Ensures well-formed output is parsed and counted as clean.
+     */
+    @Test
+    void parseResult_cleanJson() {
+        IncidentEnrichmentResult result = parser.parseResult(
+                "{\"severity\":\"HIGH\",\"category\":\"DATA\",\"summary\":\"s\",\"recommendedAction\":\"a\"}");
+
+        assertThat(result.getSeverity()).isEqualTo("HIGH");
+        assertThat(outcome("clean")).isEqualTo(1);
+    }
+
+    /**
+     * Ensures the first object is recovered from prose and code fences, and
+     * enum values are normalized.
+     */
+    @Test
+    void parseResult_recoversObjectFromNoisyText() {
+        IncidentEnrichmentResult result = parser.parseResult("""
+                Sure! Here is the classification:
+                ```json
+                {'severity': 'High', category: "availability ", "summary": "API down",
+                 "recommendedAction": "Fail over",}
+                ```
+                Let me know if you need anything else {or more}.
+                """);
+
+        assertThat(result.getSeverity()).isEqualTo("HIGH");
+        assertThat(result.getCategory()).isEqualTo("AVAILABILITY");
+        assertThat(result.getSummary()).isEqualTo("API down");
+        assertThat(outcome("recovered")).isEqualTo(1);
+    }
+
+    /**
+     * Ensures an unknown category falls back to OTHER while an unknown
+     * severity fails the parse.
+     */
+    @Test
+    void parseResult_normalizesEnums() {
+        assertThat(parser.parseResult("{\"severity\":\"low\",\"category\":\"Billing\"}").getCategory())
+                .isEqualTo("OTHER");
+
+        assertThrows(AiResponseParseException.class,
+                () -> parser.parseResult("{\"severity\":\"urgent\",\"category\":\"DATA\"}"));
+        assertThat(outcome("failed")).isEqualTo(1);
+    }
+
+    /**
+     * Ensures text without any JSON object fails with a parse exception.
+     */
+    @Test
+    void parseResult_withoutJson_fails() {
+        assertThrows(AiResponseParseException.class, () -> parser.parseResult("I cannot help with that."));
+        assertThat(outcome("failed")).isEqualTo(1);
+    }
+
+    /**
+     * Ensures both the structured-output wrapper and a bare array are accepted.
+     */
+    @Test
+    void parseBatch_acceptsWrapperAndBareArray() {
+        String element = "{\"incidentId\":\"A\",\"severity\":\"CRITICAL\",\"category\":\"SECURITY\","
+                + "\"summary\":\"s\",\"recommendedAction\":\"a\"}";
+
+        Map<String, IncidentEnrichmentResult> wrapped = parser.parseBatch("{\"incidents\":[" + element + "]}");
+        Map<String, IncidentEnrichmentResult> bare = parser.parseBatch("Results: [" + element + "]");
+
+        assertThat(wrapped).containsOnlyKeys("A");
+        assertThat(bare.get("A").getSeverity()).isEqualTo("CRITICAL");
+    }
+
+    private double outcome(String outcome) {
+        return meterRegistry.get("ai.enrichment.parse").tag("outcome", outcome).counter().count();
+    }
+}
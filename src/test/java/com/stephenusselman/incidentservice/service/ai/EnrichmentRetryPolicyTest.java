@@ -0,0 +1,50 @@
+package com.stephenusselman.incidentservice.service.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class EnrichmentRetryPolicyTest {
+
+    /**
+     * Ensures the delay grows exponentially and is capped at the maximum
+     * when jitter is disabled.
+     */
+    @Test
+    void backoffDelay_withoutJitter_growsExponentiallyUpToMax() {
+        EnrichmentRetryPolicy policy = new EnrichmentRetryPolicy(5, 100, 350, 2.0, 0.0, 1000, 60_000, 0);
+
+        assertThat(policy.backoffDelayMs(1)).isEqualTo(100);
+        assertThat(policy.backoffDelayMs(2)).isEqualTo(200);
+        assertThat(policy.backoffDelayMs(3)).isEqualTo(350);
+        assertThat(policy.backoffDelayMs(4)).isEqualTo(350);
+    }
+
+    /**
+     * Ensures jittered delays stay within the configured jitter window.
+     */
+    @Test
+    void backoffDelay_withJitter_staysWithinWindow() {
+        EnrichmentRetryPolicy policy = new EnrichmentRetryPolicy(3, 1000, 10000, 2.0, 0.5, 1000, 60_000, 0);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(policy.backoffDelayMs(2)).isBetween(1000L, 2000L);
+        }
+    }
+
+    /**
+     * Ensures invalid settings are rejected at construction.
+     */
+    @Test
+    void constructor_rejectsInvalidSettings() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new EnrichmentRetryPolicy(0, 100, 1000, 2.0, 0.5, 1000, 60_000, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new EnrichmentRetryPolicy(3, 100, 1000, 2.0, 1.5, 1000, 60_000, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new EnrichmentRetryPolicy(3, 100, 1000, 2.0, 0.5, 1000, 0, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new EnrichmentRetryPolicy(3, 100, 1000, 2.0, 0.5, 1000, 60_000, -1));
+    }
+}
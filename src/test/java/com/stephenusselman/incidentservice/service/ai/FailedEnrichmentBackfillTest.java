@@ -0,0 +1,138 @@
+package com.stephenusselman.incidentservice.service.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.stephenusselman.incidentservice.domain.Incident;
+import com.stephenusselman.incidentservice.domain.JobCheckpoint;
+import com.stephenusselman.incidentservice.repository.IncidentRepository;
+import com.stephenusselman.incidentservice.repository.JobCheckpointRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import software.amazon.awssdk.enhanced.dynamodb.model.Page;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+class FailedEnrichmentBackfillTest {
+
+    private IncidentRepository repository;
+    private JobCheckpointRepository checkpoints;
+    private IncidentEnrichmentCoordinator coordinator;
+    private AiCircuitBreaker circuitBreaker;
+    private JobCheckpoint checkpoint;
+    private FailedEnrichmentBackfill backfill;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(IncidentRepository.class);
+        checkpoints = mock(JobCheckpointRepository.class);
+        coordinator = mock(IncidentEnrichmentCoordinator.class);
+        circuitBreaker = mock(AiCircuitBreaker.class);
+        when(circuitBreaker.isCallPermitted()).thenReturn(true);
+
+        checkpoint = new JobCheckpoint();
+        checkpoint.setJobName(FailedEnrichmentBackfill.JOB_NAME);
+        checkpoint.setLeaseOwner("node");
+        when(checkpoints.claim(eq(FailedEnrichmentBackfill.JOB_NAME), anyString(), any(Duration.class)))
+                .thenReturn(checkpoint);
+        when(checkpoints.save(any(JobCheckpoint.class), any(Duration.class))).thenReturn(true);
+        when(checkpoints.release(any(JobCheckpoint.class))).thenReturn(true);
+
+        backfill = new FailedEnrichmentBackfill(repository, checkpoints, coordinator, circuitBreaker,
+                null, new SimpleMeterRegistry(), true, 6000, 2, 2, 0, 300);
+    }
+
+    /**
+     * Ensures a run pages through the failed incidents, checkpoints the
+     * cursor after each page and completes when the partition is exhausted.
+     */
+    @Test
+    void run_pagesThroughFailedIncidentsAndCompletes() {
+        Incident a = failed("a");
+        Incident b = failed("b");
+        Incident c = failed("c");
+        Map<String, AttributeValue> next = Map.of("incidentId", AttributeValue.fromS("b"));
+        when(repository.countByAiStatus("FAILED")).thenReturn(3L);
+        when(repository.queryByAiStatus(eq("FAILED"), anyInt(), isNull())).thenReturn(Page.create(List.of(a, b), next));
+        when(repository.queryByAiStatus(eq("FAILED"), anyInt(), eq(next))).thenReturn(Page.create(List.of(c), null));
+        enrichesTo(a, "ENRICHED");
+        enrichesTo(b, "FAILED");
+        enrichesTo(c, "ENRICHED");
+
+        String status = backfill.run(false);
+
+        assertThat(status).isEqualTo(FailedEnrichmentBackfill.STATUS_COMPLETED);
+        verify(checkpoints).save(any(JobCheckpoint.class), any(Duration.class));
+        verify(checkpoints).release(checkpoint);
+        assertThat(checkpoint.getCursor()).isNull();
+        assertThat(checkpoint.getProcessed()).isEqualTo(3);
+        assertThat(checkpoint.getSucceeded()).isEqualTo(2);
+        assertThat(checkpoint.getFailed()).isEqualTo(1);
+        assertThat(checkpoint.getStatus()).isEqualTo(FailedEnrichmentBackfill.STATUS_COMPLETED);
+    }
+
+    /**
+     * Ensures a page refused by the circuit breaker pauses the run without
+     * advancing the cursor, so the page is read again on resume.
+     */
+    @Test
+    void run_whenCallIsParked_pausesWithoutAdvancingCursor() {
+        Map<String, String> saved = Map.of("incidentId", "a", "aiBacklogStatus", "FAILED", "createdAt", "2025-01-01");
+        checkpoint.setStatus(FailedEnrichmentBackfill.STATUS_PAUSED);
+        checkpoint.setCursor(saved);
+        Incident d = failed("d");
+        when(repository.queryByAiStatus(eq("FAILED"), anyInt(), any())).thenReturn(Page.create(List.of(d),
+                Map.of("incidentId", AttributeValue.fromS("d"))));
+        when(coordinator.enrichIncidentAsync(d)).thenReturn(CompletableFuture.failedFuture(
+                new AiCallNotPermittedException("open", Instant.now().plusSeconds(30))));
+
+        String status = backfill.run(false);
+
+        assertThat(status).isEqualTo(FailedEnrichmentBackfill.STATUS_PAUSED);
+        assertThat(checkpoint.getCursor()).isEqualTo(saved);
+        assertThat(checkpoint.getProcessed()).isZero();
+        verify(checkpoints, never()).save(any(JobCheckpoint.class), any(Duration.class));
+        verify(checkpoints).release(checkpoint);
+    }
+
+    /**
+     * Ensures nothing runs while another node holds the job.
+     */
+    @Test
+    void run_whenAnotherNodeHoldsTheJob_doesNothing() {
+        when(checkpoints.claim(anyString(), anyString(), any(Duration.class))).thenReturn(null);
+
+        assertThat(backfill.run(false)).isNull();
+        verify(repository, never()).queryByAiStatus(anyString(), anyInt(), any());
+    }
+
+    private void enrichesTo(Incident incident, String aiStatus) {
+        when(coordinator.enrichIncidentAsync(incident)).thenAnswer(invocation -> {
+            incident.setAiStatus(aiStatus);
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+
+    private static Incident failed(String id) {
+        Incident incident = new Incident();
+        incident.setIncidentId(id);
+        incident.setAiStatus("FAILED");
+        return incident;
+    }
+}
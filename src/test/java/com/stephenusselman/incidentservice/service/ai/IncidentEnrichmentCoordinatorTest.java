@@ -3,8 +3,15 @@ package com.stephenusselman.incidentservice.service.ai;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import com.stephenusselman.incidentservice.domain.Incident;
 import com.stephenusselman.incidentservice.dto.ai.IncidentEnrichmentRequest;
@@ -14,11 +21,16 @@ import com.stephenusselman.incidentservice.repository.IncidentRepository;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Validator;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 class IncidentEnrichmentCoordinatorTest {
 
@@ -31,12 +43,44 @@ class IncidentEnrichmentCoordinatorTest {
     @Mock
     private Validator validator;
 
-    @InjectMocks
+    private ThreadPoolTaskExecutor executor;
+
+    private ThreadPoolTaskScheduler scheduler;
+
+    private AiCircuitBreaker circuitBreaker;
+
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    private SimpleMeterRegistry meterRegistry;
+
     private IncidentEnrichmentCoordinator coordinator;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(10);
+        executor.initialize();
+
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.initialize();
+
+        meterRegistry = new SimpleMeterRegistry();
+        EnrichmentRetryPolicy retryPolicy = new EnrichmentRetryPolicy(3, 10, 50, 2.0, 0.5, 1000, 60_000, 0);
+        circuitBreaker = new AiCircuitBreaker(new SimpleMeterRegistry(), 100, 100, 100, 100, 60_000, 30, 1, 10);
+        concurrencyLimiter = new AdaptiveConcurrencyLimiter(new SimpleMeterRegistry(), 10, 1, 10, 60_000, 0.5, 0);
+
+        coordinator = new IncidentEnrichmentCoordinator(
+                repository, validator, executor, scheduler, retryPolicy, unbatched(), uncached(), noNearDuplicates(), circuitBreaker, concurrencyLimiter, unbudgeted(), unhedged(), prompts(), meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+        scheduler.shutdown();
     }
 
     /**
@@ -65,9 +109,10 @@ class IncidentEnrichmentCoordinatorTest {
         assertEquals("AI summary", incident.getAiSummary());
         assertEquals("Restart service", incident.getRecommendedAction());
         assertEquals("ENRICHED", incident.getAiStatus());
+        assertEquals("incident-enrichment-v1", incident.getPromptVersion());
         assertNull(incident.getAiErrorMessage());
 
-        verify(repository, times(1)).save(incident);
+        verify(repository, times(1)).update(incident);
     }
 
     /**
@@ -87,7 +132,155 @@ class IncidentEnrichmentCoordinatorTest {
         assertEquals("FAILED", incident.getAiStatus());
         assertNotNull(incident.getAiErrorMessage());
 
-        verify(repository, times(1)).save(incident);
+        verify(aiEnrichmentService, times(3)).enrichIncident(any());
+        verify(repository, times(1)).update(incident);
+        assertEquals(3, meterRegistry.get("ai.enrichment.upstream.calls").summary().totalAmount());
+        assertEquals(2, meterRegistry.get("ai.enrichment.retries").tag("cause", "error").counter().count());
+    }
+
+    /**
+     * Ensures an unparseable response is retried without waiting for backoff.
+     */
+    @Test
+    void whenResponseCannotBeParsed_thenRetriesWithoutBackoff() {
+        Incident incident = baseIncident();
+        EnrichmentRetryPolicy slowBackoff = new EnrichmentRetryPolicy(3, 5_000, 5_000, 2.0, 0.0, 1000, 60_000, 0);
+        coordinator = new IncidentEnrichmentCoordinator(
+                repository, validator, executor, scheduler, slowBackoff, unbatched(), uncached(), noNearDuplicates(), circuitBreaker, concurrencyLimiter, unbudgeted(), unhedged(), prompts(), meterRegistry);
+
+        when(validator.validate(any())).thenReturn(Collections.emptySet());
+        when(aiEnrichmentService.enrichIncident(any()))
+                .thenThrow(new AiResponseParseException("Failed to parse AI enrichment response: oops", null))
+                .thenReturn(new IncidentEnrichmentResult("LOW", "OTHER", "summary", "action"));
+
+        long start = System.nanoTime();
+        coordinator.enrichIncident(incident);
+
+        assertEquals("ENRICHED", incident.getAiStatus());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2_000);
+        assertEquals(1, meterRegistry.get("ai.enrichment.retries").tag("cause", "parse").counter().count());
+    }
+
+    /**
+     * Ensures no retry is scheduled when its backoff would end past the
+     * enrichment deadline, so the incident fails after a single call.
+     */
+    @Test
+    void whenBackoffExceedsDeadline_thenIncidentFailsWithoutRetry() {
+        Incident incident = baseIncident();
+        EnrichmentRetryPolicy shortDeadline = new EnrichmentRetryPolicy(3, 500, 500, 2.0, 0.0, 1000, 200, 0);
+        coordinator = new IncidentEnrichmentCoordinator(
+                repository, validator, executor, scheduler, shortDeadline, unbatched(), uncached(), noNearDuplicates(), circuitBreaker, concurrencyLimiter, unbudgeted(), unhedged(), prompts(), meterRegistry);
+
+        when(validator.validate(any())).thenReturn(Collections.emptySet());
+        when(aiEnrichmentService.enrichIncident(any()))
+                .thenThrow(new RuntimeException("AI unavailable"));
+
+        coordinator.enrichIncident(incident);
+
+        assertEquals("FAILED", incident.getAiStatus());
+        assertEquals("AI unavailable", incident.getAiErrorMessage());
+        verify(aiEnrichmentService, times(1)).enrichIncident(any());
+        assertEquals(1, meterRegistry.get("ai.enrichment.retry.deadline-exceeded").counter().count());
+    }
+
+    /**
+     * Ensures a transient AI failure is retried after backoff and the
+     * incident is enriched by a later attempt.
+     */
+    @Test
+    void whenAiEnrichmentFailsOnce_thenRetryEnrichesIncident() {
+        Incident incident = baseIncident();
+
+        when(validator.validate(any())).thenReturn(Collections.emptySet());
+        when(aiEnrichmentService.enrichIncident(any()))
+                .thenThrow(new RuntimeException("AI unavailable"))
+                .thenReturn(new IncidentEnrichmentResult("LOW", "OTHER", "summary", "action"));
+
+        coordinator.enrichIncident(incident);
+
+        assertEquals("ENRICHED", incident.getAiStatus());
+        assertEquals("LOW", incident.getSeverity());
+
+        verify(aiEnrichmentService, times(2)).enrichIncident(any());
+        verify(repository, times(1)).update(incident);
+    }
+
+    /**
+     * Ensures a slow AI call is abandoned after the attempt timeout, the
+     * incident is marked as FAILED once retries are exhausted, and the
+     * timeout shrinks the adaptive concurrency limit.
+     */
+    @Test
+    void whenAiCallExceedsTimeout_thenIncidentIsMarkedFailed() {
+        Incident incident = baseIncident();
+        EnrichmentRetryPolicy fastTimeout = new EnrichmentRetryPolicy(1, 10, 50, 2.0, 0.0, 50, 60_000, 0);
+        coordinator = new IncidentEnrichmentCoordinator(
+                repository, validator, executor, scheduler, fastTimeout, unbatched(), uncached(), noNearDuplicates(), circuitBreaker, concurrencyLimiter, unbudgeted(), unhedged(), prompts(), meterRegistry);
+
+        when(validator.validate(any())).thenReturn(Collections.emptySet());
+        when(aiEnrichmentService.enrichIncident(any())).thenAnswer(invocation -> {
+            Thread.sleep(5000);
+            return new IncidentEnrichmentResult("LOW", "OTHER", "summary", "action");
+        });
+
+        coordinator.enrichIncident(incident);
+
+        assertEquals("FAILED", incident.getAiStatus());
+        assertEquals("AI enrichment timed out", incident.getAiErrorMessage());
+        assertEquals(5, concurrencyLimiter.getLimit());
+        verify(repository, times(1)).update(incident);
+    }
+
+    /**
+     * Ensures the outcome of a timed-out call is persisted on an executor
+     * thread rather than on the timer that fired the timeout.
+     */
+    @Test
+    void whenAiCallTimesOut_thenOutcomeIsPersistedOffTheTimer() {
+        Incident incident = baseIncident();
+        executor.setThreadNamePrefix("enrichment-worker-");
+        scheduler.setThreadNamePrefix("enrichment-timer-");
+        EnrichmentRetryPolicy fastTimeout = new EnrichmentRetryPolicy(1, 10, 50, 2.0, 0.0, 50, 60_000, 0);
+        coordinator = new IncidentEnrichmentCoordinator(
+                repository, validator, executor, scheduler, fastTimeout, unbatched(), uncached(), noNearDuplicates(), circuitBreaker, concurrencyLimiter, unbudgeted(), unhedged(), prompts(), meterRegistry);
+
+        when(validator.validate(any())).thenReturn(Collections.emptySet());
+        when(aiEnrichmentService.enrichIncident(any())).thenAnswer(invocation -> {
+            Thread.sleep(1000);
+            return new IncidentEnrichmentResult("LOW", "OTHER", "summary", "action");
+        });
+        List<String> threads = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> {
+            threads.add(Thread.currentThread().getName());
+            return null;
+        }).when(repository).update(any());
+
+        coordinator.enrichIncident(incident);
+
+        assertEquals("FAILED", incident.getAiStatus());
+        assertEquals(1, threads.size());
+        assertTrue(threads.get(0).startsWith("enrichment-worker-"), threads.get(0));
+    }
+
+    /**
+     * Ensures that when the shared executor rejects work, the AI service
+     * is never invoked and the incident is marked as FAILED.
+     */
+    @Test
+    void whenExecutorRejectsWork_thenIncidentIsMarkedFailed() {
+        Incident incident = baseIncident();
+        executor.shutdown();
+
+        when(validator.validate(any())).thenReturn(Collections.emptySet());
+
+        coordinator.enrichIncident(incident);
+
+        assertEquals("FAILED", incident.getAiStatus());
+        assertTrue(incident.getAiErrorMessage().contains("saturated"));
+
+        verify(aiEnrichmentService, never()).enrichIncident(any());
+        verify(repository, times(1)).update(incident);
     }
 
     /**
@@ -112,7 +305,7 @@ class IncidentEnrichmentCoordinatorTest {
         assertTrue(exception.getMessage().contains("Validation failed"));
 
         verify(aiEnrichmentService, never()).enrichIncident(any());
-        verify(repository, never()).save(any());
+        verify(repository, never()).update(any());
     }
 
     /**
@@ -140,7 +333,7 @@ class IncidentEnrichmentCoordinatorTest {
         assertEquals("FAILED", incident.getAiStatus());
         assertNotNull(incident.getAiErrorMessage());
 
-        verify(repository, times(1)).save(incident);
+        verify(repository, times(1)).update(incident);
     }
 
     /**
@@ -159,7 +352,376 @@ class IncidentEnrichmentCoordinatorTest {
                 coordinator.enrichIncidentAsync(incident).join()
         );
 
-        verify(repository, times(1)).save(incident);
+        verify(repository, times(1)).update(incident);
+    }
+
+    /**
+     * Ensures that with batching enabled, the AI call goes through the
+     * batch stage and a single queued incident uses the single prompt.
+     */
+    @Test
+    void whenBatchingEnabled_thenSingleIncidentIsEnriched() {
+        Incident incident = baseIncident();
+        EnrichmentBatcher batcher = new EnrichmentBatcher(
+                aiEnrichmentService, executor, scheduler, new SimpleMeterRegistry(), false, true, 10, 20);
+        coordinator = new IncidentEnrichmentCoordinator(repository, validator,
+                executor, scheduler, new EnrichmentRetryPolicy(3, 10, 50, 2.0, 0.5, 1000, 60_000, 0), batcher, uncached(), noNearDuplicates(), circuitBreaker, concurrencyLimiter, unbudgeted(), unhedged(), prompts(), meterRegistry);
+
+        when(validator.validate(any())).thenReturn(Collections.emptySet());
+        when(aiEnrichmentService.enrichIncident(any()))
+                .thenReturn(new IncidentEnrichmentResult("LOW", "OTHER", "summary", "action"));
+
+        coordinator.enrichIncident(incident);
+
+        assertEquals("ENRICHED", incident.getAiStatus());
+        verify(aiEnrichmentService, never()).enrichIncidents(any());
+        verify(repository, times(1)).update(incident);
+    }
+
+    /**
+     * Ensures a prompt version requested for an incident is rendered and
+     * recorded on the incident.
+     */
+    @Test
+    void whenIncidentRequestsPromptVersion_thenThatVersionIsUsedAndRecorded(@TempDir Path prompts) throws Exception {
+        Files.writeString(prompts.resolve("incident-enrichment-v2.txt"), "Classify {{description}}");
+        PromptTemplateRegistry registry = new PromptTemplateRegistry(scheduler, new SimpleMeterRegistry(),
+                "incident-enrichment-v1", "incident-enrichment-batch-v1", "", 0, prompts.toString(), 10_000);
+        coordinator = new IncidentEnrichmentCoordinator(repository, validator,
+                executor, scheduler, new EnrichmentRetryPolicy(3, 10, 50, 2.0, 0.5, 1000, 60_000, 0), unbatched(), uncached(), noNearDuplicates(), circuitBreaker, concurrencyLimiter, unbudgeted(), unhedged(), new EnrichmentVersions(registry, aiEnrichmentService), meterRegistry);
+
+        Incident incident = baseIncident();
+        incident.setPromptVersion("incident-enrichment-v2");
+        when(validator.validate(any())).thenReturn(Collections.emptySet());
+        when(aiEnrichmentService.enrichIncident(any()))
+                .thenReturn(new IncidentEnrichmentResult("LOW", "OTHER", "summary", "action"));
+
+        coordinator.enrichIncident(incident);
+
+        verify(aiEnrichmentService).enrichIncident(argThat(request ->
+                "incident-enrichment-v2".equals(request.getPromptVersion())));
+        assertEquals("incident-enrichment-v2", incident.getPromptVersion());
+    }
+
+    /**
+     * Ensures a failed re-enrichment of an ENRICHED incident keeps its
+     * previous result instead of marking it FAILED.
+     */
+    @Test
+    void whenReEnrichmentFails_thenPreviousResultIsKept() {
+        Incident incident = baseIncident();
+        incident.setAiStatus("ENRICHED");
+        incident.setAiSummary("old summary");
+        incident.setPromptVersion("incident-enrichment-v0");
+
+        when(validator.validate(any())).thenReturn(Collections.emptySet());
+        when(aiEnrichmentService.enrichIncident(any())).thenThrow(new RuntimeException("AI down"));
+
+        coordinator.enrichIncident(incident);
+
+        assertEquals("ENRICHED", incident.getAiStatus());
+        assertEquals("old summary", incident.getAiSummary());
+        assertEquals("incident-enrichment-v0", incident.getPromptVersion());
+        assertNull(incident.getAiErrorMessage());
+        verify(repository, never()).update(any());
+        assertEquals(1, meterRegistry.get("ai.reenrichment.failed").counter().count());
+    }
+
+    /**
+     * Ensures a classification made by the local classifier is kept and the
+     * AI result only supplies the summary and recommended action.
+     */
+    @Test
+    void whenIncidentWasClassifiedLocally_thenAiOnlyFillsSummaryAndAction() {
+        Incident incident = baseIncident();
+        incident.setSeverity("LOW");
+        incident.setCategory("DATA");
+        incident.setClassificationSource(Incident.SOURCE_LOCAL);
+
+        when(validator.validate(any())).thenReturn(Collections.emptySet());
+        when(aiEnrichmentService.enrichIncident(any()))
+                .thenReturn(new IncidentEnrichmentResult("HIGH", "SECURITY", "AI summary", "Restart service"));
+
+        coordinator.enrichIncident(incident);
+
+        assertEquals("LOW", incident.getSeverity());
+        assertEquals("DATA", incident.getCategory());
+        assertEquals(Incident.SOURCE_LOCAL, incident.getClassificationSource());
+        assertEquals("AI summary", incident.getAiSummary());
+        assertEquals("ENRICHED", incident.getAiStatus());
+    }
+
+    /**
+     * Ensures a second incident with the same description is served from
+     * the cache without another AI call.
+     */
+    @Test
+    void whenDescriptionWasEnrichedBefore_thenCachedResultIsReused() {
+        EnrichmentCache cache = new EnrichmentCache(null, new SimpleMeterRegistry(), true, 100, 60, false);
+        coordinator = new IncidentEnrichmentCoordinator(repository, validator,
+                executor, scheduler, new EnrichmentRetryPolicy(3, 10, 50, 2.0, 0.5, 1000, 60_000, 0), unbatched(), cache, noNearDuplicates(), circuitBreaker, concurrencyLimiter, unbudgeted(), unhedged(), prompts(), meterRegistry);
+
+        when(validator.validate(any())).thenReturn(Collections.emptySet());
+        when(aiEnrichmentService.enrichIncident(any()))
+                .thenReturn(new IncidentEnrichmentResult("HIGH", "SECURITY", "summary", "action"));
+
+        Incident first = baseIncident();
+        Incident repeat = baseIncident();
+        repeat.setIncidentId("INC-456");
+        repeat.setDescription("  TEST   incident ");
+
+        coordinator.enrichIncident(first);
+        coordinator.enrichIncident(repeat);
+
+        assertEquals("ENRICHED", repeat.getAiStatus());
+        assertEquals("HIGH", repeat.getSeverity());
+        verify(aiEnrichmentService, times(1)).enrichIncident(any());
+        verify(repository, times(1)).update(repeat);
+    }
+
+    /**
+     * Ensures an incident that differs from an enriched one only by its
+     * timestamp reuses that classification, but still gets a summary and
+     * action written for it.
+     */
+    @Test
+    void whenNearDuplicateWasEnriched_thenClassificationIsReused() {
+        NearDuplicateIndex index = new NearDuplicateIndex(new SimpleMeterRegistry(), true, 0.8, 100, 2, 16, 4, false);
+        coordinator = new IncidentEnrichmentCoordinator(repository, validator,
+                executor, scheduler, new EnrichmentRetryPolicy(3, 10, 50, 2.0, 0.5, 1000, 60_000, 0),
+                unbatched(), uncached(), index, circuitBreaker, concurrencyLimiter, unbudgeted(), unhedged(), prompts(), meterRegistry);
+
+        when(validator.validate(any())).thenReturn(Collections.emptySet());
+        when(aiEnrichmentService.enrichIncident(any()))
+                .thenReturn(new IncidentEnrichmentResult("HIGH", "PERFORMANCE", "summary at 14:37", "action"))
+                .thenReturn(new IncidentEnrichmentResult("LOW", "OTHER", "summary at 09:05", "other action"));
+
+        Incident first = baseIncident();
+        first.setDescription("Database latency has increased following the latest deployment. Observed at 14:37 UTC.");
+        Incident similar = baseIncident();
+        similar.setIncidentId("INC-456");
+        similar.setDescription("Database latency has increased following the latest deployment. Observed at 09:05 UTC.");
+
+        coordinator.enrichIncident(first);
+        coordinator.enrichIncident(similar);
+
+        assertEquals("ENRICHED", similar.getAiStatus());
+        assertEquals("HIGH", similar.getSeverity());
+        assertEquals("PERFORMANCE", similar.getCategory());
+        assertEquals("summary at 09:05", similar.getAiSummary());
+        assertEquals("other action", similar.getRecommendedAction());
+        verify(aiEnrichmentService, times(2)).enrichIncident(any());
+    }
+
+    /**
+     * Ensures that with summary reuse enabled, a near duplicate's whole
+     * result is reused without another AI call.
+     */
+    @Test
+    void whenNearDuplicateSummaryReuseIsEnabled_thenAiCallIsSkipped() {
+        NearDuplicateIndex index = new NearDuplicateIndex(new SimpleMeterRegistry(), true, 0.8, 100, 2, 16, 4, true);
+        coordinator = new IncidentEnrichmentCoordinator(repository, validator,
+                executor, scheduler, new EnrichmentRetryPolicy(3, 10, 50, 2.0, 0.5, 1000, 60_000, 0),
+                unbatched(), uncached(), index, circuitBreaker, concurrencyLimiter, unbudgeted(), unhedged(), prompts(), meterRegistry);
+
+        when(validator.validate(any())).thenReturn(Collections.emptySet());
+        when(aiEnrichmentService.enrichIncident(any()))
+                .thenReturn(new IncidentEnrichmentResult("HIGH", "PERFORMANCE", "summary", "action"));
+
+        Incident first = baseIncident();
+        first.setDescription("Database latency has increased following the latest deployment. Observed at 14:37 UTC.");
+        Incident similar = baseIncident();
+        similar.setIncidentId("INC-456");
+        similar.setDescription("Database latency has increased following the latest deployment. Observed at 09:05 UTC.");
+
+        coordinator.enrichIncident(first);
+        coordinator.enrichIncident(similar);
+
+        assertEquals("PERFORMANCE", similar.getCategory());
+        assertEquals("summary", similar.getAiSummary());
+        verify(aiEnrichmentService, times(1)).enrichIncident(any());
+    }
+
+    /**
+     * Ensures re-enriching an incident for a new model neither serves its
+     * cached result from the old model nor borrows a near duplicate's
+     * result, even though both are present.
+     */
+    @Test
+    void whenReEnrichingForNewModel_thenCacheAndNearDuplicatesAreNotReused() {
+        EnrichmentCache cache = new EnrichmentCache(null, new SimpleMeterRegistry(), true, 100, 60, false);
+        NearDuplicateIndex index = new NearDuplicateIndex(new SimpleMeterRegistry(), true, 0.8, 100, 2, 16, 4, true);
+        coordinator = new IncidentEnrichmentCoordinator(repository, validator,
+                executor, scheduler, new EnrichmentRetryPolicy(3, 10, 50, 2.0, 0.5, 1000, 60_000, 0),
+                unbatched(), cache, index, circuitBreaker, concurrencyLimiter, unbudgeted(), unhedged(), prompts(), meterRegistry);
+
+        when(validator.validate(any())).thenReturn(Collections.emptySet());
+        when(aiEnrichmentService.enrichIncident(any()))
+                .thenReturn(new IncidentEnrichmentResult("LOW", "OTHER", "old summary", "old action"))
+                .thenReturn(new IncidentEnrichmentResult("HIGH", "PERFORMANCE", "other summary", "other action"))
+                .thenReturn(new IncidentEnrichmentResult("CRITICAL", "SECURITY", "fresh summary", "fresh action"));
+
+        Incident incident = baseIncident();
+        incident.setDescription("Database latency has increased following the latest deployment. Observed at 14:37 UTC.");
+        Incident similar = baseIncident();
+        similar.setIncidentId("INC-456");
+        similar.setDescription("Database latency has increased following the latest deployment. Observed at 09:05 UTC.");
+
+        when(aiEnrichmentService.getModel()).thenReturn("model-a");
+        coordinator.enrichIncident(incident);
+        when(aiEnrichmentService.getModel()).thenReturn("model-b");
+        coordinator.enrichIncident(similar);
+        coordinator.enrichIncident(incident);
+
+        assertEquals("ENRICHED", incident.getAiStatus());
+        assertEquals("model-b", incident.getAiModel());
+        assertEquals("CRITICAL", incident.getSeverity());
+        assertEquals("fresh summary", incident.getAiSummary());
+        verify(aiEnrichmentService, times(3)).enrichIncident(any());
+    }
+
+    /**
+     * Ensures that once the circuit breaker opens, the incident is parked:
+     * it is neither retried nor marked FAILED, and the AI is not called.
+     */
+    @Test
+    void whenCircuitBreakerIsOpen_thenIncidentIsParkedWithoutAiCall() {
+        circuitBreaker = new AiCircuitBreaker(new SimpleMeterRegistry(), 3, 3, 50, 100, 60_000, 30, 1, 10);
+        coordinator = new IncidentEnrichmentCoordinator(repository, validator,
+                executor, scheduler, new EnrichmentRetryPolicy(3, 10, 50, 2.0, 0.5, 1000, 60_000, 0),
+                unbatched(), uncached(), noNearDuplicates(), circuitBreaker, concurrencyLimiter, unbudgeted(), unhedged(), prompts(), meterRegistry);
+
+        when(validator.validate(any())).thenReturn(Collections.emptySet());
+        when(aiEnrichmentService.enrichIncident(any())).thenThrow(new RuntimeException("AI unavailable"));
+
+        coordinator.enrichIncident(baseIncident());
+        assertEquals(AiCircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        Incident parked = baseIncident();
+        assertThrows(AiCallNotPermittedException.class, () -> coordinator.enrichIncident(parked));
+
+        assertEquals("PENDING", parked.getAiStatus());
+        verify(aiEnrichmentService, times(3)).enrichIncident(any());
+        verify(repository, never()).update(parked);
+    }
+
+    /**
+     * Ensures a streamed classification is persisted before the full result,
+     * and the summary fields follow in a second update.
+     */
+    @Test
+    void whenStreaming_thenClassificationIsPersistedBeforeSummary() {
+        EnrichmentHedger streaming = new EnrichmentHedger(aiEnrichmentService, executor, scheduler,
+                concurrencyLimiter, unbudgeted(), circuitBreaker, new SimpleMeterRegistry(),
+                true, true, false, 95, 10, 1, 0, 0.1);
+        coordinator = new IncidentEnrichmentCoordinator(repository, validator,
+                executor, scheduler, new EnrichmentRetryPolicy(3, 10, 50, 2.0, 0.5, 1000, 60_000, 0),
+                unbatched(), uncached(), noNearDuplicates(), circuitBreaker, concurrencyLimiter, unbudgeted(), streaming, prompts(), meterRegistry);
+
+        when(validator.validate(any())).thenReturn(Collections.emptySet());
+        when(aiEnrichmentService.enrichIncidentStreaming(any(), any())).thenAnswer(invocation -> {
+            invocation.<Consumer<IncidentEnrichmentResult>>getArgument(1)
+                    .accept(new IncidentEnrichmentResult("CRITICAL", "SECURITY", null, null));
+            return CompletableFuture.supplyAsync(
+                    () -> new IncidentEnrichmentResult("CRITICAL", "SECURITY", "summary", "action"),
+                    CompletableFuture.delayedExecutor(200, TimeUnit.MILLISECONDS));
+        });
+        List<String> updates = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> {
+            Incident updated = invocation.getArgument(0);
+            updates.add(updated.getSeverity() + "/" + updated.getAiSummary() + "/" + updated.getAiStatus());
+            return null;
+        }).when(repository).update(any());
+
+        Incident incident = baseIncident();
+        coordinator.enrichIncident(incident);
+
+        assertEquals(List.of("CRITICAL/null/PENDING", "CRITICAL/summary/ENRICHED"), updates);
+        assertEquals(1, meterRegistry.get("ai.enrichment.streaming.early-classifications").counter().count());
+    }
+
+    /**
+     * Ensures a re-enrichment that streams a classification and then fails
+     * leaves the previous severity and category in place.
+     */
+    @Test
+    void whenStreamingReEnrichmentFails_thenPreviousClassificationIsKept() {
+        EnrichmentHedger streaming = new EnrichmentHedger(aiEnrichmentService, executor, scheduler,
+                concurrencyLimiter, unbudgeted(), circuitBreaker, new SimpleMeterRegistry(),
+                true, true, false, 95, 10, 1, 0, 0.1);
+        coordinator = new IncidentEnrichmentCoordinator(repository, validator,
+                executor, scheduler, new EnrichmentRetryPolicy(1, 10, 50, 2.0, 0.5, 1000, 60_000, 0),
+                unbatched(), uncached(), noNearDuplicates(), circuitBreaker, concurrencyLimiter, unbudgeted(), streaming, prompts(), meterRegistry);
+
+        Incident incident = baseIncident();
+        incident.setAiStatus("ENRICHED");
+        incident.setSeverity("LOW");
+        incident.setCategory("DATA");
+        incident.setClassificationSource(Incident.SOURCE_AI);
+        incident.setAiSummary("old summary");
+        incident.setPromptVersion("incident-enrichment-v0");
+
+        when(aiEnrichmentService.enrichIncidentStreaming(any(), any())).thenAnswer(invocation -> {
+            invocation.<Consumer<IncidentEnrichmentResult>>getArgument(1)
+                    .accept(new IncidentEnrichmentResult("CRITICAL", "SECURITY", null, null));
+            return CompletableFuture.failedFuture(new RuntimeException("stream broke"));
+        });
+
+        coordinator.enrichIncident(incident);
+
+        assertEquals("LOW", incident.getSeverity());
+        assertEquals("DATA", incident.getCategory());
+        assertEquals("old summary", incident.getAiSummary());
+        assertEquals("ENRICHED", incident.getAiStatus());
+        verify(repository, never()).update(any());
+        assertEquals(0, meterRegistry.get("ai.enrichment.streaming.early-classifications").counter().count());
+        assertEquals(1, meterRegistry.get("ai.reenrichment.failed").counter().count());
+    }
+
+    /**
+     * Creates a near-duplicate index that is disabled.
+     */
+    private NearDuplicateIndex noNearDuplicates() {
+        return new NearDuplicateIndex(new SimpleMeterRegistry(), false, 0.8, 1, 2, 1, 1, false);
+    }
+
+    /**
+     * Creates a token budget scheduler that admits every call immediately.
+     */
+    private TokenBudgetScheduler unbudgeted() {
+        return new TokenBudgetScheduler(
+                aiEnrichmentService, scheduler, new SimpleMeterRegistry(), false, 1, 0, 1);
+    }
+
+    /**
+     * Creates a hedger with hedging disabled.
+     */
+    private EnrichmentHedger unhedged() {
+        return new EnrichmentHedger(aiEnrichmentService, executor, scheduler, concurrencyLimiter,
+                unbudgeted(), circuitBreaker, new SimpleMeterRegistry(), false, false, false, 95, 10, 1, 0, 0.1);
+    }
+
+    /**
+     * Creates a version policy with the bundled templates and no rollout.
+     */
+    private EnrichmentVersions prompts() {
+        return new EnrichmentVersions(new PromptTemplateRegistry(scheduler, new SimpleMeterRegistry(),
+                "incident-enrichment-v1", "incident-enrichment-batch-v1", "", 0, "", 10_000), aiEnrichmentService);
+    }
+
+    /**
+     * Creates a cache that is disabled.
+     */
+    private EnrichmentCache uncached() {
+        return new EnrichmentCache(null, new SimpleMeterRegistry(), false, 1, 1, false);
+    }
+
+    /**
+     * Creates a batcher with batching disabled.
+     */
+    private EnrichmentBatcher unbatched() {
+        return new EnrichmentBatcher(
+                aiEnrichmentService, executor, scheduler, new SimpleMeterRegistry(), false, false, 10, 0);
     }
 
     /**
@@ -0,0 +1,135 @@
+package com.stephenusselman.incidentservice.service.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.stephenusselman.incidentservice.domain.Incident;
+import com.stephenusselman.incidentservice.repository.IncidentRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import software.amazon.awssdk.enhanced.dynamodb.model.Page;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+class IncidentReEnricherTest {
+
+    private EnrichmentQueue queue;
+    private IncidentRepository repository;
+    private AiCircuitBreaker circuitBreaker;
+    private EnrichmentVersions versions;
+
+    @BeforeEach
+    void setUp() {
+        queue = mock(EnrichmentQueue.class);
+        repository = mock(IncidentRepository.class);
+        circuitBreaker = mock(AiCircuitBreaker.class);
+        when(circuitBreaker.isCallPermitted()).thenReturn(true);
+        when(queue.enqueue(anyString(), anyString())).thenReturn(true);
+
+        EnrichmentProvider provider = mock(EnrichmentProvider.class);
+        when(provider.getModel()).thenReturn("gpt-5-nano");
+        PromptTemplateRegistry prompts = new PromptTemplateRegistry(null, new SimpleMeterRegistry(),
+                "incident-enrichment-v1", "incident-enrichment-batch-v1", "", 0, "", 10_000);
+        versions = new EnrichmentVersions(prompts, provider);
+    }
+
+    /**
+     * Ensures reads enqueue only enriched incidents whose prompt version or
+     * model is outdated.
+     */
+    @Test
+    void onRead_enqueuesOnlyOutdatedIncidents() {
+        IncidentReEnricher reEnricher = reEnricher(60);
+
+        reEnricher.onRead(List.of(
+                incident("current", "ENRICHED", "incident-enrichment-v1", "gpt-5-nano"),
+                incident("old-prompt", "ENRICHED", "incident-enrichment-v0", "gpt-5-nano"),
+                incident("old-model", "ENRICHED", "incident-enrichment-v1", "gpt-4o-mini"),
+                incident("legacy", "ENRICHED", null, null),
+                incident("pending", "PENDING", null, null)));
+
+        verify(queue).enqueue("old-prompt", EnrichmentQueue.REASON_REENRICH);
+        verify(queue).enqueue("old-model", EnrichmentQueue.REASON_REENRICH);
+        verify(queue).enqueue("legacy", EnrichmentQueue.REASON_REENRICH);
+        verify(queue, times(3)).enqueue(anyString(), anyString());
+    }
+
+    /**
+     * Ensures the sweeper enqueues no more than its rate allows, keeps the
+     * rest waiting, and finishes the pass when the scan is exhausted.
+     */
+    @Test
+    void sweep_enqueuesAtConfiguredRateAndTracksProgress() {
+        Map<String, AttributeValue> next = Map.of("incidentId", AttributeValue.fromS("b"));
+        when(repository.scanByAiStatus(eq("ENRICHED"), anyInt(), isNull())).thenReturn(Page.create(List.of(
+                incident("a", "ENRICHED", "incident-enrichment-v0", "gpt-5-nano"),
+                incident("b", "ENRICHED", "incident-enrichment-v0", "gpt-5-nano")), next));
+        when(repository.scanByAiStatus(eq("ENRICHED"), anyInt(), eq(next))).thenReturn(Page.create(List.of(
+                incident("c", "ENRICHED", "incident-enrichment-v1", "gpt-5-nano"))));
+        IncidentReEnricher reEnricher = reEnricher(1);
+
+        reEnricher.sweep();
+        reEnricher.sweep();
+
+        verify(queue).enqueue("a", EnrichmentQueue.REASON_REENRICH);
+        verify(queue, never()).enqueue(eq("b"), anyString());
+        verify(repository, times(1)).scanByAiStatus(any(), anyInt(), any());
+        IncidentReEnricher.Progress progress = reEnricher.progress();
+        assertThat(progress.passInProgress()).isTrue();
+        assertThat(progress.scanned()).isEqualTo(2);
+        assertThat(progress.outdated()).isEqualTo(2);
+        assertThat(progress.enqueued()).isEqualTo(1);
+        assertThat(progress.waiting()).isEqualTo(1);
+    }
+
+    /**
+     * Ensures a finished pass is recorded and no page is read while the
+     * circuit breaker is open.
+     */
+    @Test
+    void sweep_completesPassAndPausesWhileBreakerIsOpen() {
+        when(repository.scanByAiStatus(eq("ENRICHED"), anyInt(), isNull())).thenReturn(Page.create(List.of(
+                incident("a", "ENRICHED", "incident-enrichment-v1", "gpt-5-nano"))));
+        IncidentReEnricher reEnricher = reEnricher(60);
+
+        reEnricher.sweep();
+        reEnricher.sweep();
+        when(circuitBreaker.isCallPermitted()).thenReturn(false);
+        reEnricher.sweep();
+
+        verify(repository, times(1)).scanByAiStatus(any(), anyInt(), any());
+        IncidentReEnricher.Progress progress = reEnricher.progress();
+        assertThat(progress.passesCompleted()).isEqualTo(1);
+        assertThat(progress.passInProgress()).isFalse();
+        assertThat(progress.nextPassAt()).isAfter(progress.lastPassCompletedAt());
+        verify(queue, never()).enqueue(anyString(), anyString());
+    }
+
+    private IncidentReEnricher reEnricher(long sweepRatePerMinute) {
+        return new IncidentReEnricher(versions, queue, repository, circuitBreaker, null, new SimpleMeterRegistry(),
+                true, true, 600, true, sweepRatePerMinute, 100, 1000, 60);
+    }
+
+    private static Incident incident(String id, String aiStatus, String promptVersion, String aiModel) {
+        Incident incident = new Incident();
+        incident.setIncidentId(id);
+        incident.setAiStatus(aiStatus);
+        incident.setPromptVersion(promptVersion);
+        incident.setAiModel(aiModel);
+        return incident;
+    }
+}
@@ -0,0 +1,113 @@
+package com.stephenusselman.incidentservice.service.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.stephenusselman.incidentservice.domain.Incident;
+import com.stephenusselman.incidentservice.repository.IncidentRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class LocalIncidentClassifierTest {
+
+    private IncidentRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(IncidentRepository.class);
+    }
+
+    /**
+     * Ensures the classifier predicts confidently for descriptions close to
+     * its training data once trained.
+     */
+    @Test
+    void classify_afterTraining_predictsFamiliarDescriptions() {
+        when(repository.streamAll(any(String[].class))).thenAnswer(invocation -> trainingSet(20).stream());
+        LocalIncidentClassifier classifier = classifier(0.9, 10);
+
+        assertThat(classifier.retrain()).isEqualTo(40);
+
+        LocalIncidentClassifier.Prediction prediction =
+                classifier.classify("Unauthorized login attempts detected from several IP addresses");
+        assertThat(prediction).isNotNull();
+        assertThat(prediction.severity()).isEqualTo("CRITICAL");
+        assertThat(prediction.category()).isEqualTo("SECURITY");
+        assertThat(classifier.getTrainingSamples()).isEqualTo(40);
+    }
+
+    /**
+     * Ensures nothing is predicted until enough training samples exist.
+     */
+    @Test
+    void classify_withTooFewSamples_returnsNull() {
+        when(repository.streamAll(any(String[].class))).thenAnswer(invocation -> trainingSet(2).stream());
+        LocalIncidentClassifier classifier = classifier(0.9, 10);
+
+        classifier.retrain();
+
+        assertThat(classifier.classify("Unauthorized login attempts detected")).isNull();
+    }
+
+    /**
+     * Ensures incidents labelled by the classifier itself and incidents that
+     * are not yet enriched are excluded from training.
+     */
+    @Test
+    void retrain_ignoresLocalLabelsAndUnenrichedIncidents() {
+        List<Incident> incidents = new ArrayList<>(trainingSet(5));
+        Incident local = incident("Disk usage reached critical levels", "LOW", "DATA");
+        local.setClassificationSource(Incident.SOURCE_LOCAL);
+        Incident pending = incident("Disk usage reached critical levels", "PENDING", "PENDING");
+        pending.setAiStatus("PENDING");
+        incidents.add(local);
+        incidents.add(pending);
+        when(repository.streamAll(any(String[].class))).thenAnswer(invocation -> incidents.stream());
+
+        assertThat(classifier(0.9, 1).retrain()).isEqualTo(10);
+    }
+
+    /**
+     * Ensures low-confidence predictions are not returned.
+     */
+    @Test
+    void classify_belowThreshold_returnsNull() {
+        when(repository.streamAll(any(String[].class))).thenAnswer(invocation -> trainingSet(20).stream());
+        LocalIncidentClassifier classifier = classifier(1.0, 10);
+        classifier.retrain();
+
+        assertThat(classifier.classify("Something unrelated happened")).isNull();
+    }
+
+    private LocalIncidentClassifier classifier(double threshold, int minSamples) {
+        return new LocalIncidentClassifier(repository, new SimpleMeterRegistry(), true, threshold, minSamples, 30);
+    }
+
+    private List<Incident> trainingSet(int perClass) {
+        List<Incident> incidents = new ArrayList<>();
+        for (int i = 0; i < perClass; i++) {
+            incidents.add(incident("Unauthorized login attempts detected from multiple IP addresses at " + i,
+                    "CRITICAL", "SECURITY"));
+            incidents.add(incident("Database latency increased after deployment, queries exceeding SLA " + i,
+                    "MEDIUM", "PERFORMANCE"));
+        }
+        return incidents;
+    }
+
+    private Incident incident(String description, String severity, String category) {
+        Incident incident = new Incident();
+        incident.setDescription(description);
+        incident.setSeverity(severity);
+        incident.setCategory(category);
+        incident.setAiStatus("ENRICHED");
+        return incident;
+    }
+}
@@ -0,0 +1,86 @@
+package com.stephenusselman.incidentservice.service.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.stephenusselman.incidentservice.dto.ai.IncidentEnrichmentResult;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class NearDuplicateIndexTest {
+
+    private static final String BASE =
+            "Unauthorized login attempts detected from multiple IP addresses within a short time window.";
+
+    private static final String VERSION = "incident-enrichment-v1";
+
+    private static final String MODEL = "model-a";
+
+    /**
+     * Ensures descriptions that differ only in numbers are matched, while
+     * unrelated descriptions are not.
+     */
+    @Test
+    void findSimilar_matchesDescriptionsDifferingOnlyInNumbers() {
+        NearDuplicateIndex index = index(0.8, 100);
+        index.add(VERSION, MODEL, BASE + " Observed at 14:37 UTC on host web-01.", result("SECURITY"));
+
+        assertThat(index.findSimilar(VERSION, MODEL, BASE + " Observed at 22:05 UTC on host web-17."))
+                .isNotNull()
+                .extracting(IncidentEnrichmentResult::getCategory)
+                .isEqualTo("SECURITY");
+        assertThat(index.findSimilar(VERSION, MODEL, BASE + " Observed at 22:05 UTC on host web-17.").getSummary()).isNull();
+        assertThat(index.findSimilar(VERSION, MODEL, "Disk usage on production server has reached critical levels.")).isNull();
+        assertThat(index.getHitRate()).isEqualTo(2.0 / 3);
+    }
+
+    /**
+     * Ensures the similarity threshold is enforced.
+     */
+    @Test
+    void findSimilar_respectsThreshold() {
+        NearDuplicateIndex strict = index(1.0, 100);
+        strict.add(VERSION, MODEL, BASE, result("SECURITY"));
+
+        assertThat(strict.findSimilar(VERSION, MODEL, BASE + " Impact level reported as high.")).isNull();
+        assertThat(strict.findSimilar(VERSION, MODEL, BASE.toUpperCase())).isNotNull();
+    }
+
+    /**
+     * Ensures the index is bounded and evicts the least recently used entry.
+     */
+    @Test
+    void add_evictsLeastRecentlyUsedEntry() {
+        NearDuplicateIndex index = index(0.8, 2);
+        index.add(VERSION, MODEL, "primary network link is down", result("AVAILABILITY"));
+        index.add(VERSION, MODEL, "ssl certificate is nearing expiration", result("SECURITY"));
+        index.add(VERSION, MODEL, "scheduled batch job failed due to insufficient memory", result("OTHER"));
+
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.findSimilar(VERSION, MODEL, "primary network link is down")).isNull();
+        assertThat(index.findSimilar(VERSION, MODEL, "scheduled batch job failed due to insufficient memory")).isNotNull();
+    }
+
+    /**
+     * Ensures results are only matched within the prompt version and model
+     * that produced them.
+     */
+    @Test
+    void findSimilar_onlyMatchesSamePromptVersionAndModel() {
+        NearDuplicateIndex index = index(0.8, 100);
+        index.add(VERSION, MODEL, BASE, result("SECURITY"));
+
+        assertThat(index.findSimilar("incident-enrichment-v2", MODEL, BASE)).isNull();
+        assertThat(index.findSimilar(VERSION, "other-model", BASE)).isNull();
+        assertThat(index.findSimilar(VERSION, MODEL, BASE)).isNotNull();
+    }
+
+    private NearDuplicateIndex index(double threshold, int maxEntries) {
+        return new NearDuplicateIndex(new SimpleMeterRegistry(), true, threshold, maxEntries, 2, 16, 4, false);
+    }
+
+    private IncidentEnrichmentResult result(String category) {
+        return new IncidentEnrichmentResult("HIGH", category, "summary", "action");
+    }
+}
@@ -0,0 +1,99 @@
+package com.stephenusselman.incidentservice.service.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class PromptTemplateRegistryTest {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Ensures a requested version wins, unknown requests fall back, and the
+     * rollout splits incidents by a stable bucket.
+     */
+    @Test
+    void select_prefersRequestedVersionThenRollout() throws Exception {
+        Files.writeString(directory.resolve("incident-enrichment-v2.txt"), "v2 {{description}}");
+        PromptTemplateRegistry registry = registry("incident-enrichment-v2", 50);
+
+        assertThat(registry.select("INC-1", "incident-enrichment-v1")).isEqualTo("incident-enrichment-v1");
+        assertThat(registry.select("INC-1", "incident-enrichment-batch-v1")).isIn(
+                "incident-enrichment-v1", "incident-enrichment-v2");
+
+        int rolledOut = 0;
+        for (int i = 0; i < 1000; i++) {
+            String version = registry.select("INC-" + i, null);
+            assertThat(registry.select("INC-" + i, "missing")).isEqualTo(version);
+            if (version.equals("incident-enrichment-v2")) {
+                rolledOut++;
+            }
+        }
+        assertThat(rolledOut).isBetween(400, 600);
+        assertThat(registry.isBatchable("incident-enrichment-v2")).isFalse();
+        assertThat(registry.isBatchable("incident-enrichment-v1")).isTrue();
+    }
+
+    /**
+     * Ensures added files are picked up on reload, an in-place edit of a
+     * loaded version is rejected while files may still override bundled
+     * versions at startup, a broken file keeps its previous template, and
+     * unchanged polls report no change.
+     */
+    @Test
+    void reload_picksUpNewTemplatesButNotEditsOfLoadedOnes() throws Exception {
+        Path file = directory.resolve("incident-enrichment-v1.txt");
+        Files.writeString(file, "first {{description}}");
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PromptTemplateRegistry registry = new PromptTemplateRegistry(null, meterRegistry, "incident-enrichment-v1",
+                "incident-enrichment-batch-v1", "", 0, directory.toString(), 10_000);
+        assertThat(registry.template(null).render(name -> "x")).isEqualTo("first x");
+        assertThat(registry.reload()).isFalse();
+
+        Files.writeString(file, "second {{description}}");
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().plusSeconds(5)));
+        assertThat(registry.reload()).isFalse();
+        assertThat(registry.template(null).render(name -> "x")).isEqualTo("first x");
+        assertThat(meterRegistry.get("ai.prompts.reloads").tag("result", "rejected").counter().count())
+                .isEqualTo(1);
+
+        Files.writeString(directory.resolve("incident-enrichment-v3.txt"), "third");
+        assertThat(registry.reload()).isTrue();
+        assertThat(registry.template("incident-enrichment-v3").render(name -> "x")).isEqualTo("third");
+        assertThat(registry.template(null).render(name -> "x")).isEqualTo("first x");
+
+        Files.writeString(file, "broken {{ }}");
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().plusSeconds(10)));
+        registry.reload();
+        assertThat(registry.template(null).render(name -> "x")).isEqualTo("first x");
+    }
+
+    /**
+     * Ensures invalid rollout settings are rejected at startup.
+     */
+    @Test
+    void constructor_rejectsInvalidSettings() {
+        assertThatThrownBy(() -> registry("incident-enrichment-v1", 101))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> registry("", 10))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> registry("incident-enrichment-v9", 10))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("incident-enrichment-v9");
+    }
+
+    private PromptTemplateRegistry registry(String rolloutVersion, int rolloutPercent) {
+        return new PromptTemplateRegistry(null, new SimpleMeterRegistry(), "incident-enrichment-v1",
+                "incident-enrichment-batch-v1", rolloutVersion, rolloutPercent, directory.toString(), 10_000);
+    }
+}
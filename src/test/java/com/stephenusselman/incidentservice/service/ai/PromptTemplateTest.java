@@ -0,0 +1,50 @@
+package com.stephenusselman.incidentservice.service.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class PromptTemplateTest {
+
+    /**
+     * Ensures every placeholder is substituted, including repeated ones and
+     * ones at either end of the template.
+     */
+    @Test
+    void render_substitutesEveryPlaceholder() {
+        PromptTemplate template = PromptTemplate.parse("v1", "{{a}} and {{ b }} then {{a}}");
+
+        String prompt = template.render(Map.of("a", "x", "b", "yy")::get);
+
+        assertThat(prompt).isEqualTo("x and yy then x");
+        assertThat(template.placeholders()).containsExactly("a", "b");
+    }
+
+    /**
+     * Ensures an opening brace pair without a closing one is kept as text.
+     */
+    @Test
+    void parse_keepsUnterminatedPlaceholderAsLiteral() {
+        PromptTemplate template = PromptTemplate.parse("v1", "Return {\"a\": 1} {{name}} {{ tail");
+
+        assertThat(template.render(name -> "value")).isEqualTo("Return {\"a\": 1} value {{ tail");
+    }
+
+    /**
+     * Ensures a placeholder without a value fails instead of rendering a
+     * partial prompt.
+     */
+    @Test
+    void render_withMissingValue_fails() {
+        PromptTemplate template = PromptTemplate.parse("v1", "Incident {{incidentId}}");
+
+        assertThatThrownBy(() -> template.render(name -> null))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("incidentId");
+        assertThatThrownBy(() -> PromptTemplate.parse("v1", "Incident {{ }}"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
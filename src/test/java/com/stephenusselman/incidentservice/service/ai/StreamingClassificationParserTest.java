@@ -0,0 +1,70 @@
+package com.stephenusselman.incidentservice.service.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.stephenusselman.incidentservice.dto.ai.IncidentEnrichmentResult;
+
+class StreamingClassificationParserTest {
+
+    private List<IncidentEnrichmentResult> reported;
+
+    private StreamingClassificationParser parser;
+
+    @BeforeEach
+    void setUp() {
+        reported = new ArrayList<>();
+        parser = new StreamingClassificationParser(new JsonFactory(), reported::add);
+    }
+
+    /**
+     * Ensures the classification is reported once both fields are complete,
+     * even when values are split across deltas, and before the summary arrives.
+     */
+    @Test
+    void feed_reportsClassificationAsSoonAsBothFieldsComplete() {
+        parser.feed("{\"severity\": \"HI");
+        parser.feed("GH\", \"categ");
+        assertThat(reported).isEmpty();
+
+        parser.feed("ory\": \"SECURITY\", \"summary\": \"Cred");
+        assertThat(reported).hasSize(1);
+        assertThat(reported.get(0).getSeverity()).isEqualTo("HIGH");
+        assertThat(reported.get(0).getCategory()).isEqualTo("SECURITY");
+        assertThat(reported.get(0).getSummary()).isNull();
+
+        parser.feed("ential leak\", \"recommendedAction\": \"Rotate keys\"}");
+        assertThat(reported).hasSize(1);
+    }
+
+    /**
+     * Ensures prose or code fences before the object are skipped and nested
+     * fields with the same names are ignored.
+     */
+    @Test
+    void feed_skipsLeadingTextAndNestedFields() {
+        parser.feed("Here you go:\n```json\n{\"details\": {\"severity\": \"LOW\"},");
+        parser.feed(" \"category\": \"DATA\", \"severity\": \"MEDIUM\"}");
+
+        assertThat(reported).hasSize(1);
+        assertThat(reported.get(0).getSeverity()).isEqualTo("MEDIUM");
+        assertThat(reported.get(0).getCategory()).isEqualTo("DATA");
+    }
+
+    /**
+     * Ensures malformed output stops the parser without reporting anything.
+     */
+    @Test
+    void feed_onMalformedJson_reportsNothing() {
+        parser.feed("{severity: HIGH, ");
+        parser.feed("\"category\": \"SECURITY\", \"severity\": \"HIGH\"}");
+
+        assertThat(reported).isEmpty();
+    }
+}
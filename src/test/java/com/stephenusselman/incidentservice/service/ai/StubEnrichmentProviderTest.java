@@ -0,0 +1,101 @@
+package com.stephenusselman.incidentservice.service.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.openai.errors.RateLimitException;
+import com.stephenusselman.incidentservice.dto.ai.IncidentEnrichmentRequest;
+import com.stephenusselman.incidentservice.dto.ai.IncidentEnrichmentResult;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class StubEnrichmentProviderTest {
+
+    private StubEnrichmentProvider provider;
+
+    @AfterEach
+    void tearDown() {
+        if (provider != null) {
+            provider.stop();
+        }
+    }
+
+    /**
+     * Ensures the same description always gets the same classification.
+     */
+    @Test
+    void classify_isDeterministic() {
+        IncidentEnrichmentResult first = StubEnrichmentProvider.classify("Unauthorized login attempts from 10.0.0.1");
+        IncidentEnrichmentResult second = StubEnrichmentProvider.classify("Unauthorized login attempts from 10.0.0.1");
+
+        assertThat(first).isEqualTo(second);
+        assertThat(first.getSeverity()).isEqualTo("CRITICAL");
+        assertThat(first.getCategory()).isEqualTo("SECURITY");
+        assertThat(StubEnrichmentProvider.classify("Checkout page is slow").getCategory()).isEqualTo("PERFORMANCE");
+        assertThat(StubEnrichmentProvider.classify("Printer jammed").getSeverity()).isEqualTo("MEDIUM");
+    }
+
+    /**
+     * Ensures async calls complete after the configured latency without failures.
+     */
+    @Test
+    void enrichIncidentsAsync_completesAfterLatency() throws Exception {
+        provider = stub("fixed", 50, 0, 0);
+
+        long start = System.nanoTime();
+        Map<String, IncidentEnrichmentResult> results = provider.enrichIncidentsAsync(
+                List.of(request("A", "Database replication lag"), request("B", "Site outage")))
+                .get(1, TimeUnit.SECONDS);
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(45);
+        assertThat(results).containsOnlyKeys("A", "B");
+        assertThat(results.get("B").getCategory()).isEqualTo("AVAILABILITY");
+    }
+
+    /**
+     * Ensures 429 injection raises the SDK's rate limit error, which the
+     * concurrency limiter treats as overload.
+     */
+    @Test
+    void rateLimitInjection_throwsRateLimitException() {
+        provider = stub("fixed", 0, 0, 1.0);
+
+        RateLimitException error = assertThrows(RateLimitException.class,
+                () -> provider.enrichIncident(request("A", "Disk full")));
+        assertThat(AdaptiveConcurrencyLimiter.isOverload(error)).isTrue();
+
+        CompletableFuture<IncidentEnrichmentResult> async = provider.enrichIncidentAsync(request("B", "Disk full"));
+        ExecutionException wrapped = assertThrows(ExecutionException.class, () -> async.get(1, TimeUnit.SECONDS));
+        assertThat(wrapped.getCause()).isInstanceOf(RateLimitException.class);
+    }
+
+    /**
+     * Ensures sampled latencies stay inside the configured bounds.
+     */
+    @Test
+    void sampleLatency_isClampedToBounds() {
+        provider = new StubEnrichmentProvider(new SimpleMeterRegistry(), "lognormal", 100, 2.0, 20, 400, 0, 0, 7);
+
+        for (int i = 0; i < 1000; i++) {
+            assertThat(provider.sampleLatencyMs()).isBetween(20L, 400L);
+        }
+    }
+
+    private StubEnrichmentProvider stub(String distribution, long medianMs, double errorRate, double rateLimitRate) {
+        return new StubEnrichmentProvider(
+                new SimpleMeterRegistry(), distribution, medianMs, 0.5, 0, 10_000, errorRate, rateLimitRate, 42);
+    }
+
+    private IncidentEnrichmentRequest request(String incidentId, String description) {
+        return new IncidentEnrichmentRequest(incidentId, description, "user", "2024-01-01T00:00:00Z");
+    }
+}
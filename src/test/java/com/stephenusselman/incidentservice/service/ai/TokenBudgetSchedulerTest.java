@@ -0,0 +1,144 @@
+package com.stephenusselman.incidentservice.service.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import com.stephenusselman.incidentservice.dto.ai.IncidentEnrichmentRequest;
+import com.stephenusselman.incidentservice.dto.ai.IncidentEnrichmentResult;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class TokenBudgetSchedulerTest {
+
+    private AiEnrichmentService aiEnrichmentService;
+
+    private ThreadPoolTaskScheduler scheduler;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        aiEnrichmentService = mock(AiEnrichmentService.class);
+        when(aiEnrichmentService.estimatePromptTokens(any())).thenReturn(0);
+        when(aiEnrichmentService.estimatePromptTokens(argThat(r -> r != null && "HUGE".equals(r.getIncidentId()))))
+                .thenReturn(1_000_000);
+
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.initialize();
+
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    /**
+     * Ensures calls within the budget start immediately.
+     */
+    @Test
+    void submit_withinBudget_runsImmediately() throws Exception {
+        TokenBudgetScheduler budget = budget(60_000, 60_000);
+
+        IncidentEnrichmentResult result = budget.submit(request("INC-1", "Disk nearly full"),
+                () -> CompletableFuture.completedFuture(result())).get(1, TimeUnit.SECONDS);
+
+        assertThat(result.getSeverity()).isEqualTo("LOW");
+        assertThat(meterRegistry.get("ai.token-budget.reserved").counter().count()).isEqualTo(100);
+    }
+
+    /**
+     * Ensures waiting calls are admitted most urgent first once the budget refills.
+     */
+    @Test
+    void submit_whenBudgetExhausted_admitsByPriority() throws Exception {
+        TokenBudgetScheduler budget = budget(60_000, 60_000);
+        budget.submit(request("HUGE", "Bulk import"), () -> CompletableFuture.completedFuture(result()))
+                .get(1, TimeUnit.SECONDS);
+
+        List<String> started = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<IncidentEnrichmentResult>> futures = new ArrayList<>();
+        for (String[] incident : new String[][] {
+                {"INC-LOW", "Certificate warning on staging"},
+                {"INC-NORMAL", "User asked for a password reset"},
+                {"INC-CRITICAL", "Unauthorized access to the admin console"}}) {
+            futures.add(budget.submit(request(incident[0], incident[1]), () -> {
+                started.add(incident[0]);
+                return CompletableFuture.completedFuture(result());
+            }));
+        }
+
+        assertThat(budget.getQueued(EnrichmentPriority.CRITICAL)).isEqualTo(1);
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+        assertThat(started).containsExactly("INC-CRITICAL", "INC-NORMAL", "INC-LOW");
+        assertThat(meterRegistry.get("ai.enrichment.scheduler.wait")
+                .tag("priority", "critical").timer().count()).isEqualTo(1);
+    }
+
+    /**
+     * Ensures a call that waits longer than max-wait-ms is parked, not run.
+     */
+    @Test
+    void submit_waitingTooLong_failsWithNotPermitted() throws Exception {
+        TokenBudgetScheduler budget = budget(1_000, 50);
+        budget.submit(request("HUGE", "Bulk import"), () -> CompletableFuture.completedFuture(result()))
+                .get(1, TimeUnit.SECONDS);
+
+        List<String> started = Collections.synchronizedList(new ArrayList<>());
+        CompletableFuture<IncidentEnrichmentResult> waiting = budget.submit(request("INC-1", "Outage"), () -> {
+            started.add("INC-1");
+            return CompletableFuture.completedFuture(result());
+        });
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> waiting.get(1, TimeUnit.SECONDS));
+        assertThat(error.getCause()).isInstanceOf(AiCallNotPermittedException.class);
+        assertThat(started).isEmpty();
+        assertThat(budget.getQueued(EnrichmentPriority.CRITICAL)).isZero();
+    }
+
+    /**
+     * Ensures the keyword heuristics pick the most urgent matching class.
+     */
+    @Test
+    void priority_usesMostUrgentKeyword() {
+        assertThat(EnrichmentPriority.of("Possible data breach, login errors")).isEqualTo(EnrichmentPriority.CRITICAL);
+        assertThat(EnrichmentPriority.of("Checkout requests timing out")).isEqualTo(EnrichmentPriority.HIGH);
+        assertThat(EnrichmentPriority.of("Disk usage warning")).isEqualTo(EnrichmentPriority.LOW);
+        assertThat(EnrichmentPriority.of("Printer on floor 3")).isEqualTo(EnrichmentPriority.NORMAL);
+        assertThat(EnrichmentPriority.of(null)).isEqualTo(EnrichmentPriority.NORMAL);
+    }
+
+    /**
+     * Creates an enabled scheduler that charges 100 output tokens per call.
+     */
+    private TokenBudgetScheduler budget(long tokensPerMinute, long maxWaitMs) {
+        return new TokenBudgetScheduler(
+                aiEnrichmentService, scheduler, meterRegistry, true, tokensPerMinute, 100, maxWaitMs);
+    }
+
+    private IncidentEnrichmentRequest request(String incidentId, String description) {
+        return new IncidentEnrichmentRequest(incidentId, description, "user", "2024-01-01T00:00:00Z");
+    }
+
+    private IncidentEnrichmentResult result() {
+        return new IncidentEnrichmentResult("LOW", "OTHER", "summary", "action");
+    }
+}